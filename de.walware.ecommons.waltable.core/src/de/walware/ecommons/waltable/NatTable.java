@@ -54,6 +54,7 @@ import de.walware.ecommons.waltable.config.IConfiguration;
 import de.walware.ecommons.waltable.conflation.EventConflaterChain;
 import de.walware.ecommons.waltable.conflation.IEventConflater;
 import de.walware.ecommons.waltable.conflation.VisualChangeEventConflater;
+import de.walware.ecommons.waltable.coordinate.LRange;
 import de.walware.ecommons.waltable.coordinate.LRectangle;
 import de.walware.ecommons.waltable.coordinate.Orientation;
 import de.walware.ecommons.waltable.coordinate.PixelOutOfBoundsException;
@@ -71,10 +72,12 @@ import de.walware.ecommons.waltable.layer.event.IVisualChangeEvent;
 import de.walware.ecommons.waltable.painter.IOverlayPainter;
 import de.walware.ecommons.waltable.painter.layer.ILayerPainter;
 import de.walware.ecommons.waltable.painter.layer.NatLayerPainter;
+import de.walware.ecommons.waltable.painter.layer.TileCache;
 import de.walware.ecommons.waltable.persistence.IPersistable;
 import de.walware.ecommons.waltable.selection.CellSelectionEvent;
 import de.walware.ecommons.waltable.swt.SWTUtil;
 import de.walware.ecommons.waltable.ui.IClientAreaProvider;
+import de.walware.ecommons.waltable.ui.IContentMover;
 import de.walware.ecommons.waltable.ui.binding.UiBindingRegistry;
 import de.walware.ecommons.waltable.ui.mode.ConfigurableModeEventHandler;
 import de.walware.ecommons.waltable.ui.mode.Mode;
@@ -83,7 +86,8 @@ import de.walware.ecommons.waltable.util.GUIHelper;
 import de.walware.ecommons.waltable.viewport.RecalculateScrollBarsCommand;
 
 
-public class NatTable extends Canvas implements ILayer, PaintListener, ILayerListener, IPersistable {
+public class NatTable extends Canvas implements ILayer, PaintListener, ILayerListener, IPersistable,
+		IContentMover {
 	
 	public static final int DEFAULT_STYLE_OPTIONS= SWT.NO_BACKGROUND | SWT.NO_REDRAW_RESIZE | SWT.DOUBLE_BUFFERED  | SWT.V_SCROLL | SWT.H_SCROLL;
 	
@@ -108,7 +112,7 @@ public class NatTable extends Canvas implements ILayer, PaintListener, ILayerLis
 	
 	private ModeSupport modeSupport;
 	
-	private final EventConflaterChain conflaterChain= new EventConflaterChain();
+	private final EventConflaterChain conflaterChain= new EventConflaterChain(true);
 	
 	private final List<IOverlayPainter> overlayPainters= new ArrayList<>();
 	
@@ -332,7 +336,9 @@ public class NatTable extends Canvas implements ILayer, PaintListener, ILayerLis
 		final Rectangle eventRectangle= new Rectangle(event.x, event.y, event.width, event.height);
 		
 		if (!eventRectangle.isEmpty()) {
+			final long startNanos= System.nanoTime();
 			getLayerPainter().paintLayer(this, event.gc, 0, 0, eventRectangle, getConfigRegistry());
+			this.conflaterChain.reportPaintTime(System.nanoTime() - startNanos);
 		}
 	}
 	
@@ -365,6 +371,26 @@ public class NatTable extends Canvas implements ILayer, PaintListener, ILayerLis
 		this.vDim.repaintPosition(rowPosition);
 	}
 	
+	/**
+	 * Repaints only the cells in the specified position rectangle.
+	 * 
+	 * @param positions the column and row positions of the cells to repaint
+	 */
+	public void repaintCells(final LRectangle positions) {
+		final long startColumn= Math.max(positions.x, 0);
+		final long endColumn= Math.min(positions.x + positions.width, this.hDim.getPositionCount());
+		final long startRow= Math.max(positions.y, 0);
+		final long endRow= Math.min(positions.y + positions.height, this.vDim.getPositionCount());
+		if (startColumn >= endColumn || startRow >= endRow) {
+			return;
+		}
+		final int startX= safe(this.hDim.getPositionStart(startColumn));
+		final int endX= safe(this.hDim.getPositionStart(endColumn - 1) + this.hDim.getPositionSize(endColumn - 1));
+		final int startY= safe(this.vDim.getPositionStart(startRow));
+		final int endY= safe(this.vDim.getPositionStart(endRow - 1) + this.vDim.getPositionSize(endRow - 1));
+		redraw(startX, startY, endX - startX, endY - startY, false);
+	}
+	
 	protected void repaint(final Orientation orientation, final int start, final int size) {
 		if (orientation == HORIZONTAL) {
 			redraw(start, 0, size, safe(getHeight()), true);
@@ -375,10 +401,89 @@ public class NatTable extends Canvas implements ILayer, PaintListener, ILayerLis
 	}
 	
 	
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The content is moved over the whole height / width of the table, so headers and frozen
+	 * areas in the columns / rows of the viewport move along; only the exposed part is
+	 * repainted. The method must be called before the layers change their state, because
+	 * pending paint requests are processed before the content is moved.</p>
+	 * <p>
+	 * The content is not moved if the method is not called in the display thread or overlay
+	 * painters are registered. The tiles of a {@link TileCache} are moved in both cases if the
+	 * method is called in the display thread.</p>
+	 */
+	@Override
+	public boolean moveContent(final Orientation orientation, final LRange range,
+			final long pixelDelta) {
+		if (isDisposed() || getDisplay().getThread() != Thread.currentThread()) {
+			return false;
+		}
+		
+		final boolean moveControl= this.overlayPainters.isEmpty();
+		if (moveControl) {
+			moveControlContent(orientation, range, pixelDelta);
+		}
+		// after the control, because it paints pending requests using the tiles
+		final TileCache tileCache= (this.layerPainter instanceof NatLayerPainter) ?
+				((NatLayerPainter) this.layerPainter).getTileCache() : null;
+		if (tileCache != null) {
+			tileCache.moveContent(this, orientation, safe(range.start), safe(range.end), pixelDelta);
+		}
+		return moveControl;
+	}
+	
+	private void moveControlContent(final Orientation orientation, final LRange range,
+			final long pixelDelta) {
+		final Rectangle clientArea= getClientArea();
+		final int start;
+		final int end;
+		if (orientation == HORIZONTAL) {
+			start= Math.max(safe(range.start), clientArea.x);
+			end= Math.min(safe(range.end), clientArea.x + clientArea.width);
+		}
+		else {
+			start= Math.max(safe(range.start), clientArea.y);
+			end= Math.min(safe(range.end), clientArea.y + clientArea.height);
+		}
+		if (start >= end || pixelDelta == 0) {
+			return;
+		}
+		
+		final int size= end - start;
+		if (orientation == HORIZONTAL) {
+			if (Math.abs(pixelDelta) >= size) {
+				redraw(start, clientArea.y, size, clientArea.height, false);
+			}
+			else {
+				scroll(start - (int) pixelDelta, clientArea.y,
+						start, clientArea.y, size, clientArea.height, false );
+			}
+		}
+		else {
+			if (Math.abs(pixelDelta) >= size) {
+				redraw(clientArea.x, start, clientArea.width, size, false);
+			}
+			else {
+				scroll(clientArea.x, start - (int) pixelDelta,
+						clientArea.x, start, clientArea.width, size, false );
+			}
+		}
+	}
+	
+	
 	public void updateResize() {
 		updateResize(true);
 	}
 	
+	/**
+	 * Updates the table after scrolling if the painted content was already moved by
+	 * {@link #moveContent(Orientation, LRange, long)}.
+	 */
+	public void updateScrolled() {
+		updateResize(false);
+	}
+	
 	/**
 	 * Update the table screen by re-calculating everything again. It should not
 	 * be called too frequently.
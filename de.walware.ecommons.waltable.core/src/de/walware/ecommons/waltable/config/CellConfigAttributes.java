@@ -11,6 +11,7 @@
 package de.walware.ecommons.waltable.config;
 
 import de.walware.ecommons.waltable.data.convert.IDisplayConverter;
+import de.walware.ecommons.waltable.layer.cell.DisplayStringCache;
 import de.walware.ecommons.waltable.painter.cell.ICellPainter;
 import de.walware.ecommons.waltable.style.ConfigAttribute;
 import de.walware.ecommons.waltable.style.IStyle;
@@ -23,4 +24,9 @@ public interface CellConfigAttributes {
 	
 	ConfigAttribute<IDisplayConverter> DISPLAY_CONVERTER= new ConfigAttribute<>();
 	
+	/**
+	 * Optional cache for the display strings converted by the {@link #DISPLAY_CONVERTER}.
+	 */
+	ConfigAttribute<DisplayStringCache> DISPLAY_STRING_CACHE= new ConfigAttribute<>();
+	
 }
@@ -10,11 +10,15 @@
  ******************************************************************************/
 package de.walware.ecommons.waltable.config;
 
-import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
+import de.walware.ecommons.waltable.layer.InternedLabelStack;
+import de.walware.ecommons.waltable.layer.LabelStackInterner;
 import de.walware.ecommons.waltable.style.ConfigAttribute;
 import de.walware.ecommons.waltable.style.DefaultDisplayModeOrdering;
 import de.walware.ecommons.waltable.style.DisplayMode;
@@ -24,11 +28,77 @@ import de.walware.ecommons.waltable.style.IDisplayModeLookupStrategy;
 public class ConfigRegistry implements IConfigRegistry {
 	
 	
+	/**
+	 * Key for the cache of resolved attribute values.
+	 * <p>
+	 * The labels are interned by the registry, so they are compared by identity.</p>
+	 */
+	private static final class ResolutionKey {
+		
+		
+		private final ConfigAttribute<?> configAttribute;
+		private final DisplayMode displayMode;
+		private final InternedLabelStack configLabels;
+		
+		private final int hash;
+		
+		
+		public ResolutionKey(final ConfigAttribute<?> configAttribute, final DisplayMode displayMode,
+				final InternedLabelStack configLabels) {
+			this.configAttribute= configAttribute;
+			this.displayMode= displayMode;
+			this.configLabels= configLabels;
+			
+			this.hash= (configAttribute.hashCode() * 31 + displayMode.hashCode()) * 31
+					+ System.identityHashCode(configLabels);
+		}
+		
+		
+		@Override
+		public int hashCode() {
+			return this.hash;
+		}
+		
+		@Override
+		public boolean equals(final Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof ResolutionKey)) {
+				return false;
+			}
+			final ResolutionKey other= (ResolutionKey) obj;
+			return (this.configLabels == other.configLabels
+					&& this.configAttribute == other.configAttribute
+					&& this.displayMode == other.displayMode );
+		}
+		
+	}
+	
+	/** Value in the resolution cache for attributes without value */
+	private static final Object NULL_VALUE= new Object();
+	
+	/**
+	 * Maximum number of entries in the resolution cache; if the limit is exceeded,
+	 * the cache is cleared.
+	 */
+	private static final int MAX_CACHE_SIZE= 10000;
+	
+	
 	// Map<configAttributeType, Map<displayMode, Map<configLabel, value>>>
 	final Map<ConfigAttribute<?>, Map<DisplayMode, Map<String, ?>>> configRegistry= new HashMap<>();
 	
 	private IDisplayModeLookupStrategy displayModeLookupStrategy= new DefaultDisplayModeOrdering();
 	
+	private final LabelStackInterner labelStacks= new LabelStackInterner(MAX_CACHE_SIZE);
+	
+	private final Map<ResolutionKey, Object> resolutionCache= new ConcurrentHashMap<>();
+	/** Incremented if the cache is cleared, to discard values resolved before */
+	private final AtomicInteger cacheGeneration= new AtomicInteger();
+	
+	private final AtomicLong cacheHitCount= new AtomicLong();
+	private final AtomicLong cacheMissCount= new AtomicLong();
+	
 	
 	public ConfigRegistry() {
 	}
@@ -41,19 +111,89 @@ public class ConfigRegistry implements IConfigRegistry {
 	
 	public void setDisplayModeOrdering(final IDisplayModeLookupStrategy displayModeLookupStrategy) {
 		this.displayModeLookupStrategy= displayModeLookupStrategy;
+		
+		clearCache();
+	}
+	
+	
+	/**
+	 * Clears the cache of resolved attribute values.
+	 * <p>
+	 * The cache is cleared automatically if attributes are registered or unregistered.</p>
+	 */
+	public void clearCache() {
+		this.cacheGeneration.incrementAndGet();
+		this.resolutionCache.clear();
+	}
+	
+	/**
+	 * @return The number of attribute lookups answered by the resolution cache.
+	 */
+	public long getCacheHitCount() {
+		return this.cacheHitCount.get();
+	}
+	
+	/**
+	 * @return The number of attribute lookups which required to resolve the value.
+	 */
+	public long getCacheMissCount() {
+		return this.cacheMissCount.get();
+	}
+	
+	/**
+	 * Resets the cache hit and miss counters.
+	 */
+	public void resetCacheStatistics() {
+		this.cacheHitCount.set(0);
+		this.cacheMissCount.set(0);
 	}
 	
 	
 	@Override
 	public <T> T getConfigAttribute(final ConfigAttribute<T> configAttribute,
 			final DisplayMode targetDisplayMode, final String...configLabels) {
-		return getConfigAttribute(configAttribute, targetDisplayMode, Arrays.asList(configLabels));
+		return getConfigAttribute(configAttribute, targetDisplayMode,
+				this.labelStacks.valueOf(configLabels) );
 	}
 	
 	@Override
-	@SuppressWarnings("unchecked")
 	public <T> T getConfigAttribute(final ConfigAttribute<T> configAttribute,
 			final DisplayMode targetDisplayMode, final List<String> configLabels) {
+		return getConfigAttribute(configAttribute, targetDisplayMode,
+				this.labelStacks.valueOf(configLabels) );
+	}
+	
+	@SuppressWarnings("unchecked")
+	private <T> T getConfigAttribute(final ConfigAttribute<T> configAttribute,
+			final DisplayMode targetDisplayMode, final InternedLabelStack configLabels) {
+		final ResolutionKey key= new ResolutionKey(configAttribute, targetDisplayMode, configLabels);
+		Object value= this.resolutionCache.get(key);
+		if (value != null) {
+			this.cacheHitCount.incrementAndGet();
+		}
+		else {
+			this.cacheMissCount.incrementAndGet();
+			
+			final int generation= this.cacheGeneration.get();
+			value= resolveConfigAttribute(configAttribute, targetDisplayMode, configLabels.getLabels());
+			if (value == null) {
+				value= NULL_VALUE;
+			}
+			if (this.resolutionCache.size() >= MAX_CACHE_SIZE) {
+				this.resolutionCache.clear();
+			}
+			this.resolutionCache.put(key, value);
+			if (this.cacheGeneration.get() != generation) {
+				// the cache was cleared while resolving, the value may be stale
+				this.resolutionCache.remove(key, value);
+			}
+		}
+		return (value != NULL_VALUE) ? (T) value : null;
+	}
+	
+	@SuppressWarnings("unchecked")
+	private <T> T resolveConfigAttribute(final ConfigAttribute<T> configAttribute,
+			final DisplayMode targetDisplayMode, final List<String> configLabels) {
 		T attributeValue= null;
 		
 		final Map<DisplayMode, Map<String, ?>> displayModeConfigAttributeMap= this.configRegistry.get(configAttribute);
@@ -128,6 +268,8 @@ public class ConfigRegistry implements IConfigRegistry {
 		}
 		
 		configAttributeMap.put(configLabel, attributeValue);
+		
+		clearCache();
 	}
 	
 	@Override
@@ -141,6 +283,8 @@ public class ConfigRegistry implements IConfigRegistry {
 				configAttributeMap.remove(configLabel);
 			}
 		}
+		
+		clearCache();
 	}
 	
 }
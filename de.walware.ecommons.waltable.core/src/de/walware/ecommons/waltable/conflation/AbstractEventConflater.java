@@ -10,29 +10,60 @@
  ******************************************************************************/
 package de.walware.ecommons.waltable.conflation;
 
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 
 import de.walware.ecommons.waltable.layer.event.ILayerEvent;
 
 
+/**
+ * Base conflater with a thread-safe queue: events can be added by any thread while the
+ * conflater task drains the queue.
+ * <p>
+ * All access to {@link #queue} is synchronized on the list itself; subclasses accessing
+ * the list directly must do the same.</p>
+ */
 public abstract class AbstractEventConflater implements IEventConflater {
 
 	protected List<ILayerEvent> queue= new LinkedList<>();
 
 	@Override
 	public void addEvent(final ILayerEvent event){
-		this.queue.add(event);
+		final List<ILayerEvent> queue= this.queue;
+		synchronized (queue) {
+			queue.add(event);
+		}
 	}
 	
 	@Override
 	public void clearQueue() {
-		this.queue.clear();
+		final List<ILayerEvent> queue= this.queue;
+		synchronized (queue) {
+			queue.clear();
+		}
 	}
 	
 	@Override
 	public int getCount() {
-		return this.queue.size();
+		final List<ILayerEvent> queue= this.queue;
+		synchronized (queue) {
+			return queue.size();
+		}
+	}
+	
+	/**
+	 * Removes all events currently in the queue.
+	 * 
+	 * @return the removed events in the order they were added
+	 */
+	protected List<ILayerEvent> drainQueue() {
+		final List<ILayerEvent> queue= this.queue;
+		synchronized (queue) {
+			final List<ILayerEvent> events= new ArrayList<>(queue);
+			queue.clear();
+			return events;
+		}
 	}
 
 	@Override
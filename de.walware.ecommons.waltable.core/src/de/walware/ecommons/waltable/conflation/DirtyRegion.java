@@ -0,0 +1,111 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Original authors and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *     Original authors and others - initial API and implementation
+ ******************************************************************************/
+package de.walware.ecommons.waltable.conflation;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import de.walware.ecommons.waltable.coordinate.LRectangle;
+
+
+/**
+ * Accumulates changed position rectangles.
+ * <p>
+ * Overlapping and touching rectangles are merged to their union. If the number of
+ * rectangles exceeds a limit, the region collapses to the bounding rectangle.</p>
+ */
+public class DirtyRegion {
+	
+	
+	private static final int MAX_RECTANGLES= 16;
+	
+	
+	private final List<LRectangle> rectangles= new ArrayList<>();
+	
+	private boolean all;
+	
+	
+	public DirtyRegion() {
+	}
+	
+	
+	/**
+	 * Adds the specified rectangle to the region.
+	 * 
+	 * @param positions the changed positions
+	 */
+	public void add(final LRectangle positions) {
+		if (this.all || positions.isEmpty()) {
+			return;
+		}
+		LRectangle rect= new LRectangle(positions.x, positions.y, positions.width, positions.height);
+		boolean merged;
+		do {
+			merged= false;
+			for (int i= 0; i < this.rectangles.size(); i++) {
+				final LRectangle other= this.rectangles.get(i);
+				if (touches(rect, other)) {
+					rect= rect.union(other);
+					this.rectangles.remove(i);
+					merged= true;
+					break;
+				}
+			}
+		} while (merged);
+		this.rectangles.add(rect);
+		
+		if (this.rectangles.size() > MAX_RECTANGLES) {
+			LRectangle bounds= this.rectangles.get(0);
+			for (int i= 1; i < this.rectangles.size(); i++) {
+				bounds= bounds.union(this.rectangles.get(i));
+			}
+			this.rectangles.clear();
+			this.rectangles.add(bounds);
+		}
+	}
+	
+	private static boolean touches(final LRectangle rect1, final LRectangle rect2) {
+		return (rect1.x <= rect2.x + rect2.width && rect2.x <= rect1.x + rect1.width
+				&& rect1.y <= rect2.y + rect2.height && rect2.y <= rect1.y + rect1.height );
+	}
+	
+	/**
+	 * Marks the complete area as changed.
+	 */
+	public void addAll() {
+		this.all= true;
+		this.rectangles.clear();
+	}
+	
+	/**
+	 * @return <code>true</code> if the complete area is changed
+	 */
+	public boolean isAll() {
+		return this.all;
+	}
+	
+	public boolean isEmpty() {
+		return (!this.all && this.rectangles.isEmpty());
+	}
+	
+	/**
+	 * @return the disjoint changed rectangles, if not {@link #isAll() all} is changed
+	 */
+	public List<LRectangle> getRectangles() {
+		return this.rectangles;
+	}
+	
+	public void clear() {
+		this.all= false;
+		this.rectangles.clear();
+	}
+	
+}
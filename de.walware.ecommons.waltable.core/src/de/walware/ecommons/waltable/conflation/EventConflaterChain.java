@@ -13,6 +13,9 @@ package de.walware.ecommons.waltable.conflation;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 import de.walware.ecommons.waltable.layer.event.ILayerEvent;
 import de.walware.ecommons.waltable.util.Scheduler;
@@ -22,46 +25,179 @@ import de.walware.ecommons.waltable.util.Scheduler;
  * A Chain of Conflaters. Every conflater in the chain is given the chance to
  * queue an event. When the chain runs every conflater in the chain can run its
  * own task to handle the events as it sees fit.
+ * <p>
+ * In the default mode, the chain runs periodically with a fixed refresh interval.
+ * In the <i>adaptive</i> mode, the chain doesn't run while no events are queued; the first
+ * event schedules a single run. If the last run was longer ago than the current interval,
+ * the chain runs immediately, otherwise it is delayed until the interval is elapsed. The
+ * interval adapts to the reported paint time ({@link #reportPaintTime(long)}), but is
+ * at least {@link #ADAPTIVE_MIN_INTERVAL}. If many events are queued per run, the interval
+ * is extended up to {@link #ADAPTIVE_MAX_INTERVAL}, so more events are conflated into one
+ * run. All chains share one scheduler thread.</p>
  */
 public class EventConflaterChain implements IEventConflater {
 	
 	public static final int DEFAULT_INITIAL_DELAY= 100;
 	public static final int DEFAULT_REFRESH_INTERVAL= 50;
 	
+	/**
+	 * The minimal interval in milliseconds between two runs in adaptive mode.
+	 */
+	public static final int ADAPTIVE_MIN_INTERVAL= 16;
+	
+	/**
+	 * The maximal interval in milliseconds between two runs in adaptive mode, if the
+	 * interval is extended because of a high event rate.
+	 */
+	public static final int ADAPTIVE_MAX_INTERVAL= 100;
+	
+	/**
+	 * The number of events per run in adaptive mode, by which the interval is extended by
+	 * one step.
+	 */
+	private static final int ADAPTIVE_EVENTS_PER_STEP= 32;
+	
 	private static final Scheduler scheduler= new Scheduler("EventConflaterChain"); //$NON-NLS-1$
 	
 	
 	private final List<IEventConflater> chain= new LinkedList<>();
-	private ScheduledFuture<?> future;
-	private boolean started;
+	private final Object lock= new Object();
+	private volatile ScheduledFuture<?> future;
+	private volatile boolean started;
 	private final long refreshInterval;
 	private final long initialDelay;
 	
+	private final boolean adaptive;
+	private final AtomicBoolean runScheduled= new AtomicBoolean();
+	private final Runnable adaptiveTask= new Runnable() {
+		@Override
+		public void run() {
+			if (!EventConflaterChain.this.started) {
+				return;
+			}
+			EventConflaterChain.this.runScheduled.set(false);
+			EventConflaterChain.this.lastRunNanos= System.nanoTime();
+			final long eventCount= EventConflaterChain.this.eventCount.getAndSet(0);
+			EventConflaterChain.this.eventsPerRun= (EventConflaterChain.this.eventsPerRun * 3 + eventCount) / 4;
+			getConflaterTask().run();
+		}
+	};
+	private volatile long lastRunNanos;
+	private final AtomicLong eventCount= new AtomicLong();
+	/** Smoothed number of events per run */
+	private volatile long eventsPerRun;
+	/** Smoothed paint time in nanoseconds */
+	private volatile long paintNanos;
+	
 	
 	public EventConflaterChain() {
 		this(DEFAULT_REFRESH_INTERVAL, DEFAULT_INITIAL_DELAY);
 	}
 	
 	public EventConflaterChain(final int refreshInterval, final int initialDelay) {
+		this(refreshInterval, initialDelay, false);
+	}
+	
+	/**
+	 * Creates a new chain.
+	 * 
+	 * @param adaptive <code>true</code> to use the adaptive mode
+	 */
+	public EventConflaterChain(final boolean adaptive) {
+		this(DEFAULT_REFRESH_INTERVAL, DEFAULT_INITIAL_DELAY, adaptive);
+	}
+	
+	/**
+	 * Creates a new chain.
+	 * 
+	 * @param refreshInterval the refresh interval in milliseconds, only used in the default mode
+	 * @param initialDelay the initial delay in milliseconds, only used in the default mode
+	 * @param adaptive <code>true</code> to use the adaptive mode
+	 */
+	public EventConflaterChain(final int refreshInterval, final int initialDelay, final boolean adaptive) {
 		this.refreshInterval= refreshInterval;
 		this.initialDelay= initialDelay;
+		this.adaptive= adaptive;
 	}
 	
 	public void add(final IEventConflater conflater) {
 		this.chain.add(conflater);
 	}
 	
+	public boolean isAdaptive() {
+		return this.adaptive;
+	}
+	
 	public void start() {
-		if (!this.started) {
-			this.future= scheduler.scheduleWithFixedDelay(getConflaterTask(), this.initialDelay, this.refreshInterval);
-			this.started= true;
+		synchronized (this.lock) {
+			if (!this.started) {
+				this.started= true;
+				if (this.adaptive) {
+					this.lastRunNanos= System.nanoTime();
+					if (getCount() > 0) {
+						scheduleRun();
+					}
+				}
+				else {
+					this.future= scheduler.scheduleWithFixedDelay(getConflaterTask(), this.initialDelay, this.refreshInterval);
+				}
+			}
 		}
 	}
 	
 	public void stop() {
-		if (this.started) {
-			scheduler.unschedule(this.future);
-			this.started= false;
+		synchronized (this.lock) {
+			if (this.started) {
+				this.started= false;
+				final ScheduledFuture<?> future= this.future;
+				this.future= null;
+				if (this.adaptive) {
+					if (future != null) {
+						future.cancel(false);
+					}
+					this.runScheduled.set(false);
+				}
+				else {
+					scheduler.unschedule(future);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Reports the time required to paint the table; used in adaptive mode to adapt the
+	 * interval between two runs.
+	 * 
+	 * @param nanos the paint time in nanoseconds
+	 */
+	public void reportPaintTime(final long nanos) {
+		this.paintNanos= (this.paintNanos * 3 + nanos) / 4;
+	}
+	
+	private long getAdaptiveInterval() {
+		final long interval= Math.max(TimeUnit.MILLISECONDS.toNanos(ADAPTIVE_MIN_INTERVAL),
+				2 * this.paintNanos );
+		final long steps= this.eventsPerRun / ADAPTIVE_EVENTS_PER_STEP;
+		if (steps > 0) {
+			return Math.max(interval, Math.min(interval * (1 + steps),
+					TimeUnit.MILLISECONDS.toNanos(ADAPTIVE_MAX_INTERVAL) ));
+		}
+		return interval;
+	}
+	
+	private void scheduleRun() {
+		if (this.started && this.runScheduled.compareAndSet(false, true)) {
+			synchronized (this.lock) {
+				if (!this.started) {
+					this.runScheduled.set(false);
+					return;
+				}
+				final long interval= getAdaptiveInterval();
+				final long elapsed= System.nanoTime() - this.lastRunNanos;
+				final long delay= (elapsed >= interval) ? 0 :
+						TimeUnit.NANOSECONDS.toMillis(interval - elapsed + 999999);
+				this.future= scheduler.schedule(this.adaptiveTask, delay);
+			}
 		}
 	}
 	
@@ -70,6 +206,10 @@ public class EventConflaterChain implements IEventConflater {
 		for (final IEventConflater eventConflater : this.chain) {
 			eventConflater.addEvent(event);
 		}
+		if (this.adaptive) {
+			this.eventCount.incrementAndGet();
+			scheduleRun();
+		}
 	}
 	
 	@Override
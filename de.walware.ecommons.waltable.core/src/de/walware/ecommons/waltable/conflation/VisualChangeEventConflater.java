@@ -10,17 +10,58 @@
  ******************************************************************************/
 package de.walware.ecommons.waltable.conflation;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
 import de.walware.ecommons.waltable.NatTable;
+import de.walware.ecommons.waltable.coordinate.LRectangle;
+import de.walware.ecommons.waltable.layer.cell.ILayerCell;
+import de.walware.ecommons.waltable.layer.event.CellRangeVisualChangeEvent;
+import de.walware.ecommons.waltable.layer.event.CellVisualChangeEvent;
 import de.walware.ecommons.waltable.layer.event.ILayerEvent;
+import de.walware.ecommons.waltable.layer.event.IStructuralChangeEvent;
 import de.walware.ecommons.waltable.layer.event.IVisualChangeEvent;
+import de.walware.ecommons.waltable.layer.event.RowVisualChangeEvent;
+import de.walware.ecommons.waltable.selection.ISelectionEvent;
+import de.walware.ecommons.waltable.viewport.ScrollEvent;
 
 /**
  * Gathers all the VisualChangeEvents. When its run, it refreshes/repaints the table. 
- *
+ * <p>
+ * The events are merged into a {@link DirtyRegion}, which is flushed at most once per run
+ * in the display thread. If all events are limited to single cells or rows (see
+ * {@link #isPartialRedrawSupported(IVisualChangeEvent)}), only the changed areas are
+ * redrawn, otherwise the table is updated completely. The changed areas are extended to the
+ * complete bounds of spanned cells intersecting them (see
+ * {@link #getRedrawRectangle(LRectangle)}).</p>
+ * <p>
+ * If the queue contains only {@link ScrollEvent scroll events} whose painted content was
+ * already moved by the viewport (see {@link ScrollEvent#isContentMoved()}), only the scroll
+ * bars are updated.</p>
  */
 public class VisualChangeEventConflater extends AbstractEventConflater { 
 
+	/**
+	 * Maximum number of border cells checked for spans per rectangle; larger rectangles are
+	 * redrawn by a complete update.
+	 */
+	private static final long MAX_SPAN_CHECK_CELLS= 4096;
+	
+	
 	private final NatTable natTable;
+	
+	private final AtomicBoolean flushScheduled= new AtomicBoolean();
+	
+	private final DirtyRegion dirtyRegion= new DirtyRegion();
+	
+	private final Runnable flushRunnable= new Runnable() {
+		@Override
+		public void run() {
+			VisualChangeEventConflater.this.flushScheduled.set(false);
+			flush();
+		}
+	};
 
 	public VisualChangeEventConflater(final NatTable ownerLayer) {
 		this.natTable= ownerLayer;
@@ -33,21 +74,152 @@ public class VisualChangeEventConflater extends AbstractEventConflater {
 		}
 	}
 	
+	/**
+	 * Returns if the changes of the specified event can be repainted by a partial redraw of
+	 * the changed position rectangles.
+	 * <p>
+	 * The default implementation supports data updates of cells and rows; selection and
+	 * structural changes require a complete update.</p>
+	 * 
+	 * @param event the event
+	 * @return <code>true</code> if a partial redraw is sufficient
+	 */
+	protected boolean isPartialRedrawSupported(final IVisualChangeEvent event) {
+		return ((event instanceof CellVisualChangeEvent || event instanceof CellRangeVisualChangeEvent
+						|| event instanceof RowVisualChangeEvent )
+				&& !(event instanceof ISelectionEvent || event instanceof IStructuralChangeEvent) );
+	}
+	
+	/**
+	 * Handles the queued events, called in the display thread.
+	 */
+	protected void flush() {
+		if (this.natTable.isDisposed()) {
+			clearQueue();
+			return;
+		}
+		
+		final DirtyRegion region= this.dirtyRegion;
+		try {
+			final List<ILayerEvent> events= drainQueue();
+			if (isContentMoved(events)) {
+				this.natTable.updateScrolled();
+				return;
+			}
+			for (final ILayerEvent event : events) {
+				final IVisualChangeEvent visualEvent= (IVisualChangeEvent) event;
+				if (!isPartialRedrawSupported(visualEvent)) {
+					region.addAll();
+					break;
+				}
+				final Collection<LRectangle> rectangles= visualEvent.getChangedPositionRectangles();
+				if (rectangles == null || rectangles.isEmpty()) {
+					region.addAll();
+					break;
+				}
+				for (final LRectangle rectangle : rectangles) {
+					final LRectangle redrawRectangle= getRedrawRectangle(rectangle);
+					if (redrawRectangle == null) {
+						region.addAll();
+						break;
+					}
+					if (!redrawRectangle.isEmpty()) {
+						region.add(redrawRectangle);
+					}
+				}
+				if (region.isAll()) {
+					break;
+				}
+			}
+			
+			if (region.isAll()) {
+				this.natTable.updateResize();
+			}
+			else {
+				for (final LRectangle rectangle : region.getRectangles()) {
+					this.natTable.repaintCells(rectangle);
+				}
+			}
+		}
+		finally {
+			region.clear();
+		}
+	}
+	
+	/**
+	 * Returns the position rectangle to redraw for the specified changed position rectangle.
+	 * <p>
+	 * The default implementation clips the rectangle to the table and extends it until it
+	 * contains all spanned cells intersecting it, so that a spanned cell is never painted
+	 * only partially.</p>
+	 * 
+	 * @param positions the changed position rectangle
+	 * @return the rectangle to redraw, or <code>null</code> if the table must be updated
+	 *     completely
+	 */
+	protected LRectangle getRedrawRectangle(final LRectangle positions) {
+		final NatTable natTable= this.natTable;
+		final LRectangle rect= positions.intersection(new LRectangle(0, 0,
+				natTable.getColumnCount(), natTable.getRowCount() ));
+		while (!rect.isEmpty()) {
+			if (2 * (rect.width + rect.height) > MAX_SPAN_CHECK_CELLS) {
+				return null;
+			}
+			final LRectangle checked= new LRectangle(rect.x, rect.y, rect.width, rect.height);
+			// a spanned cell partially inside the rectangle always covers one of its border cells
+			final long lastColumn= checked.x + checked.width - 1;
+			final long lastRow= checked.y + checked.height - 1;
+			for (long column= checked.x; column <= lastColumn; column++) {
+				addSpannedCell(rect, natTable.getCellByPosition(column, checked.y));
+				if (lastRow != checked.y) {
+					addSpannedCell(rect, natTable.getCellByPosition(column, lastRow));
+				}
+			}
+			for (long row= checked.y + 1; row < lastRow; row++) {
+				addSpannedCell(rect, natTable.getCellByPosition(checked.x, row));
+				if (lastColumn != checked.x) {
+					addSpannedCell(rect, natTable.getCellByPosition(lastColumn, row));
+				}
+			}
+			if (rect.equals(checked)) {
+				break;
+			}
+		}
+		return rect;
+	}
+	
+	private static void addSpannedCell(final LRectangle rect, final ILayerCell cell) {
+		if (cell != null && cell.isSpannedCell()) {
+			rect.add(new LRectangle(cell.getOriginColumnPosition(), cell.getOriginRowPosition(),
+					cell.getColumnSpan(), cell.getRowSpan() ));
+		}
+	}
+	
+	private boolean isContentMoved(final List<ILayerEvent> events) {
+		if (events.isEmpty()) {
+			return false;
+		}
+		for (final ILayerEvent event : events) {
+			if (!(event instanceof ScrollEvent && ((ScrollEvent) event).isContentMoved())) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
 	@Override
 	public Runnable getConflaterTask() {
 		return new Runnable() {
 
 			@Override
 			public void run() {
-				if (VisualChangeEventConflater.this.queue.size() > 0) {
-					VisualChangeEventConflater.this.natTable.getDisplay().asyncExec(new Runnable() {
-						@Override
-						public void run() {
-							VisualChangeEventConflater.this.natTable.updateResize();
-						}
-					});
-
-					clearQueue();
+				if (getCount() > 0
+						&& VisualChangeEventConflater.this.flushScheduled.compareAndSet(false, true) ) {
+					if (VisualChangeEventConflater.this.natTable.isDisposed()) {
+						return;
+					}
+					VisualChangeEventConflater.this.natTable.getDisplay().asyncExec(
+							VisualChangeEventConflater.this.flushRunnable );
 				}
 			}
 		};
@@ -10,7 +10,23 @@
  ******************************************************************************/
 package de.walware.ecommons.waltable.copy;
 
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.lang.reflect.InvocationTargetException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
@@ -23,15 +39,34 @@ import org.eclipse.swt.dnd.Transfer;
 import org.eclipse.swt.widgets.Display;
 
 import de.walware.ecommons.waltable.command.AbstractLayerCommandHandler;
+import de.walware.ecommons.waltable.config.CellConfigAttributes;
+import de.walware.ecommons.waltable.config.IConfigRegistry;
 import de.walware.ecommons.waltable.coordinate.ILValueIterator;
 import de.walware.ecommons.waltable.coordinate.LRangeList;
 import de.walware.ecommons.waltable.data.ControlData;
 import de.walware.ecommons.waltable.data.IDataProvider;
+import de.walware.ecommons.waltable.data.convert.DefaultBigDecimalDisplayConverter;
+import de.walware.ecommons.waltable.data.convert.DefaultBigIntegerDisplayConverter;
+import de.walware.ecommons.waltable.data.convert.DefaultBooleanDisplayConverter;
+import de.walware.ecommons.waltable.data.convert.DefaultByteDisplayConverter;
+import de.walware.ecommons.waltable.data.convert.DefaultCharacterDisplayConverter;
+import de.walware.ecommons.waltable.data.convert.DefaultDisplayConverter;
+import de.walware.ecommons.waltable.data.convert.DefaultDoubleDisplayConverter;
+import de.walware.ecommons.waltable.data.convert.DefaultFloatDisplayConverter;
+import de.walware.ecommons.waltable.data.convert.DefaultIntegerDisplayConverter;
+import de.walware.ecommons.waltable.data.convert.DefaultLongDisplayConverter;
+import de.walware.ecommons.waltable.data.convert.DefaultShortDisplayConverter;
+import de.walware.ecommons.waltable.data.convert.IDisplayConverter;
+import de.walware.ecommons.waltable.data.convert.PercentageDisplayConverter;
+import de.walware.ecommons.waltable.export.IOutputStreamProvider;
 import de.walware.ecommons.waltable.internal.WaLTablePlugin;
+import de.walware.ecommons.waltable.layer.DataLayer;
 import de.walware.ecommons.waltable.layer.ILayer;
 import de.walware.ecommons.waltable.layer.cell.CellDisplayConversionUtils;
 import de.walware.ecommons.waltable.layer.cell.ILayerCell;
+import de.walware.ecommons.waltable.layer.cell.SnapshotLayerCell;
 import de.walware.ecommons.waltable.selection.SelectionLayer;
+import de.walware.ecommons.waltable.style.DisplayMode;
 import de.walware.ecommons.waltable.ui.ITableUIContext;
 
 
@@ -42,10 +77,506 @@ import de.walware.ecommons.waltable.ui.ITableUIContext;
  * of this handler to a layer above the {@link SelectionLayer}. This way the registered custom
  * instance will consume a {@link CopyToClipboardCommand} and the registered default handler
  * won't be called.
+ * <p>
+ * The selected rows are processed in chunks: the cells of a chunk are collected in the display
+ * thread together with their labels and display mode, the data values are loaded at once and
+ * converted to text (in parallel for large chunks if the converters are thread safe, see
+ * {@link #isParallelConversionSupported()}), and the text is appended in row order.
+ * Large selections are copied in a background thread with progress dialog. If the text exceeds
+ * the maximum length for the clipboard, the copy is aborted or, if a provider is set by
+ * {@link #setCopyToFileProvider(IOutputStreamProvider)}, continued into a file.</p>
  */
 public class CopyToClipboardCommandHandler extends AbstractLayerCommandHandler<CopyToClipboardCommand> {
 	
 	
+	/** Number of rows the data values are loaded and converted for at once */
+	private static final int CHUNK_ROW_COUNT= 256;
+	
+	/** Maximum number of rows and columns copied in the display thread */
+	private static final long SYNC_MAX_COUNT= 1000;
+	
+	/** Maximum length of the text copied to the clipboard */
+	private static final int MAX_CLIPBOARD_LENGTH= 0x2000000;
+	
+	/** Minimum number of cells in a chunk to convert them in parallel */
+	private static final int PARALLEL_THRESHOLD= 4096;
+	/** Number of cells converted by a single parallel task */
+	private static final int PARALLEL_TASK_SIZE= 1024;
+	
+	/** Display converters without state, which can be used by multiple threads */
+	private static final Set<Class<?>> THREAD_SAFE_CONVERTERS= new HashSet<Class<?>>(Arrays.asList(
+			DefaultDisplayConverter.class,
+			DefaultBooleanDisplayConverter.class,
+			DefaultCharacterDisplayConverter.class,
+			DefaultByteDisplayConverter.class,
+			DefaultShortDisplayConverter.class,
+			DefaultIntegerDisplayConverter.class,
+			DefaultLongDisplayConverter.class,
+			DefaultBigIntegerDisplayConverter.class,
+			DefaultFloatDisplayConverter.class,
+			DefaultDoubleDisplayConverter.class,
+			DefaultBigDecimalDisplayConverter.class,
+			PercentageDisplayConverter.class ));
+	
+	private static boolean isOverridden(final Class<?> clazz, final String name,
+			final Class<?>... parameterTypes) {
+		for (Class<?> c= clazz; c != CopyToClipboardCommandHandler.class; c= c.getSuperclass()) {
+			try {
+				c.getDeclaredMethod(name, parameterTypes);
+				return true;
+			}
+			catch (final NoSuchMethodException e) {}
+		}
+		return false;
+	}
+	
+	
+	/**
+	 * Signals that the copy operation cannot be completed in synchronous mode.
+	 */
+	private static final class AsyncDataException extends RuntimeException {
+		
+		private static final long serialVersionUID= 1L;
+		
+		
+		public AsyncDataException() {
+			super(null, null, false, false);
+		}
+		
+	}
+	
+	private class ConvertTask extends RecursiveAction {
+		
+		private static final long serialVersionUID= 1L;
+		
+		
+		private final CopyJob job;
+		private final int start;
+		private final int end;
+		
+		
+		public ConvertTask(final CopyJob job, final int start, final int end) {
+			this.job= job;
+			this.start= start;
+			this.end= end;
+		}
+		
+		
+		@Override
+		protected void compute() {
+			if ((this.end - this.start) * this.job.columnCount <= PARALLEL_TASK_SIZE
+					|| this.end - this.start == 1 ) {
+				this.job.convertRows(this.start, this.end);
+				return;
+			}
+			final int middle= (this.start + this.end) >>> 1;
+			invokeAll(new ConvertTask(this.job, this.start, middle),
+					new ConvertTask(this.job, middle, this.end) );
+		}
+		
+	}
+	
+	/**
+	 * A single copy operation.
+	 */
+	private class CopyJob {
+		
+		
+		private final CopyToClipboardCommand command;
+		private final Display display;
+		
+		private final LRangeList selectedRowPositions;
+		private final LRangeList selectedColumnPositions;
+		private final int rowOffset;
+		private final int columnOffset;
+		private final long rowCount;
+		private final int columnCount;
+		
+		/** The cells assembled by a subclass overriding {@link #assembleCopiedDataStructure()} */
+		private final ILayerCell[][] assembledCells;
+		
+		/** The thread safety of the display converter by display mode and labels */
+		private final Map<DisplayMode, Map<List<String>, Boolean>> threadSafeConverters= new EnumMap<>(DisplayMode.class);
+		private ForkJoinPool conversionPool;
+		
+		private ILayerCell[][] chunkCells;
+		private Object[][] chunkValues;
+		private String[] chunkTexts;
+		
+		private boolean sync;
+		
+		private final StringBuilder buffer= new StringBuilder();
+		private Writer fileWriter;
+		
+		
+		public CopyJob(final CopyToClipboardCommand command, final Display display,
+				final LRangeList selectedRowPositions, final LRangeList selectedColumnPositions,
+				final int rowOffset, final int columnOffset) {
+			this.command= command;
+			this.display= display;
+			this.selectedRowPositions= selectedRowPositions;
+			this.selectedColumnPositions= selectedColumnPositions;
+			this.rowOffset= rowOffset;
+			this.columnOffset= columnOffset;
+			this.rowCount= selectedRowPositions.values().size() + rowOffset;
+			this.columnCount= (int) (selectedColumnPositions.values().size() + columnOffset);
+			this.assembledCells= null;
+		}
+		
+		public CopyJob(final CopyToClipboardCommand command, final Display display,
+				final ILayerCell[][] assembledCells) {
+			this.command= command;
+			this.display= display;
+			this.selectedRowPositions= null;
+			this.selectedColumnPositions= null;
+			this.rowOffset= 0;
+			this.columnOffset= 0;
+			this.rowCount= assembledCells.length;
+			this.columnCount= (assembledCells.length > 0) ? assembledCells[0].length : 0;
+			this.assembledCells= assembledCells;
+		}
+		
+		
+		/**
+		 * Collects the text of all rows.
+		 * 
+		 * @param flags the flags to load the data values
+		 * @param monitor the progress monitor or <code>null</code> in synchronous mode
+		 * @throws CoreException if loading the data failed, the text is too large or
+		 * 			the operation was canceled
+		 * @throws AsyncDataException if a value is not available or the text is too large
+		 * 			in synchronous mode
+		 */
+		public void run(final int flags, final IProgressMonitor monitor) throws CoreException {
+			this.sync= (monitor == null);
+			this.buffer.setLength(0);
+			if (monitor != null) {
+				monitor.beginTask("Collecting data to copy...",
+						(int) Math.min((this.rowCount + CHUNK_ROW_COUNT - 1) / CHUNK_ROW_COUNT, Integer.MAX_VALUE) );
+			}
+			
+			try {
+				if (this.assembledCells != null) {
+					runAssembled(flags, monitor);
+				}
+				else {
+					runSelected(flags, monitor);
+				}
+			}
+			finally {
+				this.chunkCells= null;
+				this.chunkValues= null;
+				this.chunkTexts= null;
+				if (this.conversionPool != null) {
+					this.conversionPool.shutdown();
+					this.conversionPool= null;
+				}
+			}
+		}
+		
+		private void runSelected(final int flags, final IProgressMonitor monitor) throws CoreException {
+			final ILValueIterator rowIter= this.selectedRowPositions.values().iterator();
+			final long[] rowPositions= new long[CHUNK_ROW_COUNT];
+			long headerRowPosition= 0;
+			boolean first= true;
+			while (headerRowPosition < this.rowOffset || rowIter.hasNext()) {
+				// header rows are encoded as -(position + 1)
+				int n= 0;
+				while (n < CHUNK_ROW_COUNT && headerRowPosition < this.rowOffset) {
+					rowPositions[n++]= -(++headerRowPosition);
+				}
+				while (n < CHUNK_ROW_COUNT && rowIter.hasNext()) {
+					rowPositions[n++]= rowIter.nextValue();
+				}
+				
+				assembleRows(rowPositions, n);
+				processChunk(n, first, flags, monitor);
+				first= false;
+			}
+		}
+		
+		private void runAssembled(final int flags, final IProgressMonitor monitor) throws CoreException {
+			final ILayerCell[][] assembledCells= this.assembledCells;
+			for (int start= 0; start < assembledCells.length; start+= CHUNK_ROW_COUNT) {
+				final int n= Math.min(assembledCells.length - start, CHUNK_ROW_COUNT);
+				snapshotRows(Arrays.copyOfRange(assembledCells, start, start + n));
+				processChunk(n, (start == 0), flags, monitor);
+			}
+		}
+		
+		private void processChunk(final int n, final boolean firstChunk,
+				final int flags, final IProgressMonitor monitor) throws CoreException {
+			loadValues(n, flags, monitor);
+			
+			this.chunkTexts= new String[n];
+			if (n * this.columnCount >= PARALLEL_THRESHOLD && isChunkThreadSafe(n)) {
+				if (this.conversionPool == null) {
+					this.conversionPool= new ForkJoinPool();
+				}
+				this.conversionPool.invoke(new ConvertTask(this, 0, n));
+			}
+			else {
+				convertRows(0, n);
+			}
+			
+			final String rowDelimeter= this.command.getRowDelimeter();
+			for (int i= 0; i < n; i++) {
+				if (i > 0 || !firstChunk) {
+					append(rowDelimeter);
+				}
+				append(this.chunkTexts[i]);
+			}
+			this.chunkCells= null;
+			this.chunkValues= null;
+			this.chunkTexts= null;
+			
+			if (monitor != null) {
+				if (monitor.isCanceled()) {
+					throw new CoreException(Status.CANCEL_STATUS);
+				}
+				monitor.worked(1);
+			}
+		}
+		
+		private void assembleRows(final long[] rowPositions, final int n) {
+			final ILayerCell[][] cells= new ILayerCell[n][];
+			runInDisplay(new Runnable() {
+				@Override
+				public void run() {
+					for (int i= 0; i < n; i++) {
+						final long rowPosition= rowPositions[i];
+						cells[i]= (rowPosition < 0) ?
+								assembleColumnHeader(CopyJob.this.selectedColumnPositions,
+										CopyJob.this.columnOffset, -rowPosition - 1 ) :
+								assembleBody(CopyJob.this.selectedColumnPositions,
+										CopyJob.this.columnOffset, rowPosition );
+						snapshotCells(cells[i]);
+					}
+				}
+			});
+			this.chunkCells= cells;
+		}
+		
+		private void snapshotRows(final ILayerCell[][] cells) {
+			runInDisplay(new Runnable() {
+				@Override
+				public void run() {
+					for (int i= 0; i < cells.length; i++) {
+						cells[i]= cells[i].clone();
+						snapshotCells(cells[i]);
+					}
+				}
+			});
+			this.chunkCells= cells;
+		}
+		
+		private void snapshotCells(final ILayerCell[] rowCells) {
+			// labels and display mode are required for the conversion in background
+			for (int j= 0; j < rowCells.length; j++) {
+				if (rowCells[j] != null) {
+					rowCells[j]= new SnapshotLayerCell(rowCells[j]);
+				}
+			}
+		}
+		
+		private boolean isChunkThreadSafe(final int n) {
+			if (!isParallelConversionSupported()) {
+				return false;
+			}
+			final IConfigRegistry configRegistry= this.command.getConfigRegistry();
+			for (int i= 0; i < n; i++) {
+				final ILayerCell[] cells= this.chunkCells[i];
+				for (int j= 0; j < cells.length; j++) {
+					final ILayerCell cell= cells[j];
+					if (cell == null) {
+						continue;
+					}
+					final DisplayMode displayMode= cell.getDisplayMode();
+					Map<List<String>, Boolean> byLabels= this.threadSafeConverters.get(displayMode);
+					if (byLabels == null) {
+						byLabels= new HashMap<>();
+						this.threadSafeConverters.put(displayMode, byLabels);
+					}
+					final List<String> labels= cell.getConfigLabels().getLabels();
+					Boolean threadSafe= byLabels.get(labels);
+					if (threadSafe == null) {
+						threadSafe= Boolean.valueOf(isThreadSafe(configRegistry.getConfigAttribute(
+								CellConfigAttributes.DISPLAY_CONVERTER, displayMode, labels )));
+						byLabels.put(labels, threadSafe);
+					}
+					if (!threadSafe.booleanValue()) {
+						return false;
+					}
+				}
+			}
+			return true;
+		}
+		
+		private void loadValues(final int n, final int flags,
+				final IProgressMonitor monitor) throws CoreException {
+			final ILayerCell[][] cells= this.chunkCells;
+			final int columnCount= this.columnCount;
+			{	// load the data of block data providers at once
+				final ILayerCell[] allCells= new ILayerCell[n * columnCount];
+				for (int i= 0; i < n; i++) {
+					System.arraycopy(cells[i], 0, allCells, i * columnCount, columnCount);
+				}
+				DataLayer.preloadDataValues(allCells, allCells.length, flags, monitor);
+			}
+			final Object[][] values= new Object[n][columnCount];
+			for (int i= 0; i < n; i++) {
+				for (int j= 0; j < columnCount; j++) {
+					final ILayerCell cell= cells[i][j];
+					if (cell != null) {
+						final Object dataValue= cell.getDataValue(flags, monitor);
+						if (dataValue instanceof ControlData) {
+							final int code= ((ControlData) dataValue).getCode();
+							if ((code & ControlData.ERROR) != 0) {
+								throw new CoreException((monitor != null && monitor.isCanceled()) ?
+										Status.CANCEL_STATUS :
+										new Status(IStatus.ERROR, WaLTablePlugin.PLUGIN_ID, 0,
+												"Failed to load required data.",
+												null ));
+							}
+							if ((code & ControlData.ASYNC) != 0 && this.sync) {
+								throw new AsyncDataException();
+							}
+						}
+						values[i][j]= dataValue;
+					}
+				}
+			}
+			this.chunkValues= values;
+		}
+		
+		private void convertRows(final int start, final int end) {
+			final String cellDelimeter= this.command.getCellDelimeter();
+			final StringBuilder sb= new StringBuilder();
+			for (int i= start; i < end; i++) {
+				sb.setLength(0);
+				final ILayerCell[] cells= this.chunkCells[i];
+				final Object[] values= this.chunkValues[i];
+				for (int j= 0; j < this.columnCount; ) {
+					final ILayerCell cell= cells[j];
+					if (cell != null) {
+						sb.append(getTextForCell(this.command, cell, values[j]));
+					}
+					if (++j < this.columnCount) {
+						sb.append(cellDelimeter);
+					}
+				}
+				this.chunkTexts[i]= sb.toString();
+			}
+		}
+		
+		private void append(final String text) throws CoreException {
+			try {
+				if (this.fileWriter == null) {
+					if (this.buffer.length() + text.length() <= MAX_CLIPBOARD_LENGTH) {
+						this.buffer.append(text);
+						return;
+					}
+					if (this.sync) {
+						// continue in background with progress
+						throw new AsyncDataException();
+					}
+					openFile();
+				}
+				this.fileWriter.write(text);
+			}
+			catch (final IOException e) {
+				throw new CoreException(new Status(IStatus.ERROR, WaLTablePlugin.PLUGIN_ID, 0,
+						"Failed to write the data to the file.",
+						e ));
+			}
+		}
+		
+		private void openFile() throws IOException, CoreException {
+			final IOutputStreamProvider provider= CopyToClipboardCommandHandler.this.copyToFileProvider;
+			if (provider == null) {
+				throw new CoreException(new Status(IStatus.ERROR, WaLTablePlugin.PLUGIN_ID, 0,
+						"The selected data is too large to be copied to the clipboard.",
+						null ));
+			}
+			final OutputStream[] stream= new OutputStream[1];
+			runInDisplay(new Runnable() {
+				@Override
+				public void run() {
+					stream[0]= provider.getOutputStream(CopyJob.this.display.getActiveShell());
+				}
+			});
+			if (stream[0] == null) {
+				throw new CoreException(Status.CANCEL_STATUS);
+			}
+			this.fileWriter= new BufferedWriter(new OutputStreamWriter(stream[0], StandardCharsets.UTF_8),
+					0x10000 );
+			this.fileWriter.write(this.buffer.toString());
+			this.buffer.setLength(0);
+			this.buffer.trimToSize();
+		}
+		
+		/**
+		 * Transfers the collected text to the clipboard or finishes the file.
+		 */
+		public void finish() throws CoreException {
+			if (this.fileWriter != null) {
+				try {
+					this.fileWriter.close();
+				}
+				catch (final IOException e) {
+					throw new CoreException(new Status(IStatus.ERROR, WaLTablePlugin.PLUGIN_ID, 0,
+							"Failed to write the data to the file.",
+							e ));
+				}
+				finally {
+					this.fileWriter= null;
+				}
+				final Object result= CopyToClipboardCommandHandler.this.copyToFileProvider.getResult();
+				CopyToClipboardCommandHandler.this.uiContext.show(new Status(IStatus.INFO, WaLTablePlugin.PLUGIN_ID,
+						(result instanceof File) ?
+								"The selected data was too large for the clipboard and was copied to the file '" + ((File) result).getPath() + "'." :
+								"The selected data was too large for the clipboard and was copied to a file." ));
+				return;
+			}
+			
+			if (this.buffer.length() > 0) {
+				final Clipboard clipboard= new Clipboard(this.display);
+				try {
+					clipboard.setContents(
+							new Object[]{ this.buffer.toString() },
+							new Transfer[]{ TextTransfer.getInstance() } );
+				}
+				finally {
+					clipboard.dispose();
+				}
+			}
+		}
+		
+		/**
+		 * Releases the resources after a failed copy operation.
+		 */
+		public void dispose() {
+			if (this.fileWriter != null) {
+				try {
+					this.fileWriter.close();
+				}
+				catch (final IOException e) {}
+				this.fileWriter= null;
+			}
+		}
+		
+		private void runInDisplay(final Runnable runnable) {
+			if (this.display.getThread() == Thread.currentThread()) {
+				runnable.run();
+			}
+			else {
+				this.display.syncExec(runnable);
+			}
+		}
+		
+	}
+	
+	
 	/**
 	 * The SelectionLayer needed to retrieve the selected data to copy to the clipboard.
 	 */
@@ -63,6 +594,11 @@ public class CopyToClipboardCommandHandler extends AbstractLayerCommandHandler<C
 	
 	private final ITableUIContext uiContext;
 	
+	private IOutputStreamProvider copyToFileProvider;
+	
+	private final boolean defaultTextConversion;
+	private final boolean legacyAssembly;
+	
 	
 	/**
 	 * Creates an instance that only checks the {@link SelectionLayer} for data to add to the
@@ -94,6 +630,48 @@ public class CopyToClipboardCommandHandler extends AbstractLayerCommandHandler<C
 		this.columnHeaderDataLayer= columnHeaderDataLayer;
 		this.rowHeaderDataLayer= rowHeaderDataLayer;
 		this.uiContext= uiContext;
+		
+		this.defaultTextConversion= !isOverridden(getClass(), "getTextForCell", //$NON-NLS-1$
+				CopyToClipboardCommand.class, ILayerCell.class, Object.class );
+		this.legacyAssembly= isOverridden(getClass(), "assembleCopiedDataStructure"); //$NON-NLS-1$
+	}
+	
+	/**
+	 * Sets the provider for the output stream the data is written to if it is too large for
+	 * the clipboard.
+	 * 
+	 * @param provider the provider or <code>null</code> to disable the fallback
+	 */
+	public void setCopyToFileProvider(final IOutputStreamProvider provider) {
+		this.copyToFileProvider= provider;
+	}
+	
+	/**
+	 * Returns if the cells can be converted to text in parallel threads.
+	 * <p>
+	 * This requires that {@link #getTextForCell} is thread safe; in addition the display
+	 * converters of a chunk are checked by {@link #isThreadSafe(IDisplayConverter)}.
+	 * The default implementation returns <code>true</code> if {@link #getTextForCell} is not
+	 * overridden.</p>
+	 * 
+	 * @return <code>true</code> if parallel conversion is supported, otherwise <code>false</code>
+	 */
+	protected boolean isParallelConversionSupported() {
+		return this.defaultTextConversion;
+	}
+	
+	/**
+	 * Returns if the specified display converter can be used by multiple threads concurrently.
+	 * <p>
+	 * The default implementation returns <code>true</code> for the default converters without
+	 * state, e.g. the numeric converters, but not for converters using a format like
+	 * {@link de.walware.ecommons.waltable.data.convert.DefaultDateDisplayConverter}.</p>
+	 * 
+	 * @param converter the display converter or <code>null</code>
+	 * @return <code>true</code> if the converter is thread safe, otherwise <code>false</code>
+	 */
+	protected boolean isThreadSafe(final IDisplayConverter converter) {
+		return (converter == null || THREAD_SAFE_CONVERTERS.contains(converter.getClass()));
 	}
 	
 	
@@ -104,43 +682,53 @@ public class CopyToClipboardCommandHandler extends AbstractLayerCommandHandler<C
 	}
 	
 	private void doCopy(final CopyToClipboardCommand command) {
-		final ILayerCell[][] copiedCells= assembleCopiedDataStructure();
-		if (copiedCells.length == 0) {
+		final LRangeList selectedRowPositions= this.selectionLayer.getSelectedRowPositions();
+		final LRangeList selectedColumnPositions= this.selectionLayer.getSelectedColumnPositions();
+		
+		final long rowOffset= (this.columnHeaderDataLayer != null) ? this.columnHeaderDataLayer.getRowCount() : 0;
+		final long columnOffset= (this.rowHeaderDataLayer != null) ? this.rowHeaderDataLayer.getColumnCount() : 0;
+		final long rowCount= selectedRowPositions.values().size() + rowOffset;
+		final long columnCount= selectedColumnPositions.values().size() + columnOffset;
+		if (rowCount == 0) {
+			return;
+		}
+		if (columnCount > MAX_CLIPBOARD_LENGTH || rowOffset > Integer.MAX_VALUE) {
+			final Status status= new Status(IStatus.ERROR, WaLTablePlugin.PLUGIN_ID, 0,
+					"The selected data is too large to be copied to the clipboard.",
+					null );
+			this.uiContext.show(status);
 			return;
 		}
-		final int rowCount= copiedCells.length;
-		final int colCount= copiedCells[0].length;
 		
-		final Object[][] values= new Object[rowCount][colCount];
+		final CopyJob job;
+		if (this.legacyAssembly) {
+			final ILayerCell[][] cells= assembleCopiedDataStructure();
+			if (cells.length == 0) {
+				return;
+			}
+			job= new CopyJob(command, Display.getCurrent(), cells);
+		}
+		else {
+			job= new CopyJob(command, Display.getCurrent(),
+					selectedRowPositions, selectedColumnPositions, (int) rowOffset, (int) columnOffset );
+		}
 		try {
-			if (rowCount <= 1000 && colCount <= 1000) {
-				for (int rowIdx= 0; rowIdx < rowCount; rowIdx++) {
-					for (int colIdx= 0; colIdx < colCount; colIdx++) {
-						final ILayerCell cell= copiedCells[rowIdx][colIdx];
-						if (cell != null) {
-							final Object dataValue= cell.getDataValue(0, null);
-							if (dataValue instanceof ControlData) {
-								if ((((ControlData) dataValue).getCode() & ControlData.ASYNC) != 0) {
-									loadAsync(copiedCells, values, rowIdx, colIdx);
-									break;
-								}
-								else if ((((ControlData) dataValue).getCode() & ControlData.ERROR) != 0) {
-									throw new CoreException(
-											new Status(IStatus.ERROR, WaLTablePlugin.PLUGIN_ID, 0,
-													"Failed to load required data.",
-													null ));
-								}
-							}
-							values[rowIdx][colIdx]= dataValue;
-						}
-					}
+			boolean done= false;
+			if (job.rowCount <= SYNC_MAX_COUNT && job.columnCount <= SYNC_MAX_COUNT) {
+				try {
+					job.run(0, null);
+					done= true;
+				}
+				catch (final AsyncDataException e) {
 				}
 			}
-			else {
-				loadAsync(copiedCells, values, 0, 0);
+			if (!done) {
+				runAsync(job);
 			}
+			job.finish();
 		}
 		catch (final CoreException e) {
+			job.dispose();
 			if (e.getStatus().getSeverity() != IStatus.ERROR) {
 				return;
 			}
@@ -151,78 +739,16 @@ public class CopyToClipboardCommandHandler extends AbstractLayerCommandHandler<C
 			this.uiContext.show(status);
 			return;
 		}
-		
-		final String textData;
-		{	final String cellDelimeter= command.getCellDelimeter();
-			final String rowDelimeter= command.getRowDelimeter();
-			final StringBuilder textBuilder= new StringBuilder();
-			for (int rowIdx= 0; rowIdx < rowCount; ) {
-				for (int colIdx= 0; colIdx < colCount; ) {
-					final ILayerCell cell= copiedCells[rowIdx][colIdx];
-					if (cell != null) {
-						textBuilder.append(getTextForCell(command, cell, values[rowIdx][colIdx]));
-					}
-					if (++colIdx < colCount) {
-						textBuilder.append(cellDelimeter);
-					}
-				}
-				if (++rowIdx < rowCount) {
-					textBuilder.append(rowDelimeter);
-				}
-			}
-			textData= textBuilder.toString();
-		}
-		
-		if (!textData.isEmpty()) {
-			final Clipboard clipboard= new Clipboard(Display.getDefault());
-			try {
-				clipboard.setContents(
-						new Object[]{ textData },
-						new Transfer[]{ TextTransfer.getInstance() } );
-			}
-			finally {
-				clipboard.dispose();
-			}
-		}
 	}
 	
-	private void loadAsync(final ILayerCell[][] copiedCells, final Object[][] values,
-			final int startRowIdx, final int startColIdx) throws CoreException {
+	private void runAsync(final CopyJob job) throws CoreException {
 		try {
 			this.uiContext.run(true, true, new IRunnableWithProgress() {
 				@Override
 				public void run(final IProgressMonitor monitor)
 						throws InvocationTargetException {
 					try {
-						final int rowCount= copiedCells.length;
-						final int colCount= copiedCells[0].length;
-						
-						monitor.beginTask("Collecting data to copy...", rowCount - startRowIdx);
-						
-						for (int rowIdx= startRowIdx; rowIdx < rowCount; rowIdx++) {
-							for (int colIdx= (rowIdx == startRowIdx) ? startColIdx : 0; colIdx < colCount; colIdx++) {
-								final ILayerCell cell= copiedCells[rowIdx][colIdx];
-								if (cell != null) {
-									final Object dataValue= cell.getDataValue(IDataProvider.FORCE_SYNC,
-											monitor );
-									if (dataValue instanceof ControlData) {
-										if ((((ControlData) dataValue).getCode() & ControlData.ERROR) != 0) {
-											throw new CoreException((monitor.isCanceled()) ?
-													Status.CANCEL_STATUS :
-													new Status(IStatus.ERROR, WaLTablePlugin.PLUGIN_ID, 0,
-															"Failed to load required data.",
-															null ));
-										}
-									}
-									values[rowIdx][colIdx]= dataValue;
-								}
-							}
-							
-							if (monitor.isCanceled()) {
-								throw new CoreException(Status.CANCEL_STATUS);
-							}
-							monitor.worked(1);
-						}
+						job.run(IDataProvider.FORCE_SYNC, monitor);
 					}
 					catch (final Exception e) {
 						throw new InvocationTargetException(e);
@@ -265,7 +791,12 @@ public class CopyToClipboardCommandHandler extends AbstractLayerCommandHandler<C
 	 * @return A two dimensional array containing the selected cells to copy to the clipboard.
 	 * 			The first level of this array represent the row positions of the cells, while the
 	 * 			second level contains the cells itself based on the column position.
+	 * @deprecated The copy operation assembles the cells in chunks by
+	 * 			{@link #assembleColumnHeader(LRangeList, int, long)} and
+	 * 			{@link #assembleBody(LRangeList, int, long)}; override these methods instead.
+	 * 			If the method is overridden, the returned cells are copied as before.
 	 */
+	@Deprecated
 	protected ILayerCell[][] assembleCopiedDataStructure() {
 		final LRangeList selectedRowPositions= this.selectionLayer.getSelectedRowPositions();
 		final LRangeList selectedColumnPositions= this.selectionLayer.getSelectedColumnPositions();
@@ -10,7 +10,13 @@
  ******************************************************************************/
 package de.walware.ecommons.waltable.data;
 
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 import org.eclipse.core.runtime.IProgressMonitor;
 
@@ -28,18 +34,249 @@ import org.eclipse.core.runtime.IProgressMonitor;
  * 
  * NOTE: This way of static filtering can cause performance issues for huge data sets
  * where a lot of items are filtered, because data access will always calculate the visible row
- * position. Trying to use a caching mechanism would create some issues for deleting or inserting
- * new data to the wrapped list.
+ * position.
  * 
- * TODO add caching that reacts on insert/delete actions on the wrapped list
+ * To avoid this, the provider can be created in indexed mode. In indexed mode the indexes of
+ * the visible items in the wrapped list are computed once and kept in an array, so the access
+ * to a row object is O(1) and the reverse lookup from a list index is O(log n). The reverse
+ * lookup from a row object uses a map of the visible items, created at the first lookup, so
+ * it is O(1) too. The index
+ * is not updated automatically, {@link #refilter()} or {@link #refilter(int, int)} must be
+ * called if the list or the filter changes. For large lists the index is computed in parallel
+ * if {@link #isParallelFilterSupported()} returns <code>true</code>.
  * 
  * @param <T> type of the Objects in the backing list.
  * @see IColumnPropertyResolver
  */
 public abstract class AbstractFilterListDataProvider<T> extends ListDataProvider<T> {
 	
+	
+	private static final int PARALLEL_THRESHOLD= 50000;
+	private static final int PARALLEL_CHUNK_SIZE= 10000;
+	
+	private static final int[] NO_INDEXES= new int[0];
+	
+	private static ForkJoinPool filterPool;
+	
+	private static synchronized ForkJoinPool getFilterPool() {
+		if (filterPool == null) {
+			filterPool= new ForkJoinPool();
+		}
+		return filterPool;
+	}
+	
+	
+	private class FilterTask extends RecursiveTask<int[]> {
+		
+		private static final long serialVersionUID= 1L;
+		
+		
+		private final List<T> list;
+		private final int start;
+		private final int end;
+		
+		
+		public FilterTask(final List<T> list, final int start, final int end) {
+			this.list= list;
+			this.start= start;
+			this.end= end;
+		}
+		
+		
+		@Override
+		protected int[] compute() {
+			if (this.end - this.start <= PARALLEL_CHUNK_SIZE) {
+				return filter(this.list, this.start, this.end);
+			}
+			final int middle= (this.start + this.end) >>> 1;
+			final FilterTask task1= new FilterTask(this.list, this.start, middle);
+			final FilterTask task2= new FilterTask(this.list, middle, this.end);
+			task2.fork();
+			final int[] indexes1= task1.compute();
+			final int[] indexes2= task2.join();
+			final int[] indexes= Arrays.copyOf(indexes1, indexes1.length + indexes2.length);
+			System.arraycopy(indexes2, 0, indexes, indexes1.length, indexes2.length);
+			return indexes;
+		}
+		
+	}
+	
+	
+	private final boolean indexed;
+	
+	/** The sorted indexes of the visible items in the list */
+	private volatile int[] visibleIndexes;
+	/** The size of the list when the index was computed */
+	private int indexedListSize;
+	/** The row indexes of the visible items, created on demand */
+	private volatile Map<T, Integer> rowObjectIndexes;
+	
+	
 	public AbstractFilterListDataProvider(final List<T> list, final IColumnAccessor<T> columnAccessor) {
+		this(list, columnAccessor, false);
+	}
+	
+	/**
+	 * @param list The list with the data objects
+	 * @param columnAccessor The accessor for the column values
+	 * @param indexed <code>true</code> to keep an index of the visible items, <code>false</code>
+	 * 			to check the visibility of the items at each access
+	 */
+	public AbstractFilterListDataProvider(final List<T> list, final IColumnAccessor<T> columnAccessor,
+			final boolean indexed) {
 		super(list, columnAccessor);
+		this.indexed= indexed;
+	}
+	
+	
+	/**
+	 * @return <code>true</code> if the provider keeps an index of the visible items
+	 */
+	public boolean isIndexed() {
+		return this.indexed;
+	}
+	
+	/**
+	 * Returns if {@link #show(Object)} can be called concurrently, so the index can be computed
+	 * in parallel.
+	 * 
+	 * @return <code>true</code> if parallel filtering is supported, default is <code>false</code>
+	 */
+	protected boolean isParallelFilterSupported() {
+		return false;
+	}
+	
+	/**
+	 * Recomputes the index of the visible items.
+	 * <p>
+	 * Must be called in indexed mode if the list or the filter changed. In non-indexed mode the
+	 * method does nothing.</p>
+	 */
+	public void refilter() {
+		if (!this.indexed) {
+			return;
+		}
+		synchronized (this) {
+			final List<T> list= this.list;
+			final int size= list.size();
+			final int[] indexes;
+			if (size >= PARALLEL_THRESHOLD && list instanceof RandomAccess
+					&& isParallelFilterSupported() ) {
+				indexes= getFilterPool().invoke(new FilterTask(list, 0, size));
+			}
+			else {
+				indexes= filter(list, 0, size);
+			}
+			this.indexedListSize= size;
+			this.visibleIndexes= indexes;
+			this.rowObjectIndexes= null;
+		}
+	}
+	
+	/**
+	 * Recomputes the index of the visible items for the items in the specified range of the list.
+	 * <p>
+	 * This can be used in indexed mode if items of the list were changed but no items were
+	 * inserted or removed. If the size of the list changed, the complete index is recomputed.
+	 * In non-indexed mode the method does nothing.</p>
+	 * 
+	 * @param fromIndex The index of the first changed item in the list (inclusive)
+	 * @param toIndex The index of the last changed item in the list (exclusive)
+	 */
+	public void refilter(final int fromIndex, final int toIndex) {
+		if (!this.indexed) {
+			return;
+		}
+		synchronized (this) {
+			final int[] indexes= this.visibleIndexes;
+			if (indexes == null || this.indexedListSize != this.list.size()) {
+				refilter();
+				return;
+			}
+			final int from= lowerBound(indexes, fromIndex);
+			final int to= lowerBound(indexes, toIndex);
+			final int[] changed= filter(this.list, fromIndex, toIndex);
+			
+			final int[] newIndexes= new int[indexes.length - (to - from) + changed.length];
+			System.arraycopy(indexes, 0, newIndexes, 0, from);
+			System.arraycopy(changed, 0, newIndexes, from, changed.length);
+			System.arraycopy(indexes, to, newIndexes, from + changed.length, indexes.length - to);
+			this.visibleIndexes= newIndexes;
+			this.rowObjectIndexes= null;
+		}
+	}
+	
+	private int[] filter(final List<T> list, final int start, final int end) {
+		if (start >= end) {
+			return NO_INDEXES;
+		}
+		final int[] indexes= new int[end - start];
+		int count= 0;
+		for (int i= start; i < end; i++) {
+			if (show(list.get(i))) {
+				indexes[count++]= i;
+			}
+		}
+		return (count < indexes.length) ? Arrays.copyOf(indexes, count) : indexes;
+	}
+	
+	private static int lowerBound(final int[] indexes, final int index) {
+		final int idx= Arrays.binarySearch(indexes, index);
+		return (idx >= 0) ? idx : -(idx + 1);
+	}
+	
+	private int[] getVisibleIndexes() {
+		int[] indexes= this.visibleIndexes;
+		if (indexes == null) {
+			refilter();
+			indexes= this.visibleIndexes;
+		}
+		return indexes;
+	}
+	
+	private Map<T, Integer> getRowObjectIndexes() {
+		Map<T, Integer> map= this.rowObjectIndexes;
+		if (map == null) {
+			synchronized (this) {
+				map= this.rowObjectIndexes;
+				if (map == null) {
+					final int[] indexes= getVisibleIndexes();
+					map= new HashMap<>(Math.max((int) (indexes.length / .75f) + 1, 16));
+					for (int rowIndex= indexes.length - 1; rowIndex >= 0; rowIndex--) {
+						// iterate backwards, so the first occurrence wins for equal items
+						map.put(this.list.get(indexes[rowIndex]), Integer.valueOf(rowIndex));
+					}
+					this.rowObjectIndexes= map;
+				}
+			}
+		}
+		return map;
+	}
+	
+	/**
+	 * Returns the visible rowIndex for the given index of an object in the wrapped list.
+	 * 
+	 * @param listIndex The index in the wrapped list
+	 * @return The visible rowIndex or <code>-1</code> if the object is not visible
+	 */
+	public long indexOfListIndex(final int listIndex) {
+		if (listIndex < 0) {
+			return -1;
+		}
+		if (this.indexed) {
+			final int idx= Arrays.binarySearch(getVisibleIndexes(), listIndex);
+			return (idx >= 0) ? idx : -1;
+		}
+		if (!show(this.list.get(listIndex))) {
+			return -1;
+		}
+		long filteredIndex= 0;
+		for (int i= 0; i < listIndex; i++) {
+			if (show(this.list.get(i))) {
+				filteredIndex++;
+			}
+		}
+		return filteredIndex;
 	}
 
 	/**
@@ -49,6 +286,9 @@ public abstract class AbstractFilterListDataProvider<T> extends ListDataProvider
 	 */
 	@Override
 	public long getRowCount() {
+		if (this.indexed) {
+			return getVisibleIndexes().length;
+		}
 		long numberOfInvisible= 0;
 		for (final T object : this.list) {
 			if (!show(object)) {
@@ -87,6 +327,13 @@ public abstract class AbstractFilterListDataProvider<T> extends ListDataProvider
 		if (rowIndex >= Integer.MAX_VALUE) {
 			return null;
 		}
+		if (this.indexed) {
+			final int[] indexes= getVisibleIndexes();
+			if (rowIndex < 0 || rowIndex >= indexes.length) {
+				throw new IndexOutOfBoundsException();
+			}
+			return this.list.get(indexes[(int) rowIndex]);
+		}
 		T object= null;
 		long count= 0;
 		int realRowIndex= 0;
@@ -106,9 +353,14 @@ public abstract class AbstractFilterListDataProvider<T> extends ListDataProvider
 	 * To do this the real row index for the object within the wrapped list
 	 * is searched and then all invisible items are subtracted from the
 	 * real row index to calculate the visible row index.
+	 * In indexed mode the row index is looked up in the map of the visible items.
 	 */
 	@Override
 	public long indexOfRowObject(final T rowObject) {
+		if (this.indexed) {
+			final Integer rowIndex= getRowObjectIndexes().get(rowObject);
+			return (rowIndex != null) ? rowIndex.intValue() : -1;
+		}
 		final int realRowIndex= this.list.indexOf(rowObject);
 		int filteredIndex= realRowIndex;
 		//now find number of not visible items
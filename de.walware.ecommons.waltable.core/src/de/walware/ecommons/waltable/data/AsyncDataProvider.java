@@ -0,0 +1,525 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Original authors and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *     Original authors and others - initial API and implementation
+ ******************************************************************************/
+
+package de.walware.ecommons.waltable.data;
+
+import static de.walware.ecommons.waltable.coordinate.Orientation.HORIZONTAL;
+import static de.walware.ecommons.waltable.coordinate.Orientation.VERTICAL;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.swt.widgets.Display;
+
+import de.walware.ecommons.waltable.conflation.DirtyRegion;
+import de.walware.ecommons.waltable.coordinate.LRectangle;
+import de.walware.ecommons.waltable.coordinate.Orientation;
+import de.walware.ecommons.waltable.layer.ILayer;
+import de.walware.ecommons.waltable.layer.ILayerListener;
+import de.walware.ecommons.waltable.layer.event.CellRangeVisualChangeEvent;
+import de.walware.ecommons.waltable.layer.event.ILayerEvent;
+import de.walware.ecommons.waltable.viewport.IViewportDim;
+import de.walware.ecommons.waltable.viewport.ScrollEvent;
+import de.walware.ecommons.waltable.viewport.ViewportLayer;
+
+
+/**
+ * Data provider loading the data of an underlying (slow) data provider asynchronously.
+ * <p>
+ * The data is loaded in blocks of cells by a bounded pool of worker threads and kept in a
+ * bounded cache. If the value of a cell is not yet available, {@link #LOADING_DATA} (a
+ * {@link ControlData} with code {@link ControlData#ASYNC}) is returned instead. Requests with
+ * the flag {@link IDataProvider#FORCE_SYNC} are passed directly to the underlying provider if
+ * the value is not cached.</p>
+ * <p>
+ * When blocks arrive, {@link CellRangeVisualChangeEvent}s for the loaded cells are fired in the
+ * display thread at the layer set by {@link #setLayer(ILayer)}, usually the data layer. The
+ * events of all blocks arrived until the display thread handles them are merged.</p>
+ * <p>
+ * If the provider is registered as {@link ILayerListener} at the {@link ViewportLayer}, it
+ * tracks the scroll direction and prefetches the blocks ahead of it.</p>
+ * <p>
+ * The underlying provider must support concurrent calls of
+ * {@link IDataProvider#getDataValue(long, long, int, IProgressMonitor)}. If it is an
+ * {@link IBlockDataProvider}, each block is loaded by a single call.</p>
+ */
+public class AsyncDataProvider implements IDataProvider, ILayerListener {
+	
+	
+	public static final ControlData LOADING_DATA= new ControlData(ControlData.ASYNC, "..."); //$NON-NLS-1$
+	
+	public static final ControlData ERROR_DATA= new ControlData(ControlData.ERROR, "ERROR"); //$NON-NLS-1$
+	
+	
+	private static final int MAX_CACHED_BLOCKS= 512;
+	
+	private static final int MAX_QUEUED_BLOCKS= 64;
+	
+	private static final AtomicInteger THREAD_COUNTER= new AtomicInteger();
+	
+	
+	private static final class BlockKey {
+		
+		
+		private final long rowBlock;
+		private final long columnBlock;
+		
+		
+		public BlockKey(final long rowBlock, final long columnBlock) {
+			this.rowBlock= rowBlock;
+			this.columnBlock= columnBlock;
+		}
+		
+		
+		@Override
+		public int hashCode() {
+			return (int) (this.rowBlock * 31 + this.columnBlock);
+		}
+		
+		@Override
+		public boolean equals(final Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof BlockKey)) {
+				return false;
+			}
+			final BlockKey other= (BlockKey) obj;
+			return (this.rowBlock == other.rowBlock && this.columnBlock == other.columnBlock);
+		}
+		
+	}
+	
+	private static final class Block {
+		
+		
+		private final LRectangle positions;
+		
+		private final Object[] values;
+		
+		
+		public Block(final LRectangle positions, final Object[] values) {
+			this.positions= positions;
+			this.values= values;
+		}
+		
+		
+		public boolean contains(final long columnIndex, final long rowIndex) {
+			return (columnIndex < this.positions.x + this.positions.width
+					&& rowIndex < this.positions.y + this.positions.height );
+		}
+		
+		public Object get(final long columnIndex, final long rowIndex) {
+			final int idx= (int) ((rowIndex - this.positions.y) * this.positions.width
+					+ (columnIndex - this.positions.x) );
+			return this.values[idx];
+		}
+		
+	}
+	
+	private final class LoadTask implements Runnable {
+		
+		
+		private final BlockKey key;
+		
+		private final long generation;
+		
+		
+		public LoadTask(final BlockKey key, final long generation) {
+			this.key= key;
+			this.generation= generation;
+		}
+		
+		
+		@Override
+		public void run() {
+			if (isDisposed() || this.generation != AsyncDataProvider.this.generation) {
+				removePending(this.key);
+				return;
+			}
+			final Block block= loadBlock(this.key);
+			addBlock(this.key, block, this.generation);
+		}
+		
+	}
+	
+	/**
+	 * Deque used as LIFO queue, so the block requested last is loaded first.
+	 */
+	private static final class LifoQueue extends LinkedBlockingDeque<Runnable> {
+		
+		private static final long serialVersionUID= 1L;
+		
+		@Override
+		public boolean offer(final Runnable e) {
+			return super.offerFirst(e);
+		}
+		
+	}
+	
+	
+	private final IDataProvider underlyingDataProvider;
+	
+	private final int blockRowCount;
+	private final int blockColumnCount;
+	private final int prefetchBlockCount;
+	
+	private final ThreadPoolExecutor executor;
+	
+	private final Map<BlockKey, Block> blocks= new LinkedHashMap<BlockKey, Block>(64, 0.75f, true) {
+		private static final long serialVersionUID= 1L;
+		@Override
+		protected boolean removeEldestEntry(final Map.Entry<BlockKey, Block> eldest) {
+			return (size() > MAX_CACHED_BLOCKS);
+		}
+	};
+	private final Set<BlockKey> pendingBlocks= new HashSet<>();
+	private volatile long generation;
+	
+	private long lastRowBlock= -1;
+	private long lastColumnBlock= -1;
+	
+	private volatile int rowDirection= 1;
+	private volatile int columnDirection;
+	private long lastRowOrigin= -1;
+	private long lastColumnOrigin= -1;
+	
+	private volatile ILayer layer;
+	private volatile Display display;
+	
+	private final DirtyRegion loadedRegion= new DirtyRegion();
+	private final AtomicBoolean flushScheduled= new AtomicBoolean();
+	private final Runnable flushRunnable= new Runnable() {
+		@Override
+		public void run() {
+			AsyncDataProvider.this.flushScheduled.set(false);
+			flush();
+		}
+	};
+	
+	private volatile boolean disposed;
+	
+	
+	/**
+	 * Creates a new async data provider with default block size (128 rows x 32 columns),
+	 * prefetching 2 blocks and 2 worker threads.
+	 * 
+	 * @param underlyingDataProvider The provider loading the data
+	 */
+	public AsyncDataProvider(final IDataProvider underlyingDataProvider) {
+		this(underlyingDataProvider, 128, 32, 2, 2);
+	}
+	
+	/**
+	 * @param underlyingDataProvider The provider loading the data
+	 * @param blockRowCount The number of rows of a block
+	 * @param blockColumnCount The number of columns of a block
+	 * @param prefetchBlockCount The number of blocks to prefetch in scroll direction
+	 * @param threadCount The maximum number of worker threads
+	 */
+	public AsyncDataProvider(final IDataProvider underlyingDataProvider,
+			final int blockRowCount, final int blockColumnCount, final int prefetchBlockCount,
+			final int threadCount) {
+		if (underlyingDataProvider == null) {
+			throw new NullPointerException("underlyingDataProvider"); //$NON-NLS-1$
+		}
+		if (blockRowCount <= 0 || blockColumnCount <= 0 || threadCount <= 0) {
+			throw new IllegalArgumentException();
+		}
+		this.underlyingDataProvider= underlyingDataProvider;
+		this.blockRowCount= blockRowCount;
+		this.blockColumnCount= blockColumnCount;
+		this.prefetchBlockCount= Math.max(prefetchBlockCount, 0);
+		
+		this.executor= new ThreadPoolExecutor(threadCount, threadCount,
+				10, TimeUnit.SECONDS, new LifoQueue(), new ThreadFactory() {
+					@Override
+					public Thread newThread(final Runnable r) {
+						final Thread thread= new Thread(r,
+								"WaLTable-AsyncDataProvider-" + THREAD_COUNTER.incrementAndGet() ); //$NON-NLS-1$
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+		this.executor.allowCoreThreadTimeOut(true);
+	}
+	
+	
+	public IDataProvider getUnderlyingDataProvider() {
+		return this.underlyingDataProvider;
+	}
+	
+	/**
+	 * Sets the layer the events for loaded cells are fired at. The positions of the layer must
+	 * be equal to the indexes of this provider.
+	 * <p>
+	 * The method must be called in the display thread.</p>
+	 * 
+	 * @param layer The layer, usually the data layer using this provider
+	 */
+	public void setLayer(final ILayer layer) {
+		this.display= (layer != null) ? Display.getCurrent() : null;
+		this.layer= layer;
+	}
+	
+	/**
+	 * Stops the loading of data.
+	 */
+	public void dispose() {
+		this.disposed= true;
+		this.executor.shutdownNow();
+		clearCache();
+	}
+	
+	public boolean isDisposed() {
+		return this.disposed;
+	}
+	
+	
+	@Override
+	public long getColumnCount() {
+		return this.underlyingDataProvider.getColumnCount();
+	}
+	
+	@Override
+	public long getRowCount() {
+		return this.underlyingDataProvider.getRowCount();
+	}
+	
+	@Override
+	public Object getDataValue(final long columnIndex, final long rowIndex,
+			final int flags, final IProgressMonitor monitor) {
+		final long rowBlock= rowIndex / this.blockRowCount;
+		final long columnBlock= columnIndex / this.blockColumnCount;
+		final BlockKey key= new BlockKey(rowBlock, columnBlock);
+		Block block;
+		synchronized (this.blocks) {
+			block= this.blocks.get(key);
+			if (block != null && !block.contains(columnIndex, rowIndex)) { // count changed
+				this.blocks.remove(key);
+				block= null;
+			}
+			if (block == null && (flags & FORCE_SYNC) == 0 && !this.disposed) {
+				requestBlock(key);
+			}
+			// a synchronous read of a missing block doesn't load it, so it doesn't prefetch either
+			if ((block != null || (flags & FORCE_SYNC) == 0)
+					&& (rowBlock != this.lastRowBlock || columnBlock != this.lastColumnBlock) ) {
+				this.lastRowBlock= rowBlock;
+				this.lastColumnBlock= columnBlock;
+				prefetch(rowBlock, columnBlock);
+			}
+		}
+		if (block != null) {
+			return block.get(columnIndex, rowIndex);
+		}
+		if ((flags & FORCE_SYNC) != 0) {
+			return this.underlyingDataProvider.getDataValue(columnIndex, rowIndex, flags, monitor);
+		}
+		return LOADING_DATA;
+	}
+	
+	@Override
+	public void setDataValue(final long columnIndex, final long rowIndex, final Object newValue) {
+		this.underlyingDataProvider.setDataValue(columnIndex, rowIndex, newValue);
+		
+		final BlockKey key= new BlockKey(rowIndex / this.blockRowCount,
+				columnIndex / this.blockColumnCount );
+		synchronized (this.blocks) {
+			this.blocks.remove(key);
+		}
+	}
+	
+	/**
+	 * Clears the cached data, e.g. if the data of the underlying provider changed.
+	 * Pending loads are discarded.
+	 */
+	public void clearCache() {
+		synchronized (this.blocks) {
+			this.generation++;
+			this.blocks.clear();
+			this.pendingBlocks.clear();
+			this.executor.getQueue().clear();
+			this.lastRowBlock= -1;
+			this.lastColumnBlock= -1;
+		}
+	}
+	
+	
+	@Override
+	public void handleLayerEvent(final ILayerEvent event) {
+		if (event instanceof ScrollEvent
+				&& ((ScrollEvent) event).getLayer() instanceof ViewportLayer ) {
+			final ViewportLayer viewportLayer= (ViewportLayer) ((ScrollEvent) event).getLayer();
+			final long rowOrigin= getOriginPosition(viewportLayer, VERTICAL);
+			final long columnOrigin= getOriginPosition(viewportLayer, HORIZONTAL);
+			synchronized (this.blocks) {
+				if (rowOrigin != this.lastRowOrigin) {
+					this.rowDirection= (rowOrigin > this.lastRowOrigin) ? 1 : -1;
+					this.columnDirection= 0;
+				}
+				else if (columnOrigin != this.lastColumnOrigin) {
+					this.columnDirection= (columnOrigin > this.lastColumnOrigin) ? 1 : -1;
+					this.rowDirection= 0;
+				}
+				this.lastRowOrigin= rowOrigin;
+				this.lastColumnOrigin= columnOrigin;
+			}
+		}
+	}
+	
+	private static long getOriginPosition(final ViewportLayer viewportLayer,
+			final Orientation orientation) {
+		final IViewportDim dim= viewportLayer.getDim(orientation);
+		return (dim.getPositionCount() > 0) ? dim.getOriginPosition() : -1;
+	}
+	
+	
+	private void prefetch(final long rowBlock, final long columnBlock) {
+		if (this.prefetchBlockCount == 0 || this.disposed) {
+			return;
+		}
+		final int rowDirection= this.rowDirection;
+		final int columnDirection= this.columnDirection;
+		if (rowDirection == 0 && columnDirection == 0) {
+			return;
+		}
+		final long maxRowBlock= (getRowCount() - 1) / this.blockRowCount;
+		final long maxColumnBlock= (getColumnCount() - 1) / this.blockColumnCount;
+		// request the nearest block last, so it is loaded first
+		for (int i= this.prefetchBlockCount; i > 0; i--) {
+			final long prefetchRowBlock= rowBlock + i * rowDirection;
+			final long prefetchColumnBlock= columnBlock + i * columnDirection;
+			if (prefetchRowBlock >= 0 && prefetchRowBlock <= maxRowBlock
+					&& prefetchColumnBlock >= 0 && prefetchColumnBlock <= maxColumnBlock) {
+				final BlockKey key= new BlockKey(prefetchRowBlock, prefetchColumnBlock);
+				if (!this.blocks.containsKey(key)) {
+					requestBlock(key);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Schedules the loading of the block, the caller must synchronize on {@link #blocks}.
+	 */
+	private void requestBlock(final BlockKey key) {
+		if (!this.pendingBlocks.add(key)) {
+			return;
+		}
+		// drop the oldest requests if the user scrolls faster than the data arrives
+		while (this.executor.getQueue().size() >= MAX_QUEUED_BLOCKS) {
+			final Runnable oldest= ((LifoQueue) this.executor.getQueue()).pollLast();
+			if (oldest == null) {
+				break;
+			}
+			this.pendingBlocks.remove(((LoadTask) oldest).key);
+		}
+		this.executor.execute(new LoadTask(key, this.generation));
+	}
+	
+	private void removePending(final BlockKey key) {
+		synchronized (this.blocks) {
+			this.pendingBlocks.remove(key);
+		}
+	}
+	
+	private Block loadBlock(final BlockKey key) {
+		final long rowStart= key.rowBlock * this.blockRowCount;
+		final long columnStart= key.columnBlock * this.blockColumnCount;
+		final long rowEnd= Math.min(rowStart + this.blockRowCount, getRowCount());
+		final long columnEnd= Math.min(columnStart + this.blockColumnCount, getColumnCount());
+		final LRectangle positions= new LRectangle(columnStart, rowStart,
+				Math.max(columnEnd - columnStart, 0), Math.max(rowEnd - rowStart, 0) );
+		final Object[] values= new Object[(int) (positions.width * positions.height)];
+		
+		final IProgressMonitor monitor= new NullProgressMonitor();
+		if (this.underlyingDataProvider instanceof IBlockDataProvider) {
+			try {
+				((IBlockDataProvider) this.underlyingDataProvider).getDataValues(positions,
+						FORCE_SYNC, monitor, values );
+			}
+			catch (final RuntimeException e) {
+				Arrays.fill(values, ERROR_DATA);
+			}
+			return new Block(positions, values);
+		}
+		int idx= 0;
+		for (long rowIndex= rowStart; rowIndex < rowEnd; rowIndex++) {
+			for (long columnIndex= columnStart; columnIndex < columnEnd; columnIndex++) {
+				Object value;
+				try {
+					value= this.underlyingDataProvider.getDataValue(columnIndex, rowIndex,
+							FORCE_SYNC, monitor );
+				}
+				catch (final RuntimeException e) {
+					value= ERROR_DATA;
+				}
+				values[idx++]= value;
+			}
+		}
+		return new Block(positions, values);
+	}
+	
+	private void addBlock(final BlockKey key, final Block block, final long generation) {
+		synchronized (this.blocks) {
+			this.pendingBlocks.remove(key);
+			if (generation != this.generation) {
+				return;
+			}
+			this.blocks.put(key, block);
+		}
+		
+		if (block.positions.isEmpty()) {
+			return;
+		}
+		synchronized (this.loadedRegion) {
+			this.loadedRegion.add(block.positions);
+		}
+		final Display display= this.display;
+		if (display != null && !display.isDisposed()
+				&& this.flushScheduled.compareAndSet(false, true) ) {
+			display.asyncExec(this.flushRunnable);
+		}
+	}
+	
+	/**
+	 * Fires the events for the loaded blocks, called in the display thread.
+	 */
+	protected void flush() {
+		final ILayer layer= this.layer;
+		final List<LRectangle> rectangles;
+		synchronized (this.loadedRegion) {
+			rectangles= new ArrayList<>(this.loadedRegion.getRectangles());
+			this.loadedRegion.clear();
+		}
+		if (layer == null || this.disposed) {
+			return;
+		}
+		for (final LRectangle rectangle : rectangles) {
+			layer.fireLayerEvent(new CellRangeVisualChangeEvent(layer, rectangle));
+		}
+	}
+	
+}
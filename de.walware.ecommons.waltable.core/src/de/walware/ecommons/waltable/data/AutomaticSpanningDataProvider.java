@@ -10,16 +10,31 @@
  *******************************************************************************/
 package de.walware.ecommons.waltable.data;
 
-import java.util.ArrayList;
+import static de.walware.ecommons.waltable.coordinate.Orientation.HORIZONTAL;
+import static de.walware.ecommons.waltable.coordinate.Orientation.VERTICAL;
+
 import java.util.Arrays;
-import java.util.List;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Properties;
 import java.util.StringTokenizer;
 
 import org.eclipse.core.runtime.IProgressMonitor;
 
+import de.walware.ecommons.waltable.coordinate.ILValueIterator;
+import de.walware.ecommons.waltable.coordinate.LRange;
+import de.walware.ecommons.waltable.coordinate.LRangeList;
+import de.walware.ecommons.waltable.coordinate.LRectangle;
+import de.walware.ecommons.waltable.coordinate.Orientation;
+import de.walware.ecommons.waltable.layer.ILayerListener;
 import de.walware.ecommons.waltable.layer.cell.DataCell;
+import de.walware.ecommons.waltable.layer.event.CellRangeVisualChangeEvent;
+import de.walware.ecommons.waltable.layer.event.CellVisualChangeEvent;
+import de.walware.ecommons.waltable.layer.event.ILayerEvent;
+import de.walware.ecommons.waltable.layer.event.IStructuralChangeEvent;
+import de.walware.ecommons.waltable.layer.event.RowUpdateEvent;
 import de.walware.ecommons.waltable.persistence.IPersistable;
 
 /**
@@ -40,8 +55,109 @@ import de.walware.ecommons.waltable.persistence.IPersistable;
  * complicated calculation algorithm need to be implemented that checks every columns and row 
  * by building the spanning cell for the matching rectangle. As this would be quite time consuming
  * calculations, this is not supported out of the box by NatTable.
+ * <p>
+ * The spans are computed by a span index: for each column (row spanning) and row (column
+ * spanning) the boundaries of the runs of equal values are computed once and stored as sorted
+ * primitive array, so span lookups are answered by binary search. The number of indexed
+ * columns and rows is bounded. The provider is registered as {@link ILayerListener} at the
+ * {@link de.walware.ecommons.waltable.layer.SpanningDataLayer SpanningDataLayer} and updates
+ * the index on {@link RowUpdateEvent}s, {@link CellVisualChangeEvent}s,
+ * {@link CellRangeVisualChangeEvent}s and structural changes.
+ * If the data is changed otherwise, {@link #clearSpanIndex()} must be called.
  */
-public class AutomaticSpanningDataProvider implements ISpanningDataProvider, IPersistable {
+public class AutomaticSpanningDataProvider implements ISpanningDataProvider, IBlockDataProvider,
+		IPersistable, ILayerListener {
+	
+	
+	/**
+	 * Boundaries of the runs of equal values along one column or row.
+	 */
+	private static final class SpanIndex {
+		
+		
+		/** The number of positions in the line */
+		private final long count;
+		
+		/** The sorted start positions of the runs, the first start is always 0 */
+		private long[] starts;
+		private int size;
+		
+		
+		public SpanIndex(final long count, final long[] starts, final int size) {
+			this.count= count;
+			this.starts= starts;
+			this.size= size;
+		}
+		
+		
+		/**
+		 * @return The index of the run containing the given position.
+		 */
+		private int indexOf(final long position) {
+			final int idx= Arrays.binarySearch(this.starts, 0, this.size, position);
+			return (idx >= 0) ? idx : -(idx + 1) - 1;
+		}
+		
+		public long getStart(final long position) {
+			return this.starts[indexOf(position)];
+		}
+		
+		public long getEnd(final long position) {
+			final int idx= indexOf(position) + 1;
+			return (idx < this.size) ? this.starts[idx] : this.count;
+		}
+		
+		/**
+		 * Replaces the run starts in the range [start, end] by the given starts.
+		 */
+		public void replace(final long start, final long end,
+				final long[] newStarts, final int newSize) {
+			int from= Arrays.binarySearch(this.starts, 0, this.size, start);
+			if (from < 0) {
+				from= -(from + 1);
+			}
+			int to= Arrays.binarySearch(this.starts, from, this.size, end);
+			to= (to >= 0) ? to + 1 : -(to + 1);
+			
+			final int size= this.size - (to - from) + newSize;
+			final long[] starts= (size <= this.starts.length) ? this.starts : new long[size];
+			if (starts != this.starts) {
+				System.arraycopy(this.starts, 0, starts, 0, from);
+			}
+			System.arraycopy(this.starts, to, starts, from + newSize, this.size - to);
+			System.arraycopy(newStarts, 0, starts, from, newSize);
+			this.starts= starts;
+			this.size= size;
+		}
+		
+	}
+	
+	private static final class SpanIndexMap extends LinkedHashMap<Long, SpanIndex> {
+		
+		private static final long serialVersionUID= 1L;
+		
+		public SpanIndexMap() {
+			super(16, 0.75f, true);
+		}
+		
+		@Override
+		protected boolean removeEldestEntry(final Map.Entry<Long, SpanIndex> eldest) {
+			return (size() > MAX_INDEXED_LINES);
+		}
+		
+	}
+	
+	
+	/**
+	 * The maximum number of columns respectively rows the span index is kept for.
+	 */
+	private static final int MAX_INDEXED_LINES= 256;
+	
+	/**
+	 * The number of values loaded at once to build the span index, if the underlying
+	 * provider is an {@link IBlockDataProvider}.
+	 */
+	private static final int INDEX_BLOCK_SIZE= 1024;
 	
 	
 	public static final String PERSISTENCE_KEY_AUTO_COLUMN_SPAN= ".autoColumnSpan"; //$NON-NLS-1$
@@ -66,18 +182,28 @@ public class AutomaticSpanningDataProvider implements ISpanningDataProvider, IPe
 	private boolean autoRowSpan;
 	
 	/**
-	 * List of column positions for which automatic spanning is enabled. 
+	 * Set of column positions for which automatic spanning is enabled. 
 	 * <p>
-	 * <b>Note: </b>If this list is empty, all columns will do auto row spanning.  
+	 * <b>Note: </b>If this set is empty, all columns will do auto row spanning.  
 	 */
-	private final List<Long> autoSpanColumns= new ArrayList<>();
+	private final LRangeList autoSpanColumns= new LRangeList();
 	
 	/**
-	 * List of row positions for which automatic spanning is enabled. 
+	 * Set of row positions for which automatic spanning is enabled. 
 	 * <p>
-	 * <b>Note: </b>If this list is empty, all rows will do auto column spanning.  
+	 * <b>Note: </b>If this set is empty, all rows will do auto column spanning.  
 	 */
-	private final List<Long> autoSpanRows= new ArrayList<>();
+	private final LRangeList autoSpanRows= new LRangeList();
+	
+	/**
+	 * Span index for row spanning by column position
+	 */
+	private final SpanIndexMap rowSpanIndexes= new SpanIndexMap();
+	
+	/**
+	 * Span index for column spanning by row position
+	 */
+	private final SpanIndexMap columnSpanIndexes= new SpanIndexMap();
 	
 	
 	/**
@@ -101,9 +227,33 @@ public class AutomaticSpanningDataProvider implements ISpanningDataProvider, IPe
 		return this.underlyingDataProvider.getDataValue(columnIndex, rowIndex, flags, monitor);
 	}
 	
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * Subclasses overwriting {@link #getDataValue(long, long, int, IProgressMonitor)} must
+	 * overwrite this method too.</p>
+	 */
+	@Override
+	public void getDataValues(final LRectangle indexes, final int flags, final IProgressMonitor monitor,
+			final Object[] values) {
+		if (this.underlyingDataProvider instanceof IBlockDataProvider) {
+			((IBlockDataProvider) this.underlyingDataProvider).getDataValues(indexes, flags, monitor,
+					values );
+			return;
+		}
+		int idx= 0;
+		for (long rowIndex= indexes.y; rowIndex < indexes.y + indexes.height; rowIndex++) {
+			for (long columnIndex= indexes.x; columnIndex < indexes.x + indexes.width; columnIndex++) {
+				values[idx++]= getDataValue(columnIndex, rowIndex, flags, monitor);
+			}
+		}
+	}
+	
 	@Override
 	public void setDataValue(final long columnIndex, final long rowIndex, final Object newValue) {
 		this.underlyingDataProvider.setDataValue(columnIndex, rowIndex, newValue);
+		
+		updateSpanIndex(columnIndex, rowIndex);
 	}
 	
 	@Override
@@ -157,7 +307,7 @@ public class AutomaticSpanningDataProvider implements ISpanningDataProvider, IPe
 	 * @return <code>true</code> if the given column position is configured as a auto span column.
 	 */
 	private boolean isAutoSpanColumn(final long columnPosition) {
-		return (this.autoSpanColumns.isEmpty() || this.autoSpanColumns.contains(columnPosition));
+		return (this.autoSpanColumns.isEmpty() || this.autoSpanColumns.values().contains(columnPosition));
 	}
 	
 	/**
@@ -166,7 +316,11 @@ public class AutomaticSpanningDataProvider implements ISpanningDataProvider, IPe
 	 * @return <code>true</code> if the given row position is configured as a auto span row.
 	 */
 	private boolean isAutoSpanRow(final long rowPosition) {
-		return (this.autoSpanRows.isEmpty() || this.autoSpanRows.contains(rowPosition));
+		return (this.autoSpanRows.isEmpty() || this.autoSpanRows.values().contains(rowPosition));
+	}
+	
+	private boolean isAutoSpanPosition(final Orientation orientation, final long position) {
+		return (orientation == HORIZONTAL) ? isAutoSpanColumn(position) : isAutoSpanRow(position);
 	}
 	
 	/**
@@ -177,7 +331,10 @@ public class AutomaticSpanningDataProvider implements ISpanningDataProvider, IPe
 	 * @param columnPositions The column positions to add for auto spanning.
 	 */
 	public void addAutoSpanningColumnPositions(final Long... columnPositions) {
-		this.autoSpanColumns.addAll(Arrays.asList(columnPositions));
+		for (final Long columnPosition : columnPositions) {
+			this.autoSpanColumns.values().add(columnPosition.longValue());
+		}
+		clearSpanIndex();
 	}
 	
 	/**
@@ -188,7 +345,10 @@ public class AutomaticSpanningDataProvider implements ISpanningDataProvider, IPe
 	 * @param rowPositions The row positions to add for auto spanning.
 	 */
 	public void addAutoSpanningRowPositions(final Long... rowPositions) {
-		this.autoSpanRows.addAll(Arrays.asList(rowPositions));
+		for (final Long rowPosition : rowPositions) {
+			this.autoSpanRows.values().add(rowPosition.longValue());
+		}
+		clearSpanIndex();
 	}
 	
 	/**
@@ -196,7 +356,10 @@ public class AutomaticSpanningDataProvider implements ISpanningDataProvider, IPe
 	 * @param columnPositions The column positions to remove for auto spanning.
 	 */
 	public void removeAutoSpanningColumnPositions(final Long... columnPositions) {
-		this.autoSpanColumns.removeAll(Arrays.asList(columnPositions));
+		for (final Long columnPosition : columnPositions) {
+			this.autoSpanColumns.values().remove(columnPosition.longValue());
+		}
+		clearSpanIndex();
 	}
 	
 	/**
@@ -204,7 +367,10 @@ public class AutomaticSpanningDataProvider implements ISpanningDataProvider, IPe
 	 * @param rowPositions The row positions to remove for auto spanning.
 	 */
 	public void removeAutoSpanningRowPositions(final Long... rowPositions) {
-		this.autoSpanRows.removeAll(Arrays.asList(rowPositions));
+		for (final Long rowPosition : rowPositions) {
+			this.autoSpanRows.values().remove(rowPosition.longValue());
+		}
+		clearSpanIndex();
 	}
 	
 	/**
@@ -214,6 +380,7 @@ public class AutomaticSpanningDataProvider implements ISpanningDataProvider, IPe
 	 */
 	public void clearAutoSpanningColumnPositions() {
 		this.autoSpanColumns.clear();
+		clearSpanIndex();
 	}
 	
 	/**
@@ -223,6 +390,7 @@ public class AutomaticSpanningDataProvider implements ISpanningDataProvider, IPe
 	 */
 	public void clearAutoSpanningRowPositions() {
 		this.autoSpanRows.clear();
+		clearSpanIndex();
 	}
 	
 	/**
@@ -235,21 +403,9 @@ public class AutomaticSpanningDataProvider implements ISpanningDataProvider, IPe
 	 * 			if it is not spanned with the columns to the left.
 	 */
 	protected long getStartColumnPosition(final long columnPosition, final long rowPosition) {
-		if (columnPosition <= 0 || !isAutoSpanColumn(columnPosition) || !isAutoSpanColumn(columnPosition-1)) {
-			return columnPosition;
-		}
-		
-		//get value for the given column
-		final Object current= getDataValue(columnPosition, rowPosition, 0, null);
-		//get value of the column to the left
-		final Object before= getDataValue(columnPosition-1, rowPosition, 0, null);
-		
-		if (!Objects.equals(current, before)) {
-			//the both values are not equal, therefore return the given column position
-			return columnPosition;
+		synchronized (this.columnSpanIndexes) {
+			return getSpanIndex(HORIZONTAL, rowPosition).getStart(columnPosition);
 		}
-		
-		return getStartColumnPosition(columnPosition-1, rowPosition);
 	}
 	
 	/**
@@ -263,21 +419,9 @@ public class AutomaticSpanningDataProvider implements ISpanningDataProvider, IPe
 	 * 			if it is not spanned with rows above.
 	 */
 	protected long getStartRowPosition(final long columnPosition, final long rowPosition) {
-		if (rowPosition <= 0 || !isAutoSpanRow(rowPosition) || !isAutoSpanRow(rowPosition - 1)) {
-			return rowPosition;
+		synchronized (this.rowSpanIndexes) {
+			return getSpanIndex(VERTICAL, columnPosition).getStart(rowPosition);
 		}
-		
-		//get value of given row
-		final Object current= getDataValue(columnPosition, rowPosition, 0, null);
-		//get value of row before
-		final Object before= getDataValue(columnPosition, rowPosition - 1, 0, null);
-		
-		if (!Objects.equals(current, before)) {
-			//the both values are not equal, therefore return the given row
-			return rowPosition;
-		}
-		
-		return getStartRowPosition(columnPosition, rowPosition-1);
 	}
 	
 	/**
@@ -286,19 +430,10 @@ public class AutomaticSpanningDataProvider implements ISpanningDataProvider, IPe
 	 * @param rowPosition The row position for which the column spanning should be checked
 	 * @return The number of columns to span
 	 */
-	protected long getColumnSpan(long columnPosition, final long rowPosition) {
-		long span= 1;
-		
-		while (columnPosition < getColumnCount()-1
-				&& isAutoSpanColumn(columnPosition)
-				&& isAutoSpanColumn(columnPosition+1)
-				&& Objects.equals(
-					getDataValue(columnPosition, rowPosition, 0, null), 
-					getDataValue(columnPosition+1, rowPosition, 0, null) )) {
-			span++;
-			columnPosition++;
+	protected long getColumnSpan(final long columnPosition, final long rowPosition) {
+		synchronized (this.columnSpanIndexes) {
+			return getSpanIndex(HORIZONTAL, rowPosition).getEnd(columnPosition) - columnPosition;
 		}
-		return span;
 	}
 	
 	/**
@@ -308,21 +443,214 @@ public class AutomaticSpanningDataProvider implements ISpanningDataProvider, IPe
 	 * @param rowPosition The row position to start the check for spanning
 	 * @return The number of rows to span
 	 */
-	protected long getRowSpan(final long columnPosition, long rowPosition) {
-		long span= 1;
-		
-		while (rowPosition < getRowCount() - 1
-				&& isAutoSpanRow(rowPosition)
-				&& isAutoSpanRow(rowPosition + 1)
-				&& Objects.equals(
-					getDataValue(columnPosition, rowPosition, 0, null), 
-					getDataValue(columnPosition, rowPosition + 1, 0, null) )) {
-			span++;
-			rowPosition++;
+	protected long getRowSpan(final long columnPosition, final long rowPosition) {
+		synchronized (this.rowSpanIndexes) {
+			return getSpanIndex(VERTICAL, columnPosition).getEnd(rowPosition) - rowPosition;
+		}
+	}
+	
+	
+	private SpanIndexMap getSpanIndexes(final Orientation orientation) {
+		return (orientation == HORIZONTAL) ? this.columnSpanIndexes : this.rowSpanIndexes;
+	}
+	
+	private long getCount(final Orientation orientation) {
+		return (orientation == HORIZONTAL) ? getColumnCount() : getRowCount();
+	}
+	
+	private Object getValue(final Orientation orientation, final long line, final long position) {
+		return (orientation == HORIZONTAL) ?
+				getDataValue(position, line, 0, null) :
+				getDataValue(line, position, 0, null);
+	}
+	
+	/**
+	 * Returns the span index for the given line, the caller must synchronize on the map
+	 * of the orientation.
+	 * 
+	 * @param orientation The orientation of the spanning
+	 * @param line The row position for column spanning, the column position for row spanning
+	 * @return The span index
+	 */
+	private SpanIndex getSpanIndex(final Orientation orientation, final long line) {
+		final SpanIndexMap indexes= getSpanIndexes(orientation);
+		final long count= getCount(orientation);
+		SpanIndex index= indexes.get(line);
+		if (index == null || index.count != count) {
+			index= createSpanIndex(orientation, line, count);
+			indexes.put(line, index);
 		}
-		return span;
+		return index;
+	}
+	
+	private SpanIndex createSpanIndex(final Orientation orientation, final long line,
+			final long count) {
+		long[] starts= new long[16];
+		int size= 0;
+		starts[size++]= 0;
+		if (count > 1) {
+			// load the values in blocks if supported
+			final Object[] buffer= (this.underlyingDataProvider instanceof IBlockDataProvider) ?
+					new Object[(int) Math.min(count, INDEX_BLOCK_SIZE)] : null;
+			long bufferStart= 0;
+			long bufferEnd= 0;
+			
+			boolean prevAutoSpan= false;
+			Object prevValue= null;
+			for (long position= 0; position < count; position++) {
+				final boolean autoSpan= isAutoSpanPosition(orientation, position);
+				Object value= null;
+				if (buffer != null) {
+					if (position >= bufferEnd) {
+						bufferStart= position;
+						bufferEnd= Math.min(position + buffer.length, count);
+						getDataValues((orientation == HORIZONTAL) ?
+										new LRectangle(position, line, bufferEnd - position, 1) :
+										new LRectangle(line, position, 1, bufferEnd - position),
+								0, null, buffer );
+					}
+					if (autoSpan) {
+						value= buffer[(int) (position - bufferStart)];
+					}
+				}
+				else if (autoSpan) {
+					value= getValue(orientation, line, position);
+				}
+				if (position > 0 && !(prevAutoSpan && autoSpan && Objects.equals(prevValue, value))) {
+					if (size == starts.length) {
+						starts= Arrays.copyOf(starts, size * 2);
+					}
+					starts[size++]= position;
+				}
+				prevAutoSpan= autoSpan;
+				prevValue= value;
+			}
+		}
+		return new SpanIndex(count, starts, size);
 	}
 	
+	/**
+	 * Recomputes the run starts of the positions in the range [start, end] of an existing span
+	 * index.
+	 */
+	private void updateSpanIndex(final Orientation orientation, final long line,
+			final SpanIndex index, long start, long end) {
+		start= Math.max(start, 1);
+		end= Math.min(end, index.count - 1);
+		if (start > end) {
+			return;
+		}
+		long[] starts= new long[16];
+		int size= 0;
+		boolean prevAutoSpan= isAutoSpanPosition(orientation, start - 1);
+		Object prevValue= (prevAutoSpan) ? getValue(orientation, line, start - 1) : null;
+		for (long position= start; position <= end; position++) {
+			final boolean autoSpan= isAutoSpanPosition(orientation, position);
+			final Object value= (autoSpan) ? getValue(orientation, line, position) : null;
+			if (!(prevAutoSpan && autoSpan && Objects.equals(prevValue, value))) {
+				if (size == starts.length) {
+					starts= Arrays.copyOf(starts, size * 2);
+				}
+				starts[size++]= position;
+			}
+			prevAutoSpan= autoSpan;
+			prevValue= value;
+		}
+		index.replace(start, end, starts, size);
+	}
+	
+	/**
+	 * Updates the span index for changed values in the given rows.
+	 * 
+	 * @param rowPositions The row positions of the changed values
+	 */
+	private void updateSpanIndex(final Collection<LRange> rowPositions) {
+		synchronized (this.columnSpanIndexes) {
+			for (final LRange range : rowPositions) {
+				if (range.size() > MAX_INDEXED_LINES) {
+					this.columnSpanIndexes.clear();
+					break;
+				}
+				for (long rowPosition= range.start; rowPosition < range.end; rowPosition++) {
+					this.columnSpanIndexes.remove(rowPosition);
+				}
+			}
+		}
+		synchronized (this.rowSpanIndexes) {
+			final long rowCount= getRowCount();
+			for (final LRange range : rowPositions) {
+				if (range.size() > rowCount / 4) {
+					this.rowSpanIndexes.clear();
+					return;
+				}
+			}
+			for (final Map.Entry<Long, SpanIndex> entry : this.rowSpanIndexes.entrySet()) {
+				final SpanIndex index= entry.getValue();
+				if (index.count != rowCount) {
+					continue; // rebuilt on access
+				}
+				for (final LRange range : rowPositions) {
+					updateSpanIndex(VERTICAL, entry.getKey(), index, range.start, range.end);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Updates the span index for a changed value in the given cell.
+	 */
+	private void updateSpanIndex(final long columnPosition, final long rowPosition) {
+		synchronized (this.columnSpanIndexes) {
+			final SpanIndex index= this.columnSpanIndexes.get(rowPosition);
+			if (index != null && index.count == getColumnCount()) {
+				updateSpanIndex(HORIZONTAL, rowPosition, index, columnPosition, columnPosition + 1);
+			}
+		}
+		synchronized (this.rowSpanIndexes) {
+			final SpanIndex index= this.rowSpanIndexes.get(columnPosition);
+			if (index != null && index.count == getRowCount()) {
+				updateSpanIndex(VERTICAL, columnPosition, index, rowPosition, rowPosition + 1);
+			}
+		}
+	}
+	
+	/**
+	 * Clears the span index.
+	 * <p>
+	 * The method must be called if the data of the underlying data provider changed and the
+	 * change was not notified by an event to this provider.</p>
+	 */
+	public void clearSpanIndex() {
+		synchronized (this.columnSpanIndexes) {
+			this.columnSpanIndexes.clear();
+		}
+		synchronized (this.rowSpanIndexes) {
+			this.rowSpanIndexes.clear();
+		}
+	}
+	
+	@Override
+	public void handleLayerEvent(final ILayerEvent event) {
+		if (event instanceof IStructuralChangeEvent) {
+			final IStructuralChangeEvent structuralEvent= (IStructuralChangeEvent) event;
+			if (structuralEvent.isHorizontalStructureChanged()
+					|| structuralEvent.isVerticalStructureChanged() ) {
+				clearSpanIndex();
+			}
+		}
+		else if (event instanceof RowUpdateEvent) {
+			updateSpanIndex(((RowUpdateEvent) event).getRowPositionRanges());
+		}
+		else if (event instanceof CellRangeVisualChangeEvent) {
+			updateSpanIndex(((CellRangeVisualChangeEvent) event).getRowPositionRanges());
+		}
+		else if (event instanceof CellVisualChangeEvent) {
+			final CellVisualChangeEvent cellEvent= (CellVisualChangeEvent) event;
+			updateSpanIndex(cellEvent.getColumnPosition(), cellEvent.getRowPosition());
+		}
+	}
+	
+	
 	/**
 	 * @return <code>true</code> if automatic column spanning is enabled
 	 */
@@ -336,6 +664,7 @@ public class AutomaticSpanningDataProvider implements ISpanningDataProvider, IPe
 	 */
 	public void setAutoColumnSpan(final boolean autoColumnSpan) {
 		this.autoColumnSpan= autoColumnSpan;
+		clearSpanIndex();
 	}
 	
 	/**
@@ -351,6 +680,7 @@ public class AutomaticSpanningDataProvider implements ISpanningDataProvider, IPe
 	 */
 	public void setAutoRowSpan(final boolean autoRowSpan) {
 		this.autoRowSpan= autoRowSpan;
+		clearSpanIndex();
 	}
 	
 	@Override
@@ -360,8 +690,8 @@ public class AutomaticSpanningDataProvider implements ISpanningDataProvider, IPe
 		
 		if (this.autoSpanColumns.size() > 0) {
 			final StringBuilder strBuilder= new StringBuilder();
-			for (final Long index : this.autoSpanColumns) {
-				strBuilder.append(index);
+			for (final ILValueIterator iter= this.autoSpanColumns.values().iterator(); iter.hasNext(); ) {
+				strBuilder.append(iter.nextValue());
 				strBuilder.append(IPersistable.VALUE_SEPARATOR);
 			}
 			properties.setProperty(prefix + PERSISTENCE_KEY_AUTO_SPAN_COLUMNS, strBuilder.toString());
@@ -369,8 +699,8 @@ public class AutomaticSpanningDataProvider implements ISpanningDataProvider, IPe
 		
 		if (this.autoSpanRows.size() > 0) {
 			final StringBuilder strBuilder= new StringBuilder();
-			for (final Long index : this.autoSpanRows) {
-				strBuilder.append(index);
+			for (final ILValueIterator iter= this.autoSpanRows.values().iterator(); iter.hasNext(); ) {
+				strBuilder.append(iter.nextValue());
 				strBuilder.append(IPersistable.VALUE_SEPARATOR);
 			}
 			properties.setProperty(prefix + PERSISTENCE_KEY_AUTO_SPAN_ROWS, strBuilder.toString());
@@ -392,27 +722,23 @@ public class AutomaticSpanningDataProvider implements ISpanningDataProvider, IPe
 		this.autoSpanColumns.clear();
 		property= properties.getProperty(prefix + PERSISTENCE_KEY_AUTO_SPAN_COLUMNS);
 		if (property != null) {
-			final List<Long> newAutoSpanColumns= new ArrayList<>();
 			final StringTokenizer tok= new StringTokenizer(property, IPersistable.VALUE_SEPARATOR);
 			while (tok.hasMoreTokens()) {
 				final String index= tok.nextToken();
-				newAutoSpanColumns.add(Long.valueOf(index));
+				this.autoSpanColumns.values().add(Long.parseLong(index));
 			}
-			
-			this.autoSpanColumns.addAll(newAutoSpanColumns);
 		}
 		
 		this.autoSpanRows.clear();
 		property= properties.getProperty(prefix + PERSISTENCE_KEY_AUTO_SPAN_ROWS);
 		if (property != null) {
-			final List<Long> newAutoSpanRows= new ArrayList<>();
 			final StringTokenizer tok= new StringTokenizer(property, IPersistable.VALUE_SEPARATOR);
 			while (tok.hasMoreTokens()) {
 				final String index= tok.nextToken();
-				newAutoSpanRows.add(Long.valueOf(index));
+				this.autoSpanRows.values().add(Long.parseLong(index));
 			}
-			
-			this.autoSpanRows.addAll(newAutoSpanRows);
 		}
+		
+		clearSpanIndex();
 	}
 }
@@ -0,0 +1,48 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Original authors and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *     Original authors and others - initial API and implementation
+ ******************************************************************************/
+
+package de.walware.ecommons.waltable.data;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+
+import de.walware.ecommons.waltable.coordinate.LRectangle;
+import de.walware.ecommons.waltable.layer.DataLayer;
+
+
+/**
+ * Optional extension of {@link IDataProvider} for data providers supporting the access to
+ * the values of a block of cells by a single call.
+ * <p>
+ * Providers for remote or column based data should implement this interface to avoid the
+ * overhead of single value access. The {@link DataLayer} detects the interface and uses it to
+ * load the data values of the cells to paint, export or copy in blocks (see
+ * {@link DataLayer#preloadDataValues(de.walware.ecommons.waltable.layer.cell.ILayerCell[], int, int, IProgressMonitor)}).</p>
+ */
+public interface IBlockDataProvider extends IDataProvider {
+	
+	
+	/**
+	 * Gets the values of all cells in the given rectangle of column and row indexes.
+	 * <p>
+	 * The values are written row by row into the given array: the value of the cell
+	 * <code>(indexes.x + i, indexes.y + j)</code> at <code>values[j * indexes.width + i]</code>.
+	 * </p>
+	 * 
+	 * @param indexes the column (x, width) and row (y, height) indexes of the cells
+	 * @param flags the flags as for {@link #getDataValue(long, long, int, IProgressMonitor)}
+	 * @param monitor the progress monitor, if available
+	 * @param values the array to fill, the length must be at least
+	 * 			<code>indexes.width * indexes.height</code>
+	 */
+	void getDataValues(LRectangle indexes, int flags, IProgressMonitor monitor,
+			Object[] values);
+	
+}
@@ -15,6 +15,8 @@ import java.util.List;
 
 import org.eclipse.core.runtime.IProgressMonitor;
 
+import de.walware.ecommons.waltable.coordinate.LRectangle;
+
 
 /**
  * Enables the use of a {@link List} containing POJO(s) as a backing data source.
@@ -27,7 +29,7 @@ import org.eclipse.core.runtime.IProgressMonitor;
  * @param <T> type of the Objects in the backing list.
  * @see IColumnPropertyResolver
  */
-public class ListDataProvider<T> implements IRowDataProvider<T> {
+public class ListDataProvider<T> implements IRowDataProvider<T>, IBlockDataProvider {
 	
 	protected List<T> list;
 	protected IColumnAccessor<T> columnAccessor;
@@ -57,6 +59,47 @@ public class ListDataProvider<T> implements IRowDataProvider<T> {
 		return this.columnAccessor.getDataValue(rowObj, columnIndex);
 	}
 	
+	/**
+	 * Returns if {@link #getDataValues(LRectangle, int, IProgressMonitor, Object[])} reads
+	 * the values directly from the row objects.
+	 * <p>
+	 * If disabled, the values are obtained by
+	 * {@link #getDataValue(long, long, int, IProgressMonitor)}, so customizations of this
+	 * method are applied. The default is enabled only for this class itself; subclasses which
+	 * don't customize the access to the values can override this method to enable it.</p>
+	 * 
+	 * @return <code>true</code> if the direct access is enabled, otherwise <code>false</code>
+	 */
+	protected boolean isDirectBlockAccessEnabled() {
+		return (getClass() == ListDataProvider.class);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * If the direct access is enabled ({@link #isDirectBlockAccessEnabled()}), the row objects
+	 * are obtained once per row by {@link #getRowObject(long)}.</p>
+	 */
+	@Override
+	public void getDataValues(final LRectangle indexes, final int flags, final IProgressMonitor monitor,
+			final Object[] values) {
+		int idx= 0;
+		if (!isDirectBlockAccessEnabled()) {
+			for (long rowIndex= indexes.y; rowIndex < indexes.y + indexes.height; rowIndex++) {
+				for (long columnIndex= indexes.x; columnIndex < indexes.x + indexes.width; columnIndex++) {
+					values[idx++]= getDataValue(columnIndex, rowIndex, flags, monitor);
+				}
+			}
+			return;
+		}
+		for (long rowIndex= indexes.y; rowIndex < indexes.y + indexes.height; rowIndex++) {
+			final T rowObj= getRowObject(rowIndex);
+			for (long columnIndex= indexes.x; columnIndex < indexes.x + indexes.width; columnIndex++) {
+				values[idx++]= this.columnAccessor.getDataValue(rowObj, columnIndex);
+			}
+		}
+	}
+	
 	@Override
 	public void setDataValue(final long columnIndex, final long rowIndex, final Object newValue) {
 		if (rowIndex >= Integer.MAX_VALUE) {
@@ -0,0 +1,335 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Original authors and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *     Original authors and others - initial API and implementation
+ ******************************************************************************/
+
+package de.walware.ecommons.waltable.data;
+
+import java.beans.IntrospectionException;
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+
+/**
+ * Access to a property of a bean, optionally by a dot separated chain of properties.
+ * <p>
+ * The getter and setter methods of a property are resolved once per bean class and property
+ * name to {@link MethodHandle}s and cached per class. Each property of the chain is resolved
+ * for the runtime class of the bean, so subclasses with overwritten or additional properties
+ * are supported. The property of the last accessed class is cached in the chain, so the
+ * access for beans of the same class does not require a lookup.</p>
+ */
+public final class PropertyChain {
+	
+	
+	/**
+	 * A property of a bean class.
+	 */
+	public static final class Property {
+		
+		
+		private static final MethodType GETTER_TYPE= MethodType.methodType(Object.class, Object.class);
+		private static final MethodType SETTER_TYPE= MethodType.methodType(void.class, Object.class, Object.class);
+		
+		
+		private final Class<?> beanClass;
+		
+		private final String name;
+		
+		private final Class<?> type;
+		
+		private final MethodHandle getter;
+		private final MethodHandle setter;
+		
+		
+		private Property(final Class<?> beanClass, final PropertyDescriptor descriptor) {
+			this.beanClass= beanClass;
+			this.name= descriptor.getName();
+			this.type= descriptor.getPropertyType();
+			this.getter= createHandle(descriptor.getReadMethod(), GETTER_TYPE);
+			this.setter= createHandle(descriptor.getWriteMethod(), SETTER_TYPE);
+		}
+		
+		private static MethodHandle createHandle(final Method method, final MethodType type) {
+			if (method == null) {
+				return null;
+			}
+			try {
+				try {
+					method.setAccessible(true);
+				}
+				catch (final SecurityException e) {}
+				return MethodHandles.lookup().unreflect(method).asType(type);
+			}
+			catch (final IllegalAccessException e) {
+				return null;
+			}
+		}
+		
+		
+		public Class<?> getBeanClass() {
+			return this.beanClass;
+		}
+		
+		public String getName() {
+			return this.name;
+		}
+		
+		public Class<?> getType() {
+			return this.type;
+		}
+		
+		public boolean isReadable() {
+			return (this.getter != null);
+		}
+		
+		public boolean isWritable() {
+			return (this.setter != null);
+		}
+		
+		/**
+		 * Returns if the value can be set to the property.
+		 * 
+		 * @param value the value
+		 * @return <code>true</code> if the type of the value matches the type of the property
+		 */
+		public boolean isAssignable(final Object value) {
+			if (value == null) {
+				return !this.type.isPrimitive();
+			}
+			return wrap(this.type).isInstance(value);
+		}
+		
+		public Object getValue(final Object bean) {
+			if (this.getter == null) {
+				throw new UnsupportedOperationException("Getter method not found for property '" + this.name + "' in " + this.beanClass.getName()); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+			try {
+				return this.getter.invokeExact(bean);
+			}
+			catch (final RuntimeException | Error e) {
+				throw e;
+			}
+			catch (final Throwable e) {
+				throw new RuntimeException(e);
+			}
+		}
+		
+		public void setValue(final Object bean, final Object value) {
+			if (this.setter == null) {
+				throw new UnsupportedOperationException("Setter method not found for property '" + this.name + "' in " + this.beanClass.getName()); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+			if (value == null) {
+				if (this.type.isPrimitive()) {
+					throw new IllegalArgumentException("Value null does not match type of property '" + this.name + "'"); //$NON-NLS-1$ //$NON-NLS-2$
+				}
+			}
+			else if (!wrap(this.type).isInstance(value)) {
+				throw new IllegalArgumentException("Value of type " + value.getClass().getName() + " does not match type of property '" + this.name + "'"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+			}
+			try {
+				this.setter.invokeExact(bean, value);
+			}
+			catch (final RuntimeException | Error e) {
+				throw e;
+			}
+			catch (final Throwable e) {
+				throw new RuntimeException(e);
+			}
+		}
+		
+		@Override
+		public String toString() {
+			return this.beanClass.getName() + '#' + this.name;
+		}
+		
+	}
+	
+	
+	private static final ClassValue<ConcurrentMap<String, Object>> CLASS_PROPERTIES= new ClassValue<ConcurrentMap<String, Object>>() {
+		@Override
+		protected ConcurrentMap<String, Object> computeValue(final Class<?> type) {
+			return new ConcurrentHashMap<>();
+		}
+	};
+	
+	private static final Object NOT_FOUND= new Object();
+	
+	
+	private static Class<?> wrap(final Class<?> type) {
+		if (!type.isPrimitive()) {
+			return type;
+		}
+		if (type == int.class) {
+			return Integer.class;
+		}
+		if (type == long.class) {
+			return Long.class;
+		}
+		if (type == double.class) {
+			return Double.class;
+		}
+		if (type == boolean.class) {
+			return Boolean.class;
+		}
+		if (type == float.class) {
+			return Float.class;
+		}
+		if (type == short.class) {
+			return Short.class;
+		}
+		if (type == byte.class) {
+			return Byte.class;
+		}
+		if (type == char.class) {
+			return Character.class;
+		}
+		return Void.class;
+	}
+	
+	/**
+	 * Returns the property with the specified name of the bean class.
+	 * 
+	 * @param beanClass the class of the bean
+	 * @param name the name of the property
+	 * @return the property or <code>null</code>, if the class has no such property
+	 */
+	public static Property getProperty(final Class<?> beanClass, final String name) {
+		final ConcurrentMap<String, Object> properties= CLASS_PROPERTIES.get(beanClass);
+		Object property= properties.get(name);
+		if (property == null) {
+			property= NOT_FOUND;
+			try {
+				for (final PropertyDescriptor descriptor :
+						Introspector.getBeanInfo(beanClass).getPropertyDescriptors() ) {
+					if (descriptor.getName().equals(name)) {
+						property= new Property(beanClass, descriptor);
+						break;
+					}
+				}
+			}
+			catch (final IntrospectionException e) {}
+			properties.putIfAbsent(name, property);
+		}
+		return (property != NOT_FOUND) ? (Property) property : null;
+	}
+	
+	/**
+	 * Creates a property chain for the specified dot separated property names.
+	 * 
+	 * @param path the property names separated by dots
+	 * @return the property chain
+	 */
+	public static PropertyChain create(final String path) {
+		final List<String> names= new ArrayList<>(4);
+		int start= 0;
+		int end;
+		while ((end= path.indexOf('.', start)) >= 0) {
+			names.add(path.substring(start, end));
+			start= end + 1;
+		}
+		names.add(path.substring(start));
+		return new PropertyChain(path, names.toArray(new String[names.size()]));
+	}
+	
+	/**
+	 * Creates a property chain for a single property.
+	 * 
+	 * @param name the name of the property
+	 * @return the property chain
+	 */
+	public static PropertyChain createSingle(final String name) {
+		return new PropertyChain(name, new String[] { name });
+	}
+	
+	
+	private final String path;
+	
+	private final String[] names;
+	
+	/** The property of the last accessed class by segment */
+	private final Property[] lastProperties;
+	
+	
+	private PropertyChain(final String path, final String[] names) {
+		this.path= path;
+		this.names= names;
+		this.lastProperties= new Property[names.length];
+	}
+	
+	
+	public String getPath() {
+		return this.path;
+	}
+	
+	private Property getProperty(final int segment, final Object bean) {
+		final Class<?> beanClass= bean.getClass();
+		Property property= this.lastProperties[segment];
+		if (property != null && property.beanClass == beanClass) {
+			return property;
+		}
+		property= getProperty(beanClass, this.names[segment]);
+		if (property == null) {
+			throw new IllegalArgumentException("Property '" + this.names[segment] + "' not found in " + beanClass.getName()); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		this.lastProperties[segment]= property;
+		return property;
+	}
+	
+	/**
+	 * Reads the value of the property of the bean.
+	 * 
+	 * @param bean the bean
+	 * @return the value, <code>null</code> if a property in the chain is <code>null</code>
+	 */
+	public Object getValue(final Object bean) {
+		Object value= bean;
+		for (int i= 0; i < this.names.length && value != null; i++) {
+			value= getProperty(i, value).getValue(value);
+		}
+		return value;
+	}
+	
+	/**
+	 * Sets the value of the property of the bean.
+	 * 
+	 * @param bean the bean
+	 * @param value the value to set
+	 * @throws NullPointerException if a property in the chain is <code>null</code>
+	 * @throws IllegalArgumentException if a property of the chain does not exist or the type
+	 *     of the value does not match
+	 * @throws UnsupportedOperationException if the property is not writable
+	 */
+	public void setValue(final Object bean, final Object value) {
+		Object parent= bean;
+		final int last= this.names.length - 1;
+		for (int i= 0; i < last; i++) {
+			parent= getProperty(i, parent).getValue(parent);
+			if (parent == null) {
+				throw new NullPointerException("Property '" + this.names[i] + "' is null"); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+		}
+		getProperty(last, parent).setValue(parent, value);
+	}
+	
+	
+	@Override
+	public String toString() {
+		return this.path;
+	}
+	
+}
@@ -11,14 +11,8 @@
 // -depend
 package de.walware.ecommons.waltable.data;
 
-import java.beans.IntrospectionException;
-import java.beans.Introspector;
-import java.beans.PropertyDescriptor;
-import java.lang.reflect.Method;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
@@ -30,6 +24,9 @@ import de.walware.ecommons.waltable.internal.WaLTablePlugin;
  * Convenience class which uses java reflection to get/set property names
  *  from the row bean. It looks for getter methods for reading and setter
  *  methods for writing according to the Java conventions.
+ * <p>
+ * The methods are resolved once per bean class and property (see {@link PropertyChain}), the
+ * access is done by method handles.</p>
  *
  * @param <R> type of the row object/bean
  */
@@ -38,13 +35,14 @@ public class ReflectiveColumnPropertyAccessor<R> implements IColumnPropertyAcces
 	
 	private final List<String> propertyNames;
 
-	private Map<String, PropertyDescriptor> propertyDescriptorMap;
+	private final PropertyChain[] propertyChains;
 
 	/**
 	 * @param propertyNames of the members of the row bean
 	 */
 	public ReflectiveColumnPropertyAccessor(final String[] propertyNames) {
 		this.propertyNames= Arrays.asList(propertyNames);
+		this.propertyChains= new PropertyChain[propertyNames.length];
 	}
 
 	@Override
@@ -55,9 +53,7 @@ public class ReflectiveColumnPropertyAccessor<R> implements IColumnPropertyAcces
 	@Override
 	public Object getDataValue(final R rowObj, final long columnIndex) {
 		try {
-			final PropertyDescriptor propertyDesc= getPropertyDescriptor(rowObj, columnIndex);
-			final Method readMethod= propertyDesc.getReadMethod();
-			return readMethod.invoke(rowObj);
+			return getPropertyChain(columnIndex).getValue(rowObj);
 		} catch (final Exception e) {
 			throw new RuntimeException(e);
 		}
@@ -66,12 +62,11 @@ public class ReflectiveColumnPropertyAccessor<R> implements IColumnPropertyAcces
 	@Override
 	public void setDataValue(final R rowObj, final long columnIndex, final Object newValue) {
 		try {
-			final PropertyDescriptor propertyDesc= getPropertyDescriptor(rowObj, columnIndex);
-			final Method writeMethod= propertyDesc.getWriteMethod();
-			if (writeMethod == null) {
+			try {
+				getPropertyChain(columnIndex).setValue(rowObj, newValue);
+			} catch (final UnsupportedOperationException e) {
 				throw new RuntimeException("Setter method not found in backing bean for value at column index: " + columnIndex); //$NON-NLS-1$
 			}
-			writeMethod.invoke(rowObj, newValue);
 		} catch (final IllegalArgumentException ex) {
 			WaLTablePlugin.log(new Status(IStatus.WARNING, WaLTablePlugin.PLUGIN_ID,
 					"Data type being set does not match the data type of the setter method in the backing bean", ex )); //$NON-NLS-1$
@@ -95,20 +90,26 @@ public class ReflectiveColumnPropertyAccessor<R> implements IColumnPropertyAcces
 		return this.propertyNames.indexOf(propertyName);
 	}
 
-	private PropertyDescriptor getPropertyDescriptor(final R rowObj, final long columnIndex) throws IntrospectionException {
+	/**
+	 * Creates the property chain to access the specified property.
+	 * 
+	 * @param propertyName the property name of a column
+	 * @return the property chain
+	 */
+	protected PropertyChain createPropertyChain(final String propertyName) {
+		return PropertyChain.createSingle(propertyName);
+	}
+
+	private PropertyChain getPropertyChain(final long columnIndex) {
 		if (columnIndex >= Integer.MAX_VALUE) {
 			throw new IndexOutOfBoundsException();
 		}
-		if (this.propertyDescriptorMap == null) {
-			this.propertyDescriptorMap= new HashMap<>();
-			final PropertyDescriptor[] propertyDescriptors= Introspector.getBeanInfo(rowObj.getClass()).getPropertyDescriptors();
-			for (final PropertyDescriptor propertyDescriptor : propertyDescriptors) {
-				this.propertyDescriptorMap.put(propertyDescriptor.getName(), propertyDescriptor);
-			}
+		PropertyChain propertyChain= this.propertyChains[(int) columnIndex];
+		if (propertyChain == null) {
+			propertyChain= createPropertyChain(this.propertyNames.get((int) columnIndex));
+			this.propertyChains[(int) columnIndex]= propertyChain;
 		}
-
-		final String propertyName= this.propertyNames.get((int) columnIndex);
-		return this.propertyDescriptorMap.get(propertyName);
+		return propertyChain;
 	}
 
 }
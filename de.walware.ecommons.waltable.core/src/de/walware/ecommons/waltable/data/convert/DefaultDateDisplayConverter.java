@@ -24,10 +24,12 @@ import de.walware.ecommons.waltable.internal.WaLTablePlugin;
 
 /**
  * Converts a java.util.Date object to a given format and vice versa
+ * <p>
+ * The converter is thread safe.</p>
  */
 public class DefaultDateDisplayConverter extends DisplayConverter {
 
-	private SimpleDateFormat dateFormat;
+	private final SimpleDateFormat dateFormat;
 
 	/**
 	 * Convert {@link Date} to {@link String} using the default format from {@link SimpleDateFormat}
@@ -63,7 +65,9 @@ public class DefaultDateDisplayConverter extends DisplayConverter {
 	public Object canonicalToDisplayValue(final Object canonicalValue) {
 		try {
 			if (canonicalValue != null) {
-				return this.dateFormat.format(canonicalValue);
+				synchronized (this.dateFormat) {
+					return this.dateFormat.format(canonicalValue);
+				}
 			}
 		} catch (final IllegalArgumentException e) {
 			WaLTablePlugin.log(new Status(IStatus.WARNING, WaLTablePlugin.PLUGIN_ID,
@@ -75,7 +79,9 @@ public class DefaultDateDisplayConverter extends DisplayConverter {
 	@Override
 	public Object displayToCanonicalValue(final Object displayValue) {
 		try {
-			return this.dateFormat.parse(displayValue.toString());
+			synchronized (this.dateFormat) {
+				return this.dateFormat.parse(displayValue.toString());
+			}
 		} catch (final Exception e) {
 			throw new ConversionFailedException(
 					Messages.getString("DefaultDateDisplayConverter.failure", //$NON-NLS-1$
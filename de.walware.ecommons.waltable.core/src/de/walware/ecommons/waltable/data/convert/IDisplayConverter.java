@@ -23,6 +23,9 @@ import de.walware.ecommons.waltable.layer.cell.ILayerCell;
  *
  * For example, the canonical representation might be a Date object,
  * whereas the target representation could be a formatted String.
+ * 
+ * Implementations should be thread safe; values are also converted in background
+ * threads, e.g. when copying or exporting large data.
  */
 public interface IDisplayConverter {
 	
@@ -0,0 +1,117 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Original authors and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *     Original authors and others - initial API and implementation
+ ******************************************************************************/
+
+package de.walware.ecommons.waltable.export;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+
+import org.eclipse.swt.widgets.Shell;
+
+
+/**
+ * Abstract {@link ILayerExporter} for text based formats.
+ * <p>
+ * The exporter writes the text by a buffered writer using an explicit charset, see
+ * {@link #getWriter(OutputStream)}. The writer is flushed in {@link #exportEnd(OutputStream)},
+ * so implementations overriding this method must call the super implementation.</p>
+ */
+public abstract class AbstractTextExporter implements ILayerExporter {
+	
+	
+	private static final int BUFFER_SIZE= 0x10000;
+	
+	
+	/**
+	 * The IOutputStreamProvider that is used to create new OutputStreams on
+	 * beginning new export operations.
+	 */
+	private final IOutputStreamProvider outputStreamProvider;
+	
+	private final Charset charset;
+	
+	private OutputStream writerStream;
+	private Writer writer;
+	
+	
+	/**
+	 * @param outputStreamProvider The IOutputStreamProvider that is used to retrieve the 
+	 * 			OutputStream to write the export to.
+	 * @param charset The charset used to encode the text.
+	 */
+	protected AbstractTextExporter(final IOutputStreamProvider outputStreamProvider,
+			final Charset charset) {
+		if (outputStreamProvider == null) {
+			throw new NullPointerException("outputStreamProvider"); //$NON-NLS-1$
+		}
+		if (charset == null) {
+			throw new NullPointerException("charset"); //$NON-NLS-1$
+		}
+		this.outputStreamProvider= outputStreamProvider;
+		this.charset= charset;
+	}
+	
+	
+	/**
+	 * @return The charset used to encode the text.
+	 */
+	public Charset getCharset() {
+		return this.charset;
+	}
+	
+	@Override
+	public OutputStream getOutputStream(final Shell shell) {
+		return this.outputStreamProvider.getOutputStream(shell);
+	}
+	
+	@Override
+	public Object getResult() {
+		return this.outputStreamProvider.getResult();
+	}
+	
+	/**
+	 * Returns the writer for the specified output stream.
+	 * 
+	 * @param outputStream The OutputStream to write the export to.
+	 * @return The buffered writer writing to the stream.
+	 */
+	protected Writer getWriter(final OutputStream outputStream) {
+		if (this.writerStream != outputStream) {
+			this.writer= new BufferedWriter(new OutputStreamWriter(outputStream, this.charset),
+					BUFFER_SIZE );
+			this.writerStream= outputStream;
+		}
+		return this.writer;
+	}
+	
+	@Override
+	public void exportBegin(final OutputStream outputStream) throws IOException {
+		getWriter(outputStream);
+	}
+	
+	@Override
+	public void exportEnd(final OutputStream outputStream) throws IOException {
+		if (this.writer != null) {
+			try {
+				this.writer.flush();
+			}
+			finally {
+				this.writer= null;
+				this.writerStream= null;
+			}
+		}
+	}
+	
+}
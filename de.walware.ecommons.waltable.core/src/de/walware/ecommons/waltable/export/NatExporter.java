@@ -10,36 +10,170 @@
  ******************************************************************************/
 package de.walware.ecommons.waltable.export;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
 
-import org.eclipse.swt.SWT;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.SubMonitor;
+import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.swt.program.Program;
-import org.eclipse.swt.widgets.ProgressBar;
+import org.eclipse.swt.widgets.Display;
 import org.eclipse.swt.widgets.Shell;
 
 import de.walware.ecommons.waltable.Messages;
 import de.walware.ecommons.waltable.NatTable;
 import de.walware.ecommons.waltable.config.IConfigRegistry;
 import de.walware.ecommons.waltable.coordinate.LRectangle;
+import de.walware.ecommons.waltable.data.IDataProvider;
+import de.walware.ecommons.waltable.internal.WaLTablePlugin;
+import de.walware.ecommons.waltable.layer.DataLayer;
 import de.walware.ecommons.waltable.layer.ILayer;
+import de.walware.ecommons.waltable.layer.ILayerListener;
+import de.walware.ecommons.waltable.layer.InternedLabelStack;
+import de.walware.ecommons.waltable.layer.LabelStackInterner;
 import de.walware.ecommons.waltable.layer.cell.ILayerCell;
+import de.walware.ecommons.waltable.layer.cell.SnapshotLayerCell;
+import de.walware.ecommons.waltable.layer.event.ILayerEvent;
+import de.walware.ecommons.waltable.layer.event.IStructuralChangeEvent;
 import de.walware.ecommons.waltable.print.PrintEntireGridCommand;
 import de.walware.ecommons.waltable.print.TurnViewportOffCommand;
 import de.walware.ecommons.waltable.print.TurnViewportOnCommand;
 import de.walware.ecommons.waltable.style.DisplayMode;
 import de.walware.ecommons.waltable.ui.IClientAreaProvider;
 
+
+/**
+ * Exports layers using an {@link ILayerExporter}.
+ * <p>
+ * If a shell is specified, the export runs as background job with progress and cancellation.
+ * The structure of the layer (the cells with their labels) is snapshotted in the display
+ * thread in chunks of rows, the values are read, formatted and written in the job. The output
+ * is buffered.</p>
+ */
 public class NatExporter {
 	
+	
+	/**
+	 * Cell detached from the layer, with the display mode and labels at the time of the
+	 * snapshot. The data value is always loaded synchronously.
+	 */
+	private static final class ExportCell extends SnapshotLayerCell {
+		
+		
+		public ExportCell(final ILayerCell cell) {
+			super(cell);
+		}
+		
+		
+		@Override
+		public Object getDataValue(final int flags, final IProgressMonitor monitor) {
+			return super.getDataValue(flags | IDataProvider.FORCE_SYNC, monitor);
+		}
+		
+	}
+	
+	/**
+	 * Access to all cells of a layer, independent of its viewport.
+	 * <p>
+	 * The access is only enabled while cells are snapshotted in the display thread, so the
+	 * table stays usable during the export. Structural changes of the layer outside of the
+	 * access are recorded.</p>
+	 */
+	private static final class LayerAccess implements ILayerListener {
+		
+		
+		private final ILayer layer;
+		
+		private IClientAreaProvider originalClientAreaProvider;
+		
+		private boolean inAccess;
+		
+		private volatile boolean structuralChange;
+		
+		
+		public LayerAccess(final ILayer layer) {
+			this.layer= layer;
+		}
+		
+		
+		public void begin() {
+			this.inAccess= true;
+			this.originalClientAreaProvider= this.layer.getClientAreaProvider();
+			
+			// This needs to be done so that the layer can return all the cells
+			// not just the ones visible in the viewport
+			this.layer.doCommand(new TurnViewportOffCommand());
+			setClientAreaToMaximum(this.layer);
+		}
+		
+		public void end() {
+			try {
+				this.layer.setClientAreaProvider(this.originalClientAreaProvider);
+				this.layer.doCommand(new TurnViewportOnCommand());
+			}
+			finally {
+				this.originalClientAreaProvider= null;
+				this.inAccess= false;
+			}
+		}
+		
+		@Override
+		public void handleLayerEvent(final ILayerEvent event) {
+			if (!this.inAccess && event instanceof IStructuralChangeEvent) {
+				this.structuralChange= true;
+			}
+		}
+		
+		public boolean hasStructuralChange() {
+			return this.structuralChange;
+		}
+		
+	}
+	
+	private static final class ExportItem {
+		
+		
+		private final String name;
+		private final ILayer layer;
+		private final IConfigRegistry configRegistry;
+		
+		
+		public ExportItem(final String name, final ILayer layer, final IConfigRegistry configRegistry) {
+			this.name= name;
+			this.layer= layer;
+			this.configRegistry= configRegistry;
+		}
+		
+	}
+	
+	
+	/** Maximum number of cells snapshotted at once */
+	private static final int CHUNK_CELL_COUNT= 0x10000;
+	/** Maximum number of rows snapshotted at once */
+	private static final int CHUNK_ROW_COUNT= 1024;
+	
+	private static final int BUFFER_SIZE= 0x10000;
+	
+	
 	private final Shell shell;
-
+	
+	
 	public NatExporter(final Shell shell) {
 		this.shell= shell;
 	}
 	
+	
 	/**
 	 * Exports a single ILayer using the ILayerExporter registered in the ConfigRegistry.
 	 * @param layer The ILayer to export, usually a NatTable instance.
@@ -49,40 +183,8 @@ public class NatExporter {
 	public void exportSingleLayer(final ILayer layer, final IConfigRegistry configRegistry) {
 		final ILayerExporter exporter= configRegistry.getConfigAttribute(ExportConfigAttributes.EXPORTER, DisplayMode.NORMAL);
 		
-		final OutputStream outputStream= exporter.getOutputStream(this.shell);
-		if (outputStream == null) {
-			return;
-		}
-		
-		final Runnable exportRunnable= new Runnable() {
-			@Override
-			public void run() {
-				try {
-					exporter.exportBegin(outputStream);
-					
-					exportLayer(exporter, outputStream, "", layer, configRegistry); //$NON-NLS-1$
-					
-					exporter.exportEnd(outputStream);
-				} catch (final IOException e) {
-					throw new RuntimeException("Failed to export.", e); //$NON-NLS-1$
-				} finally {
-					try {
-						outputStream.close();
-					} catch (final IOException e) {
-						e.printStackTrace(System.err);
-					}
-				}
-				
-				openExport(exporter);
-			}
-		};
-		
-		if (this.shell != null) {
-			// Run with the SWT display so that the progress bar can paint
-			this.shell.getDisplay().asyncExec(exportRunnable);
-		} else {
-			exportRunnable.run();
-		}
+		export(exporter, Collections.singletonList(
+				new ExportItem("", layer, configRegistry) )); //$NON-NLS-1$
 	}
 	
 	/**
@@ -92,42 +194,85 @@ public class NatExporter {
 	 * 			used as sheet titles while the values are the instances to export.
 	 */
 	public void exportMultipleNatTables(final ILayerExporter exporter, final Map<String, NatTable> natTablesMap) {
+		final List<ExportItem> items= new ArrayList<>(natTablesMap.size());
+		for (final Map.Entry<String, NatTable> entry : natTablesMap.entrySet()) {
+			final NatTable natTable= entry.getValue();
+			items.add(new ExportItem(entry.getKey(), natTable, natTable.getConfigRegistry()));
+		}
+		
+		export(exporter, items);
+	}
+	
+	private void export(final ILayerExporter exporter, final List<ExportItem> items) {
 		final OutputStream outputStream= exporter.getOutputStream(this.shell);
 		if (outputStream == null) {
 			return;
 		}
 		
-		final Runnable exportRunnable= new Runnable() {
-			@Override
-			public void run() {
-				try {
-					exporter.exportBegin(outputStream);
-					
-					for (final String name : natTablesMap.keySet()) {
-						final NatTable natTable= natTablesMap.get(name);
-						exportLayer(exporter, outputStream, name, natTable, natTable.getConfigRegistry());
+		if (this.shell != null) {
+			final Display display= this.shell.getDisplay();
+			final Job job= new Job(Messages.getString("NatExporter.exporting")) { //$NON-NLS-1$
+				@Override
+				protected IStatus run(final IProgressMonitor monitor) {
+					try {
+						doExport(exporter, outputStream, items, display, monitor);
+					}
+					catch (final OperationCanceledException e) {
+						return Status.CANCEL_STATUS;
+					}
+					catch (final IOException e) {
+						return new Status(IStatus.ERROR, WaLTablePlugin.PLUGIN_ID,
+								"Failed to export.", e ); //$NON-NLS-1$
 					}
 					
-					exporter.exportEnd(outputStream);
-				} catch (final IOException e) {
-					throw new RuntimeException("Failed to export.", e); //$NON-NLS-1$
-				} finally {
-					try {
-						outputStream.close();
-					} catch (final IOException e) {
-						e.printStackTrace(System.err);
+					if (!display.isDisposed()) {
+						display.asyncExec(new Runnable() {
+							@Override
+							public void run() {
+								openExport(exporter);
+							}
+						});
 					}
+					return Status.OK_STATUS;
 				}
-				
-				openExport(exporter);
+			};
+			job.setUser(true);
+			job.schedule();
+		}
+		else {
+			try {
+				doExport(exporter, outputStream, items, null, new NullProgressMonitor());
+			}
+			catch (final IOException e) {
+				throw new RuntimeException("Failed to export.", e); //$NON-NLS-1$
+			}
+			openExport(exporter);
+		}
+	}
+	
+	private void doExport(final ILayerExporter exporter, final OutputStream outputStream,
+			final List<ExportItem> items, final Display display,
+			final IProgressMonitor monitor) throws IOException {
+		final SubMonitor progress= SubMonitor.convert(monitor,
+				Messages.getString("NatExporter.exporting"), items.size() ); //$NON-NLS-1$
+		final OutputStream bufferedStream= new BufferedOutputStream(outputStream, BUFFER_SIZE);
+		try {
+			exporter.exportBegin(bufferedStream);
+			
+			for (final ExportItem item : items) {
+				exportLayer(exporter, bufferedStream, item.name, item.layer, item.configRegistry,
+						display, progress.newChild(1) );
+			}
+			
+			exporter.exportEnd(bufferedStream);
+			bufferedStream.flush();
+		}
+		finally {
+			try {
+				outputStream.close();
+			} catch (final IOException e) {
+				e.printStackTrace(System.err);
 			}
-		};
-		
-		if (this.shell != null) {
-			// Run with the SWT display so that the progress bar can paint
-			this.shell.getDisplay().asyncExec(exportRunnable);
-		} else {
-			exportRunnable.run();
 		}
 	}
 	
@@ -135,83 +280,211 @@ public class NatExporter {
 	 * Exports the given layer to the outputStream using the provided exporter. The exporter.exportBegin() method should be called before this method is invoked, and
 	 * exporter.exportEnd() should be called after this method returns. If multiple layers are being exported as part of a single logical export operation, then
 	 * exporter.exportBegin() will be called once at the very beginning, followed by n calls to this exportLayer() method, and finally followed by exporter.exportEnd().
+	 * <p>
+	 * The layer is exported in the current thread.</p>
 	 * 
 	 * @param exporter
 	 * @param outputStream
 	 * @param layerName
 	 * @param layer
 	 * @param configRegistry
+	 * @deprecated use {@link #exportLayer(ILayerExporter, OutputStream, String, ILayer, IConfigRegistry, Display, IProgressMonitor)}
 	 */
-	protected void exportLayer(final ILayerExporter exporter, final OutputStream outputStream, final String layerName, final ILayer layer, final IConfigRegistry configRegistry) {
-		final IClientAreaProvider originalClientAreaProvider= layer.getClientAreaProvider();
-		
-		// This needs to be done so that the layer can return all the cells
-		// not just the ones visible in the viewport
-		layer.doCommand(new TurnViewportOffCommand());
-		setClientAreaToMaximum(layer);
+	@Deprecated
+	protected void exportLayer(final ILayerExporter exporter, final OutputStream outputStream,
+			final String layerName, final ILayer layer, final IConfigRegistry configRegistry) {
+		try {
+			exportLayer(exporter, outputStream, layerName, layer, configRegistry,
+					null, new NullProgressMonitor() );
+		}
+		catch (final Exception e) {
+			e.printStackTrace(System.err);
+		}
+	}
+	
+	/**
+	 * Exports the given layer to the outputStream using the provided exporter. The exporter.exportBegin() method should be called before this method is invoked, and
+	 * exporter.exportEnd() should be called after this method returns. If multiple layers are being exported as part of a single logical export operation, then
+	 * exporter.exportBegin() will be called once at the very beginning, followed by n calls to this exportLayer() method, and finally followed by exporter.exportEnd().
+	 * <p>
+	 * The cells of the layer are snapshotted in chunks in the specified display (if not
+	 * <code>null</code>), the export itself runs in the current thread. The viewport of the
+	 * layer is turned off only while a chunk is snapshotted. The column and row count are
+	 * determined once at the beginning; if the layer is structurally changed during the
+	 * export, the export fails.</p>
+	 * 
+	 * @param exporter
+	 * @param outputStream
+	 * @param layerName
+	 * @param layer
+	 * @param configRegistry
+	 * @param display the display of the layer or <code>null</code> to access it in the current thread
+	 * @param monitor the progress monitor
+	 * @throws IOException if writing the export failed or the layer was changed
+	 * @throws OperationCanceledException if the export was canceled
+	 */
+	protected void exportLayer(final ILayerExporter exporter, final OutputStream outputStream,
+			final String layerName, final ILayer layer, final IConfigRegistry configRegistry,
+			final Display display, final IProgressMonitor monitor) throws IOException {
+		final SubMonitor progress= SubMonitor.convert(monitor);
 		
 		//if a SummaryRowLayer is in the layer stack, we need to ensure that the values are calculated
 //		layer.doCommand(new CalculateSummaryRowValuesCommand());
 		
-		ProgressBar progressBar= null;
-		
-		double factor= 1.0;
-		if (this.shell != null) {
-			final Shell childShell= new Shell(this.shell.getDisplay(), SWT.DIALOG_TRIM | SWT.APPLICATION_MODAL);
-			childShell.setText(Messages.getString("NatExporter.exporting")); //$NON-NLS-1$
-
-			final int startRow= 0;
-			final long endRow= layer.getRowCount() - 1;
-			factor= (endRow < Integer.MAX_VALUE) ? 1.0 : ((double) 0xfffffff) / endRow;
-			
-			progressBar= new ProgressBar(childShell, SWT.SMOOTH);
-			progressBar.setMinimum(startRow);
-			progressBar.setMaximum((int) (factor * endRow));
-			progressBar.setBounds(0, 0, 400, 25);
-			progressBar.setFocus();
-
-			childShell.pack();
-			childShell.open();
-		}
+		final LabelStackInterner labelStacks= new LabelStackInterner();
+		final Map<InternedLabelStack, IExportFormatter>[] formatters= createFormatterMaps();
 		
+		final LayerAccess access= new LayerAccess(layer);
+		final long[] counts= new long[2];
+		runInDisplay(display, new Runnable() {
+			@Override
+			public void run() {
+				layer.addLayerListener(access);
+				access.begin();
+				try {
+					counts[0]= layer.getColumnCount();
+					counts[1]= layer.getRowCount();
+				}
+				finally {
+					access.end();
+				}
+			}
+		});
 		try {
+			if (counts[0] > Integer.MAX_VALUE) {
+				throw new UnsupportedOperationException("Too many columns."); //$NON-NLS-1$
+			}
+			final int columnCount= (int) counts[0];
+			final long rowCount= counts[1];
+			final int chunkRowCount= (int) Math.max(1, Math.min(CHUNK_ROW_COUNT,
+					CHUNK_CELL_COUNT / Math.max(columnCount, 1) ));
+			
 			exporter.exportLayerBegin(outputStream, layerName);
 			
-			for (long rowPosition= 0; rowPosition < layer.getRowCount(); rowPosition++) {
-				exporter.exportRowBegin(outputStream, rowPosition);
-				if (progressBar != null) {
-					progressBar.setSelection((int) (factor * rowPosition));
+			progress.setWorkRemaining((int) Math.min(rowCount / chunkRowCount + 1, Integer.MAX_VALUE));
+			long rowPosition= 0;
+			while (rowPosition < rowCount) {
+				if (progress.isCanceled()) {
+					throw new OperationCanceledException();
 				}
 				
-				for (long columnPosition= 0; columnPosition < layer.getColumnCount(); columnPosition++) {
-					final ILayerCell cell= layer.getCellByPosition(columnPosition, rowPosition);
+				final int rowChunkCount= (int) Math.min(rowCount - rowPosition, chunkRowCount);
+				final ILayerCell[] cells= snapshotCells(layer, access, columnCount, rowPosition, rowChunkCount,
+						display );
+				
+				// load the data of block data providers at once
+				DataLayer.preloadDataValues(cells, cells.length, IDataProvider.FORCE_SYNC, progress);
+				
+				for (int i= 0, idx= 0; i < rowChunkCount; i++, rowPosition++) {
+					exporter.exportRowBegin(outputStream, rowPosition);
 					
-					final IExportFormatter exportFormatter= configRegistry.getConfigAttribute(ExportConfigAttributes.EXPORT_FORMATTER, cell.getDisplayMode(), cell.getConfigLabels().getLabels());
-					final Object exportDisplayValue= exportFormatter.formatForExport(cell, configRegistry);
-
-					exporter.exportCell(outputStream, exportDisplayValue, cell, configRegistry);
+					for (int columnPosition= 0; columnPosition < columnCount; columnPosition++, idx++) {
+						final ILayerCell cell= cells[idx];
+						
+						final IExportFormatter exportFormatter= getExportFormatter(formatters, labelStacks, cell, configRegistry);
+						final Object exportDisplayValue= exportFormatter.formatForExport(cell, configRegistry);
+						
+						exporter.exportCell(outputStream, exportDisplayValue, cell, configRegistry);
+					}
+					
+					exporter.exportRowEnd(outputStream, rowPosition);
 				}
 				
-				exporter.exportRowEnd(outputStream, rowPosition);
+				progress.worked(1);
 			}
 			
 			exporter.exportLayerEnd(outputStream, layerName);
-		} catch (final Exception e) {
-			e.printStackTrace(System.err);
 		}
-
-		// These must be fired at the end of the thread execution
-		layer.setClientAreaProvider(originalClientAreaProvider);
-		layer.doCommand(new TurnViewportOnCommand());
-		
-		if (progressBar != null) {
-			final Shell childShell= progressBar.getShell();
-			progressBar.dispose();
-			childShell.dispose();
+		finally {
+			if (display == null || !display.isDisposed()) {
+				runInDisplay(display, new Runnable() {
+					@Override
+					public void run() {
+						layer.removeLayerListener(access);
+					}
+				});
+			}
+		}
+	}
+	
+	/**
+	 * Creates the cells for the next chunk of rows of the layer.
+	 * 
+	 * @param layer the layer
+	 * @param access the access to the layer
+	 * @param columnCount the column count of the layer
+	 * @param startRowPosition the first row position
+	 * @param rowCount the number of rows of the chunk
+	 * @param display the display to access the layer
+	 * @return the cells of the rows, row by row
+	 * @throws IOException if the layer was structurally changed during the export
+	 */
+	private ILayerCell[] snapshotCells(final ILayer layer, final LayerAccess access,
+			final int columnCount, final long startRowPosition, final int rowCount,
+			final Display display) throws IOException {
+		final ILayerCell[] cells= new ILayerCell[rowCount * columnCount];
+		runInDisplay(display, new Runnable() {
+			@Override
+			public void run() {
+				if (access.hasStructuralChange()) {
+					return;
+				}
+				access.begin();
+				try {
+					int idx= 0;
+					for (long rowPosition= startRowPosition; rowPosition < startRowPosition + rowCount; rowPosition++) {
+						for (long columnPosition= 0; columnPosition < columnCount; columnPosition++) {
+							cells[idx++]= new ExportCell(layer.getCellByPosition(columnPosition, rowPosition));
+						}
+					}
+				}
+				finally {
+					access.end();
+				}
+			}
+		});
+		if (access.hasStructuralChange()) {
+			throw new IOException("The table was structurally changed during the export."); //$NON-NLS-1$
+		}
+		return cells;
+	}
+	
+	private static void runInDisplay(final Display display, final Runnable runnable) {
+		if (display == null || display.getThread() == Thread.currentThread()) {
+			runnable.run();
+		}
+		else {
+			if (display.isDisposed()) {
+				throw new OperationCanceledException();
+			}
+			display.syncExec(runnable);
+		}
+	}
+	
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private static Map<InternedLabelStack, IExportFormatter>[] createFormatterMaps() {
+		final Map<InternedLabelStack, IExportFormatter>[] maps= new Map[DisplayMode.values().length];
+		for (int i= 0; i < maps.length; i++) {
+			maps[i]= new IdentityHashMap<>();
+		}
+		return maps;
+	}
+	
+	private static IExportFormatter getExportFormatter(final Map<InternedLabelStack, IExportFormatter>[] formatters,
+			final LabelStackInterner labelStacks, final ILayerCell cell, final IConfigRegistry configRegistry) {
+		final DisplayMode displayMode= cell.getDisplayMode();
+		final Map<InternedLabelStack, IExportFormatter> map= formatters[displayMode.ordinal()];
+		final InternedLabelStack labels= cell.getConfigLabels().intern(labelStacks);
+		IExportFormatter formatter= map.get(labels);
+		if (formatter == null) {
+			formatter= configRegistry.getConfigAttribute(ExportConfigAttributes.EXPORT_FORMATTER,
+					displayMode, labels.getLabels() );
+			map.put(labels, formatter);
 		}
+		return formatter;
 	}
 	
-	private void setClientAreaToMaximum(final ILayer layer) {
+	private static void setClientAreaToMaximum(final ILayer layer) {
 		final LRectangle maxClientArea= new LRectangle(0, 0, layer.getWidth(), layer.getHeight());
 		
 		layer.setClientAreaProvider(new IClientAreaProvider() {
@@ -0,0 +1,140 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Original authors and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *     Original authors and others - initial API and implementation
+ ******************************************************************************/
+
+package de.walware.ecommons.waltable.export.csv;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+import de.walware.ecommons.waltable.config.IConfigRegistry;
+import de.walware.ecommons.waltable.export.AbstractTextExporter;
+import de.walware.ecommons.waltable.export.FileOutputStreamProvider;
+import de.walware.ecommons.waltable.export.IOutputStreamProvider;
+import de.walware.ecommons.waltable.layer.cell.ILayerCell;
+
+
+/**
+ * Exports a NatTable as comma separated values (RFC 4180).
+ * <p>
+ * Values containing the delimiter, a quote or a line break are quoted. If multiple layers
+ * are exported, the layers are separated by an empty line.</p>
+ */
+public class CsvExporter extends AbstractTextExporter {
+	
+	
+	private static final String LINE_SEPARATOR= "\r\n"; //$NON-NLS-1$
+	
+	
+	private final char delimiter;
+	
+	private boolean firstLayer;
+	private boolean firstCell;
+	
+	
+	/**
+	 * Creates a new CsvExporter using a FileOutputStreamProvider with default values, UTF-8
+	 * and comma as delimiter.
+	 */
+	public CsvExporter() {
+		this(new FileOutputStreamProvider("table_export.csv", new String[] { "CSV (*.csv)" }, new String[] { "*.csv" }), //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+				StandardCharsets.UTF_8, ',' );
+	}
+	
+	/**
+	 * Creates a new CsvExporter.
+	 * 
+	 * @param outputStreamProvider The IOutputStreamProvider that is used to retrieve the 
+	 * 			OutputStream to write the export to.
+	 * @param charset The charset used to encode the text.
+	 * @param delimiter The character separating the values.
+	 */
+	public CsvExporter(final IOutputStreamProvider outputStreamProvider,
+			final Charset charset, final char delimiter) {
+		super(outputStreamProvider, charset);
+		if (delimiter == '"' || delimiter == '\r' || delimiter == '\n') {
+			throw new IllegalArgumentException("delimiter: " + delimiter); //$NON-NLS-1$
+		}
+		this.delimiter= delimiter;
+	}
+	
+	
+	@Override
+	public void exportBegin(final OutputStream outputStream) throws IOException {
+		super.exportBegin(outputStream);
+		this.firstLayer= true;
+	}
+	
+	@Override
+	public void exportLayerBegin(final OutputStream outputStream, final String layerName) throws IOException {
+		if (!this.firstLayer) {
+			getWriter(outputStream).write(LINE_SEPARATOR);
+		}
+		this.firstLayer= false;
+	}
+	
+	@Override
+	public void exportLayerEnd(final OutputStream outputStream, final String layerName) throws IOException {
+	}
+	
+	@Override
+	public void exportRowBegin(final OutputStream outputStream, final long rowPosition) throws IOException {
+		this.firstCell= true;
+	}
+	
+	@Override
+	public void exportRowEnd(final OutputStream outputStream, final long rowPosition) throws IOException {
+		getWriter(outputStream).write(LINE_SEPARATOR);
+	}
+	
+	@Override
+	public void exportCell(final OutputStream outputStream, final Object exportDisplayValue,
+			final ILayerCell cell, final IConfigRegistry configRegistry) throws IOException {
+		final Writer writer= getWriter(outputStream);
+		if (!this.firstCell) {
+			writer.write(this.delimiter);
+		}
+		this.firstCell= false;
+		
+		if (exportDisplayValue == null) {
+			return;
+		}
+		final String text= exportDisplayValue.toString();
+		if (requiresQuotes(text)) {
+			writer.write('"');
+			int start= 0;
+			int idx;
+			while ((idx= text.indexOf('"', start)) >= 0) {
+				writer.write(text, start, idx + 1 - start);
+				writer.write('"');
+				start= idx + 1;
+			}
+			writer.write(text, start, text.length() - start);
+			writer.write('"');
+		}
+		else {
+			writer.write(text);
+		}
+	}
+	
+	private boolean requiresQuotes(final String text) {
+		for (int i= 0; i < text.length(); i++) {
+			final char c= text.charAt(i);
+			if (c == this.delimiter || c == '"' || c == '\n' || c == '\r') {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+}
@@ -12,20 +12,30 @@ package de.walware.ecommons.waltable.export.excel;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.IdentityHashMap;
+import java.util.Map;
 
 import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.OperationCanceledException;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.swt.graphics.Color;
 import org.eclipse.swt.graphics.Font;
 import org.eclipse.swt.graphics.FontData;
+import org.eclipse.swt.widgets.Display;
 import org.eclipse.swt.widgets.Shell;
 
 import de.walware.ecommons.waltable.config.IConfigRegistry;
+import de.walware.ecommons.waltable.export.AbstractTextExporter;
 import de.walware.ecommons.waltable.export.FileOutputStreamProvider;
-import de.walware.ecommons.waltable.export.ILayerExporter;
 import de.walware.ecommons.waltable.export.IOutputStreamProvider;
 import de.walware.ecommons.waltable.internal.WaLTablePlugin;
+import de.walware.ecommons.waltable.layer.InternedLabelStack;
+import de.walware.ecommons.waltable.layer.LabelStackInterner;
 import de.walware.ecommons.waltable.layer.cell.ILayerCell;
 import de.walware.ecommons.waltable.style.CellStyleAttributes;
 import de.walware.ecommons.waltable.style.CellStyleProxy;
@@ -35,16 +45,21 @@ import de.walware.ecommons.waltable.style.DisplayMode;
 /**
  * This class is used to export a NatTable to an Excel spreadsheet by using a 
  * XML format.
+ * <p>
+ * The text is encoded in UTF-8. The style attributes of the cells are computed once per
+ * label stack, in the display thread of the shell specified in {@link #getOutputStream(Shell)}.</p>
  */
-public class ExcelExporter implements ILayerExporter {
+public class ExcelExporter extends AbstractTextExporter {
 
 	private static final String EXCEL_HEADER_FILE= "excelExportHeader.txt"; //$NON-NLS-1$
 	
-	/**
-	 * The IOutputStreamProvider that is used to create new OutputStreams on
-	 * beginning new export operations.
-	 */
-	private final IOutputStreamProvider outputStreamProvider;
+	
+	private final LabelStackInterner labelStacks= new LabelStackInterner();
+	private final Map<InternedLabelStack, String> styleAttributes= new IdentityHashMap<>();
+	private IConfigRegistry styleConfigRegistry;
+	
+	private Display display;
+	
 
 	/**
 	 * Creates a new ExcelExporter using a FileOutputStreamProvider with default values.
@@ -60,26 +75,34 @@ public class ExcelExporter implements ILayerExporter {
 	 * 			OutputStream to write the export to.
 	 */
 	public ExcelExporter(final IOutputStreamProvider outputStreamProvider) {
-		this.outputStreamProvider= outputStreamProvider;
+		super(outputStreamProvider, StandardCharsets.UTF_8);
 	}
 	
 	@Override
 	public OutputStream getOutputStream(final Shell shell) {
-		return this.outputStreamProvider.getOutputStream(shell);
+		this.display= (shell != null) ? shell.getDisplay() : Display.getCurrent();
+		return super.getOutputStream(shell);
 	}
 	
 	@Override
 	public void exportBegin(final OutputStream outputStream) throws IOException {
+		super.exportBegin(outputStream);
+		this.styleAttributes.clear();
+		this.styleConfigRegistry= null;
 	}
 
 	@Override
 	public void exportEnd(final OutputStream outputStream) throws IOException {
+		this.styleAttributes.clear();
+		this.styleConfigRegistry= null;
+		super.exportEnd(outputStream);
 	}
 
 	@Override
 	public void exportLayerBegin(final OutputStream outputStream, final String layerName) throws IOException {
-		writeHeader(outputStream);
-		outputStream.write(asBytes("<body><table border='1'>")); //$NON-NLS-1$
+		final Writer writer= getWriter(outputStream);
+		writeHeader(writer);
+		writer.write("<body><table border='1'>"); //$NON-NLS-1$
 	}
 
 	/**
@@ -88,13 +111,15 @@ public class ExcelExporter implements ILayerExporter {
 	 * @throws IOException if an I/O error occurs on closing the stream to
 	 * 			the header content file
 	 */
-	private void writeHeader(final OutputStream outputStream) throws IOException {
+	private void writeHeader(final Writer writer) throws IOException {
 		InputStream headerStream= null;
 		try {
 			headerStream= this.getClass().getResourceAsStream(EXCEL_HEADER_FILE);
-			int c;
-			while ((c= headerStream.read()) != -1) {
-				outputStream.write(c);
+			final Reader reader= new InputStreamReader(headerStream, StandardCharsets.UTF_8);
+			final char[] buffer= new char[4096];
+			int n;
+			while ((n= reader.read(buffer)) != -1) {
+				writer.write(buffer, 0, n);
 			}
 		} catch (final Exception e) {
 			WaLTablePlugin.log(new Status(IStatus.ERROR, WaLTablePlugin.PLUGIN_ID,
@@ -108,45 +133,89 @@ public class ExcelExporter implements ILayerExporter {
 
 	@Override
 	public void exportLayerEnd(final OutputStream outputStream, final String layerName) throws IOException {
-		outputStream.write(asBytes("</table></body></html>")); //$NON-NLS-1$
+		getWriter(outputStream).write("</table></body></html>"); //$NON-NLS-1$
 	}
 
 	@Override
 	public void exportRowBegin(final OutputStream outputStream, final long rowPosition) throws IOException {
-		outputStream.write(asBytes("<tr>\n")); //$NON-NLS-1$
+		getWriter(outputStream).write("<tr>\n"); //$NON-NLS-1$
 	}
 
 	@Override
 	public void exportRowEnd(final OutputStream outputStream, final long rowPosition) throws IOException {
-		outputStream.write(asBytes("</tr>\n")); //$NON-NLS-1$
+		getWriter(outputStream).write("</tr>\n"); //$NON-NLS-1$
 	}
 
 	@Override
 	public void exportCell(final OutputStream outputStream, final Object exportDisplayValue, final ILayerCell cell, final IConfigRegistry configRegistry) throws IOException {
-		final CellStyleProxy cellStyle= new CellStyleProxy(configRegistry, DisplayMode.NORMAL, cell.getConfigLabels().getLabels());
-		final Color fg= cellStyle.getAttributeValue(CellStyleAttributes.FOREGROUND_COLOR);
-		final Color bg= cellStyle.getAttributeValue(CellStyleAttributes.BACKGROUND_COLOR);
-		final Font font= cellStyle.getAttributeValue(CellStyleAttributes.FONT);
-
-		String htmlAttributes= String.format("style='color: %s; background-color: %s; %s;'", //$NON-NLS-1$
-		                     getColorInCSSFormat(fg),
-		                     getColorInCSSFormat(bg),
-		                     getFontInCSSFormat(font));
+		final Writer writer= getWriter(outputStream);
 		
 		String htmlText= exportDisplayValue != null ? exportDisplayValue.toString() : ""; //$NON-NLS-1$
 		
+		writer.write("\t<td "); //$NON-NLS-1$
+		writer.write(getStyleAttributes(cell, configRegistry));
 		if (htmlText.startsWith(" ")) { //$NON-NLS-1$
-			htmlAttributes+= " x:str=\"'" + htmlText + "\";"; //$NON-NLS-1$ //$NON-NLS-2$
+			writer.write(" x:str=\"'"); //$NON-NLS-1$
+			writer.write(htmlText);
+			writer.write("\";"); //$NON-NLS-1$
 			htmlText= htmlText.replaceFirst("^(\\ *)", "<span style='mso-spacerun:yes'>$1</span>"); //$NON-NLS-1$ //$NON-NLS-2$
 		}
-		
-		outputStream.write(asBytes(String.format("\t<td %s>%s</td>\n", htmlAttributes, htmlText))); //$NON-NLS-1$
+		writer.write('>');
+		writer.write(htmlText);
+		writer.write("</td>\n"); //$NON-NLS-1$
 	}
-
-	private byte[] asBytes(final String string) {
-		return string.getBytes();
+	
+	private String getStyleAttributes(final ILayerCell cell, final IConfigRegistry configRegistry) {
+		if (configRegistry != this.styleConfigRegistry
+				|| this.styleAttributes.size() >= LabelStackInterner.DEFAULT_MAX_SIZE) {
+			this.styleAttributes.clear();
+			this.labelStacks.clear();
+			this.styleConfigRegistry= configRegistry;
+		}
+		final InternedLabelStack labels= cell.getConfigLabels().intern(this.labelStacks);
+		String attributes= this.styleAttributes.get(labels);
+		if (attributes == null) {
+			final String[] result= new String[1];
+			runInDisplay(new Runnable() {
+				@Override
+				public void run() {
+					result[0]= createStyleAttributes(labels, configRegistry);
+				}
+			});
+			attributes= result[0];
+			this.styleAttributes.put(labels, attributes);
+		}
+		return attributes;
+	}
+	
+	private String createStyleAttributes(final InternedLabelStack labels, final IConfigRegistry configRegistry) {
+		final CellStyleProxy cellStyle= new CellStyleProxy(configRegistry, DisplayMode.NORMAL, labels.getLabels());
+		final Color fg= cellStyle.getAttributeValue(CellStyleAttributes.FOREGROUND_COLOR);
+		final Color bg= cellStyle.getAttributeValue(CellStyleAttributes.BACKGROUND_COLOR);
+		final Font font= cellStyle.getAttributeValue(CellStyleAttributes.FONT);
+		
+		return String.format("style='color: %s; background-color: %s; %s;'", //$NON-NLS-1$
+		                     getColorInCSSFormat(fg),
+		                     getColorInCSSFormat(bg),
+		                     getFontInCSSFormat(font));
 	}
 	
+	/**
+	 * Runs the runnable in the display thread, the styles are SWT resources.
+	 */
+	private void runInDisplay(final Runnable runnable) {
+		final Display display= this.display;
+		if (display == null || display.getThread() == Thread.currentThread()) {
+			runnable.run();
+		}
+		else {
+			if (display.isDisposed()) {
+				throw new OperationCanceledException();
+			}
+			display.syncExec(runnable);
+		}
+	}
+
 	private String getFontInCSSFormat(final Font font) {
 		final FontData fontData= font.getFontData()[0];
 		final String fontName= fontData.getName();
@@ -165,9 +234,4 @@ public class ExcelExporter implements ILayerExporter {
 		                     Integer.valueOf(color.getBlue()));
 	}
 
-	@Override
-	public Object getResult() {
-		return this.outputStreamProvider.getResult();
-	}
-	
 }
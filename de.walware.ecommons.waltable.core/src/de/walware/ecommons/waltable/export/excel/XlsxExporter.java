@@ -0,0 +1,348 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Original authors and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *     Original authors and others - initial API and implementation
+ ******************************************************************************/
+
+package de.walware.ecommons.waltable.export.excel;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.eclipse.swt.widgets.Shell;
+
+import de.walware.ecommons.waltable.config.IConfigRegistry;
+import de.walware.ecommons.waltable.export.FileOutputStreamProvider;
+import de.walware.ecommons.waltable.export.ILayerExporter;
+import de.walware.ecommons.waltable.export.IOutputStreamProvider;
+import de.walware.ecommons.waltable.layer.cell.ILayerCell;
+
+
+/**
+ * Exports a NatTable to an Excel workbook in the Office Open XML format (SpreadsheetML, .xlsx).
+ * <p>
+ * The workbook is written as stream; each exported layer becomes a worksheet. Numbers and
+ * booleans are exported as typed values, all other values as inline strings. Styles are not
+ * exported.</p>
+ * <p>
+ * If a layer has more rows than a worksheet can hold ({@value #MAX_ROW_COUNT}), the rows are
+ * continued in additional worksheets. Layers with more than {@value #MAX_COLUMN_COUNT} columns
+ * cannot be exported.</p>
+ */
+public class XlsxExporter implements ILayerExporter {
+	
+	
+	private static final String XML_HEADER= "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n"; //$NON-NLS-1$
+	
+	private static final String NS_MAIN= "http://schemas.openxmlformats.org/spreadsheetml/2006/main"; //$NON-NLS-1$
+	private static final String NS_REL= "http://schemas.openxmlformats.org/officeDocument/2006/relationships"; //$NON-NLS-1$
+	private static final String NS_PACKAGE_REL= "http://schemas.openxmlformats.org/package/2006/relationships"; //$NON-NLS-1$
+	
+	private static final int MAX_SHEET_NAME_LENGTH= 31;
+	
+	/** Maximum number of rows of a worksheet */
+	public static final int MAX_ROW_COUNT= 1048576;
+	/** Maximum number of columns of a worksheet */
+	public static final int MAX_COLUMN_COUNT= 16384;
+	
+	
+	/**
+	 * The IOutputStreamProvider that is used to create new OutputStreams on
+	 * beginning new export operations.
+	 */
+	private final IOutputStreamProvider outputStreamProvider;
+	
+	private ZipOutputStream zipStream;
+	private Writer writer;
+	
+	private final List<String> sheetNames= new ArrayList<>();
+	private final Set<String> sheetNamesLowerCase= new HashSet<>();
+	
+	/** Name of the current layer */
+	private String layerName;
+	/** Number of worksheets of the current layer */
+	private int layerSheetCount;
+	/** Row position of the first row in the current worksheet */
+	private long sheetStartRowPosition;
+	/** Number of cells in the current row */
+	private int rowCellCount;
+	
+	
+	/**
+	 * Creates a new XlsxExporter using a FileOutputStreamProvider with default values.
+	 */
+	public XlsxExporter() {
+		this(new FileOutputStreamProvider("table_export.xlsx", new String[] { "Excel Workbook (*.xlsx)" }, new String[] { "*.xlsx" })); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+	}
+	
+	/**
+	 * Creates a new XlsxExporter that uses the given IOutputStreamProvider for retrieving
+	 * the OutputStream to write the export to.
+	 * @param outputStreamProvider The IOutputStreamProvider that is used to retrieve the 
+	 * 			OutputStream to write the export to.
+	 */
+	public XlsxExporter(final IOutputStreamProvider outputStreamProvider) {
+		this.outputStreamProvider= outputStreamProvider;
+	}
+	
+	
+	@Override
+	public OutputStream getOutputStream(final Shell shell) {
+		return this.outputStreamProvider.getOutputStream(shell);
+	}
+	
+	@Override
+	public Object getResult() {
+		return this.outputStreamProvider.getResult();
+	}
+	
+	
+	@Override
+	public void exportBegin(final OutputStream outputStream) throws IOException {
+		this.zipStream= new ZipOutputStream(outputStream, StandardCharsets.UTF_8);
+		this.writer= new BufferedWriter(new OutputStreamWriter(this.zipStream, StandardCharsets.UTF_8),
+				0x10000 );
+		this.sheetNames.clear();
+		this.sheetNamesLowerCase.clear();
+	}
+	
+	@Override
+	public void exportEnd(final OutputStream outputStream) throws IOException {
+		try {
+			final Writer writer= this.writer;
+			
+			beginEntry("[Content_Types].xml"); //$NON-NLS-1$
+			writer.write(XML_HEADER);
+			writer.write("<Types xmlns=\"http://schemas.openxmlformats.org/package/2006/content-types\">" //$NON-NLS-1$
+					+ "<Default Extension=\"rels\" ContentType=\"application/vnd.openxmlformats-package.relationships+xml\"/>" //$NON-NLS-1$
+					+ "<Default Extension=\"xml\" ContentType=\"application/xml\"/>" //$NON-NLS-1$
+					+ "<Override PartName=\"/xl/workbook.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.sheet.main+xml\"/>" ); //$NON-NLS-1$
+			for (int i= 1; i <= this.sheetNames.size(); i++) {
+				writer.write("<Override PartName=\"/xl/worksheets/sheet" + i + ".xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.worksheet+xml\"/>"); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+			writer.write("</Types>"); //$NON-NLS-1$
+			endEntry();
+			
+			beginEntry("_rels/.rels"); //$NON-NLS-1$
+			writer.write(XML_HEADER);
+			writer.write("<Relationships xmlns=\"" + NS_PACKAGE_REL + "\">" //$NON-NLS-1$ //$NON-NLS-2$
+					+ "<Relationship Id=\"rId1\" Type=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships/officeDocument\" Target=\"xl/workbook.xml\"/>" //$NON-NLS-1$
+					+ "</Relationships>" ); //$NON-NLS-1$
+			endEntry();
+			
+			beginEntry("xl/workbook.xml"); //$NON-NLS-1$
+			writer.write(XML_HEADER);
+			writer.write("<workbook xmlns=\"" + NS_MAIN + "\" xmlns:r=\"" + NS_REL + "\"><sheets>"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+			for (int i= 1; i <= this.sheetNames.size(); i++) {
+				writer.write("<sheet name=\""); //$NON-NLS-1$
+				writeEscaped(this.sheetNames.get(i - 1));
+				writer.write("\" sheetId=\"" + i + "\" r:id=\"rId" + i + "\"/>"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+			}
+			writer.write("</sheets></workbook>"); //$NON-NLS-1$
+			endEntry();
+			
+			beginEntry("xl/_rels/workbook.xml.rels"); //$NON-NLS-1$
+			writer.write(XML_HEADER);
+			writer.write("<Relationships xmlns=\"" + NS_PACKAGE_REL + "\">"); //$NON-NLS-1$ //$NON-NLS-2$
+			for (int i= 1; i <= this.sheetNames.size(); i++) {
+				writer.write("<Relationship Id=\"rId" + i + "\" Type=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships/worksheet\" Target=\"worksheets/sheet" + i + ".xml\"/>"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+			}
+			writer.write("</Relationships>"); //$NON-NLS-1$
+			endEntry();
+			
+			this.zipStream.finish();
+		}
+		finally {
+			this.zipStream= null;
+			this.writer= null;
+		}
+	}
+	
+	private void beginEntry(final String name) throws IOException {
+		this.zipStream.putNextEntry(new ZipEntry(name));
+	}
+	
+	private void endEntry() throws IOException {
+		this.writer.flush();
+		this.zipStream.closeEntry();
+	}
+	
+	@Override
+	public void exportLayerBegin(final OutputStream outputStream, final String layerName) throws IOException {
+		this.layerName= layerName;
+		this.layerSheetCount= 0;
+		beginSheet(0);
+	}
+	
+	private void beginSheet(final long startRowPosition) throws IOException {
+		final int sheetNum= this.sheetNames.size() + 1;
+		this.layerSheetCount++;
+		this.sheetNames.add(createSheetName(this.layerName,
+				(this.layerSheetCount > 1) ? " (" + this.layerSheetCount + ')' : "", //$NON-NLS-1$ //$NON-NLS-2$
+				sheetNum ));
+		this.sheetStartRowPosition= startRowPosition;
+		
+		beginEntry("xl/worksheets/sheet" + sheetNum + ".xml"); //$NON-NLS-1$ //$NON-NLS-2$
+		this.writer.write(XML_HEADER);
+		this.writer.write("<worksheet xmlns=\"" + NS_MAIN + "\"><sheetData>"); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+	
+	private void endSheet() throws IOException {
+		this.writer.write("</sheetData></worksheet>"); //$NON-NLS-1$
+		endEntry();
+	}
+	
+	private String createSheetName(final String layerName, final String suffix, final int sheetNum) {
+		final StringBuilder sb= new StringBuilder();
+		if (layerName != null) {
+			final int maxLength= MAX_SHEET_NAME_LENGTH - suffix.length();
+			for (int i= 0; i < layerName.length() && sb.length() < maxLength; i++) {
+				final char c= layerName.charAt(i);
+				switch (c) {
+				case '[':
+				case ']':
+				case ':':
+				case '*':
+				case '?':
+				case '/':
+				case '\\':
+					sb.append('_');
+					continue;
+				default:
+					if (!Character.isISOControl(c)) {
+						sb.append(c);
+					}
+					continue;
+				}
+			}
+		}
+		String name= sb.toString().trim();
+		if (!name.isEmpty()) {
+			name+= suffix;
+		}
+		if (name.isEmpty() || name.startsWith("'") //$NON-NLS-1$
+				|| this.sheetNamesLowerCase.contains(name.toLowerCase()) ) {
+			name= "Sheet" + sheetNum; //$NON-NLS-1$
+			for (int i= 1; this.sheetNamesLowerCase.contains(name.toLowerCase()); i++) {
+				name= "Sheet" + sheetNum + '_' + i; //$NON-NLS-1$
+			}
+		}
+		this.sheetNamesLowerCase.add(name.toLowerCase());
+		return name;
+	}
+	
+	@Override
+	public void exportLayerEnd(final OutputStream outputStream, final String layerName) throws IOException {
+		endSheet();
+		this.layerName= null;
+	}
+	
+	@Override
+	public void exportRowBegin(final OutputStream outputStream, final long rowPosition) throws IOException {
+		if (rowPosition - this.sheetStartRowPosition >= MAX_ROW_COUNT) {
+			endSheet();
+			beginSheet(rowPosition);
+		}
+		this.rowCellCount= 0;
+		this.writer.write("<row r=\""); //$NON-NLS-1$
+		this.writer.write(Long.toString(rowPosition - this.sheetStartRowPosition + 1));
+		this.writer.write("\">"); //$NON-NLS-1$
+	}
+	
+	@Override
+	public void exportRowEnd(final OutputStream outputStream, final long rowPosition) throws IOException {
+		this.writer.write("</row>\n"); //$NON-NLS-1$
+	}
+	
+	@Override
+	public void exportCell(final OutputStream outputStream, final Object exportDisplayValue,
+			final ILayerCell cell, final IConfigRegistry configRegistry) throws IOException {
+		if (++this.rowCellCount > MAX_COLUMN_COUNT) {
+			throw new IOException("The table has more columns than an Excel worksheet supports (" //$NON-NLS-1$
+					+ MAX_COLUMN_COUNT + ")." ); //$NON-NLS-1$
+		}
+		final Writer writer= this.writer;
+		if (exportDisplayValue == null) {
+			writer.write("<c/>"); //$NON-NLS-1$
+		}
+		else if (exportDisplayValue instanceof Number && isFinite((Number) exportDisplayValue)) {
+			writer.write("<c><v>"); //$NON-NLS-1$
+			writer.write(exportDisplayValue.toString());
+			writer.write("</v></c>"); //$NON-NLS-1$
+		}
+		else if (exportDisplayValue instanceof Boolean) {
+			writer.write(((Boolean) exportDisplayValue).booleanValue() ?
+					"<c t=\"b\"><v>1</v></c>" : "<c t=\"b\"><v>0</v></c>" ); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		else {
+			writer.write("<c t=\"inlineStr\"><is><t xml:space=\"preserve\">"); //$NON-NLS-1$
+			writeEscaped(exportDisplayValue.toString());
+			writer.write("</t></is></c>"); //$NON-NLS-1$
+		}
+	}
+	
+	private static boolean isFinite(final Number number) {
+		if (number instanceof Double || number instanceof Float) {
+			final double value= number.doubleValue();
+			return !(Double.isNaN(value) || Double.isInfinite(value));
+		}
+		return (number instanceof Integer || number instanceof Long
+				|| number instanceof Short || number instanceof Byte
+				|| number instanceof BigDecimal || number instanceof BigInteger );
+	}
+	
+	private void writeEscaped(final String text) throws IOException {
+		final Writer writer= this.writer;
+		int start= 0;
+		for (int i= 0; i < text.length(); i++) {
+			final char c= text.charAt(i);
+			final String replacement;
+			switch (c) {
+			case '&':
+				replacement= "&amp;"; //$NON-NLS-1$
+				break;
+			case '<':
+				replacement= "&lt;"; //$NON-NLS-1$
+				break;
+			case '>':
+				replacement= "&gt;"; //$NON-NLS-1$
+				break;
+			case '"':
+				replacement= "&quot;"; //$NON-NLS-1$
+				break;
+			case '\t':
+			case '\n':
+			case '\r':
+				continue;
+			default:
+				if (c < 0x20 || c == 0xFFFE || c == 0xFFFF) {
+					replacement= ""; // not allowed in XML //$NON-NLS-1$
+					break;
+				}
+				continue;
+			}
+			writer.write(text, start, i - start);
+			writer.write(replacement);
+			start= i + 1;
+		}
+		writer.write(text, start, text.length() - start);
+	}
+	
+}
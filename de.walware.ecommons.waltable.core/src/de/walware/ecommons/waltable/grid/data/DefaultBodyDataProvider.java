@@ -22,4 +22,9 @@ public class DefaultBodyDataProvider<T> extends ListDataProvider<T> {
 		super(rowData, new ReflectiveColumnPropertyAccessor<T>(propertyNames));
 	}
 	
+	@Override
+	protected boolean isDirectBlockAccessEnabled() {
+		return (getClass() == DefaultBodyDataProvider.class);
+	}
+	
 }
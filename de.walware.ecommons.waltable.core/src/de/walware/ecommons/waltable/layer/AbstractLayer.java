@@ -22,6 +22,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
 
 import de.walware.ecommons.waltable.command.ILayerCommand;
 import de.walware.ecommons.waltable.command.ILayerCommandHandler;
@@ -52,6 +53,8 @@ public abstract class AbstractLayer implements ILayer {
 	private IClientAreaProvider clientAreaProvider= IClientAreaProvider.DEFAULT;
 	
 	private final Map<Class<? extends ILayerCommand>, ILayerCommandHandler<? extends ILayerCommand>> commandHandlers= new LinkedHashMap<>();
+	/** Handlers applicable to a command class in order of registration, replaced if the handlers change */
+	private volatile Map<Class<?>, ILayerCommandHandler<?>[]> commandDispatchTable= new ConcurrentHashMap<>();
 	private final Map<Class<? extends ILayerEvent>, ILayerEventHandler<? extends ILayerEvent>> eventHandlers= new HashMap<>();
 	
 	private final List<IPersistable> persistables= new LinkedList<>();
@@ -175,18 +178,33 @@ public abstract class AbstractLayer implements ILayer {
 	@Override
 	@SuppressWarnings("unchecked")
 	public boolean doCommand(final ILayerCommand command) {
-		for (final Class<? extends ILayerCommand> commandClass : this.commandHandlers.keySet()) {
-			if (commandClass.isInstance(command)) {
-				final ILayerCommandHandler commandHandler= this.commandHandlers.get(commandClass);
-				if (commandHandler.doCommand(this, command.cloneCommand())) {
-					return true;
-				}
+		final ILayerCommandHandler<?>[] commandHandlers= getCommandHandlers(command.getClass());
+		for (int i= 0; i < commandHandlers.length; i++) {
+			final ILayerCommandHandler commandHandler= commandHandlers[i];
+			if (commandHandler.doCommand(this, command.cloneCommand())) {
+				return true;
 			}
 		}
 		
 		return false;
 	}
 	
+	private ILayerCommandHandler<?>[] getCommandHandlers(final Class<?> commandClass) {
+		final Map<Class<?>, ILayerCommandHandler<?>[]> commandDispatchTable= this.commandDispatchTable;
+		ILayerCommandHandler<?>[] commandHandlers= commandDispatchTable.get(commandClass);
+		if (commandHandlers == null) {
+			final List<ILayerCommandHandler<?>> list= new ArrayList<>(2);
+			for (final Map.Entry<Class<? extends ILayerCommand>, ILayerCommandHandler<? extends ILayerCommand>> entry : this.commandHandlers.entrySet()) {
+				if (entry.getKey().isAssignableFrom(commandClass)) {
+					list.add(entry.getValue());
+				}
+			}
+			commandHandlers= list.toArray(new ILayerCommandHandler<?>[list.size()]);
+			commandDispatchTable.put(commandClass, commandHandlers);
+		}
+		return commandHandlers;
+	}
+	
 	// Command handlers
 	
 	/**
@@ -201,11 +219,13 @@ public abstract class AbstractLayer implements ILayer {
 	@Override
 	public void registerCommandHandler(final ILayerCommandHandler<?> commandHandler) {
 		this.commandHandlers.put(commandHandler.getCommandClass(), commandHandler);
+		this.commandDispatchTable= new ConcurrentHashMap<>();
 	}
 	
 	@Override
 	public void unregisterCommandHandler(final Class<? extends ILayerCommand> commandClass) {
 		this.commandHandlers.remove(commandClass);
+		this.commandDispatchTable= new ConcurrentHashMap<>();
 	}
 	
 	// Events
@@ -32,6 +32,8 @@ import de.walware.ecommons.waltable.layer.cell.IConfigLabelAccumulator;
 import de.walware.ecommons.waltable.layer.cell.ILayerCell;
 import de.walware.ecommons.waltable.layer.cell.ILayerCellDim;
 import de.walware.ecommons.waltable.layer.cell.LayerCellDim;
+import de.walware.ecommons.waltable.layer.event.ILayerEvent;
+import de.walware.ecommons.waltable.layer.event.IStructuralChangeEvent;
 import de.walware.ecommons.waltable.painter.layer.ILayerPainter;
 import de.walware.ecommons.waltable.ui.IClientAreaProvider;
 import de.walware.ecommons.waltable.ui.binding.UiBindingRegistry;
@@ -174,10 +176,16 @@ public class CompositeLayer extends AbstractLayer {
 	 */
 	@Override
 	public boolean doCommand(final ILayerCommand command) {
-		if (super.doCommand(command)) {
-			return true;
+		try {
+			if (super.doCommand(command)) {
+				return true;
+			}
+			return doCommandOnChildLayers(command);
+		}
+		finally {
+			// commands like resize of the client area can change the child layers silently
+			invalidateLayout();
 		}
-		return doCommandOnChildLayers(command);
 	}
 	
 	protected boolean doCommandOnChildLayers(final ILayerCommand command) {
@@ -191,6 +199,35 @@ public class CompositeLayer extends AbstractLayer {
 		return false;
 	}
 	
+	@Override
+	public void handleLayerEvent(final ILayerEvent event) {
+		if (event instanceof IStructuralChangeEvent) {
+			final IStructuralChangeEvent structuralChangeEvent= (IStructuralChangeEvent) event;
+			if (structuralChangeEvent.isHorizontalStructureChanged()) {
+				get(HORIZONTAL).invalidateLayout();
+			}
+			if (structuralChangeEvent.isVerticalStructureChanged()) {
+				get(VERTICAL).invalidateLayout();
+			}
+		}
+		
+		super.handleLayerEvent(event);
+	}
+	
+	/**
+	 * Invalidates the cached offsets of the child layers.
+	 * <p>
+	 * The offsets are invalidated automatically by structural change events of the child
+	 * layers and after commands, and they are checked against the position counts of the
+	 * child layers at each access. This method is required only if the size of a child layer
+	 * changes without such a notification.</p>
+	 */
+	public void invalidateLayout() {
+		get(HORIZONTAL).invalidateLayout();
+		get(VERTICAL).invalidateLayout();
+	}
+	
+	
 	// Cell features
 	
 	@Override
@@ -285,8 +322,8 @@ public class CompositeLayer extends AbstractLayer {
 		final LRectangle compositeClientArea= getClientAreaProvider().getClientArea();
 		
 		final LRectangle childClientArea= new LRectangle(
-				compositeClientArea.x + get(HORIZONTAL).getLayoutStart(child.layoutX),
-				compositeClientArea.y + get(VERTICAL).getLayoutStart(child.layoutY),
+				compositeClientArea.x + get(HORIZONTAL).computeLayoutStart(child.layoutX),
+				compositeClientArea.y + get(VERTICAL).computeLayoutStart(child.layoutY),
 				child.layer.getDim(HORIZONTAL).getPreferredSize(),
 				child.layer.getDim(VERTICAL).getPreferredSize() );
 		
@@ -59,8 +59,25 @@ public class CompositeLayerDim extends AbstractLayerDim<CompositeLayer> {
 	}
 	
 	
+	private static final class LayoutOffsets {
+		
+		/** Position of the first position in layout i; the last element is the position count */
+		final long[] positions;
+		/** Pixel start of layout i; the last element is the size */
+		final long[] starts;
+		
+		public LayoutOffsets(final long[] positions, final long[] starts) {
+			this.positions= positions;
+			this.starts= starts;
+		}
+		
+	}
+	
+	
 	private final ILayerDim[][] childDims;
 	
+	private volatile LayoutOffsets layoutOffsets;
+	
 	
 	public CompositeLayerDim(final CompositeLayer layer, final Orientation orientation) {
 		super(layer, orientation);
@@ -79,14 +96,54 @@ public class CompositeLayerDim extends AbstractLayerDim<CompositeLayer> {
 	
 	void updateChild(final int layout, final int layout2, final ILayer childLayer) {
 		this.childDims[layout][layout2]= childLayer.getDim(this.orientation);
+		invalidateLayout();
 	}
 	
 	
+	/**
+	 * Invalidates the cached offsets of the layouts.
+	 * <p>
+	 * The composite layer calls this method if the structure of a child layer changed.
+	 * In addition the cached offsets are validated against the position counts of the child
+	 * layers at each access; a change of the size only, without structural change event, must
+	 * be signaled by {@link CompositeLayer#invalidateLayout()}.</p>
+	 */
+	void invalidateLayout() {
+		this.layoutOffsets= null;
+	}
+	
+	private LayoutOffsets getLayoutOffsets() {
+		LayoutOffsets offsets= this.layoutOffsets;
+		if (offsets == null || !isValid(offsets)) {
+			final int n= this.childDims.length;
+			final long[] positions= new long[n + 1];
+			final long[] starts= new long[n + 1];
+			for (int layout= 0; layout < n; layout++) {
+				final ILayerDim childDim= this.childDims[layout][0];
+				positions[layout + 1]= positions[layout] + childDim.getPositionCount();
+				starts[layout + 1]= starts[layout] + childDim.getSize();
+			}
+			offsets= new LayoutOffsets(positions, starts);
+			this.layoutOffsets= offsets;
+		}
+		return offsets;
+	}
+	
+	private boolean isValid(final LayoutOffsets offsets) {
+		final long[] positions= offsets.positions;
+		for (int layout= 0; layout < this.childDims.length; layout++) {
+			if (this.childDims[layout][0].getPositionCount() != positions[layout + 1] - positions[layout]) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
 	protected final int getLayoutByPosition(final long position) {
 		if (position >= 0) {
-			for (int layout= 0, offset= 0; layout < this.childDims.length; layout++) {
-				if (/*position >= offset & */
-						position < (offset+= this.childDims[layout][0].getPositionCount()) ) {
+			final long[] positions= getLayoutOffsets().positions;
+			for (int layout= 0; layout < this.childDims.length; layout++) {
+				if (position < positions[layout + 1]) {
 					return layout;
 				}
 			}
@@ -96,8 +153,9 @@ public class CompositeLayerDim extends AbstractLayerDim<CompositeLayer> {
 	
 	protected final int getLayoutByPixel(final long pixel) {
 		if (pixel >= 0) {
-			for (int layout= 0, offset= 0; layout < this.childDims.length; layout++) {
-				if (/*x >= offset & */ pixel < (offset+= this.childDims[layout][0].getSize())) {
+			final long[] starts= getLayoutOffsets().starts;
+			for (int layout= 0; layout < this.childDims.length; layout++) {
+				if (pixel < starts[layout + 1]) {
 					return layout;
 				}
 			}
@@ -118,14 +176,20 @@ public class CompositeLayerDim extends AbstractLayerDim<CompositeLayer> {
 	}
 	
 	protected final long getLayoutPosition(final int layout) {
-		long offset= 0;
-		for (int i= 0; i < layout; i++) {
-			offset+= this.childDims[i][0].getPositionCount();
-		}
-		return offset;
+		return getLayoutOffsets().positions[layout];
 	}
 	
 	protected final long getLayoutStart(final int layout) {
+		return getLayoutOffsets().starts[layout];
+	}
+	
+	/**
+	 * Computes the start of the layout without using the cached offsets.
+	 * <p>
+	 * Required for the client area of the child layers, because the size of a child layer
+	 * can depend on its client area.</p>
+	 */
+	final long computeLayoutStart(final int layout) {
 		long start= 0;
 		for (int i= 0; i < layout; i++) {
 			start+= this.childDims[i][0].getSize();
@@ -149,11 +213,11 @@ public class CompositeLayerDim extends AbstractLayerDim<CompositeLayer> {
 	
 	@Override
 	public long getPositionById(final long id) {
+		final long[] positions= getLayoutOffsets().positions;
 		for (int i= 0; i < this.childDims.length; i++) {
 			final long underlyingPosition= this.childDims[i][0].getPositionById(id);
-			if (underlyingPosition >= 0 && underlyingPosition < this.childDims[i][0].getPositionCount()) {
-				final long layoutPosition= getLayoutPosition(i);
-				return layoutPosition + underlyingPosition;
+			if (underlyingPosition >= 0 && underlyingPosition < positions[i + 1] - positions[i]) {
+				return positions[i] + underlyingPosition;
 			}
 		}
 		
@@ -163,11 +227,7 @@ public class CompositeLayerDim extends AbstractLayerDim<CompositeLayer> {
 	
 	@Override
 	public long getPositionCount() {
-		long count= 0;
-		for (int layout= 0; layout < this.childDims.length; layout++) {
-			count+= this.childDims[layout][0].getPositionCount();
-		}
-		return count;
+		return getLayoutOffsets().positions[this.childDims.length];
 	}
 	
 	@Override
@@ -243,11 +303,7 @@ public class CompositeLayerDim extends AbstractLayerDim<CompositeLayer> {
 	
 	@Override
 	public long getSize() {
-		long size= 0;
-		for (int layout= 0; layout < this.childDims.length; layout++) {
-			size+= this.childDims[layout][0].getSize();
-		}
-		return size;
+		return getLayoutOffsets().starts[this.childDims.length];
 	}
 	
 	@Override
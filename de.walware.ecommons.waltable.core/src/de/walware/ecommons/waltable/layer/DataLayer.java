@@ -14,14 +14,19 @@ package de.walware.ecommons.waltable.layer;
 import static de.walware.ecommons.waltable.coordinate.Orientation.HORIZONTAL;
 import static de.walware.ecommons.waltable.coordinate.Orientation.VERTICAL;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
 
 import org.eclipse.core.runtime.IProgressMonitor;
 
 import de.walware.ecommons.waltable.command.StructuralRefreshCommandHandler;
 import de.walware.ecommons.waltable.command.VisualRefreshCommandHandler;
+import de.walware.ecommons.waltable.coordinate.LRectangle;
+import de.walware.ecommons.waltable.data.IBlockDataProvider;
 import de.walware.ecommons.waltable.data.IDataProvider;
 import de.walware.ecommons.waltable.edit.UpdateDataCommandHandler;
+import de.walware.ecommons.waltable.layer.cell.ForwardLayerCell;
 import de.walware.ecommons.waltable.layer.cell.ILayerCell;
 import de.walware.ecommons.waltable.layer.cell.ILayerCellDim;
 import de.walware.ecommons.waltable.layer.cell.LayerCell;
@@ -40,6 +45,9 @@ import de.walware.ecommons.waltable.resize.RowResizeEvent;
  * other layers. Also, tracks the size of the columns and the rows using
  * {@link SizeConfig} objects. Since this layer sits directly on top of the
  * data source, at this layer index == position.
+ * <p>
+ * For tables with many resized rows or columns, an {@link IndexedSizeConfig} can be
+ * passed to the constructor instead of the default {@link SizeConfig}.</p>
  */
 public class DataLayer extends AbstractLayer implements ILayer {
 	
@@ -47,19 +55,135 @@ public class DataLayer extends AbstractLayer implements ILayer {
 	protected class DataLayerCell extends LayerCell {
 		
 		
+		private Object preloadedValue= NO_VALUE;
+		private int preloadedFlags;
+		
+		
 		public DataLayerCell(final ILayerCellDim horizontalDim, final ILayerCellDim verticalDim) {
 			super(DataLayer.this, horizontalDim, verticalDim);
 		}
 		
 		
+		private DataLayer getDataLayer() {
+			return DataLayer.this;
+		}
+		
 		@Override
 		public Object getDataValue(final int flags, final IProgressMonitor monitor) {
+			if (this.preloadedValue != NO_VALUE && flags == this.preloadedFlags) {
+				return this.preloadedValue;
+			}
 			return DataLayer.this.dataProvider.getDataValue(getColumnPosition(), getRowPosition(),
 					flags, monitor );
 		}
 		
 	}
 	
+	private static final class PreloadGroup {
+		
+		
+		private final DataLayer layer;
+		
+		private final List<DataLayerCell> cells= new ArrayList<>();
+		
+		private long minColumn= Long.MAX_VALUE;
+		private long maxColumn= Long.MIN_VALUE;
+		private long minRow= Long.MAX_VALUE;
+		private long maxRow= Long.MIN_VALUE;
+		
+		
+		public PreloadGroup(final DataLayer layer) {
+			this.layer= layer;
+		}
+		
+		
+		public void add(final DataLayerCell cell) {
+			final long columnPosition= cell.getColumnPosition();
+			final long rowPosition= cell.getRowPosition();
+			this.minColumn= Math.min(this.minColumn, columnPosition);
+			this.maxColumn= Math.max(this.maxColumn, columnPosition);
+			this.minRow= Math.min(this.minRow, rowPosition);
+			this.maxRow= Math.max(this.maxRow, rowPosition);
+			this.cells.add(cell);
+		}
+		
+	}
+	
+	
+	private static final Object NO_VALUE= new Object();
+	
+	/**
+	 * Loads the data values of the specified cells in blocks, if they belong to a data layer
+	 * with an {@link IBlockDataProvider}.
+	 * <p>
+	 * The cells can be cells of any layer above the data layer forwarding the data value to the
+	 * cell of the data layer. The loaded values are returned by
+	 * {@link ILayerCell#getDataValue(int, IProgressMonitor)} of the cells if called with the same
+	 * flags. Cells of other layers are ignored; they load their value on demand as usual.</p>
+	 * 
+	 * @param cells the cells
+	 * @param count the number of cells in the array to load
+	 * @param flags the flags for the data access
+	 * @param monitor the progress monitor, if available
+	 */
+	public static void preloadDataValues(final ILayerCell[] cells, final int count,
+			final int flags, final IProgressMonitor monitor) {
+		PreloadGroup group= null;
+		List<PreloadGroup> groups= null;
+		for (int i= 0; i < count; i++) {
+			ILayerCell cell= cells[i];
+			while (cell instanceof ForwardLayerCell) {
+				cell= ((ForwardLayerCell) cell).getUnderlyingCell();
+			}
+			if (!(cell instanceof DataLayerCell)) {
+				continue;
+			}
+			final DataLayerCell dataCell= (DataLayerCell) cell;
+			final DataLayer layer= dataCell.getDataLayer();
+			if (!(layer.dataProvider instanceof IBlockDataProvider)) {
+				continue;
+			}
+			if (group == null || group.layer != layer) {
+				group= null;
+				if (groups == null) {
+					groups= new ArrayList<>(2);
+				}
+				for (final PreloadGroup candidate : groups) {
+					if (candidate.layer == layer) {
+						group= candidate;
+						break;
+					}
+				}
+				if (group == null) {
+					group= new PreloadGroup(layer);
+					groups.add(group);
+				}
+			}
+			group.add(dataCell);
+		}
+		if (groups == null) {
+			return;
+		}
+		
+		for (final PreloadGroup preloadGroup : groups) {
+			final LRectangle positions= new LRectangle(preloadGroup.minColumn, preloadGroup.minRow,
+					preloadGroup.maxColumn - preloadGroup.minColumn + 1,
+					preloadGroup.maxRow - preloadGroup.minRow + 1 );
+			final long area= positions.width * positions.height;
+			if (area > Math.max(2L * preloadGroup.cells.size(), 64) || area > Integer.MAX_VALUE) {
+				continue; // too sparse, load on demand
+			}
+			final Object[] values= new Object[(int) area];
+			preloadGroup.layer.getDataValues(positions, flags, monitor, values);
+			for (final DataLayerCell dataCell : preloadGroup.cells) {
+				final int idx= (int) ((dataCell.getRowPosition() - positions.y) * positions.width
+						+ (dataCell.getColumnPosition() - positions.x) );
+				dataCell.preloadedValue= values[idx];
+				dataCell.preloadedFlags= flags;
+			}
+		}
+	}
+	
 	
 	public static final String PERSISTENCE_KEY_ROW_HEIGHT= ".rowHeight"; //$NON-NLS-1$
 	public static final String PERSISTENCE_KEY_COLUMN_WIDTH= ".columnWidth"; //$NON-NLS-1$
@@ -160,6 +284,33 @@ public class DataLayer extends AbstractLayer implements ILayer {
 		return this.dataProvider;
 	}
 	
+	/**
+	 * Gets the data values of all cells in the specified rectangle of positions.
+	 * <p>
+	 * If the data provider is an {@link IBlockDataProvider}, the values are loaded by a single
+	 * call, otherwise value by value.</p>
+	 * 
+	 * @param positions the column and row positions of the cells
+	 * @param flags the flags for the data access
+	 * @param monitor the progress monitor, if available
+	 * @param values the array to fill with the values row by row, see
+	 * 			{@link IBlockDataProvider#getDataValues(LRectangle, int, IProgressMonitor, Object[])}
+	 */
+	public void getDataValues(final LRectangle positions, final int flags, final IProgressMonitor monitor,
+			final Object[] values) {
+		final IDataProvider dataProvider= this.dataProvider;
+		if (dataProvider instanceof IBlockDataProvider) {
+			((IBlockDataProvider) dataProvider).getDataValues(positions, flags, monitor, values);
+			return;
+		}
+		int idx= 0;
+		for (long rowPosition= positions.y; rowPosition < positions.y + positions.height; rowPosition++) {
+			for (long columnPosition= positions.x; columnPosition < positions.x + positions.width; columnPosition++) {
+				values[idx++]= dataProvider.getDataValue(columnPosition, rowPosition, flags, monitor);
+			}
+		}
+	}
+	
 	protected void setDataProvider(final IDataProvider dataProvider) {
 		if (this.dataProvider instanceof IPersistable) {
 			unregisterPersistable((IPersistable) this.dataProvider);
@@ -0,0 +1,197 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Original authors and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *     Original authors and others - initial API and implementation
+ ******************************************************************************/
+
+package de.walware.ecommons.waltable.layer;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+
+import de.walware.ecommons.waltable.coordinate.PositionOutOfBoundsException;
+
+
+/**
+ * {@link SizeConfig} with an index of the positions with a size other than the global default
+ * size.
+ * <p>
+ * The index stores the positions in a sorted primitive array together with the prefix sums
+ * of the size differences, so the aggregate size, the size of a position and the position
+ * at a pixel are computed by binary search in O(log n) where n is the number of positions
+ * with a special size. Default sizes per position ({@link #setDefaultSize(long, int)}) are
+ * taken into account.</p>
+ * <p>
+ * The index is rebuilt lazily after the sizes changed.</p>
+ */
+public class IndexedSizeConfig extends SizeConfig {
+	
+	
+	private static final long[] NO_POSITIONS= new long[0];
+	private static final int[] NO_SIZES= new int[0];
+	private static final long[] NO_DIFF_SUMS= new long[1];
+	
+	
+	private boolean indexValid;
+	
+	/** Sorted positions with special size */
+	private long[] positions= NO_POSITIONS;
+	/** Size for the position at the same index in {@link #positions} */
+	private int[] sizes= NO_SIZES;
+	/** Sum of size differences to default size for all positions with index &lt; i */
+	private long[] diffSums= NO_DIFF_SUMS;
+	
+	
+	/**
+	 * Create a new {@link IndexedSizeConfig} with the given default size.
+	 * @param defaultSize The default size to use.
+	 */
+	public IndexedSizeConfig(final int defaultSize) {
+		super(defaultSize);
+	}
+	
+	
+	@Override
+	protected void sizesChanged() {
+		this.indexValid= false;
+	}
+	
+	private void checkIndex() {
+		if (this.indexValid) {
+			return;
+		}
+		
+		final Map<Long, Integer> sizeMap= getSizeMap();
+		final Map<Long, Integer> defaultSizeMap= getDefaultSizeMap();
+		final int defaultSize= getDefaultSize();
+		
+		final int maxCount= sizeMap.size() + defaultSizeMap.size();
+		long[] positions= (maxCount > 0) ? new long[maxCount] : NO_POSITIONS;
+		int[] sizes= (maxCount > 0) ? new int[maxCount] : NO_SIZES;
+		int count= 0;
+		
+		// merge the sorted maps, sizes overrule default sizes
+		final Iterator<Map.Entry<Long, Integer>> sizeIter= sizeMap.entrySet().iterator();
+		final Iterator<Map.Entry<Long, Integer>> defaultIter= defaultSizeMap.entrySet().iterator();
+		Map.Entry<Long, Integer> sizeEntry= (sizeIter.hasNext()) ? sizeIter.next() : null;
+		Map.Entry<Long, Integer> defaultEntry= (defaultIter.hasNext()) ? defaultIter.next() : null;
+		while (sizeEntry != null || defaultEntry != null) {
+			final long sizePosition= (sizeEntry != null) ? sizeEntry.getKey().longValue() : Long.MAX_VALUE;
+			final long defaultPosition= (defaultEntry != null) ? defaultEntry.getKey().longValue() : Long.MAX_VALUE;
+			if (sizePosition <= defaultPosition) {
+				positions[count]= sizePosition;
+				sizes[count]= sizeEntry.getValue().intValue();
+				sizeEntry= (sizeIter.hasNext()) ? sizeIter.next() : null;
+				if (sizePosition == defaultPosition) {
+					defaultEntry= (defaultIter.hasNext()) ? defaultIter.next() : null;
+				}
+			}
+			else {
+				positions[count]= defaultPosition;
+				sizes[count]= defaultEntry.getValue().intValue();
+				defaultEntry= (defaultIter.hasNext()) ? defaultIter.next() : null;
+			}
+			if (sizes[count] != defaultSize) {
+				count++;
+			}
+		}
+		
+		if (count < maxCount) {
+			positions= Arrays.copyOf(positions, count);
+			sizes= Arrays.copyOf(sizes, count);
+		}
+		final long[] diffSums= new long[count + 1];
+		for (int i= 0; i < count; i++) {
+			diffSums[i + 1]= diffSums[i] + (sizes[i] - defaultSize);
+		}
+		
+		this.positions= positions;
+		this.sizes= sizes;
+		this.diffSums= diffSums;
+		this.indexValid= true;
+	}
+	
+	/**
+	 * @return The number of indexed positions &lt; the given position.
+	 */
+	private int countBefore(final long position) {
+		final int idx= Arrays.binarySearch(this.positions, position);
+		return (idx >= 0) ? idx : -(idx + 1);
+	}
+	
+	
+	@Override
+	public long getAggregateSize(final long position) {
+		if (position < 0) {
+			throw PositionOutOfBoundsException.position(position);
+		}
+		checkIndex();
+		
+		return position * getDefaultSize() + this.diffSums[countBefore(position)];
+	}
+	
+	@Override
+	public int getSize(final long position) {
+		checkIndex();
+		
+		final int idx= Arrays.binarySearch(this.positions, position);
+		return (idx >= 0) ? this.sizes[idx] : getDefaultSize();
+	}
+	
+	@Override
+	public long getPositionByPixel(final long pixel) {
+		if (pixel < 0) {
+			throw new IllegalArgumentException("pixel < 0"); //$NON-NLS-1$
+		}
+		checkIndex();
+		
+		final long[] positions= this.positions;
+		final int defaultSize= getDefaultSize();
+		
+		// search last indexed position with start <= pixel
+		int low= 0;
+		int high= positions.length - 1;
+		while (low <= high) {
+			final int mid= (low + high) >>> 1;
+			final long start= positions[mid] * defaultSize + this.diffSums[mid];
+			if (start <= pixel) {
+				low= mid + 1;
+			}
+			else {
+				high= mid - 1;
+			}
+		}
+		
+		long position;
+		long start;
+		if (high >= 0) {
+			position= positions[high];
+			start= position * defaultSize + this.diffSums[high];
+			final long end= start + this.sizes[high];
+			if (pixel < end) {
+				return position;
+			}
+			position++;
+			start= end;
+		}
+		else {
+			position= 0;
+			start= 0;
+		}
+		return (defaultSize > 0) ? (position + (pixel - start) / defaultSize) : position;
+	}
+	
+	@Override
+	public boolean isAllPositionsSameSize() {
+		checkIndex();
+		
+		return (this.positions.length == 0);
+	}
+	
+}
@@ -0,0 +1,259 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Original authors and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *     Original authors and others - initial API and implementation
+ ******************************************************************************/
+
+package de.walware.ecommons.waltable.layer;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+
+/**
+ * Immutable, canonical label stack.
+ * <p>
+ * For each sequence of labels exists exactly one instance per {@link LabelStackInterner},
+ * so instances of the same interner can be compared by identity and used as keys for caches.
+ * The instances are organized as trie: each stack knows the stacks with one additional label
+ * at the bottom, so building a stack label by label by {@link #addLabel(String)} does not
+ * create new objects after the first time.</p>
+ * <p>
+ * Each label gets a small integer id, see {@link LabelStackInterner#getLabelId(String)}.</p>
+ * <p>
+ * Label stacks can be interned from a {@link LabelStack} by
+ * {@link LabelStack#intern(LabelStackInterner)}.</p>
+ */
+public final class InternedLabelStack {
+	
+	
+	private final class LabelList extends AbstractList<String> implements RandomAccess {
+		
+		
+		private final String[] labels;
+		
+		private final int hash;
+		
+		
+		public LabelList(final String[] labels) {
+			this.labels= labels;
+			this.hash= Arrays.hashCode(labels);
+		}
+		
+		
+		public InternedLabelStack getStack() {
+			return InternedLabelStack.this;
+		}
+		
+		@Override
+		public int size() {
+			return this.labels.length;
+		}
+		
+		@Override
+		public String get(final int index) {
+			return this.labels[index];
+		}
+		
+		@Override
+		public boolean contains(final Object o) {
+			for (final String label : this.labels) {
+				if (label.equals(o)) {
+					return true;
+				}
+			}
+			return false;
+		}
+		
+		@Override
+		public Object[] toArray() {
+			return this.labels.clone();
+		}
+		
+		
+		@Override
+		public int hashCode() {
+			return this.hash;
+		}
+		
+		@Override
+		public boolean equals(final Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (obj instanceof LabelList) {
+				// not canonical if of another interner or generation
+				final LabelList other= (LabelList) obj;
+				return (this.hash == other.hash && Arrays.equals(this.labels, other.labels));
+			}
+			return super.equals(obj);
+		}
+		
+	}
+	
+	
+	/**
+	 * Returns the interned stack of the specified list, if it is the label list of an
+	 * interned stack.
+	 * 
+	 * @param labels the labels
+	 * @return the label stack or <code>null</code>
+	 */
+	static InternedLabelStack getStack(final List<String> labels) {
+		return (labels instanceof LabelList) ? ((LabelList) labels).getStack() : null;
+	}
+	
+	
+	private final LabelStackInterner interner;
+	
+	private final LabelList labels;
+	private final int[] labelIds;
+	
+	private volatile ConcurrentMap<String, InternedLabelStack> children;
+	
+	
+	InternedLabelStack(final LabelStackInterner interner) {
+		this(interner, new String[0], new int[0]);
+	}
+	
+	private InternedLabelStack(final LabelStackInterner interner,
+			final String[] labels, final int[] labelIds) {
+		this.interner= interner;
+		this.labels= new LabelList(labels);
+		this.labelIds= labelIds;
+	}
+	
+	
+	/**
+	 * @return the interner which created this stack
+	 */
+	public LabelStackInterner getInterner() {
+		return this.interner;
+	}
+	
+	/**
+	 * Returns the label stack with the specified label added to the bottom of this stack.
+	 * 
+	 * @param label the label to add
+	 * @return the label stack, this stack if it already contains the label
+	 */
+	public InternedLabelStack addLabel(final String label) {
+		if (label == null) {
+			throw new NullPointerException("label"); //$NON-NLS-1$
+		}
+		ConcurrentMap<String, InternedLabelStack> children= this.children;
+		if (children != null) {
+			final InternedLabelStack child= children.get(label);
+			if (child != null) {
+				return child;
+			}
+		}
+		if (this.labels.contains(label)) {
+			return this;
+		}
+		
+		if (children == null) {
+			synchronized (this) {
+				children= this.children;
+				if (children == null) {
+					children= new ConcurrentHashMap<>(4);
+					this.children= children;
+				}
+			}
+		}
+		final int n= this.labelIds.length;
+		final String[] childLabels= Arrays.copyOf(this.labels.labels, n + 1);
+		childLabels[n]= label;
+		final int[] childLabelIds= Arrays.copyOf(this.labelIds, n + 1);
+		childLabelIds[n]= this.interner.getLabelId(label);
+		final InternedLabelStack child= new InternedLabelStack(this.interner, childLabels, childLabelIds);
+		final InternedLabelStack existing= children.putIfAbsent(label, child);
+		if (existing != null) {
+			return existing;
+		}
+		this.interner.onStackCreated();
+		return child;
+	}
+	
+	/**
+	 * Returns the label stack with the specified labels added to the bottom of this stack.
+	 * 
+	 * @param labels the labels to add
+	 * @return the label stack
+	 */
+	public InternedLabelStack addLabels(final List<String> labels) {
+		InternedLabelStack stack= this;
+		if (labels instanceof RandomAccess) {
+			for (int i= 0; i < labels.size(); i++) {
+				stack= stack.addLabel(labels.get(i));
+			}
+		}
+		else {
+			for (final String label : labels) {
+				stack= stack.addLabel(label);
+			}
+		}
+		return stack;
+	}
+	
+	/**
+	 * Returns the label stack with the specified label added to the top of this stack.
+	 * 
+	 * @param label the label to add
+	 * @return the label stack
+	 */
+	public InternedLabelStack addLabelOnTop(final String label) {
+		final String[] labels= this.labels.labels;
+		if (labels.length > 0 && labels[0].equals(label)) {
+			return this;
+		}
+		InternedLabelStack stack= this.interner.getEmpty().addLabel(label);
+		for (int i= 0; i < labels.length; i++) {
+			stack= stack.addLabel(labels[i]);
+		}
+		return stack;
+	}
+	
+	
+	/**
+	 * Returns the labels of this stack.
+	 * <p>
+	 * The list is immutable and canonical as well.</p>
+	 * 
+	 * @return the labels, top first
+	 */
+	public List<String> getLabels() {
+		return this.labels;
+	}
+	
+	/**
+	 * @return the ids of the labels, top first
+	 */
+	public int[] getLabelIds() {
+		return this.labelIds.clone();
+	}
+	
+	public boolean hasLabel(final String label) {
+		return this.labels.contains(label);
+	}
+	
+	public int size() {
+		return this.labelIds.length;
+	}
+	
+	
+	@Override
+	public String toString() {
+		return this.labels.toString();
+	}
+	
+}
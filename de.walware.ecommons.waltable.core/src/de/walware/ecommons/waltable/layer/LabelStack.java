@@ -73,6 +73,16 @@ public class LabelStack {
 		return this.labels.contains(label);
 	}
 	
+	/**
+	 * Returns the canonical, immutable label stack with the current labels of this stack.
+	 * 
+	 * @param interner the interner to use
+	 * @return the interned label stack
+	 */
+	public InternedLabelStack intern(final LabelStackInterner interner) {
+		return interner.valueOf(this.labels);
+	}
+	
 	
 	@Override
 	public int hashCode() {
@@ -0,0 +1,155 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Original authors and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *     Original authors and others - initial API and implementation
+ ******************************************************************************/
+
+package de.walware.ecommons.waltable.layer;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * Pool of canonical {@link InternedLabelStack label stacks}.
+ * <p>
+ * Stacks are canonical only within the interner which created them, so the interner should
+ * be owned by the cache using the stacks as keys, e.g. a config registry. The number of
+ * stacks is bounded: if the limit is exceeded, the interner starts over with a new trie and
+ * new label ids. Stacks created before remain valid, but are no longer identical to stacks
+ * with the same labels created afterwards; caches keyed by the stacks should be bounded too.</p>
+ * <p>
+ * Duplicate labels are ignored as by {@link LabelStack#addLabel(String)}, the first
+ * occurrence of a label determines its position in the stack.</p>
+ */
+public class LabelStackInterner {
+	
+	
+	public static final int DEFAULT_MAX_SIZE= 10000;
+	
+	
+	private final int maxSize;
+	
+	private volatile ConcurrentMap<String, Integer> labelIds;
+	private volatile InternedLabelStack empty;
+	
+	private final AtomicInteger size= new AtomicInteger();
+	
+	
+	public LabelStackInterner() {
+		this(DEFAULT_MAX_SIZE);
+	}
+	
+	/**
+	 * @param maxSize the maximum number of stacks
+	 */
+	public LabelStackInterner(final int maxSize) {
+		if (maxSize <= 0) {
+			throw new IllegalArgumentException("maxSize: " + maxSize); //$NON-NLS-1$
+		}
+		this.maxSize= maxSize;
+		
+		clear();
+	}
+	
+	
+	/**
+	 * Discards all stacks and label ids of this interner.
+	 */
+	public synchronized void clear() {
+		this.labelIds= new ConcurrentHashMap<>();
+		this.empty= new InternedLabelStack(this);
+		this.size.set(0);
+	}
+	
+	/**
+	 * @return the current number of stacks
+	 */
+	public int getSize() {
+		return this.size.get();
+	}
+	
+	
+	/**
+	 * Returns the empty label stack.
+	 * 
+	 * @return the label stack
+	 */
+	public InternedLabelStack getEmpty() {
+		return this.empty;
+	}
+	
+	/**
+	 * Returns the canonical label stack with the specified labels.
+	 * 
+	 * @param labels the labels, top first
+	 * @return the label stack
+	 */
+	public InternedLabelStack valueOf(final List<String> labels) {
+		final InternedLabelStack stack= InternedLabelStack.getStack(labels);
+		if (stack != null && stack.getInterner() == this) {
+			return stack;
+		}
+		return this.empty.addLabels(labels);
+	}
+	
+	/**
+	 * Returns the canonical label stack with the specified labels.
+	 * 
+	 * @param labels the labels, top first
+	 * @return the label stack
+	 */
+	public InternedLabelStack valueOf(final String... labels) {
+		InternedLabelStack stack= this.empty;
+		for (final String label : labels) {
+			stack= stack.addLabel(label);
+		}
+		return stack;
+	}
+	
+	
+	/**
+	 * Returns the id of the specified label.
+	 * <p>
+	 * The ids are small integers &gt;= 0, unique within the current generation of stacks of
+	 * this interner.</p>
+	 * 
+	 * @param label the label
+	 * @return the id of the label
+	 */
+	public int getLabelId(final String label) {
+		if (label == null) {
+			throw new NullPointerException("label"); //$NON-NLS-1$
+		}
+		Integer id= this.labelIds.get(label);
+		if (id == null) {
+			synchronized (this) {
+				final ConcurrentMap<String, Integer> labelIds= this.labelIds;
+				id= labelIds.get(label);
+				if (id == null) {
+					id= Integer.valueOf(labelIds.size());
+					labelIds.put(label, id);
+				}
+			}
+		}
+		return id.intValue();
+	}
+	
+	void onStackCreated() {
+		if (this.size.incrementAndGet() > this.maxSize) {
+			synchronized (this) {
+				if (this.size.get() > this.maxSize) {
+					clear();
+				}
+			}
+		}
+	}
+	
+}
@@ -115,6 +115,8 @@ public class SizeConfig implements IPersistable {
 		loadBooleanMap(prefix + PERSISTENCE_KEY_RESIZABLE_INDEXES, properties, this.resizablesMap);
 		loadIntegerMap(prefix + PERSISTENCE_KEY_DEFAULT_SIZES, properties, this.defaultSizeMap);
 		loadIntegerMap(prefix + PERSISTENCE_KEY_SIZES, properties, this.sizeMap);
+		
+		sizesChanged();
 	}
 	
 	private void loadIntegerMap(final String key, final Properties properties, final Map<Long, Integer> map) {
@@ -150,6 +152,8 @@ public class SizeConfig implements IPersistable {
 			throw new IllegalArgumentException("size < 0"); //$NON-NLS-1$
 		}
 		this.defaultSize= size;
+		
+		sizesChanged();
 	}
 	
 	public void setDefaultSize(final long position, final int size) {
@@ -157,6 +161,22 @@ public class SizeConfig implements IPersistable {
 			throw new IllegalArgumentException("size < 0"); //$NON-NLS-1$
 		}
 		this.defaultSizeMap.put(Long.valueOf(position), Integer.valueOf(size));
+		
+		sizesChanged();
+	}
+	
+	/**
+	 * @return The global default size.
+	 */
+	protected final int getDefaultSize() {
+		return this.defaultSize;
+	}
+	
+	/**
+	 * @return The default sizes per position, sorted by position.
+	 */
+	protected final Map<Long, Integer> getDefaultSizeMap() {
+		return this.defaultSizeMap;
 	}
 	
 	private int getDefaultSize(final long position) {
@@ -200,6 +220,43 @@ public class SizeConfig implements IPersistable {
 		}
 	}
 	
+	/**
+	 * Returns the position at the given pixel, assuming an unlimited number of positions.
+	 * The caller is responsible to check that the pixel is in the range of the
+	 * aggregate size of the available positions.
+	 * 
+	 * @param pixel The pixel, &gt;= 0.
+	 * @return The position containing the pixel.
+	 */
+	public long getPositionByPixel(final long pixel) {
+		if (pixel < 0) {
+			throw new IllegalArgumentException("pixel < 0"); //$NON-NLS-1$
+		}
+		if (isAllPositionsSameSize()) {
+			return (this.defaultSize > 0) ? (pixel / this.defaultSize) : 0;
+		}
+		else {
+			long position= 0;
+			long start= 0;
+			
+			for (final Map.Entry<Long, Integer> entry : this.sizeMap.entrySet()) {
+				final long resizedPosition= entry.getKey().longValue();
+				final long end= start + (resizedPosition - position) * this.defaultSize;
+				if (pixel < end) {
+					return position + (pixel - start) / this.defaultSize;
+				}
+				start= end + entry.getValue().intValue();
+				position= resizedPosition;
+				if (pixel < start) {
+					return position;
+				}
+				position++;
+			}
+			
+			return (this.defaultSize > 0) ? (position + (pixel - start) / this.defaultSize) : position;
+		}
+	}
+	
 	public int getSize(final long position) {
 		final Integer size= this.sizeMap.get(Long.valueOf(position));
 		if (size != null) {
@@ -230,9 +287,25 @@ public class SizeConfig implements IPersistable {
 		if (isPositionResizable(position)) {
 			//check whether the given value should be remembered as is or if it needs to be calculated
 			this.sizeMap.put(Long.valueOf(position), Integer.valueOf(size));
+			
+			sizesChanged();
 		}
 	}
 	
+	/**
+	 * @return The sizes per position, sorted by position.
+	 */
+	protected final Map<Long, Integer> getSizeMap() {
+		return this.sizeMap;
+	}
+	
+	/**
+	 * Called after the default size, the default sizes per position or the sizes per
+	 * position changed.
+	 */
+	protected void sizesChanged() {
+	}
+	
 	// Resizable
 	
 	/**
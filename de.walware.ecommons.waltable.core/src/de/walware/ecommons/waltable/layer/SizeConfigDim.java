@@ -12,6 +12,7 @@
 package de.walware.ecommons.waltable.layer;
 
 import de.walware.ecommons.waltable.coordinate.Orientation;
+import de.walware.ecommons.waltable.coordinate.PixelOutOfBoundsException;
 
 
 public abstract class SizeConfigDim<TLayer extends ILayer> extends DataDim<ILayer> {
@@ -52,6 +53,15 @@ public abstract class SizeConfigDim<TLayer extends ILayer> extends DataDim<ILaye
 		return this.sizeConfig.getSize(position);
 	}
 	
+	@Override
+	public long getPositionByPixel(final long pixel) {
+		if (pixel < 0 || pixel >= getSize()) {
+			throw PixelOutOfBoundsException.pixel(pixel, getOrientation());
+		}
+		
+		return this.sizeConfig.getPositionByPixel(pixel);
+	}
+	
 	@Override
 	public boolean isPositionResizable(final long position) {
 		return this.sizeConfig.isPositionResizable(position);
@@ -29,6 +29,25 @@ public class SpanningDataLayer extends DataLayer {
 		super(dataProvider,
 				columnIdCat, defaultColumnWidth,
 				rowIdCat, defaultRowHeight );
+		
+		init(dataProvider);
+	}
+	
+	public SpanningDataLayer(final ISpanningDataProvider dataProvider,
+			final long columnIdCat, final SizeConfig columnWidthConfig,
+			final long rowIdCat, final SizeConfig rowHeightConfig) {
+		super(dataProvider,
+				columnIdCat, columnWidthConfig,
+				rowIdCat, rowHeightConfig );
+		
+		init(dataProvider);
+	}
+	
+	private void init(final ISpanningDataProvider dataProvider) {
+		if (dataProvider instanceof ILayerListener) {
+			// e.g. to update span caches
+			addLayerListener((ILayerListener) dataProvider);
+		}
 	}
 	
 	
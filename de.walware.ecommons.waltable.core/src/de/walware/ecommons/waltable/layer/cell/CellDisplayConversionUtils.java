@@ -10,6 +10,8 @@
  ******************************************************************************/
 package de.walware.ecommons.waltable.layer.cell;
 
+import java.util.List;
+
 import de.walware.ecommons.waltable.config.CellConfigAttributes;
 import de.walware.ecommons.waltable.config.IConfigRegistry;
 import de.walware.ecommons.waltable.data.convert.IDisplayConverter;
@@ -25,10 +27,19 @@ public final class CellDisplayConversionUtils {
 	public static String convertDataType(final ILayerCell cell, final Object canonicalValue, final IConfigRegistry configRegistry) {
 		Object displayValue;
 		
+		final List<String> labels= cell.getConfigLabels().getLabels();
 		final IDisplayConverter displayConverter= configRegistry.getConfigAttribute(
 				CellConfigAttributes.DISPLAY_CONVERTER,
-				cell.getDisplayMode(),
-				cell.getConfigLabels().getLabels());
+				cell.getDisplayMode(), labels );
+		final DisplayStringCache cache= configRegistry.getConfigAttribute(
+				CellConfigAttributes.DISPLAY_STRING_CACHE,
+				cell.getDisplayMode(), labels );
+		if (cache != null) {
+			final String displayString= cache.get(cell, canonicalValue, displayConverter);
+			if (displayString != null) {
+				return displayString;
+			}
+		}
 		
 		if (displayConverter != null) {
 			displayValue= displayConverter.canonicalToDisplayValue(cell, configRegistry, canonicalValue);
@@ -37,7 +48,11 @@ public final class CellDisplayConversionUtils {
 			displayValue= canonicalValue;
 		}
 		
-		return (displayValue == null) ? "" : String.valueOf(displayValue); //$NON-NLS-1$
+		final String displayString= (displayValue == null) ? "" : String.valueOf(displayValue); //$NON-NLS-1$
+		if (cache != null) {
+			cache.put(cell, canonicalValue, displayConverter, displayString);
+		}
+		return displayString;
 	}
 	
 }
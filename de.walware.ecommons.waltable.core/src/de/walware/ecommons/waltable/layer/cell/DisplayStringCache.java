@@ -0,0 +1,331 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Original authors and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *     Original authors and others - initial API and implementation
+ ******************************************************************************/
+
+package de.walware.ecommons.waltable.layer.cell;
+
+import static de.walware.ecommons.waltable.coordinate.Orientation.HORIZONTAL;
+import static de.walware.ecommons.waltable.coordinate.Orientation.VERTICAL;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import de.walware.ecommons.waltable.config.CellConfigAttributes;
+import de.walware.ecommons.waltable.coordinate.LRange;
+import de.walware.ecommons.waltable.data.convert.IDisplayConverter;
+import de.walware.ecommons.waltable.layer.ILayer;
+import de.walware.ecommons.waltable.layer.ILayerDim;
+import de.walware.ecommons.waltable.layer.ILayerListener;
+import de.walware.ecommons.waltable.layer.event.CellRangeVisualChangeEvent;
+import de.walware.ecommons.waltable.layer.event.CellVisualChangeEvent;
+import de.walware.ecommons.waltable.layer.event.ILayerEvent;
+import de.walware.ecommons.waltable.layer.event.IStructuralChangeEvent;
+import de.walware.ecommons.waltable.layer.event.PropertyUpdateEvent;
+import de.walware.ecommons.waltable.layer.event.RowUpdateEvent;
+import de.walware.ecommons.waltable.layer.event.VisualRefreshEvent;
+import de.walware.ecommons.waltable.style.DisplayMode;
+
+
+/**
+ * Cache for the display strings of cells converted by
+ * {@link CellDisplayConversionUtils#convertDataType(ILayerCell, Object, de.walware.ecommons.waltable.config.IConfigRegistry)}.
+ * <p>
+ * The cache is enabled by registering it in the config registry as attribute
+ * {@link CellConfigAttributes#DISPLAY_STRING_CACHE}. The strings are cached by the row and
+ * column id of the cell; an entry is only used if the canonical value, the display mode and the
+ * display converter are the same as for the cached string.</p>
+ * <p>
+ * The cache listens to the events of the layer specified in the constructor; entries are
+ * invalidated by {@link CellVisualChangeEvent}s, {@link RowUpdateEvent}s and
+ * {@link CellRangeVisualChangeEvent}s for the affected cells, and the cache is cleared by
+ * structural changes and refresh events. The memory used by the cache is bounded
+ * (estimated); the least recently used entries are removed first.</p>
+ * <p>
+ * The cache is thread safe.</p>
+ */
+public class DisplayStringCache implements ILayerListener {
+	
+	
+	private static final class CellKey {
+		
+		
+		private final long columnId;
+		private final long rowId;
+		
+		
+		public CellKey(final long columnId, final long rowId) {
+			this.columnId= columnId;
+			this.rowId= rowId;
+		}
+		
+		
+		@Override
+		public int hashCode() {
+			final long h= this.columnId * 31 + this.rowId;
+			return (int) (h ^ (h >>> 32));
+		}
+		
+		@Override
+		public boolean equals(final Object obj) {
+			if (!(obj instanceof CellKey)) {
+				return false;
+			}
+			final CellKey other= (CellKey) obj;
+			return (this.columnId == other.columnId && this.rowId == other.rowId);
+		}
+		
+	}
+	
+	private static final class CachedString {
+		
+		
+		private final Object canonicalValue;
+		private final DisplayMode displayMode;
+		private final IDisplayConverter displayConverter;
+		
+		private final String displayString;
+		
+		
+		public CachedString(final Object canonicalValue, final DisplayMode displayMode,
+				final IDisplayConverter displayConverter, final String displayString) {
+			this.canonicalValue= canonicalValue;
+			this.displayMode= displayMode;
+			this.displayConverter= displayConverter;
+			this.displayString= displayString;
+		}
+		
+		
+		public boolean isValid(final Object canonicalValue, final DisplayMode displayMode,
+				final IDisplayConverter displayConverter) {
+			return (this.displayMode == displayMode && this.displayConverter == displayConverter
+					&& (this.canonicalValue == canonicalValue
+							|| (canonicalValue != null && canonicalValue.equals(this.canonicalValue)) ));
+		}
+		
+		public long getMemorySize() {
+			return ENTRY_MEMORY_SIZE + 2L * this.displayString.length();
+		}
+		
+	}
+	
+	
+	/** Estimated memory size of an entry without the chars of the string */
+	private static final int ENTRY_MEMORY_SIZE= 160;
+	
+	/** Maximum number of row positions invalidated individually */
+	private static final long MAX_INVALIDATED_ROWS= 1024;
+	
+	
+	private final ILayer layer;
+	
+	private final long maxMemorySize;
+	
+	private final LinkedHashMap<CellKey, CachedString> entries= new LinkedHashMap<>(256, 0.75f, true);
+	private long memorySize;
+	
+	private long hitCount;
+	private long missCount;
+	
+	
+	/**
+	 * Creates a new cache listening to the specified layer.
+	 * 
+	 * @param layer the layer, usually the body data layer or a layer above it
+	 * @param maxMemorySize the maximum (estimated) memory size of the cache in bytes
+	 */
+	public DisplayStringCache(final ILayer layer, final long maxMemorySize) {
+		if (layer == null) {
+			throw new NullPointerException("layer"); //$NON-NLS-1$
+		}
+		if (maxMemorySize <= 0) {
+			throw new IllegalArgumentException("maxMemorySize: " + maxMemorySize); //$NON-NLS-1$
+		}
+		this.layer= layer;
+		this.maxMemorySize= maxMemorySize;
+		
+		layer.addLayerListener(this);
+	}
+	
+	
+	/**
+	 * Stops listening to the layer and clears the cache.
+	 */
+	public void dispose() {
+		this.layer.removeLayerListener(this);
+		clear();
+	}
+	
+	
+	/**
+	 * Returns the cached display string for the specified cell.
+	 * 
+	 * @param cell the cell
+	 * @param canonicalValue the canonical value of the cell
+	 * @param displayConverter the display converter for the cell
+	 * @return the display string or <code>null</code> if not cached
+	 */
+	public synchronized String get(final ILayerCell cell, final Object canonicalValue,
+			final IDisplayConverter displayConverter) {
+		final CachedString entry= this.entries.get(new CellKey(
+				cell.getDim(HORIZONTAL).getId(), cell.getDim(VERTICAL).getId() ));
+		if (entry != null && entry.isValid(canonicalValue, cell.getDisplayMode(), displayConverter)) {
+			this.hitCount++;
+			return entry.displayString;
+		}
+		this.missCount++;
+		return null;
+	}
+	
+	/**
+	 * Caches the display string for the specified cell.
+	 * 
+	 * @param cell the cell
+	 * @param canonicalValue the canonical value of the cell
+	 * @param displayConverter the display converter used for the conversion
+	 * @param displayString the display string
+	 */
+	public synchronized void put(final ILayerCell cell, final Object canonicalValue,
+			final IDisplayConverter displayConverter, final String displayString) {
+		final CachedString entry= new CachedString(canonicalValue, cell.getDisplayMode(), displayConverter,
+				displayString );
+		final CachedString oldEntry= this.entries.put(new CellKey(
+				cell.getDim(HORIZONTAL).getId(), cell.getDim(VERTICAL).getId() ), entry);
+		if (oldEntry != null) {
+			this.memorySize-= oldEntry.getMemorySize();
+		}
+		this.memorySize+= entry.getMemorySize();
+		
+		if (this.memorySize > this.maxMemorySize) {
+			final Iterator<CachedString> iter= this.entries.values().iterator();
+			while (this.memorySize > this.maxMemorySize && iter.hasNext()) {
+				this.memorySize-= iter.next().getMemorySize();
+				iter.remove();
+			}
+		}
+	}
+	
+	/**
+	 * Removes all entries from the cache.
+	 */
+	public synchronized void clear() {
+		this.entries.clear();
+		this.memorySize= 0;
+	}
+	
+	private synchronized void invalidateCell(final long columnId, final long rowId) {
+		final CachedString entry= this.entries.remove(new CellKey(columnId, rowId));
+		if (entry != null) {
+			this.memorySize-= entry.getMemorySize();
+		}
+	}
+	
+	private synchronized void invalidateRows(final Set<Long> rowIds) {
+		for (final Iterator<Map.Entry<CellKey, CachedString>> iter= this.entries.entrySet().iterator();
+				iter.hasNext(); ) {
+			final Map.Entry<CellKey, CachedString> mapEntry= iter.next();
+			if (rowIds.contains(Long.valueOf(mapEntry.getKey().rowId))) {
+				this.memorySize-= mapEntry.getValue().getMemorySize();
+				iter.remove();
+			}
+		}
+	}
+	
+	private void invalidateRows(final ILayer layer, final Collection<LRange> rowPositionRanges) {
+		long count= 0;
+		for (final LRange range : rowPositionRanges) {
+			count+= range.size();
+		}
+		if (count > MAX_INVALIDATED_ROWS) {
+			clear();
+			return;
+		}
+		final ILayerDim dim= layer.getDim(VERTICAL);
+		final Set<Long> rowIds= new HashSet<>();
+		for (final LRange range : rowPositionRanges) {
+			for (long position= range.start; position < range.end; position++) {
+				rowIds.add(Long.valueOf(dim.getPositionId(position, position)));
+			}
+		}
+		invalidateRows(rowIds);
+	}
+	
+	@Override
+	public void handleLayerEvent(final ILayerEvent event) {
+		if (event instanceof IStructuralChangeEvent) {
+			final IStructuralChangeEvent structuralEvent= (IStructuralChangeEvent) event;
+			if (structuralEvent.isHorizontalStructureChanged()
+					|| structuralEvent.isVerticalStructureChanged() ) {
+				clear();
+			}
+		}
+		else if (event instanceof RowUpdateEvent) {
+			final RowUpdateEvent rowEvent= (RowUpdateEvent) event;
+			invalidateRows(rowEvent.getLayer(), rowEvent.getRowPositionRanges());
+		}
+		else if (event instanceof CellRangeVisualChangeEvent) {
+			final CellRangeVisualChangeEvent rangeEvent= (CellRangeVisualChangeEvent) event;
+			invalidateRows(rangeEvent.getLayer(), rangeEvent.getRowPositionRanges());
+		}
+		else if (event instanceof CellVisualChangeEvent) {
+			final CellVisualChangeEvent cellEvent= (CellVisualChangeEvent) event;
+			final ILayer layer= cellEvent.getLayer();
+			final long columnPosition= cellEvent.getColumnPosition();
+			final long rowPosition= cellEvent.getRowPosition();
+			invalidateCell(layer.getDim(HORIZONTAL).getPositionId(columnPosition, columnPosition),
+					layer.getDim(VERTICAL).getPositionId(rowPosition, rowPosition) );
+		}
+		else if (event instanceof PropertyUpdateEvent || event instanceof VisualRefreshEvent) {
+			clear();
+		}
+	}
+	
+	
+	/**
+	 * @return the number of requests answered by the cache
+	 */
+	public synchronized long getHitCount() {
+		return this.hitCount;
+	}
+	
+	/**
+	 * @return the number of requests not answered by the cache
+	 */
+	public synchronized long getMissCount() {
+		return this.missCount;
+	}
+	
+	/**
+	 * @return the ratio of the requests answered by the cache, 0 if there was no request
+	 */
+	public synchronized double getHitRate() {
+		final long count= this.hitCount + this.missCount;
+		return (count > 0) ? (double) this.hitCount / count : 0;
+	}
+	
+	/**
+	 * Resets the hit and miss counts.
+	 */
+	public synchronized void resetStatistics() {
+		this.hitCount= 0;
+		this.missCount= 0;
+	}
+	
+	/**
+	 * @return the estimated memory size of the cached entries in bytes
+	 */
+	public synchronized long getMemorySize() {
+		return this.memorySize;
+	}
+	
+}
@@ -0,0 +1,54 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Original authors and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *     Original authors and others - initial API and implementation
+ ******************************************************************************/
+
+package de.walware.ecommons.waltable.layer.cell;
+
+import static de.walware.ecommons.waltable.coordinate.Orientation.HORIZONTAL;
+import static de.walware.ecommons.waltable.coordinate.Orientation.VERTICAL;
+
+import de.walware.ecommons.waltable.layer.LabelStack;
+import de.walware.ecommons.waltable.style.DisplayMode;
+
+
+/**
+ * Cell with the display mode and config labels of a cell at the time of the snapshot.
+ * <p>
+ * The display mode and labels are computed once when the snapshot is created, so the
+ * snapshot is cheap to query repeatedly, e.g. by the painters of a cell, and can be used
+ * in other threads than the display thread. The label stack is shared by all callers and
+ * must not be modified.</p>
+ */
+public class SnapshotLayerCell extends ForwardLayerCell {
+	
+	
+	private final DisplayMode displayMode;
+	private final LabelStack configLabels;
+	
+	
+	public SnapshotLayerCell(final ILayerCell cell) {
+		super(cell.getLayer(), cell.getDim(HORIZONTAL), cell.getDim(VERTICAL), cell);
+		
+		this.displayMode= cell.getDisplayMode();
+		this.configLabels= cell.getConfigLabels();
+	}
+	
+	
+	@Override
+	public DisplayMode getDisplayMode() {
+		return this.displayMode;
+	}
+	
+	@Override
+	public LabelStack getConfigLabels() {
+		return this.configLabels;
+	}
+	
+}
@@ -0,0 +1,123 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Original authors and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *     Original authors and others - initial API and implementation
+ ******************************************************************************/
+
+package de.walware.ecommons.waltable.layer.event;
+
+import static de.walware.ecommons.waltable.coordinate.Orientation.HORIZONTAL;
+import static de.walware.ecommons.waltable.coordinate.Orientation.VERTICAL;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+
+import de.walware.ecommons.waltable.coordinate.LRange;
+import de.walware.ecommons.waltable.coordinate.LRectangle;
+import de.walware.ecommons.waltable.layer.ILayer;
+
+
+/**
+ * Visual change of the cells in a rectangle of positions, e.g. if the data of a block of cells
+ * was loaded.
+ * <p>
+ * In contrast to {@link CellVisualChangeEvent} the event can cover multiple cells, in
+ * contrast to {@link RowVisualChangeEvent} it is limited to the specified columns.</p>
+ */
+public class CellRangeVisualChangeEvent implements IVisualChangeEvent {
+	
+	
+	private ILayer layer;
+	
+	private Collection<LRange> columnPositionRanges;
+	
+	private Collection<LRange> rowPositionRanges;
+	
+	
+	public CellRangeVisualChangeEvent(final ILayer layer, final LRectangle positions) {
+		this.layer= layer;
+		this.columnPositionRanges= Collections.singletonList(
+				new LRange(positions.x, positions.x + positions.width) );
+		this.rowPositionRanges= Collections.singletonList(
+				new LRange(positions.y, positions.y + positions.height) );
+	}
+	
+	protected CellRangeVisualChangeEvent(final CellRangeVisualChangeEvent event) {
+		this.layer= event.layer;
+		this.columnPositionRanges= event.columnPositionRanges;
+		this.rowPositionRanges= event.rowPositionRanges;
+	}
+	
+	@Override
+	public CellRangeVisualChangeEvent cloneEvent() {
+		return new CellRangeVisualChangeEvent(this);
+	}
+	
+	
+	@Override
+	public ILayer getLayer() {
+		return this.layer;
+	}
+	
+	public Collection<LRange> getColumnPositionRanges() {
+		return this.columnPositionRanges;
+	}
+	
+	public Collection<LRange> getRowPositionRanges() {
+		return this.rowPositionRanges;
+	}
+	
+	@Override
+	public boolean convertToLocal(final ILayer localLayer) {
+		this.columnPositionRanges= clip(localLayer.getDim(HORIZONTAL).underlyingToLocalPositions(
+						this.layer.getDim(HORIZONTAL), this.columnPositionRanges ),
+				localLayer.getColumnCount() );
+		this.rowPositionRanges= clip(localLayer.getDim(VERTICAL).underlyingToLocalPositions(
+						this.layer.getDim(VERTICAL), this.rowPositionRanges ),
+				localLayer.getRowCount() );
+		this.layer= localLayer;
+		
+		return (this.columnPositionRanges != null && this.columnPositionRanges.size() > 0
+				&& this.rowPositionRanges != null && this.rowPositionRanges.size() > 0 );
+	}
+	
+	private static Collection<LRange> clip(final Collection<LRange> ranges, final long count) {
+		if (ranges == null) {
+			return null;
+		}
+		final Collection<LRange> clipped= new ArrayList<>(ranges.size());
+		for (final LRange range : ranges) {
+			final long start= Math.max(range.start, 0);
+			final long end= Math.min(range.end, count);
+			if (start < end) {
+				clipped.add((start == range.start && end == range.end) ? range : new LRange(start, end));
+			}
+		}
+		return clipped;
+	}
+	
+	@Override
+	public Collection<LRectangle> getChangedPositionRectangles() {
+		final Collection<LRectangle> changedPositionRectangles= new ArrayList<>(
+				this.columnPositionRanges.size() * this.rowPositionRanges.size() );
+		for (final LRange rowRange : this.rowPositionRanges) {
+			for (final LRange columnRange : this.columnPositionRanges) {
+				changedPositionRectangles.add(new LRectangle(columnRange.start, rowRange.start,
+						columnRange.size(), rowRange.size() ));
+			}
+		}
+		return changedPositionRectangles;
+	}
+	
+	@Override
+	public String toString() {
+		return getClass().getSimpleName();
+	}
+	
+}
@@ -10,8 +10,6 @@
  ******************************************************************************/
 package de.walware.ecommons.waltable.painter.cell;
 
-import java.util.Map;
-import java.util.WeakHashMap;
 import java.util.regex.Pattern;
 
 import org.eclipse.swt.SWT;
@@ -23,6 +21,8 @@ import de.walware.ecommons.waltable.config.IConfigRegistry;
 import de.walware.ecommons.waltable.data.convert.IDisplayConverter;
 import de.walware.ecommons.waltable.layer.cell.CellDisplayConversionUtils;
 import de.walware.ecommons.waltable.layer.cell.ILayerCell;
+import de.walware.ecommons.waltable.painter.surface.GCDrawingSurface;
+import de.walware.ecommons.waltable.painter.surface.IDrawingSurface;
 import de.walware.ecommons.waltable.style.CellStyleAttributes;
 import de.walware.ecommons.waltable.style.HorizontalAlignment;
 import de.walware.ecommons.waltable.style.IStyle;
@@ -54,38 +54,17 @@ public abstract class AbstractTextPainter extends BackgroundPainter {
 	public static final int DEFAULT_DRAW_STYLES= SWT.DRAW_TRANSPARENT | SWT.DRAW_DELIMITER;
 
 
-	private static final class TemporaryMapKey {
+	private static final TextExtentCache TEXT_EXTENT_CACHE= new TextExtentCache(4096);
 	
-		private final String text;
-		private final Font font;
-	
-		public TemporaryMapKey(final String text, final Font font) {
-			this.text= text;
-			this.font= font;
-		}
-
-
-		@Override
-		public int hashCode() {
-			return this.text.hashCode() + this.font.hashCode();
-		}
-
-		@Override
-		public boolean equals(final Object obj) {
-			if (this == obj) {
-				return true;
-			}
-			if (!(obj instanceof TemporaryMapKey)) {
-				return false;
-			}
-			final TemporaryMapKey other= (TemporaryMapKey) obj;
-			return (this.text.equals(other.text) && this.font.equals(other.font));
-		}
-
+	/**
+	 * Returns the cache for the text extents shared by all text painters.
+	 * 
+	 * @return the text extent cache
+	 */
+	public static TextExtentCache getTextExtentCache() {
+		return TEXT_EXTENT_CACHE;
 	}
 
-	private static final Map<TemporaryMapKey, Integer> temporaryMap= new WeakHashMap<>();
-
 
 	protected final boolean wrapText;
 	protected final boolean paintBg;
@@ -167,20 +146,41 @@ public abstract class AbstractTextPainter extends BackgroundPainter {
 	}
 
 	/**
-	 * Setup the GC by the values defined in the given cell style.
-	 * @param gc
+	 * Setup the drawing surface by the values defined in the given cell style.
+	 * <p>
+	 * If the surface draws on a GC, the call is dispatched to
+	 * {@link #setupGCFromConfig(GC, IStyle)}, so existing overrides of the GC variant
+	 * are still applied.</p>
+	 * @param surface
 	 * @param cellStyle
 	 */
+	protected void setupSurfaceFromConfig(final IDrawingSurface surface, final IStyle cellStyle) {
+		if (surface instanceof GCDrawingSurface) {
+			setupGCFromConfig(((GCDrawingSurface) surface).getGC(), cellStyle);
+			return;
+		}
+		doSetupSurfaceFromConfig(surface, cellStyle);
+	}
+
+	/**
+	 * @deprecated use {@link #setupSurfaceFromConfig(IDrawingSurface, IStyle)};
+	 *     the method is still called for surfaces drawing on a GC
+	 */
+	@Deprecated
 	protected void setupGCFromConfig(final GC gc, final IStyle cellStyle) {
+		doSetupSurfaceFromConfig(new GCDrawingSurface(gc), cellStyle);
+	}
+
+	private void doSetupSurfaceFromConfig(final IDrawingSurface surface, final IStyle cellStyle) {
 		final Color fg= cellStyle.getAttributeValue(CellStyleAttributes.FOREGROUND_COLOR);
 		final Color bg= cellStyle.getAttributeValue(CellStyleAttributes.BACKGROUND_COLOR);
 		final Font font= cellStyle.getAttributeValue(CellStyleAttributes.FONT);
 
-		gc.setAntialias(GUIHelper.DEFAULT_ANTIALIAS);
-		gc.setTextAntialias(GUIHelper.DEFAULT_TEXT_ANTIALIAS);
-		gc.setFont(font);
-		gc.setForeground(fg != null ? fg : GUIHelper.COLOR_LIST_FOREGROUND);
-		gc.setBackground(bg != null ? bg : GUIHelper.COLOR_LIST_BACKGROUND);
+		surface.setAntialias(GUIHelper.DEFAULT_ANTIALIAS);
+		surface.setTextAntialias(GUIHelper.DEFAULT_TEXT_ANTIALIAS);
+		surface.setFont(font);
+		surface.setForeground(fg != null ? fg : GUIHelper.COLOR_LIST_FOREGROUND);
+		surface.setBackground(bg != null ? bg : GUIHelper.COLOR_LIST_BACKGROUND);
 	}
 
 	/**
@@ -239,23 +239,39 @@ public abstract class AbstractTextPainter extends BackgroundPainter {
 	}
 
 	/**
-	 * Calculates the length of a given text by using the GC.
-	 * To minimize the count of calculations, the calculation
-	 * result will be stored within a Map, so the next time
+	 * Calculates the length of a given text by using the drawing surface.
+	 * To minimize the count of calculations, the calculation result for a GC
+	 * will be stored within the {@link TextExtentCache}, so the next time
 	 * the length of the same text is asked for, the result
 	 * is only returned by cache and is not calculated again.
-	 * @param gc the current GC
+	 * <p>
+	 * If the surface draws on a GC, the call is dispatched to
+	 * {@link #getWidthFromCache(GC, String)}.</p>
+	 * @param surface the current drawing surface
 	 * @param text the text to get the length for
 	 * @return the length of the text
 	 */
+	protected int getWidthFromCache(final IDrawingSurface surface, final String text) {
+		if (surface instanceof GCDrawingSurface) {
+			return getWidthFromCache(((GCDrawingSurface) surface).getGC(), text);
+		}
+		return surface.textExtent(text, this.swtDrawStyle).x;
+	}
+
+	/**
+	 * @deprecated use {@link #getWidthFromCache(IDrawingSurface, String)};
+	 *     the method is still called for surfaces drawing on a GC
+	 */
+	@Deprecated
 	protected int getWidthFromCache(final GC gc, final String text) {
-		final TemporaryMapKey key= new TemporaryMapKey(text, gc.getFont());
-		Integer width= temporaryMap.get(key);
-		if (width == null) {
-			width= Integer.valueOf(gc.textExtent(text, this.swtDrawStyle).x);
-			temporaryMap.put(key, width);
+		return TEXT_EXTENT_CACHE.getTextWidth(gc, text, this.swtDrawStyle);
+	}
+	
+	private int getAdvanceWidth(final IDrawingSurface surface, final char c) {
+		if (surface instanceof GCDrawingSurface) {
+			return TEXT_EXTENT_CACHE.getAdvanceWidth(((GCDrawingSurface) surface).getGC(), c);
 		}
-		return width.intValue();
+		return surface.getAdvanceWidth(c);
 	}
 
 	/**
@@ -264,19 +280,38 @@ public abstract class AbstractTextPainter extends BackgroundPainter {
 	 * enough. If calculation of available space is enabled, the space is automatically
 	 * widened for the text to display, and if no calculation is enabled the text is cut
 	 * and modified to end with "..." to fit into the available space
+	 * <p>
+	 * If the surface draws on a GC, the call is dispatched to
+	 * {@link #getTextToDisplay(ILayerCell, GC, long, String)}.</p>
 	 * @param cell the current cell to paint
-	 * @param gc the current GC
+	 * @param surface the current drawing surface
 	 * @param availableLength the available space for the text to display
 	 * @param text the text that should be modified for display
 	 * @return the modified text
 	 */
-	protected String getTextToDisplay(final ILayerCell cell, final GC gc, final long availableLength, String text) {
+	protected String getTextToDisplay(final ILayerCell cell, final IDrawingSurface surface, final long availableLength, final String text) {
+		if (surface instanceof GCDrawingSurface) {
+			return getTextToDisplay(cell, ((GCDrawingSurface) surface).getGC(), availableLength, text);
+		}
+		return doGetTextToDisplay(surface, availableLength, text);
+	}
+
+	/**
+	 * @deprecated use {@link #getTextToDisplay(ILayerCell, IDrawingSurface, long, String)};
+	 *     the method is still called for surfaces drawing on a GC
+	 */
+	@Deprecated
+	protected String getTextToDisplay(final ILayerCell cell, final GC gc, final long availableLength, final String text) {
+		return doGetTextToDisplay(new GCDrawingSurface(gc), availableLength, text);
+	}
+
+	private String doGetTextToDisplay(final IDrawingSurface surface, final long availableLength, String text) {
 		final StringBuilder output= new StringBuilder();
 
 		text= text.trim();
 
 		//take the whole width of the text
-		long textLength= getWidthFromCache(gc, text);
+		long textLength= getWidthFromCache(surface, text);
 		if (this.calculateByTextLength && this.wrapText) {
 			if (availableLength < textLength) {
 				//calculate length by finding the longest word in text
@@ -290,13 +325,13 @@ public abstract class AbstractTextPainter extends BackgroundPainter {
 					
 					final String[] words= line.split("\\s"); //$NON-NLS-1$
 					for (final String word : words) {
-						textLength= Math.max(textLength, getWidthFromCache(gc, word));
+						textLength= Math.max(textLength, getWidthFromCache(surface, word));
 					}
 					
 					//concat the words with spaces and newlines to be always smaller then available
 					String computedText= ""; //$NON-NLS-1$
 					for (final String word : words) {
-						computedText= computeTextToDisplay(computedText, word, gc, textLength);
+						computedText= computeTextToDisplay(computedText, word, surface, textLength);
 					}
 					output.append(computedText);
 				}
@@ -308,7 +343,7 @@ public abstract class AbstractTextPainter extends BackgroundPainter {
 //			setNewMinLength(cell, textLength + calculatePadding(cell, availableLength));
 		}
 		else if (this.calculateByTextLength && !this.wrapText){
-			output.append(modifyTextToDisplay(text, gc, textLength));
+			output.append(modifyTextToDisplay(text, surface, textLength));
 			
 			//add padding and spacing to textLength because they are needed for correct sizing
 			//padding can occur on using decorators like the BeveledBorderDecorator or the 
@@ -327,7 +362,7 @@ public abstract class AbstractTextPainter extends BackgroundPainter {
 				//concat the words with spaces and newlines
 				String computedText= ""; //$NON-NLS-1$
 				for (final String word : words) {
-					computedText= computeTextToDisplay(computedText, word, gc, availableLength);
+					computedText= computeTextToDisplay(computedText, word, surface, availableLength);
 				}
 				
 				output.append(computedText);
@@ -335,7 +370,7 @@ public abstract class AbstractTextPainter extends BackgroundPainter {
 			
 		}
 		else if (!this.calculateByTextLength && !this.wrapText) {
-			output.append(modifyTextToDisplay(text, gc, availableLength));
+			output.append(modifyTextToDisplay(text, surface, availableLength));
 		}
 		
 		return output.toString();
@@ -349,11 +384,11 @@ public abstract class AbstractTextPainter extends BackgroundPainter {
 	 * space there will be a new line character used as delimiter.
 	 * @param one the first word or the whole text before the next word
 	 * @param two the next word to add to the first parameter
-	 * @param gc the current GC
+	 * @param surface the current drawing surface
 	 * @param availableSpace the available space
 	 * @return the concatenated String of the first two parameters
 	 */
-	private String computeTextToDisplay(final String one, final String two, final GC gc, final long availableSpace) {
+	private String computeTextToDisplay(final String one, final String two, final IDrawingSurface surface, final long availableSpace) {
 		String result= one;
 		//if one is empty or one ends with newline just add two
 		if (one == null || one.length() == 0 || one.endsWith(NEW_LINE_SEPARATOR)) {
@@ -362,10 +397,10 @@ public abstract class AbstractTextPainter extends BackgroundPainter {
 		//if one does not contain a newline
 		else if (one.indexOf(NEW_LINE_SEPARATOR) == -1) {
 			//
-			if (getWidthFromCache(gc, one) == availableSpace 
-				|| getWidthFromCache(gc, one+" "+two) >= availableSpace) { //$NON-NLS-1$
+			if (getWidthFromCache(surface, one) == availableSpace 
+				|| getWidthFromCache(surface, one+" "+two) >= availableSpace) { //$NON-NLS-1$
 				result+= NEW_LINE_SEPARATOR;
-				result+= modifyTextToDisplay(two, gc, availableSpace);
+				result+= modifyTextToDisplay(two, surface, availableSpace);
 			}
 			else {
 				result+= ' ';
@@ -375,8 +410,8 @@ public abstract class AbstractTextPainter extends BackgroundPainter {
 		else {
 			//get the end of the last part after the last newline
 			final String endString= one.substring(one.lastIndexOf(NEW_LINE_SEPARATOR) + 1);
-			if (getWidthFromCache(gc, endString) == availableSpace 
-					|| getWidthFromCache(gc, endString+" "+two) >= availableSpace) { //$NON-NLS-1$
+			if (getWidthFromCache(surface, endString) == availableSpace 
+					|| getWidthFromCache(surface, endString+" "+two) >= availableSpace) { //$NON-NLS-1$
 					result+= NEW_LINE_SEPARATOR;
 					result+= two;
 				}
@@ -393,15 +428,15 @@ public abstract class AbstractTextPainter extends BackgroundPainter {
 	 * text is simply returned without modification. If the text does not fit into
 	 * the available space, it will be modified by cutting and adding three dots. 
 	 * @param text the text to compute
-	 * @param gc the current GC
+	 * @param surface the current drawing surface
 	 * @param availableLength the available space
 	 * @return the modified text if it is bigger than the available space or the 
 	 * text as it was given if it fits into the available space
 	 */
-	private String modifyTextToDisplay(final String text, final GC gc, final long availableLength) {
-		//length of the text on GC taking new lines into account
+	private String modifyTextToDisplay(final String text, final IDrawingSurface surface, final long availableLength) {
+		//length of the text on the surface taking new lines into account
 		//this means the textLength is the value of the longest line
-		long textLength= getWidthFromCache(gc, text);
+		final long textLength= getWidthFromCache(surface, text);
 		if (textLength > availableLength) {
 			//as looking at the text length without taking new lines into account
 			//we have to look at every line itself
@@ -415,46 +450,9 @@ public abstract class AbstractTextPainter extends BackgroundPainter {
 				
 				//now modify every line if it is longer than the available space
 				//this way every line will get ... if it doesn't fit
-				final long lineLength= getWidthFromCache(gc, line);
+				final long lineLength= getWidthFromCache(surface, line);
 				if (lineLength > availableLength) {
-					int numExtraChars= 0;
-
-					int newStringLength= line.length();
-					String trialLabelText= line + DOT;
-					long newTextExtent= getWidthFromCache(gc, trialLabelText);
-
-					while (newTextExtent > availableLength + 1 && newStringLength > 0) {
-						final double avgWidthPerChar= (double) newTextExtent / trialLabelText.length();
-						numExtraChars+= 1 + (int) ((newTextExtent - availableLength) / avgWidthPerChar);
-
-						newStringLength= line.length() - numExtraChars;
-						if (newStringLength > 0) {
-							trialLabelText= line.substring(0, newStringLength) + DOT;
-							newTextExtent= getWidthFromCache(gc, trialLabelText);
-						}
-					}
-
-					if (numExtraChars > line.length()) {
-						numExtraChars= line.length();
-					}
-					
-					// now we have gone too short, lets add chars one at a time to exceed the width...
-					String testString= line;
-					for (int i= 0; i < line.length(); i++){
-						testString= line.substring(0, line.length() + i - numExtraChars) + DOT;
-						textLength= getWidthFromCache(gc, testString);
-						
-						if (textLength >= availableLength) {
-							
-							//  now roll back one as this was the first number that exceeded
-							if (line.length() + i - numExtraChars < 1){
-								line= EMPTY;
-							} else {
-								line= line.substring(0, line.length() + i - numExtraChars - 1 ) + DOT;
-							}
-							break;
-						}
-					}
+					line= truncateLine(line, surface, availableLength);
 				}
 				result.append(line);
 			}
@@ -464,6 +462,57 @@ public abstract class AbstractTextPainter extends BackgroundPainter {
 		return text;
 	}
 
+	/**
+	 * Cuts the given line and adds the dots so that it fits into the available space.
+	 * <p>
+	 * The cut point is estimated by the advance widths of the characters and verified by
+	 * the (cached) text extent of the resulting text.</p>
+	 * @param line the line to cut
+	 * @param surface the current drawing surface
+	 * @param availableLength the available space
+	 * @return the longest start of the line with dots which is smaller than the available
+	 * space, or an empty string if even the dots don't fit
+	 */
+	private String truncateLine(final String line, final IDrawingSurface surface, final long availableLength) {
+		final int length= line.length();
+		final long[] advanceSums= new long[length + 1];
+		for (int i= 0; i < length; i++) {
+			advanceSums[i + 1]= advanceSums[i] + getAdvanceWidth(surface, line.charAt(i));
+		}
+		final long available= availableLength - getAdvanceWidth(surface, DOT);
+		
+		// estimate: largest n with advanceSums[n] < available
+		int low= 0;
+		int high= length;
+		while (low <= high) {
+			final int mid= (low + high) >>> 1;
+			if (advanceSums[mid] < available) {
+				low= mid + 1;
+			}
+			else {
+				high= mid - 1;
+			}
+		}
+		int n= Math.max(high, 0);
+		
+		// verify and adjust by the exact extent
+		if (getWidthFromCache(surface, line.substring(0, n) + DOT) < availableLength) {
+			while (n < length
+					&& getWidthFromCache(surface, line.substring(0, n + 1) + DOT) < availableLength) {
+				n++;
+			}
+		}
+		else {
+			do {
+				if (n == 0) {
+					return EMPTY;
+				}
+				n--;
+			} while (getWidthFromCache(surface, line.substring(0, n) + DOT) >= availableLength);
+		}
+		return line.substring(0, n) + DOT;
+	}
+	
 //	/**
 //	 * This method gets only called if automatic length calculation is enabled.
 //	 * Calculate the new cell width/height by using the given content length and the
@@ -19,6 +19,8 @@ import de.walware.ecommons.waltable.config.ConfigRegistry;
 import de.walware.ecommons.waltable.config.IConfigRegistry;
 import de.walware.ecommons.waltable.coordinate.LRectangle;
 import de.walware.ecommons.waltable.layer.cell.ILayerCell;
+import de.walware.ecommons.waltable.painter.surface.GCDrawingSurface;
+import de.walware.ecommons.waltable.painter.surface.IDrawingSurface;
 import de.walware.ecommons.waltable.style.CellStyleAttributes;
 import de.walware.ecommons.waltable.style.CellStyleUtil;
 
@@ -32,7 +34,7 @@ import de.walware.ecommons.waltable.style.CellStyleUtil;
  *
  * Can be used as a cell painter or a decorator.
  */
-public class BackgroundPainter extends CellPainterWrapper {
+public class BackgroundPainter extends CellPainterWrapper implements ISurfaceCellPainter {
 
 	public BackgroundPainter() {}
 
@@ -42,17 +44,24 @@ public class BackgroundPainter extends CellPainterWrapper {
 
 	@Override
 	public void paintCell(final ILayerCell cell, final GC gc, final LRectangle bounds, final IConfigRegistry configRegistry) {
+		paintCell(cell, new GCDrawingSurface(gc), bounds, configRegistry);
+	}
+
+	@Override
+	public void paintCell(final ILayerCell cell, final IDrawingSurface surface, final LRectangle bounds, final IConfigRegistry configRegistry) {
 		final Color backgroundColor= getBackgroundColour(cell, configRegistry);
 		if (backgroundColor != null) {
-			final Color originalBackground= gc.getBackground();
+			final Color originalBackground= surface.getBackground();
 
-			gc.setBackground(backgroundColor);
-			gc.fillRectangle(safe(bounds));
+			surface.setBackground(backgroundColor);
+			surface.fillRectangle(safe(bounds));
 
-			gc.setBackground(originalBackground);
+			if (originalBackground != null) {
+				surface.setBackground(originalBackground);
+			}
 		}
 
-		super.paintCell(cell, gc, bounds, configRegistry);
+		paintWrappedCell(cell, surface, bounds, configRegistry);
 	}
 	
 	protected Color getBackgroundColour(final ILayerCell cell, final IConfigRegistry configRegistry) {
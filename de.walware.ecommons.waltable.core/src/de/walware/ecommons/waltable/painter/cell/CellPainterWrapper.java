@@ -16,6 +16,7 @@ import org.eclipse.swt.graphics.GC;
 import de.walware.ecommons.waltable.config.IConfigRegistry;
 import de.walware.ecommons.waltable.coordinate.LRectangle;
 import de.walware.ecommons.waltable.layer.cell.ILayerCell;
+import de.walware.ecommons.waltable.painter.surface.IDrawingSurface;
 
 public abstract class CellPainterWrapper extends AbstractCellPainter {
 
@@ -66,4 +67,17 @@ public abstract class CellPainterWrapper extends AbstractCellPainter {
 		}
 	}
 
+	/**
+	 * Paints the cell by the wrapped painter on the drawing surface.
+	 * <p>
+	 * The painter is called as described in
+	 * {@link GraphicsUtils#paintCell(ICellPainter, ILayerCell, IDrawingSurface, LRectangle, IConfigRegistry)};
+	 * wrapped painters which are not a {@link ISurfaceCellPainter} are painted offscreen.</p>
+	 */
+	protected void paintWrappedCell(final ILayerCell cell, final IDrawingSurface surface, final LRectangle adjustedCellBounds, final IConfigRegistry configRegistry) {
+		if (this.wrappedPainter != null) {
+			GraphicsUtils.paintCell(this.wrappedPainter, cell, surface, adjustedCellBounds, configRegistry);
+		}
+	}
+
 }
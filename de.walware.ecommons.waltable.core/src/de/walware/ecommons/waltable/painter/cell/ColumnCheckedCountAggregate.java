@@ -0,0 +1,527 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Original authors and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *     Original authors and others - initial API and implementation
+ ******************************************************************************/
+
+package de.walware.ecommons.waltable.painter.cell;
+
+import static de.walware.ecommons.waltable.coordinate.Orientation.HORIZONTAL;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.swt.widgets.Display;
+
+import de.walware.ecommons.waltable.config.IConfigRegistry;
+import de.walware.ecommons.waltable.coordinate.LRange;
+import de.walware.ecommons.waltable.data.IDataProvider;
+import de.walware.ecommons.waltable.layer.DataLayer;
+import de.walware.ecommons.waltable.layer.ILayer;
+import de.walware.ecommons.waltable.layer.ILayerDim;
+import de.walware.ecommons.waltable.layer.ILayerListener;
+import de.walware.ecommons.waltable.layer.cell.ILayerCell;
+import de.walware.ecommons.waltable.layer.cell.SnapshotLayerCell;
+import de.walware.ecommons.waltable.layer.event.CellRangeVisualChangeEvent;
+import de.walware.ecommons.waltable.layer.event.CellVisualChangeEvent;
+import de.walware.ecommons.waltable.layer.event.ILayerEvent;
+import de.walware.ecommons.waltable.layer.event.IStructuralChangeEvent;
+import de.walware.ecommons.waltable.layer.event.RowUpdateEvent;
+import de.walware.ecommons.waltable.layer.event.StructuralDiff;
+import de.walware.ecommons.waltable.layer.event.StructuralDiff.DiffTypeEnum;
+import de.walware.ecommons.waltable.layer.event.VisualRefreshEvent;
+
+
+/**
+ * Number of checked cells per column of a layer, as shown by the
+ * {@link ColumnHeaderCheckBoxPainter}.
+ * <p>
+ * The aggregate keeps the checked rows of each requested column. It is registered as
+ * {@link ILayerListener} at the layer and updates the rows of {@link CellVisualChangeEvent}s,
+ * {@link RowUpdateEvent}s, {@link CellRangeVisualChangeEvent}s and row {@link StructuralDiff}s
+ * of type {@link DiffTypeEnum#CHANGE} incrementally. If rows are added or deleted or the changed
+ * range is large, the columns are counted again. Small columns are counted directly, large ones
+ * by a background job loading the values in chunks; until the job is finished, the last known
+ * count of the column is returned. The cells are collected with their labels and display mode
+ * in the display thread; only the loading of the values and the check by
+ * {@link ColumnHeaderCheckBoxPainter#isChecked(ILayerCell, IConfigRegistry)} are done in
+ * background. Rows changing during the count after they were collected are checked again
+ * when the count is finished.</p>
+ * <p>
+ * The methods of the aggregate must be called in the display thread.</p>
+ */
+public class ColumnCheckedCountAggregate implements ILayerListener {
+	
+	
+	/** Max number of rows counted directly in the display thread */
+	private static final int SYNC_MAX_COUNT= 10000;
+	/** Max number of rows updated incrementally per event */
+	private static final int UPDATE_MAX_COUNT= 1024;
+	
+	private static final int CHUNK_ROW_COUNT= 4096;
+	
+	
+	private static final class ColumnCount {
+		
+		
+		/** Checked rows by position, <code>null</code> if the count is unknown */
+		private BitSet checkedRows;
+		/** The number of checked rows, the last known number if the count is unknown */
+		private long checkedCount= -1;
+		
+		/** Incremented on each change of the column which invalidates a running count */
+		private int version;
+		
+		/** Number of rows collected by the running count */
+		private long collectedRowCount;
+		/** Rows changed after they were collected by the running count */
+		private BitSet changedRows;
+		
+		
+		public ColumnCount() {
+		}
+		
+		
+		public boolean isValid() {
+			return (this.checkedRows != null);
+		}
+		
+		public void invalidate() {
+			if (this.checkedRows == null && this.collectedRowCount == 0) {
+				return;
+			}
+			this.checkedRows= null;
+			this.collectedRowCount= 0;
+			this.changedRows= null;
+			this.version++;
+		}
+		
+		public void set(final BitSet checkedRows) {
+			this.checkedRows= checkedRows;
+			this.checkedCount= checkedRows.cardinality();
+			this.collectedRowCount= 0;
+			this.changedRows= null;
+			this.version++;
+		}
+		
+		public void markChanged(final long rowPosition) {
+			// rows not yet collected are counted with the current value
+			if (rowPosition < this.collectedRowCount) {
+				if (this.changedRows == null) {
+					this.changedRows= new BitSet();
+				}
+				this.changedRows.set((int) rowPosition);
+			}
+		}
+		
+		public void update(final int rowPosition, final boolean checked) {
+			if (this.checkedRows.get(rowPosition) != checked) {
+				this.checkedRows.set(rowPosition, checked);
+				this.checkedCount+= (checked) ? 1 : -1;
+			}
+			this.version++;
+		}
+		
+	}
+	
+	/**
+	 * Cell collected for the count in background, the data value is always loaded synchronously.
+	 */
+	private static final class CountCell extends SnapshotLayerCell {
+		
+		
+		public CountCell(final ILayerCell cell) {
+			super(cell);
+		}
+		
+		
+		@Override
+		public Object getDataValue(final int flags, final IProgressMonitor monitor) {
+			return super.getDataValue(flags | IDataProvider.FORCE_SYNC, monitor);
+		}
+		
+	}
+	
+	private class RecountJob extends Job {
+		
+		
+		public RecountJob() {
+			super("Count Checked Cells"); //$NON-NLS-1$
+			setSystem(true);
+		}
+		
+		
+		@Override
+		protected IStatus run(final IProgressMonitor monitor) {
+			final Object[] task= new Object[3];
+			while (true) {
+				// task: columnId, columnCount, version
+				task[0]= null;
+				runInDisplay(new Runnable() {
+					@Override
+					public void run() {
+						for (final Iterator<Map.Entry<Long, ColumnCount>> iter= ColumnCheckedCountAggregate.this.columns.entrySet().iterator(); iter.hasNext(); ) {
+							final Map.Entry<Long, ColumnCount> entry= iter.next();
+							final ColumnCount columnCount= entry.getValue();
+							if (!columnCount.isValid()) {
+								if (getColumnPosition(entry.getKey().longValue()) < 0) {
+									iter.remove();
+									continue;
+								}
+								task[0]= entry.getKey();
+								task[1]= columnCount;
+								task[2]= Integer.valueOf(columnCount.version);
+								return;
+							}
+						}
+						ColumnCheckedCountAggregate.this.recountJob= null;
+					}
+				});
+				if (task[0] == null) {
+					return Status.OK_STATUS;
+				}
+				
+				final long columnId= ((Long) task[0]).longValue();
+				final ColumnCount columnCount= (ColumnCount) task[1];
+				final int version= ((Integer) task[2]).intValue();
+				final BitSet checkedRows= count(columnId, columnCount, version, monitor);
+				if (monitor.isCanceled()) {
+					return Status.CANCEL_STATUS;
+				}
+				if (checkedRows != null) {
+					runInDisplay(new Runnable() {
+						@Override
+						public void run() {
+							if (columnCount.version == version) {
+								final BitSet changedRows= columnCount.changedRows;
+								columnCount.set(checkedRows);
+								if (changedRows != null) {
+									for (int rowPosition= changedRows.nextSetBit(0); rowPosition >= 0;
+											rowPosition= changedRows.nextSetBit(rowPosition + 1) ) {
+										updateCell(columnId, columnCount, rowPosition);
+									}
+								}
+								refresh();
+							}
+						}
+					});
+				}
+			}
+		}
+		
+		private BitSet count(final long columnId, final ColumnCount columnCount, final int version,
+				final IProgressMonitor monitor) {
+			final BitSet checkedRows= new BitSet();
+			final ILayerCell[] cells= new ILayerCell[CHUNK_ROW_COUNT];
+			final int[] n= new int[1];
+			for (long rowPosition= 0; ; rowPosition+= n[0]) {
+				final long startRow= rowPosition;
+				n[0]= -1;
+				runInDisplay(new Runnable() {
+					@Override
+					public void run() {
+						if (columnCount.version != version) {
+							return;
+						}
+						final long columnPosition= getColumnPosition(columnId);
+						if (columnPosition < 0) {
+							return;
+						}
+						final long rowCount= ColumnCheckedCountAggregate.this.layer.getRowCount();
+						if (rowCount > Integer.MAX_VALUE) {
+							return;
+						}
+						n[0]= (int) Math.max(Math.min(rowCount - startRow, CHUNK_ROW_COUNT), 0);
+						for (int i= 0; i < n[0]; i++) {
+							final ILayerCell cell= ColumnCheckedCountAggregate.this.layer.getCellByPosition(
+									columnPosition, startRow + i );
+							cells[i]= (cell != null) ? new CountCell(cell) : null;
+						}
+						columnCount.collectedRowCount= startRow + n[0];
+					}
+				});
+				if (n[0] < 0 || monitor.isCanceled()) {
+					return null;
+				}
+				if (n[0] == 0) {
+					return checkedRows;
+				}
+				
+				DataLayer.preloadDataValues(cells, n[0], IDataProvider.FORCE_SYNC, monitor);
+				for (int i= 0; i < n[0]; i++) {
+					final ILayerCell cell= cells[i];
+					if (cell != null && ColumnCheckedCountAggregate.this.painter.isChecked(cell,
+							ColumnCheckedCountAggregate.this.configRegistry )) {
+						checkedRows.set((int) (startRow + i));
+					}
+					cells[i]= null;
+				}
+			}
+		}
+		
+	}
+	
+	
+	private final ColumnHeaderCheckBoxPainter painter;
+	
+	private final ILayer layer;
+	
+	/** Counts by column id */
+	private final Map<Long, ColumnCount> columns= new HashMap<>();
+	
+	private IConfigRegistry configRegistry;
+	
+	private Display display;
+	
+	private RecountJob recountJob;
+	
+	private ILayer refreshLayer;
+	private boolean refreshing;
+	
+	
+	/**
+	 * Creates a new aggregate and registers it at the layer.
+	 * 
+	 * @param painter the painter checking the cells
+	 * @param layer the layer with the cells to count
+	 */
+	public ColumnCheckedCountAggregate(final ColumnHeaderCheckBoxPainter painter, final ILayer layer) {
+		this.painter= painter;
+		this.layer= layer;
+		
+		layer.addLayerListener(this);
+	}
+	
+	
+	/**
+	 * Unregisters the aggregate from the layer and stops a running count.
+	 */
+	public void dispose() {
+		this.layer.removeLayerListener(this);
+		if (this.recountJob != null) {
+			this.recountJob.cancel();
+			this.recountJob= null;
+		}
+		this.columns.clear();
+	}
+	
+	
+	/**
+	 * Returns the number of checked cells in the specified column.
+	 * 
+	 * @param columnPosition the column position in the layer
+	 * @param configRegistry the config registry
+	 * @param sync if the count must be computed directly if it is unknown
+	 * @return the number of checked cells, the last known number if it is currently counted,
+	 *     or -1 if no count is available yet
+	 */
+	public long getCheckedCount(final long columnPosition, final IConfigRegistry configRegistry,
+			final boolean sync) {
+		if (configRegistry != this.configRegistry) {
+			this.configRegistry= configRegistry;
+			invalidateAll();
+		}
+		
+		final long columnId= this.layer.getDim(HORIZONTAL).getPositionId(columnPosition, columnPosition);
+		ColumnCount columnCount= this.columns.get(columnId);
+		if (columnCount == null) {
+			columnCount= new ColumnCount();
+			this.columns.put(columnId, columnCount);
+		}
+		if (!columnCount.isValid()) {
+			final long rowCount= this.layer.getRowCount();
+			if (rowCount > Integer.MAX_VALUE) {
+				return -1;
+			}
+			if (sync || rowCount <= SYNC_MAX_COUNT || !initDisplay()) {
+				columnCount.set(countDirect(columnPosition, (int) rowCount));
+			}
+			else {
+				scheduleRecount();
+			}
+		}
+		return columnCount.checkedCount;
+	}
+	
+	/**
+	 * Sets the layer to refresh when a count finished in background.
+	 * 
+	 * @param layer the layer showing the counts
+	 */
+	public void setRefreshLayer(final ILayer layer) {
+		this.refreshLayer= layer;
+	}
+	
+	private BitSet countDirect(final long columnPosition, final int rowCount) {
+		final BitSet checkedRows= new BitSet();
+		for (int rowPosition= 0; rowPosition < rowCount; rowPosition++) {
+			final ILayerCell cell= this.layer.getCellByPosition(columnPosition, rowPosition);
+			if (cell != null && this.painter.isChecked(cell, this.configRegistry)) {
+				checkedRows.set(rowPosition);
+			}
+		}
+		return checkedRows;
+	}
+	
+	private long getColumnPosition(final long columnId) {
+		final ILayerDim dim= this.layer.getDim(HORIZONTAL);
+		final long columnPosition= dim.getPositionById(columnId);
+		return (columnPosition >= 0 && columnPosition < dim.getPositionCount()) ? columnPosition : -1;
+	}
+	
+	private boolean initDisplay() {
+		if (this.display == null) {
+			this.display= Display.getCurrent();
+		}
+		return (this.display != null);
+	}
+	
+	private void scheduleRecount() {
+		if (this.recountJob == null) {
+			this.recountJob= new RecountJob();
+			this.recountJob.schedule();
+		}
+	}
+	
+	private void runInDisplay(final Runnable runnable) {
+		if (this.display.getThread() == Thread.currentThread()) {
+			runnable.run();
+		}
+		else if (!this.display.isDisposed()) {
+			this.display.syncExec(runnable);
+		}
+	}
+	
+	private void refresh() {
+		final ILayer layer= this.refreshLayer;
+		if (layer != null) {
+			this.refreshing= true;
+			try {
+				layer.fireLayerEvent(new VisualRefreshEvent(layer));
+			}
+			finally {
+				this.refreshing= false;
+			}
+		}
+	}
+	
+	
+	private void invalidateAll() {
+		for (final ColumnCount columnCount : this.columns.values()) {
+			columnCount.invalidate();
+		}
+	}
+	
+	private void updateRows(final Collection<LRange> rowPositionRanges) {
+		long count= 0;
+		for (final LRange range : rowPositionRanges) {
+			count+= range.size();
+		}
+		if (count > UPDATE_MAX_COUNT) {
+			invalidateAll();
+			return;
+		}
+		for (final LRange range : rowPositionRanges) {
+			for (long rowPosition= range.start; rowPosition < range.end; rowPosition++) {
+				updateRow(rowPosition);
+			}
+		}
+	}
+	
+	private void updateRow(final long rowPosition) {
+		for (final Map.Entry<Long, ColumnCount> entry : this.columns.entrySet()) {
+			updateCell(entry.getKey().longValue(), entry.getValue(), rowPosition);
+		}
+	}
+	
+	private void updateCell(final long columnId, final ColumnCount columnCount, final long rowPosition) {
+		if (!columnCount.isValid()) {
+			columnCount.markChanged(rowPosition);
+			return;
+		}
+		final long columnPosition= getColumnPosition(columnId);
+		if (columnPosition < 0 || rowPosition < 0 || rowPosition >= this.layer.getRowCount()) {
+			columnCount.invalidate();
+			return;
+		}
+		final ILayerCell cell= this.layer.getCellByPosition(columnPosition, rowPosition);
+		columnCount.update((int) rowPosition,
+				(cell != null && this.painter.isChecked(cell, this.configRegistry)) );
+	}
+	
+	@Override
+	public void handleLayerEvent(final ILayerEvent event) {
+		if (this.columns.isEmpty() || this.refreshing) {
+			return;
+		}
+		if (event instanceof IStructuralChangeEvent) {
+			final IStructuralChangeEvent structuralEvent= (IStructuralChangeEvent) event;
+			if (structuralEvent.isVerticalStructureChanged()) {
+				final Collection<StructuralDiff> rowDiffs= structuralEvent.getRowDiffs();
+				if (rowDiffs == null || structuralEvent.getLayer() != this.layer) {
+					invalidateAll();
+					return;
+				}
+				for (final StructuralDiff diff : rowDiffs) {
+					if (diff.getDiffType() != DiffTypeEnum.CHANGE) {
+						invalidateAll();
+						return;
+					}
+				}
+				final List<LRange> rowPositionRanges= new ArrayList<>(rowDiffs.size());
+				for (final StructuralDiff diff : rowDiffs) {
+					rowPositionRanges.add(diff.getAfterPositionRange());
+				}
+				updateRows(rowPositionRanges);
+			}
+			// column ids are stable
+		}
+		else if (event instanceof RowUpdateEvent) {
+			final RowUpdateEvent rowEvent= (RowUpdateEvent) event;
+			if (rowEvent.getLayer() != this.layer) {
+				invalidateAll();
+				return;
+			}
+			updateRows(rowEvent.getRowPositionRanges());
+		}
+		else if (event instanceof CellRangeVisualChangeEvent) {
+			final CellRangeVisualChangeEvent rangeEvent= (CellRangeVisualChangeEvent) event;
+			if (rangeEvent.getLayer() != this.layer) {
+				invalidateAll();
+				return;
+			}
+			updateRows(rangeEvent.getRowPositionRanges());
+		}
+		else if (event instanceof CellVisualChangeEvent) {
+			final CellVisualChangeEvent cellEvent= (CellVisualChangeEvent) event;
+			if (cellEvent.getLayer() != this.layer) {
+				invalidateAll();
+				return;
+			}
+			final long columnPosition= cellEvent.getColumnPosition();
+			final long columnId= this.layer.getDim(HORIZONTAL).getPositionId(columnPosition, columnPosition);
+			final ColumnCount columnCount= this.columns.get(columnId);
+			if (columnCount != null) {
+				updateCell(columnId, columnCount, cellEvent.getRowPosition());
+			}
+		}
+		else if (event instanceof VisualRefreshEvent) {
+			invalidateAll();
+		}
+	}
+	
+}
@@ -30,6 +30,8 @@ public class ColumnHeaderCheckBoxPainter extends ImagePainter {
 	private final Image uncheckedImg;
 	
 	private final ILayer columnDataLayer;
+	
+	private final ColumnCheckedCountAggregate checkedCountAggregate;
 
 	public ColumnHeaderCheckBoxPainter(final ILayer columnDataLayer) {
 		this(
@@ -45,6 +47,8 @@ public class ColumnHeaderCheckBoxPainter extends ImagePainter {
 		this.checkedImg= checkedImg;
 		this.semicheckedImg= semicheckedImage;
 		this.uncheckedImg= uncheckedImg;
+		
+		this.checkedCountAggregate= new ColumnCheckedCountAggregate(this, columnLayer);
 	}
 
 	public long getPreferredWidth(final boolean checked) {
@@ -59,7 +63,9 @@ public class ColumnHeaderCheckBoxPainter extends ImagePainter {
 	protected Image getImage(final ILayerCell cell, final IConfigRegistry configRegistry) {
 		final long columnPosition= LayerUtil.convertColumnPosition(cell.getLayer(), cell.getColumnPosition(), this.columnDataLayer);
 		
-		final long checkedCellsCount= getCheckedCellsCount(columnPosition, configRegistry);
+		this.checkedCountAggregate.setRefreshLayer(cell.getLayer());
+		final long checkedCellsCount= this.checkedCountAggregate.getCheckedCount(columnPosition,
+				configRegistry, false );
 		
 		if (checkedCellsCount > 0) {
 			if (checkedCellsCount == this.columnDataLayer.getRowCount()) {
@@ -72,31 +78,49 @@ public class ColumnHeaderCheckBoxPainter extends ImagePainter {
 		}
 	}
 
+	/**
+	 * Returns the aggregate with the number of checked cells per column.
+	 * 
+	 * @return the aggregate
+	 */
+	public ColumnCheckedCountAggregate getCheckedCountAggregate() {
+		return this.checkedCountAggregate;
+	}
+
 	public long getCheckedCellsCount(final long columnPosition, final IConfigRegistry configRegistry) {
-		long checkedCellsCount= 0;
-		
-		for (long rowPosition= 0; rowPosition < this.columnDataLayer.getRowCount(); rowPosition++) {
-			final ILayerCell columnCell= this.columnDataLayer.getCellByPosition(columnPosition, rowPosition);
-			if (isChecked(columnCell, configRegistry)) {
-				checkedCellsCount++;
-			}
-		}
-		return checkedCellsCount;
+		return this.checkedCountAggregate.getCheckedCount(columnPosition, configRegistry, true);
 	}
 
+	/**
+	 * Checks if the cell is checked.
+	 * <p>
+	 * The method is also called by the {@link ColumnCheckedCountAggregate} in a background
+	 * thread, with a cell whose labels and display mode were collected in the display thread.</p>
+	 */
 	protected boolean isChecked(final ILayerCell cell, final IConfigRegistry configRegistry) {
-		return convertDataType(cell, configRegistry).booleanValue();
+		return isChecked(cell, cell.getDataValue(0, null), configRegistry);
+	}
+
+	/**
+	 * Checks if the given data value of the cell is checked.
+	 */
+	protected boolean isChecked(final ILayerCell cell, final Object dataValue, final IConfigRegistry configRegistry) {
+		return convertDataType(cell, dataValue, configRegistry).booleanValue();
 	}
 
 	protected Boolean convertDataType(final ILayerCell cell, final IConfigRegistry configRegistry) {
-		if (cell.getDataValue(0, null) instanceof Boolean) {
-			return (Boolean) cell.getDataValue(0, null);
+		return convertDataType(cell, cell.getDataValue(0, null), configRegistry);
+	}
+
+	protected Boolean convertDataType(final ILayerCell cell, final Object dataValue, final IConfigRegistry configRegistry) {
+		if (dataValue instanceof Boolean) {
+			return (Boolean) dataValue;
 		}
 		final IDisplayConverter displayConverter= configRegistry.getConfigAttribute(CellConfigAttributes.DISPLAY_CONVERTER, cell.getDisplayMode(), cell.getConfigLabels().getLabels());
 		Boolean convertedValue= null;
 		if (displayConverter != null) {
 			try {
-				convertedValue= (Boolean) displayConverter.canonicalToDisplayValue(cell, configRegistry, cell.getDataValue(0, null));
+				convertedValue= (Boolean) displayConverter.canonicalToDisplayValue(cell, configRegistry, dataValue);
 			} catch (final Exception e) {
 //				log.debug(e);
 			}
@@ -15,11 +15,11 @@ import static de.walware.ecommons.waltable.painter.cell.GraphicsUtils.safe;
 
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.graphics.Color;
-import org.eclipse.swt.graphics.GC;
 
 import de.walware.ecommons.waltable.config.IConfigRegistry;
 import de.walware.ecommons.waltable.coordinate.LRectangle;
 import de.walware.ecommons.waltable.layer.cell.ILayerCell;
+import de.walware.ecommons.waltable.painter.surface.IDrawingSurface;
 import de.walware.ecommons.waltable.util.GUIHelper;
 
 
@@ -38,13 +38,13 @@ public class DiagCellPainter extends BackgroundPainter {
 	
 	
 	@Override
-	public void paintCell(final ILayerCell cell, final GC gc, final LRectangle bounds, final IConfigRegistry configRegistry) {
-		super.paintCell(cell, gc, bounds, configRegistry);
+	public void paintCell(final ILayerCell cell, final IDrawingSurface surface, final LRectangle bounds, final IConfigRegistry configRegistry) {
+		super.paintCell(cell, surface, bounds, configRegistry);
 		
-		gc.setForeground(this.color);
-		gc.setAntialias(SWT.ON);
-		gc.drawLine(safe(bounds.x), safe(bounds.y), safe(bounds.x + bounds.width - 1), safe(bounds.y + bounds.height - 1));
-		gc.setAntialias(GUIHelper.DEFAULT_ANTIALIAS);
+		surface.setForeground(this.color);
+		surface.setAntialias(SWT.ON);
+		surface.drawLine(safe(bounds.x), safe(bounds.y), safe(bounds.x + bounds.width - 1), safe(bounds.y + bounds.height - 1));
+		surface.setAntialias(GUIHelper.DEFAULT_ANTIALIAS);
 	}
 	
 }
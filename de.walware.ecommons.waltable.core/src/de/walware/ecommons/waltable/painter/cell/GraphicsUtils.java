@@ -20,6 +20,11 @@ import org.eclipse.swt.graphics.Point;
 import org.eclipse.swt.graphics.Rectangle;
 import org.eclipse.swt.widgets.Display;
 
+import de.walware.ecommons.waltable.config.IConfigRegistry;
+import de.walware.ecommons.waltable.layer.cell.ILayerCell;
+import de.walware.ecommons.waltable.painter.surface.GCDrawingSurface;
+import de.walware.ecommons.waltable.painter.surface.IDrawingSurface;
+
 /**
  * This class contains utility methods for drawing graphics
  * 
@@ -50,6 +55,89 @@ public class GraphicsUtils {
 		return safe(rect.x, rect.y, rect.width, rect.height);
 	}
 	
+	/**
+	 * Paints the cell by the painter on the drawing surface.
+	 * <p>
+	 * If the surface draws on a GC, the painter paints on the GC, so painters customizing
+	 * the GC variant only are supported too. If the painter is a {@link ISurfaceCellPainter},
+	 * it paints directly on the surface. Other painters paint on an offscreen SWT image in the
+	 * display thread, which is drawn on the surface afterwards.</p>
+	 * 
+	 * @param painter the cell painter
+	 * @param cell the cell to paint
+	 * @param surface the surface to paint on
+	 * @param bounds the bounds of the cell
+	 * @param configRegistry the config registry
+	 */
+	public static void paintCell(final ICellPainter painter, final ILayerCell cell,
+			final IDrawingSurface surface, final de.walware.ecommons.waltable.coordinate.LRectangle bounds,
+			final IConfigRegistry configRegistry) {
+		if (surface instanceof GCDrawingSurface) {
+			painter.paintCell(cell, ((GCDrawingSurface) surface).getGC(), bounds, configRegistry);
+		}
+		else if (painter instanceof ISurfaceCellPainter) {
+			((ISurfaceCellPainter) painter).paintCell(cell, surface, bounds, configRegistry);
+		}
+		else {
+			paintCellOffscreen(painter, cell, surface, bounds, configRegistry);
+		}
+	}
+	
+	private static void paintCellOffscreen(final ICellPainter painter, final ILayerCell cell,
+			final IDrawingSurface surface, final de.walware.ecommons.waltable.coordinate.LRectangle bounds,
+			final IConfigRegistry configRegistry) {
+		final Rectangle area= safe(bounds).intersection(surface.getClipping());
+		if (area.isEmpty()) {
+			return;
+		}
+		final Color foreground= surface.getForeground();
+		final Color background= surface.getBackground();
+		final Font font= surface.getFont();
+		final de.walware.ecommons.waltable.coordinate.LRectangle imageBounds= new de.walware.ecommons.waltable.coordinate.LRectangle(
+				bounds.x - area.x, bounds.y - area.y, bounds.width, bounds.height );
+		
+		final Display display= Display.getDefault();
+		final ImageData[] imageData= new ImageData[1];
+		final Runnable runnable= new Runnable() {
+			@Override
+			public void run() {
+				final Image image= new Image(display, area.width, area.height);
+				try {
+					final GC gc= new GC(image);
+					try {
+						if (foreground != null) {
+							gc.setForeground(foreground);
+						}
+						if (background != null) {
+							gc.setBackground(background);
+							gc.fillRectangle(0, 0, area.width, area.height);
+						}
+						if (font != null) {
+							gc.setFont(font);
+						}
+						painter.paintCell(cell, gc, imageBounds, configRegistry);
+					}
+					finally {
+						gc.dispose();
+					}
+					imageData[0]= image.getImageData();
+				}
+				finally {
+					image.dispose();
+				}
+			}
+		};
+		if (display.getThread() == Thread.currentThread()) {
+			runnable.run();
+		}
+		else {
+			display.syncExec(runnable);
+		}
+		if (imageData[0] != null) {
+			surface.drawImage(imageData[0], area.x, area.y);
+		}
+	}
+	
   /**
    * Draws text vertically (rotates plus or minus 90 degrees). Uses the current
    * font, color, and background.
@@ -0,0 +1,51 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Original authors and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *     Original authors and others - initial API and implementation
+ ******************************************************************************/
+
+package de.walware.ecommons.waltable.painter.cell;
+
+import org.eclipse.swt.graphics.GC;
+
+import de.walware.ecommons.waltable.config.IConfigRegistry;
+import de.walware.ecommons.waltable.coordinate.LRectangle;
+import de.walware.ecommons.waltable.layer.cell.ILayerCell;
+import de.walware.ecommons.waltable.painter.surface.GCDrawingSurface;
+import de.walware.ecommons.waltable.painter.surface.IDrawingSurface;
+
+
+/**
+ * Cell painter which can paint the cell on a {@link IDrawingSurface}.
+ * <p>
+ * Painters implementing this interface can render cells without SWT GC, e.g. on an
+ * {@link de.walware.ecommons.waltable.painter.surface.ImageDrawingSurface ImageDrawingSurface}
+ * in background. The implementation of {@link #paintCell(ILayerCell, GC, LRectangle, IConfigRegistry)}
+ * typically delegates to the surface variant using a {@link GCDrawingSurface}.</p>
+ * <p>
+ * Subclasses customizing the painting must override the surface variant; customizations of
+ * the GC variant only are not applied if the cell is painted on other surfaces.</p>
+ * <p>
+ * Painters not implementing this interface can be painted on other surfaces too, by
+ * {@link GraphicsUtils#paintCell(ICellPainter, ILayerCell, IDrawingSurface, LRectangle, IConfigRegistry)}
+ * which paints them offscreen in the display thread.</p>
+ */
+public interface ISurfaceCellPainter extends ICellPainter {
+	
+	
+	/**
+	 * Paints the cell on the drawing surface.
+	 * 
+	 * @param cell the cell to paint
+	 * @param surface the surface to paint on
+	 * @param bounds the bounds of the cell
+	 * @param configRegistry the config registry
+	 */
+	void paintCell(ILayerCell cell, IDrawingSurface surface, LRectangle bounds, IConfigRegistry configRegistry);
+	
+}
@@ -18,6 +18,7 @@ import org.eclipse.swt.graphics.Image;
 import de.walware.ecommons.waltable.config.IConfigRegistry;
 import de.walware.ecommons.waltable.coordinate.LRectangle;
 import de.walware.ecommons.waltable.layer.cell.ILayerCell;
+import de.walware.ecommons.waltable.painter.surface.IDrawingSurface;
 import de.walware.ecommons.waltable.style.CellStyleAttributes;
 import de.walware.ecommons.waltable.style.CellStyleUtil;
 import de.walware.ecommons.waltable.style.IStyle;
@@ -82,16 +83,16 @@ public class ImagePainter extends BackgroundPainter {
 	}
 	
 	@Override
-	public void paintCell(final ILayerCell cell, final GC gc, final LRectangle bounds, final IConfigRegistry configRegistry) {
+	public void paintCell(final ILayerCell cell, final IDrawingSurface surface, final LRectangle bounds, final IConfigRegistry configRegistry) {
 		if (this.paintBg) {
-			super.paintCell(cell, gc, bounds, configRegistry);
+			super.paintCell(cell, surface, bounds, configRegistry);
 		}
 
 		final Image image= getImage(cell, configRegistry);
 		if (image != null) {
 			final org.eclipse.swt.graphics.Rectangle imageBounds= image.getBounds();
 			final IStyle cellStyle= CellStyleUtil.getCellStyle(cell, configRegistry);
-			gc.drawImage(image,
+			surface.drawImage(image,
 					safe(bounds.x + CellStyleUtil.getHorizontalAlignmentPadding(cellStyle, bounds, imageBounds.width)),
 					safe(bounds.y + CellStyleUtil.getVerticalAlignmentPadding(cellStyle, bounds, imageBounds.height)));
 		}
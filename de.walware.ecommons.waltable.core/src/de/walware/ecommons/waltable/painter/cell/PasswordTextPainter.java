@@ -10,12 +10,11 @@
  ******************************************************************************/
 package de.walware.ecommons.waltable.painter.cell;
 
-import org.eclipse.swt.graphics.GC;
-
 import de.walware.ecommons.waltable.config.IConfigRegistry;
 import de.walware.ecommons.waltable.coordinate.LRectangle;
 import de.walware.ecommons.waltable.edit.editor.PasswordCellEditor;
 import de.walware.ecommons.waltable.layer.cell.ILayerCell;
+import de.walware.ecommons.waltable.painter.surface.IDrawingSurface;
 import de.walware.ecommons.waltable.style.CellStyleAttributes;
 import de.walware.ecommons.waltable.style.CellStyleUtil;
 import de.walware.ecommons.waltable.style.IStyle;
@@ -64,19 +63,19 @@ public class PasswordTextPainter extends TextPainter {
 
 	
 	@Override
-	public void paintCell(final ILayerCell cell, final GC gc, final LRectangle lRectangle, final IConfigRegistry configRegistry) {
+	public void paintCell(final ILayerCell cell, final IDrawingSurface surface, final LRectangle lRectangle, final IConfigRegistry configRegistry) {
 		//check for the configuration of a echo character in the corresponding cell style
 		final IStyle cellStyle= CellStyleUtil.getCellStyle(cell, configRegistry);
 		final Character configEchoChar= cellStyle.getAttributeValue(CellStyleAttributes.PASSWORD_ECHO_CHAR);
 		if (configEchoChar != null) {
 			this.echoChar= configEchoChar;
 		}
-		super.paintCell(cell, gc, lRectangle, configRegistry);
+		super.paintCell(cell, surface, lRectangle, configRegistry);
 	}
 	
 	@Override
-	protected String getTextToDisplay(final ILayerCell cell, final GC gc, final long availableLength, final String text) {
-		final String result= super.getTextToDisplay(cell, gc, availableLength, text);
+	protected String getTextToDisplay(final ILayerCell cell, final IDrawingSurface surface, final long availableLength, final String text) {
+		final String result= super.getTextToDisplay(cell, surface, availableLength, text);
 		//replace all characters with the configured echo character
 		return result.replaceAll(".", this.echoChar.toString()); //$NON-NLS-1$
 	}
@@ -0,0 +1,241 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Original authors and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *     Original authors and others - initial API and implementation
+ ******************************************************************************/
+
+package de.walware.ecommons.waltable.painter.cell;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.eclipse.swt.graphics.Font;
+import org.eclipse.swt.graphics.GC;
+
+
+/**
+ * Cache for text extents per font.
+ * <p>
+ * The widths of texts are cached per font and draw style flags in a size bounded LRU map. In
+ * addition, the advance widths of single characters are cached per font, which can be used to
+ * estimate the width of a text without measuring it (e.g. to find the cut point of a text).</p>
+ * <p>
+ * Fonts are compared by identity, so a font created for a reused handle of a disposed font
+ * does not get the extents of the disposed font. The cache is thread safe.</p>
+ */
+public final class TextExtentCache {
+	
+	
+	private static final class FontKey {
+		
+		
+		private final Font font;
+		private final int flags;
+		
+		
+		public FontKey(final Font font, final int flags) {
+			this.font= font;
+			this.flags= flags;
+		}
+		
+		
+		@Override
+		public int hashCode() {
+			return System.identityHashCode(this.font) + this.flags;
+		}
+		
+		@Override
+		public boolean equals(final Object obj) {
+			if (!(obj instanceof FontKey)) {
+				return false;
+			}
+			final FontKey other= (FontKey) obj;
+			return (this.font == other.font && this.flags == other.flags);
+		}
+		
+	}
+	
+	private static final class LRUMap<K, V> extends LinkedHashMap<K, V> {
+		
+		private static final long serialVersionUID= 1L;
+		
+		
+		private final int maxSize;
+		
+		
+		public LRUMap(final int maxSize) {
+			super(16, 0.75f, true);
+			this.maxSize= maxSize;
+		}
+		
+		
+		@Override
+		protected boolean removeEldestEntry(final Map.Entry<K, V> eldest) {
+			return (size() > this.maxSize);
+		}
+		
+	}
+	
+	private static final class CharWidths {
+		
+		
+		private final int[] latinWidths= new int[256];
+		
+		private final Map<Character, Integer> otherWidths= new HashMap<>();
+		
+		
+		public CharWidths() {
+			for (int i= 0; i < this.latinWidths.length; i++) {
+				this.latinWidths[i]= -1;
+			}
+		}
+		
+	}
+	
+	
+	private static final int MAX_FONTS= 32;
+	
+	
+	private final int maxTextsPerFont;
+	
+	private final LRUMap<FontKey, LRUMap<String, Integer>> textWidths= new LRUMap<>(MAX_FONTS);
+	private final LRUMap<FontKey, CharWidths> charWidths= new LRUMap<>(MAX_FONTS);
+	
+	private FontKey lastFontKey;
+	private LRUMap<String, Integer> lastTextWidths;
+	
+	private long hitCount;
+	private long missCount;
+	
+	
+	/**
+	 * @param maxTextsPerFont the maximum number of text widths cached per font
+	 */
+	public TextExtentCache(final int maxTextsPerFont) {
+		this.maxTextsPerFont= maxTextsPerFont;
+	}
+	
+	
+	private LRUMap<String, Integer> getTextWidths(final Font font, final int flags) {
+		final FontKey lastKey= this.lastFontKey;
+		if (lastKey != null && lastKey.font == font && lastKey.flags == flags) {
+			return this.lastTextWidths;
+		}
+		final FontKey key= new FontKey(font, flags);
+		LRUMap<String, Integer> widths= this.textWidths.get(key);
+		if (widths == null) {
+			widths= new LRUMap<>(this.maxTextsPerFont);
+			this.textWidths.put(key, widths);
+		}
+		this.lastFontKey= key;
+		this.lastTextWidths= widths;
+		return widths;
+	}
+	
+	/**
+	 * Returns the width of the text for the current font of the GC.
+	 * 
+	 * @param gc the GC
+	 * @param text the text
+	 * @param flags the draw style flags as for {@link GC#textExtent(String, int)}
+	 * @return the width of the text
+	 */
+	public int getTextWidth(final GC gc, final String text, final int flags) {
+		final Font font= gc.getFont();
+		synchronized (this) {
+			final LRUMap<String, Integer> widths= getTextWidths(font, flags);
+			final Integer width= widths.get(text);
+			if (width != null) {
+				this.hitCount++;
+				return width.intValue();
+			}
+			this.missCount++;
+		}
+		final int width= gc.textExtent(text, flags).x;
+		synchronized (this) {
+			getTextWidths(font, flags).put(text, Integer.valueOf(width));
+		}
+		return width;
+	}
+	
+	/**
+	 * Returns the advance width of the character for the current font of the GC.
+	 * 
+	 * @param gc the GC
+	 * @param c the character
+	 * @return the advance width of the character
+	 */
+	public int getAdvanceWidth(final GC gc, final char c) {
+		final Font font= gc.getFont();
+		CharWidths widths;
+		synchronized (this) {
+			final FontKey key= new FontKey(font, 0);
+			widths= this.charWidths.get(key);
+			if (widths == null) {
+				widths= new CharWidths();
+				this.charWidths.put(key, widths);
+			}
+			if (c < 256) {
+				final int width= widths.latinWidths[c];
+				if (width >= 0) {
+					return width;
+				}
+			}
+			else {
+				final Integer width= widths.otherWidths.get(Character.valueOf(c));
+				if (width != null) {
+					return width.intValue();
+				}
+			}
+		}
+		final int width= gc.getAdvanceWidth(c);
+		synchronized (this) {
+			if (c < 256) {
+				widths.latinWidths[c]= width;
+			}
+			else {
+				widths.otherWidths.put(Character.valueOf(c), Integer.valueOf(width));
+			}
+		}
+		return width;
+	}
+	
+	/**
+	 * Clears the cache.
+	 */
+	public synchronized void clear() {
+		this.textWidths.clear();
+		this.charWidths.clear();
+		this.lastFontKey= null;
+		this.lastTextWidths= null;
+	}
+	
+	/**
+	 * @return the number of text width requests answered by the cache
+	 */
+	public synchronized long getHitCount() {
+		return this.hitCount;
+	}
+	
+	/**
+	 * @return the number of text width requests requiring a measurement
+	 */
+	public synchronized long getMissCount() {
+		return this.missCount;
+	}
+	
+	/**
+	 * Resets the hit and miss counts.
+	 */
+	public synchronized void resetStatistics() {
+		this.hitCount= 0;
+		this.missCount= 0;
+	}
+	
+}
@@ -20,6 +20,8 @@ import de.walware.ecommons.waltable.config.IConfigRegistry;
 import de.walware.ecommons.waltable.coordinate.LRectangle;
 import de.walware.ecommons.waltable.layer.ILayer;
 import de.walware.ecommons.waltable.layer.cell.ILayerCell;
+import de.walware.ecommons.waltable.painter.surface.GCDrawingSurface;
+import de.walware.ecommons.waltable.painter.surface.IDrawingSurface;
 import de.walware.ecommons.waltable.resize.DimPositionResizeCommand;
 import de.walware.ecommons.waltable.style.CellStyleUtil;
 import de.walware.ecommons.waltable.style.IStyle;
@@ -91,38 +93,40 @@ public class TextPainter extends AbstractTextPainter {
 	
 	@Override
 	public long getPreferredWidth(final ILayerCell cell, final GC gc, final IConfigRegistry configRegistry){
-		setupGCFromConfig(gc, CellStyleUtil.getCellStyle(cell, configRegistry));
-		return getWidthFromCache(gc, convertDataType(cell, configRegistry)) + (this.spacing*2) + 1;
+		final IDrawingSurface surface= new GCDrawingSurface(gc);
+		setupSurfaceFromConfig(surface, CellStyleUtil.getCellStyle(cell, configRegistry));
+		return getWidthFromCache(surface, convertDataType(cell, configRegistry)) + (this.spacing*2) + 1;
 	}
 
 	@Override
 	public long getPreferredHeight(final ILayerCell cell, final GC gc, final IConfigRegistry configRegistry) {
-		setupGCFromConfig(gc, CellStyleUtil.getCellStyle(cell, configRegistry));
-		return gc.textExtent(convertDataType(cell, configRegistry)).y + (this.spacing*2) + 1;
+		final IDrawingSurface surface= new GCDrawingSurface(gc);
+		setupSurfaceFromConfig(surface, CellStyleUtil.getCellStyle(cell, configRegistry));
+		return surface.textExtent(convertDataType(cell, configRegistry)).y + (this.spacing*2) + 1;
 	}
 
 
 	@Override
-	public void paintCell(final ILayerCell cell, final GC gc, final LRectangle lRectangle, final IConfigRegistry configRegistry) {
+	public void paintCell(final ILayerCell cell, final IDrawingSurface surface, final LRectangle lRectangle, final IConfigRegistry configRegistry) {
 		if (this.paintBg) {
-			super.paintCell(cell, gc, lRectangle, configRegistry);
+			super.paintCell(cell, surface, lRectangle, configRegistry);
 		}
 
 		if (this.paintFg) {
-			final org.eclipse.swt.graphics.Rectangle originalClipping= gc.getClipping();
-			gc.setClipping(safe(lRectangle).intersection(originalClipping));
+			final org.eclipse.swt.graphics.Rectangle originalClipping= surface.getClipping();
+			surface.setClipping(safe(lRectangle).intersection(originalClipping));
 	
 			final IStyle cellStyle= CellStyleUtil.getCellStyle(cell, configRegistry);
-			setupGCFromConfig(gc, cellStyle);
+			setupSurfaceFromConfig(surface, cellStyle);
 			
 			final boolean underline= renderUnderlined(cellStyle);
 			final boolean strikethrough= renderStrikethrough(cellStyle);
 			
-			final int fontHeight= gc.getFontMetrics().getHeight();
+			final int fontHeight= surface.getFontHeight();
 			String text= convertDataType(cell, configRegistry);
 	
 			// Draw Text
-			text= getTextToDisplay(cell, gc, lRectangle.width, text);
+			text= getTextToDisplay(cell, surface, lRectangle.width, text);
 	
 			final int numberOfNewLines= getNumberOfNewLines(text);
 			
@@ -139,9 +143,9 @@ public class TextPainter extends AbstractTextPainter {
 			}
 			
 			if (numberOfNewLines == 1) {
-				final long contentWidth= Math.min(getWidthFromCache(gc, text), lRectangle.width);
+				final long contentWidth= Math.min(getWidthFromCache(surface, text), lRectangle.width);
 				
-				gc.drawText(
+				surface.drawText(
 						text,
 						safe(lRectangle.x + CellStyleUtil.getHorizontalAlignmentPadding(cellStyle, lRectangle, contentWidth) + this.spacing),
 						safe(lRectangle.y + CellStyleUtil.getVerticalAlignmentPadding(cellStyle, lRectangle, contentHeight) + this.spacing),
@@ -158,22 +162,22 @@ public class TextPainter extends AbstractTextPainter {
 					if (underline) {
 						//y= start y of text + font height 
 						// - half of the font descent so the underline is between the baseline and the bottom
-						final int underlineY= safe(y + fontHeight - (gc.getFontMetrics().getDescent() / 2));
-						gc.drawLine(
+						final int underlineY= safe(y + fontHeight - (surface.getFontDescent() / 2));
+						surface.drawLine(
 								x, 
 								underlineY, 
-								x + gc.textExtent(text).x, 
+								x + surface.textExtent(text).x, 
 								underlineY);
 					}
 					
 					if (strikethrough) {
 						//y= start y of text + half of font height + ascent so lower case characters are
 						//also strikethrough
-						final int strikeY= safe(y + (fontHeight / 2) + (gc.getFontMetrics().getLeading() / 2));
-						gc.drawLine(
+						final int strikeY= safe(y + (fontHeight / 2) + (surface.getFontLeading() / 2));
+						surface.drawLine(
 								x, 
 								strikeY, 
-								x + gc.textExtent(text).x, 
+								x + surface.textExtent(text).x, 
 								strikeY);
 					}
 				}
@@ -184,9 +188,9 @@ public class TextPainter extends AbstractTextPainter {
 				long yStartPos= lRectangle.y + CellStyleUtil.getVerticalAlignmentPadding(cellStyle, lRectangle, contentHeight);
 				final String[] lines= text.split("\n"); //$NON-NLS-1$
 				for (final String line : lines) {
-					final long lineContentWidth= Math.min(getWidthFromCache(gc, line), lRectangle.width);
+					final long lineContentWidth= Math.min(getWidthFromCache(surface, line), lRectangle.width);
 					
-					gc.drawText(
+					surface.drawText(
 							line,
 							safe(lRectangle.x + CellStyleUtil.getHorizontalAlignmentPadding(cellStyle, lRectangle, lineContentWidth) + this.spacing),
 							safe(yStartPos + this.spacing),
@@ -204,22 +208,22 @@ public class TextPainter extends AbstractTextPainter {
 						if (underline) {
 							//y= start y of text + font height 
 							// - half of the font descent so the underline is between the baseline and the bottom
-							final int underlineY= safe(y + fontHeight - (gc.getFontMetrics().getDescent() / 2));
-							gc.drawLine(
+							final int underlineY= safe(y + fontHeight - (surface.getFontDescent() / 2));
+							surface.drawLine(
 									x, 
 									underlineY, 
-									x + gc.textExtent(line).x, 
+									x + surface.textExtent(line).x, 
 									underlineY);
 						}
 						
 						if (strikethrough) {
 							//y= start y of text + half of font height + ascent so lower case characters are
 							//also strikethrough
-							final int strikeY= safe(y + (fontHeight / 2) + (gc.getFontMetrics().getLeading() / 2));
-							gc.drawLine(
+							final int strikeY= safe(y + (fontHeight / 2) + (surface.getFontLeading() / 2));
+							surface.drawLine(
 									x, 
 									strikeY, 
-									x + gc.textExtent(line).x, 
+									x + surface.textExtent(line).x, 
 									strikeY);
 						}
 					}
@@ -229,7 +233,7 @@ public class TextPainter extends AbstractTextPainter {
 				}
 			}
 	
-			gc.setClipping(originalClipping);
+			surface.setClipping(originalClipping);
 		}
 	}
 
@@ -21,6 +21,9 @@ import de.walware.ecommons.waltable.coordinate.LRectangle;
 import de.walware.ecommons.waltable.layer.cell.ILayerCell;
 import de.walware.ecommons.waltable.painter.cell.CellPainterWrapper;
 import de.walware.ecommons.waltable.painter.cell.ICellPainter;
+import de.walware.ecommons.waltable.painter.cell.ISurfaceCellPainter;
+import de.walware.ecommons.waltable.painter.surface.GCDrawingSurface;
+import de.walware.ecommons.waltable.painter.surface.IDrawingSurface;
 import de.walware.ecommons.waltable.util.GUIHelper;
 
 /**
@@ -28,7 +31,7 @@ import de.walware.ecommons.waltable.util.GUIHelper;
  * It is possible to render the beveled borders to look like the cell is uplifted or sunk.
  * The default is to render it uplifted.
  */
-public class BeveledBorderDecorator extends CellPainterWrapper {
+public class BeveledBorderDecorator extends CellPainterWrapper implements ISurfaceCellPainter {
 
 	/**
 	 * Flag to determine whether the cell borders should be painted uplift or sunk.
@@ -72,35 +75,43 @@ public class BeveledBorderDecorator extends CellPainterWrapper {
 	
 	@Override
 	public void paintCell(final ILayerCell cell, final GC gc, final LRectangle adjustedCellBounds, final IConfigRegistry configRegistry) {
+		paintCell(cell, new GCDrawingSurface(gc), adjustedCellBounds, configRegistry);
+	}
+	
+	@Override
+	public void paintCell(final ILayerCell cell, final IDrawingSurface surface, final LRectangle adjustedCellBounds, final IConfigRegistry configRegistry) {
+		final GC gc= (surface instanceof GCDrawingSurface) ? ((GCDrawingSurface) surface).getGC() : null;
 		final LRectangle interiorBounds= getWrappedPainterBounds(cell, gc, adjustedCellBounds, configRegistry);
-		super.paintCell(cell, gc, interiorBounds, configRegistry);
+		paintWrappedCell(cell, surface, interiorBounds, configRegistry);
 		
-		// Save GC settings
-		final Color originalForeground= gc.getForeground();
+		// Save surface settings
+		final Color originalForeground= surface.getForeground();
 		
 		//TODO: Need to look at the border style
 		
 		final org.eclipse.swt.graphics.Rectangle rect= safe(adjustedCellBounds);
 		// Up
-		gc.setForeground(this.uplift ? GUIHelper.COLOR_WIDGET_LIGHT_SHADOW : GUIHelper.COLOR_WIDGET_DARK_SHADOW);
-		gc.drawLine(rect.x, rect.y, rect.x + rect.width - 1, rect.y);
-		gc.drawLine(rect.x, rect.y, rect.x, rect.y + rect.height - 1);
+		surface.setForeground(this.uplift ? GUIHelper.COLOR_WIDGET_LIGHT_SHADOW : GUIHelper.COLOR_WIDGET_DARK_SHADOW);
+		surface.drawLine(rect.x, rect.y, rect.x + rect.width - 1, rect.y);
+		surface.drawLine(rect.x, rect.y, rect.x, rect.y + rect.height - 1);
 
-		gc.setForeground(this.uplift ? GUIHelper.COLOR_WIDGET_HIGHLIGHT_SHADOW : GUIHelper.COLOR_WIDGET_NORMAL_SHADOW);
-		gc.drawLine(rect.x + 1, rect.y + 1, rect.x + rect.width - 1, rect.y + 1);
-		gc.drawLine(rect.x + 1, rect.y + 1, rect.x + 1, rect.y + rect.height - 1);
+		surface.setForeground(this.uplift ? GUIHelper.COLOR_WIDGET_HIGHLIGHT_SHADOW : GUIHelper.COLOR_WIDGET_NORMAL_SHADOW);
+		surface.drawLine(rect.x + 1, rect.y + 1, rect.x + rect.width - 1, rect.y + 1);
+		surface.drawLine(rect.x + 1, rect.y + 1, rect.x + 1, rect.y + rect.height - 1);
 
 		// Down
-		gc.setForeground(this.uplift ? GUIHelper.COLOR_WIDGET_DARK_SHADOW : GUIHelper.COLOR_WIDGET_LIGHT_SHADOW);
-		gc.drawLine(rect.x, rect.y + rect.height - 1, rect.x + rect.width - 1, rect.y + rect.height - 1);
-		gc.drawLine(rect.x + rect.width - 1, rect.y, rect.x + rect.width - 1, rect.y + rect.height - 1);
+		surface.setForeground(this.uplift ? GUIHelper.COLOR_WIDGET_DARK_SHADOW : GUIHelper.COLOR_WIDGET_LIGHT_SHADOW);
+		surface.drawLine(rect.x, rect.y + rect.height - 1, rect.x + rect.width - 1, rect.y + rect.height - 1);
+		surface.drawLine(rect.x + rect.width - 1, rect.y, rect.x + rect.width - 1, rect.y + rect.height - 1);
 
-		gc.setForeground(this.uplift ? GUIHelper.COLOR_WIDGET_NORMAL_SHADOW : GUIHelper.COLOR_WIDGET_HIGHLIGHT_SHADOW);
-		gc.drawLine(rect.x, rect.y + rect.height - 2, rect.x + rect.width - 1, rect.y + rect.height - 2);
-		gc.drawLine(rect.x + rect.width - 2, rect.y, rect.x + rect.width - 2, rect.y + rect.height - 2);
+		surface.setForeground(this.uplift ? GUIHelper.COLOR_WIDGET_NORMAL_SHADOW : GUIHelper.COLOR_WIDGET_HIGHLIGHT_SHADOW);
+		surface.drawLine(rect.x, rect.y + rect.height - 2, rect.x + rect.width - 1, rect.y + rect.height - 2);
+		surface.drawLine(rect.x + rect.width - 2, rect.y, rect.x + rect.width - 2, rect.y + rect.height - 2);
 		
-		// Restore GC settings
-		gc.setForeground(originalForeground);
+		// Restore surface settings
+		if (originalForeground != null) {
+			surface.setForeground(originalForeground);
+		}
 	}
 	
 }
@@ -24,6 +24,9 @@ import de.walware.ecommons.waltable.layer.cell.ILayerCell;
 import de.walware.ecommons.waltable.painter.cell.CellPainterWrapper;
 import de.walware.ecommons.waltable.painter.cell.GraphicsUtils;
 import de.walware.ecommons.waltable.painter.cell.ICellPainter;
+import de.walware.ecommons.waltable.painter.cell.ISurfaceCellPainter;
+import de.walware.ecommons.waltable.painter.surface.GCDrawingSurface;
+import de.walware.ecommons.waltable.painter.surface.IDrawingSurface;
 import de.walware.ecommons.waltable.style.BorderStyle;
 import de.walware.ecommons.waltable.style.CellStyleAttributes;
 import de.walware.ecommons.waltable.style.CellStyleUtil;
@@ -38,7 +41,7 @@ import de.walware.ecommons.waltable.swt.SWTUtil;
  * with this implementation you are free to choose for which side a border should be painted
  * or not.</p>
  */
-public class CustomLineBorderDecorator extends CellPainterWrapper {
+public class CustomLineBorderDecorator extends CellPainterWrapper implements ISurfaceCellPainter {
 
 	/**
 	 * Label for adding a border at the top of a cell.
@@ -132,6 +135,11 @@ public class CustomLineBorderDecorator extends CellPainterWrapper {
 
 	@Override
 	public void paintCell(final ILayerCell cell, final GC gc, final LRectangle lRectangle, final IConfigRegistry configRegistry) {
+		paintCell(cell, new GCDrawingSurface(gc), lRectangle, configRegistry);
+	}
+	
+	@Override
+	public void paintCell(final ILayerCell cell, final IDrawingSurface surface, final LRectangle lRectangle, final IConfigRegistry configRegistry) {
 		final BorderStyle borderStyle= getBorderStyle(cell, configRegistry);
 		final int borderThickness= borderStyle != null ? borderStyle.getThickness() : 0;
 		
@@ -163,7 +171,7 @@ public class CustomLineBorderDecorator extends CellPainterWrapper {
 					(lRectangle.width - leftBorderThickness - rightBorderThickness),
 					(lRectangle.height - topBorderThickness - bottomBorderThickness)
 			);
-		super.paintCell(cell, gc, interiorBounds, configRegistry);
+		paintWrappedCell(cell, surface, interiorBounds, configRegistry);
 		
 		if (borderStyle == null || borderThickness <= 0 || 
 				(leftBorderThickness == 0 && rightBorderThickness == 0 
@@ -171,12 +179,12 @@ public class CustomLineBorderDecorator extends CellPainterWrapper {
 			return;
 		}
 		
-		// Save GC settings
-		final Color originalForeground= gc.getForeground();
-		final int originalLineWidth= gc.getLineWidth();
-		final int originalLineStyle= gc.getLineStyle();
+		// Save surface settings
+		final Color originalForeground= surface.getForeground();
+		final int originalLineWidth= surface.getLineWidth();
+		final int originalLineStyle= surface.getLineStyle();
 
-		gc.setLineWidth(borderThickness);
+		surface.setLineWidth(borderThickness);
 
 		final LRectangle borderArea= new LRectangle(lRectangle.x, lRectangle.y, lRectangle.width, lRectangle.height);
 		if (borderThickness >= 1) {
@@ -209,14 +217,14 @@ public class CustomLineBorderDecorator extends CellPainterWrapper {
 			}
 		}
 
-		gc.setLineStyle(SWTUtil.toSWT(borderStyle.getLineStyle()));
-		gc.setForeground(borderStyle.getColor());
+		surface.setLineStyle(SWTUtil.toSWT(borderStyle.getLineStyle()));
+		surface.setForeground(borderStyle.getColor());
 		
 		final org.eclipse.swt.graphics.Rectangle rect= GraphicsUtils.safe(borderArea);
 		//if all borders are set draw a rectangle
 		if (leftBorderThickness > 0 && rightBorderThickness > 0 
 						&& topBorderThickness > 0 && bottomBorderThickness > 0) {
-			gc.drawRectangle(rect);
+			surface.drawRectangle(rect);
 		}
 		//else draw a line for every set border
 		else {
@@ -226,23 +234,25 @@ public class CustomLineBorderDecorator extends CellPainterWrapper {
 			final Point bottomRightPos= new Point(rect.x + rect.width, rect.y + rect.height); 
 			
 			if (leftBorderThickness > 0) {
-				gc.drawLine(topLeftPos.x, topLeftPos.y, bottomLeftPos.x, bottomLeftPos.y);
+				surface.drawLine(topLeftPos.x, topLeftPos.y, bottomLeftPos.x, bottomLeftPos.y);
 			}
 			if (rightBorderThickness > 0) {
-				gc.drawLine(topRightPos.x, topRightPos.y, bottomRightPos.x, bottomRightPos.y);
+				surface.drawLine(topRightPos.x, topRightPos.y, bottomRightPos.x, bottomRightPos.y);
 			}
 			if (topBorderThickness > 0) {
-				gc.drawLine(topLeftPos.x, topLeftPos.y, topRightPos.x, topRightPos.y);
+				surface.drawLine(topLeftPos.x, topLeftPos.y, topRightPos.x, topRightPos.y);
 			}
 			if (bottomBorderThickness > 0) {
-				gc.drawLine(bottomLeftPos.x, bottomLeftPos.y, bottomRightPos.x, bottomRightPos.y);
+				surface.drawLine(bottomLeftPos.x, bottomLeftPos.y, bottomRightPos.x, bottomRightPos.y);
 			}
 		}
 
-		// Restore GC settings
-		gc.setForeground(originalForeground);
-		gc.setLineWidth(originalLineWidth);
-		gc.setLineStyle(originalLineStyle);
+		// Restore surface settings
+		if (originalForeground != null) {
+			surface.setForeground(originalForeground);
+		}
+		surface.setLineWidth(originalLineWidth);
+		surface.setLineStyle(originalLineStyle);
 	}
 	
 }
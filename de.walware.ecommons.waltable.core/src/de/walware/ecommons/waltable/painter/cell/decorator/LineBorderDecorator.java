@@ -20,6 +20,9 @@ import de.walware.ecommons.waltable.layer.cell.ILayerCell;
 import de.walware.ecommons.waltable.painter.cell.CellPainterWrapper;
 import de.walware.ecommons.waltable.painter.cell.GraphicsUtils;
 import de.walware.ecommons.waltable.painter.cell.ICellPainter;
+import de.walware.ecommons.waltable.painter.cell.ISurfaceCellPainter;
+import de.walware.ecommons.waltable.painter.surface.GCDrawingSurface;
+import de.walware.ecommons.waltable.painter.surface.IDrawingSurface;
 import de.walware.ecommons.waltable.style.BorderStyle;
 import de.walware.ecommons.waltable.style.CellStyleAttributes;
 import de.walware.ecommons.waltable.style.CellStyleUtil;
@@ -27,7 +30,7 @@ import de.walware.ecommons.waltable.style.IStyle;
 import de.walware.ecommons.waltable.swt.SWTUtil;
 
 
-public class LineBorderDecorator extends CellPainterWrapper {
+public class LineBorderDecorator extends CellPainterWrapper implements ISurfaceCellPainter {
 
 	private final BorderStyle defaultBorderStyle;
 
@@ -68,6 +71,11 @@ public class LineBorderDecorator extends CellPainterWrapper {
 
 	@Override
 	public void paintCell(final ILayerCell cell, final GC gc, final LRectangle lRectangle, final IConfigRegistry configRegistry) {
+		paintCell(cell, new GCDrawingSurface(gc), lRectangle, configRegistry);
+	}
+	
+	@Override
+	public void paintCell(final ILayerCell cell, final IDrawingSurface surface, final LRectangle lRectangle, final IConfigRegistry configRegistry) {
 		final BorderStyle borderStyle= getBorderStyle(cell, configRegistry);
 		
 		final long padding= borderStyle != null ? Math.max(borderStyle.getOffset() + borderStyle.getThickness(), 0) : 0;
@@ -78,16 +86,16 @@ public class LineBorderDecorator extends CellPainterWrapper {
 					lRectangle.width - (padding * 2),
 					lRectangle.height - (padding * 2)
 			);
-		super.paintCell(cell, gc, interiorBounds, configRegistry);
+		paintWrappedCell(cell, surface, interiorBounds, configRegistry);
 		
 		if (borderStyle == null || borderStyle.getThickness() <= 0) {
 			return;
 		}
 		
-		// Save GC settings
-		final Color originalForeground= gc.getForeground();
-		final int originalLineWidth= gc.getLineWidth();
-		final int originalLineStyle= gc.getLineStyle();
+		// Save surface settings
+		final Color originalForeground= surface.getForeground();
+		final int originalLineWidth= surface.getLineWidth();
+		final int originalLineStyle= surface.getLineStyle();
 		
 		final long borderOffset= borderStyle.getOffset();
 		final int borderThickness= borderStyle.getThickness();
@@ -113,15 +121,17 @@ public class LineBorderDecorator extends CellPainterWrapper {
 			borderArea.height-= areaShift;
 		}
 
-		gc.setLineWidth(borderThickness);
-		gc.setLineStyle(SWTUtil.toSWT(borderStyle.getLineStyle()));
-		gc.setForeground(borderStyle.getColor());
-		gc.drawRectangle(GraphicsUtils.safe(borderArea));
+		surface.setLineWidth(borderThickness);
+		surface.setLineStyle(SWTUtil.toSWT(borderStyle.getLineStyle()));
+		surface.setForeground(borderStyle.getColor());
+		surface.drawRectangle(GraphicsUtils.safe(borderArea));
 
-		// Restore GC settings
-		gc.setForeground(originalForeground);
-		gc.setLineWidth(originalLineWidth);
-		gc.setLineStyle(originalLineStyle);
+		// Restore surface settings
+		if (originalForeground != null) {
+			surface.setForeground(originalForeground);
+		}
+		surface.setLineWidth(originalLineWidth);
+		surface.setLineStyle(originalLineStyle);
 	}
 	
 }
@@ -21,6 +21,9 @@ import de.walware.ecommons.waltable.coordinate.LRectangle;
 import de.walware.ecommons.waltable.layer.cell.ILayerCell;
 import de.walware.ecommons.waltable.painter.cell.CellPainterWrapper;
 import de.walware.ecommons.waltable.painter.cell.ICellPainter;
+import de.walware.ecommons.waltable.painter.cell.ISurfaceCellPainter;
+import de.walware.ecommons.waltable.painter.surface.GCDrawingSurface;
+import de.walware.ecommons.waltable.painter.surface.IDrawingSurface;
 import de.walware.ecommons.waltable.style.CellStyleAttributes;
 import de.walware.ecommons.waltable.style.CellStyleUtil;
 import de.walware.ecommons.waltable.style.HorizontalAlignment;
@@ -28,7 +31,7 @@ import de.walware.ecommons.waltable.style.IStyle;
 import de.walware.ecommons.waltable.style.VerticalAlignmentEnum;
 
 
-public class PaddingDecorator extends CellPainterWrapper {
+public class PaddingDecorator extends CellPainterWrapper implements ISurfaceCellPainter {
 	
 	
 	private final long topPadding;
@@ -66,20 +69,27 @@ public class PaddingDecorator extends CellPainterWrapper {
 	
 	@Override
 	public void paintCell(final ILayerCell cell, final GC gc, final LRectangle adjustedCellBounds, final IConfigRegistry configRegistry) {
-		final Color originalBg= gc.getBackground();
+		paintCell(cell, new GCDrawingSurface(gc), adjustedCellBounds, configRegistry);
+	}
+	
+	@Override
+	public void paintCell(final ILayerCell cell, final IDrawingSurface surface, final LRectangle adjustedCellBounds, final IConfigRegistry configRegistry) {
+		final Color originalBg= surface.getBackground();
 		final Color cellStyleBackground= getBackgroundColor(cell, configRegistry);
 		if (cellStyleBackground != null) {
-			gc.setBackground(cellStyleBackground);
-			gc.fillRectangle(safe(adjustedCellBounds));
-			gc.setBackground(originalBg);
+			surface.setBackground(cellStyleBackground);
+			surface.fillRectangle(safe(adjustedCellBounds));
+			if (originalBg != null) {
+				surface.setBackground(originalBg);
+			}
 		}
 		else {
-			gc.fillRectangle(safe(adjustedCellBounds));
+			surface.fillRectangle(safe(adjustedCellBounds));
 		}
 		
 		final LRectangle interiorBounds= getInteriorBounds(adjustedCellBounds);
 		if (interiorBounds.width > 0 && interiorBounds.height > 0) {
-			super.paintCell(cell, gc, interiorBounds, configRegistry);
+			paintWrappedCell(cell, surface, interiorBounds, configRegistry);
 		}
 	}
 	
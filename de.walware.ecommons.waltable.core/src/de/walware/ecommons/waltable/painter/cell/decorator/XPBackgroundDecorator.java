@@ -21,6 +21,7 @@ import de.walware.ecommons.waltable.coordinate.LRectangle;
 import de.walware.ecommons.waltable.layer.cell.ILayerCell;
 import de.walware.ecommons.waltable.painter.cell.BackgroundPainter;
 import de.walware.ecommons.waltable.painter.cell.ICellPainter;
+import de.walware.ecommons.waltable.painter.surface.IDrawingSurface;
 import de.walware.ecommons.waltable.util.GUIHelper;
 
 public class XPBackgroundDecorator extends BackgroundPainter {
@@ -60,31 +61,35 @@ public class XPBackgroundDecorator extends BackgroundPainter {
 	}
 
 	@Override
-	public void paintCell(final ILayerCell cell, final GC gc, final LRectangle lRectangle, final IConfigRegistry configRegistry) {
+	public void paintCell(final ILayerCell cell, final IDrawingSurface surface, final LRectangle lRectangle, final IConfigRegistry configRegistry) {
 		// Draw background
-		super.paintCell(cell, gc, lRectangle, configRegistry);
+		super.paintCell(cell, surface, lRectangle, configRegistry);
 
 		// Draw interior
 		final LRectangle interiorBounds= new LRectangle(lRectangle.x + 2, lRectangle.y + 2, lRectangle.width - 4, lRectangle.height - 4);
-		super.paintCell(cell, gc, interiorBounds, configRegistry);
+		super.paintCell(cell, surface, interiorBounds, configRegistry);
 		
-		// Save GC settings
-		final Color originalBackground= gc.getBackground();
-		final Color originalForeground= gc.getForeground();
+		// Save surface settings
+		final Color originalBackground= surface.getBackground();
+		final Color originalForeground= surface.getForeground();
 		
 		// Draw separator
 		final int x0= safe(lRectangle.x);
 		int x= x0;
-		gc.setForeground(GUIHelper.COLOR_WHITE);
-		gc.drawLine(x, safe(lRectangle.y + 3), x, safe(lRectangle.y + lRectangle.height - 6));
+		surface.setForeground(GUIHelper.COLOR_WHITE);
+		surface.drawLine(x, safe(lRectangle.y + 3), x, safe(lRectangle.y + lRectangle.height - 6));
 		
 		x= safe(lRectangle.x + lRectangle.width - 1);
-		gc.setForeground(this.separatorColor);
-		gc.drawLine(x, safe(lRectangle.y + 3), x, safe(lRectangle.y + lRectangle.height - 6));
+		surface.setForeground(this.separatorColor);
+		surface.drawLine(x, safe(lRectangle.y + 3), x, safe(lRectangle.y + lRectangle.height - 6));
 		
-		// Restore GC settings
-		gc.setBackground(originalBackground);
-		gc.setForeground(originalForeground);
+		// Restore surface settings
+		if (originalBackground != null) {
+			surface.setBackground(originalBackground);
+		}
+		if (originalForeground != null) {
+			surface.setForeground(originalForeground);
+		}
 
 		// Draw bottom edge
 		final boolean isHighlight= false;
@@ -94,16 +99,16 @@ public class XPBackgroundDecorator extends BackgroundPainter {
 		if (y >= Integer.MAX_VALUE - 3) {
 			return;
 		}
-		gc.setForeground(isHighlight ? this.highlightColor1 : this.gradientColor1);
-		gc.drawLine(x0, y, x1, y);
+		surface.setForeground(isHighlight ? this.highlightColor1 : this.gradientColor1);
+		surface.drawLine(x0, y, x1, y);
 		
 		y++;
-		gc.setForeground(isHighlight ? this.highlightColor2 : this.gradientColor2);
-		gc.drawLine(x0, y, x1, y);
+		surface.setForeground(isHighlight ? this.highlightColor2 : this.gradientColor2);
+		surface.drawLine(x0, y, x1, y);
 		
 		y++;
-		gc.setForeground(isHighlight ? this.highlightColor3 : this.gradientColor3);
-		gc.drawLine(x0, y, x1, y);
+		surface.setForeground(isHighlight ? this.highlightColor3 : this.gradientColor3);
+		surface.drawLine(x0, y, x1, y);
 	}
 	
 }
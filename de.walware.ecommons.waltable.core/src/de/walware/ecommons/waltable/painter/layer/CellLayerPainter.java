@@ -15,10 +15,10 @@ import static de.walware.ecommons.waltable.coordinate.Orientation.HORIZONTAL;
 import static de.walware.ecommons.waltable.coordinate.Orientation.VERTICAL;
 import static de.walware.ecommons.waltable.painter.cell.GraphicsUtils.safe;
 
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.eclipse.swt.graphics.GC;
 import org.eclipse.swt.graphics.Rectangle;
@@ -26,6 +26,7 @@ import org.eclipse.swt.graphics.Rectangle;
 import de.walware.ecommons.waltable.config.CellConfigAttributes;
 import de.walware.ecommons.waltable.config.IConfigRegistry;
 import de.walware.ecommons.waltable.coordinate.LRectangle;
+import de.walware.ecommons.waltable.layer.DataLayer;
 import de.walware.ecommons.waltable.layer.ILayer;
 import de.walware.ecommons.waltable.layer.ILayerDim;
 import de.walware.ecommons.waltable.layer.cell.ILayerCell;
@@ -42,52 +43,111 @@ public class CellLayerPainter implements ILayerPainter {
 						dim.getPositionCount() );
 	}
 	
-	private static Map<Long, Long> calculateDimensionInfo(final ILayerDim dim,
-			final long startPosition, final long endPosition) {
-		final Map<Long, Long> positionToPixelMap= new HashMap<>();
-		long start2= (startPosition > 0) ?
-				dim.getPositionStart(startPosition - 1)
-						+ dim.getPositionSize(startPosition - 1) :
-				Long.MIN_VALUE;
-		for (long position= startPosition; position < endPosition; position++) {
-			final long start1= dim.getPositionStart(position);
-			positionToPixelMap.put(position, Math.max(start1, start2));
-			start2= start1 + dim.getPositionSize(position);
+	private static long getPositionStart(final ILayerDim dim, final long position) {
+		if (position < dim.getPositionCount()) {
+			long start= dim.getPositionStart(position);
+			if (position > 0) {
+				final long start2= dim.getPositionStart(position - 1)
+						+ dim.getPositionSize(position - 1);
+				if (start2 > start) {
+					start= start2;
+				}
+			}
+			return start;
 		}
-		if (endPosition < dim.getPositionCount()) {
-			final long start1= dim.getPositionStart(endPosition);
-			positionToPixelMap.put(endPosition, Math.max(start1, start2));
+		else {
+			return dim.getSize();
 		}
-		return positionToPixelMap;
 	}
 	
-	private static long getPositionStart(final ILayerDim dim, final long position,
-			final Map<Long, Long> positionToPixelMap) {
-		if (position < dim.getPositionCount()) {
-			Long start= positionToPixelMap.get(position);
-			if (start == null) {
-				start= Long.valueOf(dim.getPositionStart(position));
-				if (position > 0) {
-					final long start2= dim.getPositionStart(position - 1)
-							+ dim.getPositionStart(position - 1);
-					if (start2 > start.longValue()) {
-						start= Long.valueOf(start2);
-					}
+	/**
+	 * Start pixels of the positions of a dimension in the painted range.
+	 * The array is reused for subsequent paint operations.
+	 */
+	private static final class PositionStarts {
+		
+		
+		private ILayerDim dim;
+		
+		private long startPosition;
+		private int count;
+		private long[] starts= new long[64];
+		
+		
+		public void init(final ILayerDim dim, final long startPosition, final long endPosition) {
+			this.dim= dim;
+			this.startPosition= startPosition;
+			
+			final long positionCount= dim.getPositionCount();
+			final int count= (int) (endPosition - startPosition)
+					+ ((endPosition < positionCount) ? 1 : 0);
+			if (count > this.starts.length) {
+				this.starts= new long[Math.max(count, this.starts.length * 2)];
+			}
+			this.count= count;
+			
+			final long[] starts= this.starts;
+			long start2= (startPosition > 0) ?
+					dim.getPositionStart(startPosition - 1)
+							+ dim.getPositionSize(startPosition - 1) :
+					Long.MIN_VALUE;
+			for (int i= 0; i < count; i++) {
+				final long position= startPosition + i;
+				final long start1= dim.getPositionStart(position);
+				starts[i]= Math.max(start1, start2);
+				start2= start1 + dim.getPositionSize(position);
+			}
+		}
+		
+		public long get(final long position) {
+			if (position < this.dim.getPositionCount()) {
+				final long index= position - this.startPosition;
+				if (index >= 0 && index < this.count) {
+					return this.starts[(int) index];
 				}
-				positionToPixelMap.put(position, start);
 			}
-			return start.longValue();
+			return getPositionStart(this.dim, position);
 		}
-		else {
-			return dim.getSize();
+		
+		public void clear() {
+			this.dim= null;
 		}
+		
 	}
 	
 	
-	private ILayer natLayer;
+	/**
+	 * State of a paint operation.
+	 * The context is reused for subsequent paint operations.
+	 */
+	private static final class PaintContext {
+		
+		
+		private final PositionStarts horizontalPositionStarts= new PositionStarts();
+		private final PositionStarts verticalPositionStarts= new PositionStarts();
+		
+		private ILayerCell[] cells= new ILayerCell[256];
+		private final Collection<ILayerCell> spannedCells= new HashSet<>();
+		
+		private Rectangle originalClipping;
+		private final LRectangle clipBounds= new LRectangle(0, 0, 0, 0);
+		
+		
+		public void clear(final int cellCount) {
+			Arrays.fill(this.cells, 0, cellCount, null);
+			this.spannedCells.clear();
+			this.originalClipping= null;
+			this.horizontalPositionStarts.clear();
+			this.verticalPositionStarts.clear();
+		}
+		
+	}
 	
-	private Map<Long, Long> horizontalPositionToPixelMap;
-	private Map<Long, Long> verticalPositionToPixelMap;
+	
+	/** The context of the current paint operation of the thread */
+	private final ThreadLocal<PaintContext> currentContext= new ThreadLocal<>();
+	/** A context to reuse, not in use by any paint operation */
+	private final AtomicReference<PaintContext> spareContext= new AtomicReference<>();
 	
 	
 	@Override
@@ -97,39 +157,70 @@ public class CellLayerPainter implements ILayerPainter {
 			return;
 		}
 		
-		this.natLayer= natLayer;
 		final LRectangle positionRectangle= getPositionRectangleFromPixelRectangle(natLayer, pixelRectangle);
 		
-		calculateDimensionInfo(positionRectangle);
+		PaintContext context= this.spareContext.getAndSet(null);
+		if (context == null) {
+			context= new PaintContext();
+		}
+		calculateDimensionInfo(natLayer, positionRectangle, context);
+		context.originalClipping= gc.getClipping();
 		
-		final Collection<ILayerCell> spannedCells= new HashSet<>();
+		final PaintContext parentContext= this.currentContext.get();
+		this.currentContext.set(context);
 		
-		for (long columnPosition= positionRectangle.x; columnPosition < positionRectangle.x + positionRectangle.width; columnPosition++) {
-			for (long rowPosition= positionRectangle.y; rowPosition < positionRectangle.y + positionRectangle.height; rowPosition++) {
-				final ILayerCell cell= natLayer.getCellByPosition(columnPosition, rowPosition);
-				if (cell != null) {
-					if (cell.isSpannedCell()) {
-						spannedCells.add(cell);
-					}
-					else {
-						paintCell(cell, gc, configRegistry);
+		final Collection<ILayerCell> spannedCells= context.spannedCells;
+		ILayerCell[] cells= context.cells;
+		int count= 0;
+		try {
+			for (long columnPosition= positionRectangle.x; columnPosition < positionRectangle.x + positionRectangle.width; columnPosition++) {
+				for (long rowPosition= positionRectangle.y; rowPosition < positionRectangle.y + positionRectangle.height; rowPosition++) {
+					final ILayerCell cell= natLayer.getCellByPosition(columnPosition, rowPosition);
+					if (cell != null) {
+						if (count == cells.length) {
+							cells= Arrays.copyOf(cells, count * 2);
+							context.cells= cells;
+						}
+						cells[count++]= cell;
 					}
 				}
 			}
+			
+			// load the data of block data providers at once
+			DataLayer.preloadDataValues(cells, count, 0, null);
+			
+			for (int i= 0; i < count; i++) {
+				final ILayerCell cell= cells[i];
+				if (cell.isSpannedCell()) {
+					spannedCells.add(cell);
+				}
+				else {
+					paintCell(cell, gc, configRegistry);
+				}
+			}
+			
+			for (final ILayerCell cell : spannedCells) {
+				paintCell(cell, gc, configRegistry);
+			}
 		}
-		
-		for (final ILayerCell cell : spannedCells) {
-			paintCell(cell, gc, configRegistry);
+		finally {
+			if (parentContext != null) {
+				this.currentContext.set(parentContext);
+			}
+			else {
+				this.currentContext.remove();
+			}
+			context.clear(count);
+			this.spareContext.set(context);
 		}
 	}
 	
-	private void calculateDimensionInfo(final LRectangle positionRectangle) {
-		this.horizontalPositionToPixelMap= calculateDimensionInfo(
-				this.natLayer.getDim(HORIZONTAL),
-				positionRectangle.x, positionRectangle.x + positionRectangle.width);
-		this.verticalPositionToPixelMap= calculateDimensionInfo(
-				this.natLayer.getDim(VERTICAL),
-				positionRectangle.y, positionRectangle.y + positionRectangle.height);
+	private void calculateDimensionInfo(final ILayer natLayer, final LRectangle positionRectangle,
+			final PaintContext context) {
+		context.horizontalPositionStarts.init(natLayer.getDim(HORIZONTAL),
+				positionRectangle.x, positionRectangle.x + positionRectangle.width );
+		context.verticalPositionStarts.init(natLayer.getDim(VERTICAL),
+				positionRectangle.y, positionRectangle.y + positionRectangle.height );
 	}
 	
 	@Override
@@ -160,18 +251,28 @@ public class CellLayerPainter implements ILayerPainter {
 				cell.getDisplayMode(), cell.getConfigLabels().getLabels() );
 		final LRectangle adjustedCellBounds= layer.getLayerPainter().adjustCellBounds(columnPosition, rowPosition, cell.getBounds());
 		if (cellPainter != null) {
-			final Rectangle originalClipping= gc.getClipping();
+			final PaintContext context= this.currentContext.get();
+			final Rectangle originalClipping= (context != null && context.originalClipping != null) ?
+					context.originalClipping : gc.getClipping();
 			
-			final long startX= getColumnPositionStart(columnPosition);
-			final long startY= getRowPositionStart(rowPosition);
+			final long startX= getColumnPositionStart(context, layer, columnPosition);
+			final long startY= getRowPositionStart(context, layer, rowPosition);
 			
-			final long endX= getColumnPositionStart(cell.getOriginColumnPosition() + cell.getColumnSpan());
-			final long endY= getRowPositionStart(cell.getOriginRowPosition() + cell.getRowSpan());
+			final long endX= getColumnPositionStart(context, layer, cell.getOriginColumnPosition() + cell.getColumnSpan());
+			final long endY= getRowPositionStart(context, layer, cell.getOriginRowPosition() + cell.getRowSpan());
 			
-			final LRectangle clipBounds= new LRectangle(startX, startY, endX - startX, endY - startY);
-			final LRectangle adjustedClipBounds= clipBounds.intersection(adjustedCellBounds);
-//			LRectangle adjustedClipBounds= layer.getLayerPainter().adjustCellBounds(columnPosition, rowPosition, clipBounds);
-			gc.setClipping(safe(adjustedClipBounds));
+			final LRectangle clipBounds= (context != null) ?
+					context.clipBounds : new LRectangle(0, 0, 0, 0);
+			clipBounds.x= startX;
+			clipBounds.y= startY;
+			clipBounds.width= endX - startX;
+			clipBounds.height= endY - startY;
+			clipBounds.intersect(adjustedCellBounds);
+			final int clipX= safe(clipBounds.x);
+			final int clipY= safe(clipBounds.y);
+			gc.setClipping(clipX, clipY,
+					safe(clipBounds.x + clipBounds.width) - clipX,
+					safe(clipBounds.y + clipBounds.height) - clipY );
 			
 			cellPainter.paintCell(cell, gc, adjustedCellBounds, configRegistry);
 			
@@ -179,14 +280,16 @@ public class CellLayerPainter implements ILayerPainter {
 		}
 	}
 	
-	private long getColumnPositionStart(final long columnPosition) {
-		return getPositionStart(this.natLayer.getDim(HORIZONTAL), columnPosition,
-				this.horizontalPositionToPixelMap );
+	private long getColumnPositionStart(final PaintContext context, final ILayer layer, final long columnPosition) {
+		return (context != null) ?
+				context.horizontalPositionStarts.get(columnPosition) :
+				getPositionStart(layer.getDim(HORIZONTAL), columnPosition);
 	}
 	
-	private long getRowPositionStart(final long rowPosition) {
-		return getPositionStart(this.natLayer.getDim(VERTICAL), rowPosition,
-				this.verticalPositionToPixelMap );
+	private long getRowPositionStart(final PaintContext context, final ILayer layer, final long rowPosition) {
+		return (context != null) ?
+				context.verticalPositionStarts.get(rowPosition) :
+				getPositionStart(layer.getDim(VERTICAL), rowPosition);
 	}
 	
 }
@@ -23,6 +23,8 @@ import de.walware.ecommons.waltable.config.IConfigRegistry;
 import de.walware.ecommons.waltable.coordinate.LRectangle;
 import de.walware.ecommons.waltable.layer.ILayer;
 import de.walware.ecommons.waltable.layer.ILayerDim;
+import de.walware.ecommons.waltable.painter.surface.GCDrawingSurface;
+import de.walware.ecommons.waltable.painter.surface.IDrawingSurface;
 import de.walware.ecommons.waltable.util.GUIHelper;
 
 
@@ -51,7 +53,7 @@ public class GridLineCellLayerPainter extends CellLayerPainter {
 			final int xOffset, final int yOffset, final Rectangle pixelRectangle,
 			final IConfigRegistry configRegistry) {
 		//Draw GridLines
-		drawGridLines(natLayer, gc, pixelRectangle);
+		drawGridLines(natLayer, new GCDrawingSurface(gc), pixelRectangle);
 		
 		super.paintLayer(natLayer, gc, xOffset, yOffset, pixelRectangle, configRegistry);
 	}
@@ -61,14 +63,29 @@ public class GridLineCellLayerPainter extends CellLayerPainter {
 		return new LRectangle(bounds.x, bounds.y, Math.max(bounds.width - 1, 0), Math.max(bounds.height - 1, 0));
 	}
 	
-	protected void drawGridLines(final ILayer natLayer, final GC gc, final Rectangle rectangle) {
-		gc.setForeground(this.gridColor);
+	/**
+	 * Draws the grid lines of the layer in the specified area.
+	 * 
+	 * @param natLayer the layer
+	 * @param surface the surface to draw on
+	 * @param rectangle the area in pixel coordinates of the layer
+	 */
+	public void drawGridLines(final ILayer natLayer, final IDrawingSurface surface, final Rectangle rectangle) {
+		surface.setForeground(this.gridColor);
 		
-		drawHorizontalLines(natLayer, gc, rectangle);
-		drawVerticalLines(natLayer, gc, rectangle);
+		drawHorizontalLines(natLayer, surface, rectangle);
+		drawVerticalLines(natLayer, surface, rectangle);
+	}
+	
+	/**
+	 * @deprecated use {@link #drawGridLines(ILayer, IDrawingSurface, Rectangle)}
+	 */
+	@Deprecated
+	protected void drawGridLines(final ILayer natLayer, final GC gc, final Rectangle rectangle) {
+		drawGridLines(natLayer, new GCDrawingSurface(gc), rectangle);
 	}
 	
-	private void drawHorizontalLines(final ILayer natLayer, final GC gc, final Rectangle rectangle) {
+	private void drawHorizontalLines(final ILayer natLayer, final IDrawingSurface surface, final Rectangle rectangle) {
 		final int startX= safe(rectangle.x);
 		final int endX= safe(rectangle.x + Math.min(natLayer.getWidth() - 1, rectangle.width));
 		
@@ -78,12 +95,12 @@ public class GridLineCellLayerPainter extends CellLayerPainter {
 			final int size= dim.getPositionSize(position);
 			if (size > 0) {
 				final int y= safe(dim.getPositionStart(position) + size - 1);
-				gc.drawLine(startX, y, endX, y);
+				surface.drawLine(startX, y, endX, y);
 			}
 		}
 	}
 	
-	private void drawVerticalLines(final ILayer natLayer, final GC gc, final Rectangle rectangle) {
+	private void drawVerticalLines(final ILayer natLayer, final IDrawingSurface surface, final Rectangle rectangle) {
 		final int startY= safe(rectangle.y);
 		final int endY= safe(rectangle.y + Math.min(natLayer.getHeight() - 1, rectangle.height));
 		
@@ -93,7 +110,7 @@ public class GridLineCellLayerPainter extends CellLayerPainter {
 			final long size= dim.getPositionSize(position);
 			if (size > 0) {
 				final int x= safe(dim.getPositionStart(position) + size - 1);
-				gc.drawLine(x, startY, x, endY);
+				surface.drawLine(x, startY, x, endY);
 			}
 		}
 	}
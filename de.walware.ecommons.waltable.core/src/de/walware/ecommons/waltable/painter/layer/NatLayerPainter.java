@@ -30,12 +30,33 @@ public class NatLayerPainter implements ILayerPainter {
 	
 	private final NatTable natTable;
 	
+	private TileCache tileCache;
+	
 	
 	public NatLayerPainter(final NatTable natTable) {
 		this.natTable= natTable;
 	}
 	
 	
+	/**
+	 * Sets the cache for the rendered content of the table.
+	 * <p>
+	 * By default no cache is used.</p>
+	 * 
+	 * @param tileCache the cache or <code>null</code>
+	 */
+	public void setTileCache(final TileCache tileCache) {
+		if (this.tileCache != null && this.tileCache != tileCache) {
+			this.tileCache.dispose();
+		}
+		this.tileCache= tileCache;
+	}
+	
+	public TileCache getTileCache() {
+		return this.tileCache;
+	}
+	
+	
 	@Override
 	public void paintLayer(final ILayer natLayer, final GC gc,
 			final int xOffset, final int yOffset, final Rectangle pixelRectangle,
@@ -49,8 +70,12 @@ public class NatLayerPainter implements ILayerPainter {
 					new LRectangle(xOffset, yOffset, natLayer.getWidth(), natLayer.getHeight()) ));
 			
 			if (!paintRectangle.isEmpty()) {
-				this.natTable.getLayer().getLayerPainter().paintLayer(natLayer, gc,
-						xOffset, yOffset, paintRectangle, configRegistry );
+				final TileCache tileCache= this.tileCache;
+				if (tileCache == null || natLayer != this.natTable || xOffset != 0 || yOffset != 0
+						|| !tileCache.paint(natLayer, gc, paintRectangle, this, configRegistry) ) {
+					this.natTable.getLayer().getLayerPainter().paintLayer(natLayer, gc,
+							xOffset, yOffset, paintRectangle, configRegistry );
+				}
 			}
 			
 			paintOverlays(natLayer, gc, xOffset, yOffset, pixelRectangle, configRegistry);
@@ -60,6 +85,20 @@ public class NatLayerPainter implements ILayerPainter {
 		}
 	}
 	
+	/**
+	 * Paints background and layers (without overlays) of the table into a rectangle of the
+	 * table area, used by the tile cache.
+	 */
+	void paintContent(final ILayer natLayer, final GC gc, final Rectangle rectangle,
+			final IConfigRegistry configRegistry) {
+		paintBackground(natLayer, gc, 0, 0, rectangle, configRegistry);
+		
+		gc.setForeground(this.natTable.getForeground());
+		
+		this.natTable.getLayer().getLayerPainter().paintLayer(natLayer, gc,
+				0, 0, rectangle, configRegistry );
+	}
+	
 	protected void paintBackground(final ILayer natLayer, final GC gc, final long xOffset, final long yOffset, final org.eclipse.swt.graphics.Rectangle rectangle, final IConfigRegistry configRegistry) {
 		gc.setBackground(this.natTable.getBackground());
 		
@@ -0,0 +1,602 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Original authors and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *     Original authors and others - initial API and implementation
+ ******************************************************************************/
+
+package de.walware.ecommons.waltable.painter.layer;
+
+import static de.walware.ecommons.waltable.coordinate.Orientation.HORIZONTAL;
+import static de.walware.ecommons.waltable.coordinate.Orientation.VERTICAL;
+import static de.walware.ecommons.waltable.painter.cell.GraphicsUtils.safe;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.swt.SWTException;
+import org.eclipse.swt.events.DisposeEvent;
+import org.eclipse.swt.events.DisposeListener;
+import org.eclipse.swt.graphics.GC;
+import org.eclipse.swt.graphics.Image;
+import org.eclipse.swt.graphics.Rectangle;
+import org.eclipse.swt.graphics.Transform;
+
+import de.walware.ecommons.waltable.NatTable;
+import de.walware.ecommons.waltable.config.IConfigRegistry;
+import de.walware.ecommons.waltable.coordinate.LRectangle;
+import de.walware.ecommons.waltable.coordinate.Orientation;
+import de.walware.ecommons.waltable.internal.WaLTablePlugin;
+import de.walware.ecommons.waltable.layer.ILayer;
+import de.walware.ecommons.waltable.layer.ILayerDim;
+import de.walware.ecommons.waltable.layer.ILayerListener;
+import de.walware.ecommons.waltable.layer.event.ILayerEvent;
+import de.walware.ecommons.waltable.layer.event.IStructuralChangeEvent;
+import de.walware.ecommons.waltable.layer.event.IVisualChangeEvent;
+import de.walware.ecommons.waltable.selection.ISelectionEvent;
+import de.walware.ecommons.waltable.selection.ISelectionModel;
+import de.walware.ecommons.waltable.viewport.ScrollEvent;
+
+
+/**
+ * Cache for the rendered content of a {@link NatTable}, used by {@link NatLayerPainter}.
+ * <p>
+ * The content of the table (without overlays) is rendered in tiles of
+ * {@link #TILE_SIZE} pixels, kept as images and copied to the control if the table is
+ * repainted without a change of the content, e.g. after focus changes or for overlay
+ * painters. The tiles are invalidated by the visual change events of the table:
+ * <ul>
+ *   <li>Events of changed cells, rows and structural changes invalidate the tiles of the
+ *     changed position rectangles reported by the event.</li>
+ *   <li>Selection events invalidate the rows and columns (over the whole table, including
+ *     the headers) of the previous and the new selection. Because the events don't report
+ *     the deselected cells, the cache keeps track of the selected area; if it is not known,
+ *     e.g. after scrolling or if all cells were selected, all tiles are invalidated.</li>
+ *   <li>If a viewport scrolls, the content of the tiles is moved by the scroll delta (see
+ *     {@link #moveContent(ILayer, Orientation, int, int, long)}); only the tiles of the
+ *     exposed area are invalidated.</li>
+ * </ul>
+ * Events without changed position rectangles invalidate all tiles. The least recently used
+ * tiles are disposed if the images exceed the memory budget.</p>
+ * <p>
+ * Changes of the painted content without a layer event (e.g. of the configuration) must be
+ * signaled by {@link #invalidate()}.</p>
+ * 
+ * @see NatLayerPainter#setTileCache(TileCache)
+ */
+public class TileCache implements ILayerListener {
+	
+	
+	/**
+	 * The width and height of the tiles in pixel.
+	 */
+	public static final int TILE_SIZE= 256;
+	
+	/**
+	 * The default memory budget for the images in bytes.
+	 */
+	public static final long DEFAULT_MEMORY_BUDGET= 32L * 1024 * 1024;
+	
+	private static final int MAX_PENDING_RECTANGLES= 256;
+	
+	
+	private static final class Tile {
+		
+		
+		private final Rectangle bounds;
+		private final Image image;
+		
+		
+		public Tile(final Rectangle bounds, final Image image) {
+			this.bounds= bounds;
+			this.image= image;
+		}
+		
+		
+		public long getMemorySize() {
+			return (long) this.bounds.width * this.bounds.height * 4;
+		}
+		
+	}
+	
+	
+	private static long getKey(final int tileX, final int tileY) {
+		return ((long) tileY << 32) | (tileX & 0xffffffffL);
+	}
+	
+	
+	private final NatTable natTable;
+	
+	private final long memoryBudget;
+	
+	/** Tiles by key, in access order */
+	private final LinkedHashMap<Long, Tile> tiles= new LinkedHashMap<>(64, 0.75f, true);
+	private long memorySize;
+	
+	private final Object pendingLock= new Object();
+	private boolean pendingAll;
+	private List<LRectangle> pendingPositions= new ArrayList<>();
+	/** If the content was moved for the next scroll event */
+	private boolean pendingContentMoved;
+	
+	/**
+	 * The bounds of the selected area in positions of the table, <code>null</code> if nothing
+	 * is selected
+	 */
+	private LRectangle selectionPositions;
+	/** If {@link #selectionPositions} is not known */
+	private boolean selectionUnknown= true;
+	
+	private boolean disabled;
+	
+	
+	public TileCache(final NatTable natTable) {
+		this(natTable, DEFAULT_MEMORY_BUDGET);
+	}
+	
+	/**
+	 * @param natTable the table
+	 * @param memoryBudget the maximum size of the images in bytes
+	 */
+	public TileCache(final NatTable natTable, final long memoryBudget) {
+		if (natTable == null) {
+			throw new NullPointerException("natTable"); //$NON-NLS-1$
+		}
+		if (memoryBudget <= 0) {
+			throw new IllegalArgumentException("memoryBudget: " + memoryBudget); //$NON-NLS-1$
+		}
+		this.natTable= natTable;
+		this.memoryBudget= memoryBudget;
+		
+		natTable.addLayerListener(this);
+		natTable.addDisposeListener(new DisposeListener() {
+			@Override
+			public void widgetDisposed(final DisposeEvent e) {
+				dispose();
+			}
+		});
+	}
+	
+	
+	public long getMemoryBudget() {
+		return this.memoryBudget;
+	}
+	
+	/**
+	 * Invalidates all tiles.
+	 * <p>
+	 * The method can be called in any thread; the tiles are rendered again when the table is
+	 * painted the next time.</p>
+	 */
+	public void invalidate() {
+		synchronized (this.pendingLock) {
+			this.pendingAll= true;
+			this.pendingPositions.clear();
+		}
+	}
+	
+	@Override
+	public void handleLayerEvent(final ILayerEvent event) {
+		if (!(event instanceof IVisualChangeEvent)) {
+			return;
+		}
+		if (event instanceof ScrollEvent) {
+			synchronized (this.pendingLock) {
+				this.selectionUnknown= true;
+				if (this.pendingContentMoved) {
+					this.pendingContentMoved= false;
+					return;
+				}
+			}
+			invalidate();
+			return;
+		}
+		if (event instanceof ISelectionEvent) {
+			handleSelectionEvent((IVisualChangeEvent) event);
+			return;
+		}
+		final Collection<LRectangle> rectangles= ((IVisualChangeEvent) event).getChangedPositionRectangles();
+		if (rectangles != null && !rectangles.isEmpty()) {
+			synchronized (this.pendingLock) {
+				if (event instanceof IStructuralChangeEvent) {
+					this.selectionUnknown= true;
+				}
+				if (this.pendingAll || addPending(rectangles)) {
+					return;
+				}
+			}
+		}
+		invalidate();
+	}
+	
+	private void handleSelectionEvent(final IVisualChangeEvent event) {
+		final ISelectionModel selectionModel= ((ISelectionEvent) event).getSelectionLayer().getSelectionModel();
+		LRectangle selectionBounds= null;
+		if (!selectionModel.isEmpty()) {
+			for (final LRectangle selection : selectionModel.getSelections()) {
+				if (selectionBounds == null) {
+					selectionBounds= new LRectangle(selection.x, selection.y, selection.width, selection.height);
+				}
+				else {
+					selectionBounds.add(selection);
+				}
+			}
+		}
+		LRectangle reported= null;
+		final Collection<LRectangle> rectangles= event.getChangedPositionRectangles();
+		if (rectangles != null) {
+			for (final LRectangle rectangle : rectangles) {
+				if (rectangle.x < 0 || rectangle.y < 0 || rectangle.isEmpty()) { // no selection
+					continue;
+				}
+				if (reported == null) {
+					reported= new LRectangle(rectangle.x, rectangle.y, rectangle.width, rectangle.height);
+				}
+				else {
+					reported.add(rectangle);
+				}
+			}
+		}
+		
+		synchronized (this.pendingLock) {
+			final boolean unknown= this.selectionUnknown;
+			LRectangle dirty= this.selectionPositions;
+			if (dirty == null) {
+				dirty= reported;
+			}
+			else if (reported != null) {
+				dirty= dirty.union(reported);
+			}
+			
+			if (selectionBounds == null) {
+				this.selectionPositions= null;
+				this.selectionUnknown= false;
+			}
+			else if (covers(reported, selectionBounds)) {
+				this.selectionPositions= reported;
+				this.selectionUnknown= false;
+			}
+			else if (!unknown && covers(dirty, selectionBounds)) {
+				this.selectionPositions= dirty;
+			}
+			else {
+				this.selectionPositions= null;
+				this.selectionUnknown= true;
+			}
+			
+			if (this.pendingAll) {
+				return;
+			}
+			if (!unknown && !this.selectionUnknown) {
+				if (dirty == null) {
+					return;
+				}
+				final List<LRectangle> bands= new ArrayList<>(2);
+				bands.add(new LRectangle(0, dirty.y, Integer.MAX_VALUE, dirty.height));
+				bands.add(new LRectangle(dirty.x, 0, dirty.width, Integer.MAX_VALUE));
+				if (addPending(bands)) {
+					return;
+				}
+			}
+			this.pendingAll= true;
+			this.pendingPositions.clear();
+		}
+	}
+	
+	private static boolean covers(final LRectangle positions, final LRectangle selectionBounds) {
+		return (positions != null
+				&& positions.width >= selectionBounds.width && positions.height >= selectionBounds.height );
+	}
+	
+	private boolean addPending(final Collection<LRectangle> rectangles) {
+		if (this.pendingPositions.size() + rectangles.size() > MAX_PENDING_RECTANGLES) {
+			return false;
+		}
+		for (final LRectangle rectangle : rectangles) {
+			this.pendingPositions.add(new LRectangle(
+					rectangle.x, rectangle.y, rectangle.width, rectangle.height ));
+		}
+		return true;
+	}
+	
+	/**
+	 * Disposes all tiles, called in the display thread.
+	 */
+	public void dispose() {
+		this.natTable.removeLayerListener(this);
+		disposeTiles();
+		this.disabled= true;
+	}
+	
+	private void disposeTiles() {
+		for (final Tile tile : this.tiles.values()) {
+			tile.image.dispose();
+		}
+		this.tiles.clear();
+		this.memorySize= 0;
+	}
+	
+	private void disposeTile(final Iterator<Tile> iter, final Tile tile) {
+		iter.remove();
+		tile.image.dispose();
+		this.memorySize-= tile.getMemorySize();
+	}
+	
+	/**
+	 * Applies the pending invalidations.
+	 */
+	private void validate(final ILayer natLayer) {
+		final boolean all;
+		final List<LRectangle> positions;
+		synchronized (this.pendingLock) {
+			all= this.pendingAll;
+			positions= (!all && !this.pendingPositions.isEmpty()) ? this.pendingPositions : null;
+			this.pendingAll= false;
+			if (positions != null) {
+				this.pendingPositions= new ArrayList<>();
+			}
+		}
+		
+		if (all) {
+			disposeTiles();
+			return;
+		}
+		if (positions == null || this.tiles.isEmpty()) {
+			return;
+		}
+		final ILayerDim hDim= natLayer.getDim(HORIZONTAL);
+		final ILayerDim vDim= natLayer.getDim(VERTICAL);
+		for (final LRectangle rectangle : positions) {
+			final long startColumn= Math.max(rectangle.x, 0);
+			final long endColumn= Math.min(rectangle.x + rectangle.width, hDim.getPositionCount());
+			final long startRow= Math.max(rectangle.y, 0);
+			final long endRow= Math.min(rectangle.y + rectangle.height, vDim.getPositionCount());
+			if (startColumn >= endColumn || startRow >= endRow) {
+				continue;
+			}
+			final int startX= safe(hDim.getPositionStart(startColumn));
+			final int endX= safe(hDim.getPositionStart(endColumn - 1) + hDim.getPositionSize(endColumn - 1));
+			final int startY= safe(vDim.getPositionStart(startRow));
+			final int endY= safe(vDim.getPositionStart(endRow - 1) + vDim.getPositionSize(endRow - 1));
+			final Rectangle bounds= new Rectangle(startX, startY, endX - startX, endY - startY);
+			for (final Iterator<Tile> iter= this.tiles.values().iterator(); iter.hasNext(); ) {
+				final Tile tile= iter.next();
+				if (tile.bounds.intersects(bounds)) {
+					disposeTile(iter, tile);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Moves the content of the tiles in the specified column / row range by the scroll delta
+	 * of a viewport, called in the display thread before the viewport changes its origin.
+	 * <p>
+	 * Tiles whose moved content is not completely available in the cache are invalidated.
+	 * The {@link ScrollEvent} following the move doesn't invalidate the tiles.</p>
+	 * 
+	 * @param natLayer the table
+	 * @param orientation the scrolled orientation
+	 * @param start the start of the range of the viewport in pixels of the table (inclusive)
+	 * @param end the end of the range of the viewport in pixels of the table (exclusive)
+	 * @param pixelDelta the change of the viewport origin in pixel
+	 * 
+	 * @see NatTable#moveContent(Orientation, de.walware.ecommons.waltable.coordinate.LRange, long)
+	 */
+	public void moveContent(final ILayer natLayer, final Orientation orientation,
+			final int start, final int end, final long pixelDelta) {
+		if (this.disabled) {
+			return;
+		}
+		// apply pending invalidations in the state before the scrolling
+		validate(natLayer);
+		synchronized (this.pendingLock) {
+			this.pendingContentMoved= true;
+		}
+		if (start >= end || pixelDelta == 0 || this.tiles.isEmpty()) {
+			return;
+		}
+		
+		final boolean horizontal= (orientation == HORIZONTAL);
+		final Map<Long, Tile> oldTiles= new HashMap<>(this.tiles);
+		final Map<Long, Tile> movedTiles= new HashMap<>();
+		for (final Iterator<Map.Entry<Long, Tile>> iter= this.tiles.entrySet().iterator(); iter.hasNext(); ) {
+			final Map.Entry<Long, Tile> entry= iter.next();
+			final Tile tile= entry.getValue();
+			final int tileStart= (horizontal) ? tile.bounds.x : tile.bounds.y;
+			final int tileEnd= tileStart + ((horizontal) ? tile.bounds.width : tile.bounds.height);
+			final int partStart= Math.max(tileStart, start);
+			final int partEnd= Math.min(tileEnd, end);
+			if (partStart >= partEnd) {
+				continue;
+			}
+			final Tile movedTile= (Math.abs(pixelDelta) < end - start
+							&& partStart + pixelDelta >= start && partEnd + pixelDelta <= end ) ?
+					moveTile(oldTiles, tile, horizontal, partStart, partEnd, (int) pixelDelta) :
+					null;
+			if (movedTile != null) {
+				movedTiles.put(entry.getKey(), movedTile);
+			}
+			else {
+				iter.remove();
+				this.memorySize-= tile.getMemorySize();
+			}
+		}
+		for (final Map.Entry<Long, Tile> entry : oldTiles.entrySet()) {
+			if (movedTiles.containsKey(entry.getKey()) || !this.tiles.containsKey(entry.getKey())) {
+				entry.getValue().image.dispose();
+			}
+		}
+		this.tiles.putAll(movedTiles);
+	}
+	
+	/**
+	 * Creates a tile with the content of the specified tile, but in the part of the scrolled
+	 * range with the content of the tiles at the moved location.
+	 * 
+	 * @return the new tile or <code>null</code> if the content is not available
+	 */
+	private Tile moveTile(final Map<Long, Tile> oldTiles, final Tile tile, final boolean horizontal,
+			final int partStart, final int partEnd, final int pixelDelta) {
+		final Rectangle bounds= tile.bounds;
+		final int sourceStart= partStart + pixelDelta;
+		final int sourceEnd= partEnd + pixelDelta;
+		final int startIdx= sourceStart / TILE_SIZE;
+		final int endIdx= (sourceEnd - 1) / TILE_SIZE;
+		final Tile[] sources= new Tile[endIdx - startIdx + 1];
+		for (int idx= startIdx; idx <= endIdx; idx++) {
+			final Tile source= oldTiles.get((horizontal) ?
+					getKey(idx, bounds.y / TILE_SIZE) : getKey(bounds.x / TILE_SIZE, idx) );
+			if (source == null || ((horizontal) ?
+					(source.bounds.y != bounds.y || source.bounds.height != bounds.height) :
+					(source.bounds.x != bounds.x || source.bounds.width != bounds.width) )) {
+				return null;
+			}
+			final int sourceTileEnd= (horizontal) ?
+					source.bounds.x + source.bounds.width : source.bounds.y + source.bounds.height;
+			if (sourceTileEnd < Math.min(sourceEnd, (idx + 1) * TILE_SIZE)) {
+				return null;
+			}
+			sources[idx - startIdx]= source;
+		}
+		
+		final Image image= new Image(this.natTable.getDisplay(), bounds.width, bounds.height);
+		final GC imageGC= new GC(image);
+		try {
+			imageGC.drawImage(tile.image, 0, 0);
+			for (final Tile source : sources) {
+				final Rectangle sourceBounds= source.bounds;
+				if (horizontal) {
+					final int from= Math.max(sourceStart, sourceBounds.x);
+					final int to= Math.min(sourceEnd, sourceBounds.x + sourceBounds.width);
+					imageGC.drawImage(source.image,
+							from - sourceBounds.x, 0, to - from, bounds.height,
+							from - pixelDelta - bounds.x, 0, to - from, bounds.height );
+				}
+				else {
+					final int from= Math.max(sourceStart, sourceBounds.y);
+					final int to= Math.min(sourceEnd, sourceBounds.y + sourceBounds.height);
+					imageGC.drawImage(source.image,
+							0, from - sourceBounds.y, bounds.width, to - from,
+							0, from - pixelDelta - bounds.y, bounds.width, to - from );
+				}
+			}
+			return new Tile(bounds, image);
+		}
+		finally {
+			imageGC.dispose();
+		}
+	}
+	
+	/**
+	 * Paints the content of the table in the specified rectangle using the tiles.
+	 * <p>
+	 * Missing tiles are rendered, if the rectangle covers at least the half of the tile;
+	 * otherwise the part of the rectangle is painted directly.</p>
+	 * 
+	 * @param rectangle the rectangle to paint, inside of the table area
+	 * @return <code>false</code> if the cache is not available and the content was not painted
+	 */
+	boolean paint(final ILayer natLayer, final GC gc, final Rectangle rectangle,
+			final NatLayerPainter painter, final IConfigRegistry configRegistry) {
+		if (this.disabled) {
+			return false;
+		}
+		validate(natLayer);
+		
+		final Rectangle tableArea= new Rectangle(0, 0,
+				safe(natLayer.getWidth()), safe(natLayer.getHeight()) );
+		final int startTileX= Math.max(rectangle.x, 0) / TILE_SIZE;
+		final int endTileX= (rectangle.x + rectangle.width - 1) / TILE_SIZE;
+		final int startTileY= Math.max(rectangle.y, 0) / TILE_SIZE;
+		final int endTileY= (rectangle.y + rectangle.height - 1) / TILE_SIZE;
+		for (int tileY= startTileY; tileY <= endTileY; tileY++) {
+			for (int tileX= startTileX; tileX <= endTileX; tileX++) {
+				final Rectangle bounds= tableArea.intersection(new Rectangle(
+						tileX * TILE_SIZE, tileY * TILE_SIZE, TILE_SIZE, TILE_SIZE ));
+				final Rectangle part= rectangle.intersection(bounds);
+				if (part.isEmpty()) {
+					continue;
+				}
+				final Long key= Long.valueOf(getKey(tileX, tileY));
+				Tile tile= this.tiles.get(key);
+				if (tile != null && !tile.bounds.equals(bounds)) {
+					// size of the table changed
+					this.tiles.remove(key);
+					tile.image.dispose();
+					this.memorySize-= tile.getMemorySize();
+					tile= null;
+				}
+				if (tile == null) {
+					if ((long) part.width * part.height * 2 < (long) bounds.width * bounds.height
+							|| (tile= render(natLayer, gc, bounds, painter, configRegistry)) == null ) {
+						painter.paintContent(natLayer, gc, part, configRegistry);
+						continue;
+					}
+					this.tiles.put(key, tile);
+					this.memorySize+= tile.getMemorySize();
+					evict();
+				}
+				gc.drawImage(tile.image,
+						part.x - bounds.x, part.y - bounds.y, part.width, part.height,
+						part.x, part.y, part.width, part.height );
+			}
+		}
+		return true;
+	}
+	
+	private Tile render(final ILayer natLayer, final GC gc, final Rectangle bounds,
+			final NatLayerPainter painter, final IConfigRegistry configRegistry) {
+		if (this.disabled) {
+			return null;
+		}
+		final Image image= new Image(this.natTable.getDisplay(), bounds.width, bounds.height);
+		final GC imageGC= new GC(image);
+		Transform transform= null;
+		try {
+			imageGC.setFont(gc.getFont());
+			transform= new Transform(this.natTable.getDisplay());
+			transform.translate(-bounds.x, -bounds.y);
+			imageGC.setTransform(transform);
+			imageGC.setClipping(bounds);
+			
+			painter.paintContent(natLayer, imageGC, bounds, configRegistry);
+			
+			return new Tile(bounds, image);
+		}
+		catch (final SWTException e) {
+			// e.g. no advanced graphics
+			WaLTablePlugin.log(new Status(IStatus.WARNING, WaLTablePlugin.PLUGIN_ID,
+					"The tile cache of the table is not available.", e )); //$NON-NLS-1$
+			this.disabled= true;
+			disposeTiles();
+			image.dispose();
+			return null;
+		}
+		finally {
+			imageGC.dispose();
+			if (transform != null) {
+				transform.dispose();
+			}
+		}
+	}
+	
+	private void evict() {
+		final Iterator<Tile> iter= this.tiles.values().iterator();
+		while (this.memorySize > this.memoryBudget && this.tiles.size() > 1) {
+			disposeTile(iter, iter.next());
+		}
+	}
+	
+}
@@ -0,0 +1,186 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Original authors and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *     Original authors and others - initial API and implementation
+ ******************************************************************************/
+
+package de.walware.ecommons.waltable.painter.surface;
+
+import org.eclipse.swt.graphics.Color;
+import org.eclipse.swt.graphics.Font;
+import org.eclipse.swt.graphics.GC;
+import org.eclipse.swt.graphics.Image;
+import org.eclipse.swt.graphics.ImageData;
+import org.eclipse.swt.graphics.Point;
+import org.eclipse.swt.graphics.Rectangle;
+
+
+/**
+ * Drawing surface drawing on an SWT {@link GC}.
+ */
+public class GCDrawingSurface implements IDrawingSurface {
+	
+	
+	private final GC gc;
+	
+	
+	public GCDrawingSurface(final GC gc) {
+		if (gc == null) {
+			throw new NullPointerException("gc"); //$NON-NLS-1$
+		}
+		this.gc= gc;
+	}
+	
+	
+	/**
+	 * @return the GC this surface draws on
+	 */
+	public GC getGC() {
+		return this.gc;
+	}
+	
+	
+	@Override
+	public Color getForeground() {
+		return this.gc.getForeground();
+	}
+	
+	@Override
+	public void setForeground(final Color color) {
+		this.gc.setForeground(color);
+	}
+	
+	@Override
+	public Color getBackground() {
+		return this.gc.getBackground();
+	}
+	
+	@Override
+	public void setBackground(final Color color) {
+		this.gc.setBackground(color);
+	}
+	
+	@Override
+	public Font getFont() {
+		return this.gc.getFont();
+	}
+	
+	@Override
+	public void setFont(final Font font) {
+		this.gc.setFont(font);
+	}
+	
+	@Override
+	public int getLineWidth() {
+		return this.gc.getLineWidth();
+	}
+	
+	@Override
+	public void setLineWidth(final int width) {
+		this.gc.setLineWidth(width);
+	}
+	
+	@Override
+	public int getLineStyle() {
+		return this.gc.getLineStyle();
+	}
+	
+	@Override
+	public void setLineStyle(final int style) {
+		this.gc.setLineStyle(style);
+	}
+	
+	@Override
+	public void setAntialias(final int antialias) {
+		this.gc.setAntialias(antialias);
+	}
+	
+	@Override
+	public void setTextAntialias(final int antialias) {
+		this.gc.setTextAntialias(antialias);
+	}
+	
+	@Override
+	public Rectangle getClipping() {
+		return this.gc.getClipping();
+	}
+	
+	@Override
+	public void setClipping(final Rectangle rect) {
+		this.gc.setClipping(rect);
+	}
+	
+	
+	@Override
+	public Point textExtent(final String text) {
+		return this.gc.textExtent(text);
+	}
+	
+	@Override
+	public Point textExtent(final String text, final int flags) {
+		return this.gc.textExtent(text, flags);
+	}
+	
+	@Override
+	public int getAdvanceWidth(final char c) {
+		return this.gc.getAdvanceWidth(c);
+	}
+	
+	@Override
+	public int getFontHeight() {
+		return this.gc.getFontMetrics().getHeight();
+	}
+	
+	@Override
+	public int getFontDescent() {
+		return this.gc.getFontMetrics().getDescent();
+	}
+	
+	@Override
+	public int getFontLeading() {
+		return this.gc.getFontMetrics().getLeading();
+	}
+	
+	
+	@Override
+	public void drawText(final String text, final int x, final int y, final int flags) {
+		this.gc.drawText(text, x, y, flags);
+	}
+	
+	@Override
+	public void drawLine(final int x1, final int y1, final int x2, final int y2) {
+		this.gc.drawLine(x1, y1, x2, y2);
+	}
+	
+	@Override
+	public void drawRectangle(final Rectangle rect) {
+		this.gc.drawRectangle(rect);
+	}
+	
+	@Override
+	public void fillRectangle(final Rectangle rect) {
+		this.gc.fillRectangle(rect);
+	}
+	
+	@Override
+	public void drawImage(final Image image, final int x, final int y) {
+		this.gc.drawImage(image, x, y);
+	}
+	
+	@Override
+	public void drawImage(final ImageData data, final int x, final int y) {
+		final Image image= new Image(this.gc.getDevice(), data);
+		try {
+			this.gc.drawImage(image, x, y);
+		}
+		finally {
+			image.dispose();
+		}
+	}
+	
+}
@@ -0,0 +1,154 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Original authors and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *     Original authors and others - initial API and implementation
+ ******************************************************************************/
+
+package de.walware.ecommons.waltable.painter.surface;
+
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.graphics.Color;
+import org.eclipse.swt.graphics.Font;
+import org.eclipse.swt.graphics.GC;
+import org.eclipse.swt.graphics.Image;
+import org.eclipse.swt.graphics.ImageData;
+import org.eclipse.swt.graphics.Point;
+import org.eclipse.swt.graphics.Rectangle;
+
+
+/**
+ * Surface to draw on.
+ * <p>
+ * The interface is the subset of the {@link GC} used by the cell painters: text, lines,
+ * rectangles and images. Colors, fonts, line styles and draw style flags are specified
+ * as for the GC.</p>
+ * <p>
+ * Implementations:</p>
+ * <ul>
+ *   <li>{@link GCDrawingSurface} draws on an SWT GC.</li>
+ *   <li>{@link ImageDrawingSurface} draws on an AWT image and doesn't require the display
+ *     thread, so it can be used to rasterize cells in background.</li>
+ * </ul>
+ */
+public interface IDrawingSurface {
+	
+	
+	Color getForeground();
+	
+	void setForeground(Color color);
+	
+	Color getBackground();
+	
+	void setBackground(Color color);
+	
+	Font getFont();
+	
+	void setFont(Font font);
+	
+	int getLineWidth();
+	
+	void setLineWidth(int width);
+	
+	/**
+	 * @return the line style, one of the <code>SWT.LINE_*</code> constants
+	 */
+	int getLineStyle();
+	
+	/**
+	 * @param style the line style, one of the <code>SWT.LINE_*</code> constants
+	 */
+	void setLineStyle(int style);
+	
+	/**
+	 * @param antialias {@link SWT#DEFAULT}, {@link SWT#OFF} or {@link SWT#ON}
+	 */
+	void setAntialias(int antialias);
+	
+	/**
+	 * @param antialias {@link SWT#DEFAULT}, {@link SWT#OFF} or {@link SWT#ON}
+	 */
+	void setTextAntialias(int antialias);
+	
+	/**
+	 * @return the bounds of the clipping region
+	 */
+	Rectangle getClipping();
+	
+	/**
+	 * @param rect the new clipping rectangle or <code>null</code> to reset the clipping
+	 */
+	void setClipping(Rectangle rect);
+	
+	
+	/**
+	 * Returns the extent of the text as {@link GC#textExtent(String)}.
+	 * 
+	 * @param text the text to measure
+	 * @return the extent of the text
+	 */
+	Point textExtent(String text);
+	
+	/**
+	 * Returns the extent of the text as {@link GC#textExtent(String, int)}.
+	 * 
+	 * @param text the text to measure
+	 * @param flags the draw style flags
+	 * @return the extent of the text
+	 */
+	Point textExtent(String text, int flags);
+	
+	/**
+	 * @param c the character
+	 * @return the advance width of the character in the current font
+	 */
+	int getAdvanceWidth(char c);
+	
+	/**
+	 * @return the height of the current font (ascent + descent + leading)
+	 */
+	int getFontHeight();
+	
+	/**
+	 * @return the descent of the current font
+	 */
+	int getFontDescent();
+	
+	/**
+	 * @return the leading of the current font
+	 */
+	int getFontLeading();
+	
+	
+	/**
+	 * Draws the text as {@link GC#drawText(String, int, int, int)}.
+	 * 
+	 * @param text the text to draw
+	 * @param x the x coordinate of the top left corner
+	 * @param y the y coordinate of the top left corner
+	 * @param flags the draw style flags
+	 */
+	void drawText(String text, int x, int y, int flags);
+	
+	void drawLine(int x1, int y1, int x2, int y2);
+	
+	void drawRectangle(Rectangle rect);
+	
+	void fillRectangle(Rectangle rect);
+	
+	void drawImage(Image image, int x, int y);
+	
+	/**
+	 * Draws the image specified by its image data.
+	 * 
+	 * @param data the image data
+	 * @param x the x coordinate of the top left corner
+	 * @param y the y coordinate of the top left corner
+	 */
+	void drawImage(ImageData data, int x, int y);
+	
+}
@@ -0,0 +1,484 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Original authors and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *     Original authors and others - initial API and implementation
+ ******************************************************************************/
+
+package de.walware.ecommons.waltable.painter.surface;
+
+import java.awt.BasicStroke;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.graphics.Color;
+import org.eclipse.swt.graphics.Device;
+import org.eclipse.swt.graphics.Font;
+import org.eclipse.swt.graphics.FontData;
+import org.eclipse.swt.graphics.Image;
+import org.eclipse.swt.graphics.ImageData;
+import org.eclipse.swt.graphics.PaletteData;
+import org.eclipse.swt.graphics.Point;
+import org.eclipse.swt.graphics.RGB;
+import org.eclipse.swt.graphics.Rectangle;
+import org.eclipse.swt.widgets.Display;
+
+
+/**
+ * Drawing surface drawing on an AWT {@link BufferedImage}.
+ * <p>
+ * The surface uses only the data of the SWT resources (the RGB of colors, the font data of
+ * fonts, the image data of images), so it can be used in background threads. The font data
+ * and image data are read once per resource in the display thread of the resource (by
+ * {@link Display#syncExec(Runnable) syncExec}, because the access is not safe in other
+ * threads on all platforms); so a surface used in a background thread must not be used
+ * while the display thread waits for that thread. The result can be accessed as AWT image
+ * by {@link #getImage()} or converted to SWT image data by {@link #toImageData()}.</p>
+ * <p>
+ * Font sizes are converted from points to pixels by the resolution specified when creating
+ * the surface. The text metrics are computed by AWT, so they can differ slightly from the
+ * metrics of the same font on an SWT GC.</p>
+ * <p>
+ * The surface is not thread safe; it is intended to be used by one thread at a time.</p>
+ */
+public class ImageDrawingSurface implements IDrawingSurface {
+	
+	
+	/** The default resolution used to convert font sizes */
+	public static final int DEFAULT_DPI= 96;
+	
+	
+	private static java.awt.Color toAWT(final Color color) {
+		final RGB rgb= color.getRGB();
+		return new java.awt.Color(rgb.red, rgb.green, rgb.blue);
+	}
+	
+	private static Object toAWTAntialias(final int antialias, final boolean text) {
+		switch (antialias) {
+		case SWT.ON:
+			return (text) ? RenderingHints.VALUE_TEXT_ANTIALIAS_ON : RenderingHints.VALUE_ANTIALIAS_ON;
+		case SWT.OFF:
+			return (text) ? RenderingHints.VALUE_TEXT_ANTIALIAS_OFF : RenderingHints.VALUE_ANTIALIAS_OFF;
+		default:
+			return (text) ? RenderingHints.VALUE_TEXT_ANTIALIAS_DEFAULT : RenderingHints.VALUE_ANTIALIAS_DEFAULT;
+		}
+	}
+	
+	private static boolean isOtherThread(final Device device) {
+		return (device instanceof Display
+				&& ((Display) device).getThread() != Thread.currentThread() );
+	}
+	
+	private static FontData[] getFontData(final Font font) {
+		if (isOtherThread(font.getDevice())) {
+			final FontData[][] fontData= new FontData[1][];
+			((Display) font.getDevice()).syncExec(new Runnable() {
+				@Override
+				public void run() {
+					fontData[0]= font.getFontData();
+				}
+			});
+			return fontData[0];
+		}
+		return font.getFontData();
+	}
+	
+	private static ImageData getImageData(final Image image) {
+		if (isOtherThread(image.getDevice())) {
+			final ImageData[] imageData= new ImageData[1];
+			((Display) image.getDevice()).syncExec(new Runnable() {
+				@Override
+				public void run() {
+					imageData[0]= image.getImageData();
+				}
+			});
+			return imageData[0];
+		}
+		return image.getImageData();
+	}
+	
+	private static BufferedImage toAWT(final ImageData data) {
+		final BufferedImage awtImage= new BufferedImage(data.width, data.height, BufferedImage.TYPE_INT_ARGB);
+		final int[] pixels= new int[data.width];
+		final int[] argb= new int[data.width];
+		for (int y= 0; y < data.height; y++) {
+			data.getPixels(0, y, data.width, pixels, 0);
+			for (int x= 0; x < data.width; x++) {
+				final RGB rgb= data.palette.getRGB(pixels[x]);
+				final int alpha= (pixels[x] == data.transparentPixel) ? 0 : data.getAlpha(x, y);
+				argb[x]= (alpha << 24) | (rgb.red << 16) | (rgb.green << 8) | rgb.blue;
+			}
+			awtImage.setRGB(0, y, data.width, 1, argb, 0, data.width);
+		}
+		return awtImage;
+	}
+	
+	private static float[] toAWTDash(final int lineStyle, final int lineWidth) {
+		final float w= Math.max(lineWidth, 1);
+		switch (lineStyle) {
+		case SWT.LINE_DASH:
+			return new float[] { 3 * w, w };
+		case SWT.LINE_DOT:
+			return new float[] { w, w };
+		case SWT.LINE_DASHDOT:
+			return new float[] { 3 * w, w, w, w };
+		case SWT.LINE_DASHDOTDOT:
+			return new float[] { 3 * w, w, w, w, w, w };
+		default:
+			return null;
+		}
+	}
+	
+	
+	private final BufferedImage image;
+	private final Graphics2D graphics;
+	
+	private final int dpi;
+	
+	private Color foreground;
+	private java.awt.Color awtForeground;
+	private Color background;
+	private java.awt.Color awtBackground;
+	
+	private Font font;
+	private java.awt.Font awtFont;
+	private final Map<Font, java.awt.Font> awtFonts= new IdentityHashMap<>();
+	
+	private int lineWidth;
+	private int lineStyle= SWT.LINE_SOLID;
+	private boolean strokeValid;
+	
+	private Rectangle clipping;
+	
+	private final Map<Image, BufferedImage> awtImages= new IdentityHashMap<>();
+	
+	
+	/**
+	 * Creates a new surface drawing on a new image with the specified size.
+	 * 
+	 * @param width the width of the image
+	 * @param height the height of the image
+	 */
+	public ImageDrawingSurface(final int width, final int height) {
+		this(new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB), DEFAULT_DPI);
+	}
+	
+	/**
+	 * Creates a new surface drawing on the specified image.
+	 * 
+	 * @param image the image to draw on
+	 * @param dpi the resolution used to convert font sizes
+	 */
+	public ImageDrawingSurface(final BufferedImage image, final int dpi) {
+		if (image == null) {
+			throw new NullPointerException("image"); //$NON-NLS-1$
+		}
+		if (dpi <= 0) {
+			throw new IllegalArgumentException("dpi: " + dpi); //$NON-NLS-1$
+		}
+		this.image= image;
+		this.graphics= image.createGraphics();
+		this.dpi= dpi;
+		
+		this.awtForeground= java.awt.Color.BLACK;
+		this.awtBackground= java.awt.Color.WHITE;
+		this.awtFont= getAWTFont(null);
+		this.graphics.setFont(this.awtFont);
+		this.graphics.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL,
+				RenderingHints.VALUE_STROKE_PURE );
+	}
+	
+	
+	/**
+	 * @return the image this surface draws on
+	 */
+	public BufferedImage getImage() {
+		return this.image;
+	}
+	
+	/**
+	 * Converts the current content of the image to SWT image data.
+	 * 
+	 * @return new image data with 24 bit direct palette and alpha data
+	 */
+	public ImageData toImageData() {
+		final int width= this.image.getWidth();
+		final int height= this.image.getHeight();
+		final ImageData data= new ImageData(width, height, 24,
+				new PaletteData(0xFF0000, 0x00FF00, 0x0000FF) );
+		final int[] argb= new int[width];
+		final byte[] alpha= new byte[width];
+		for (int y= 0; y < height; y++) {
+			this.image.getRGB(0, y, width, 1, argb, 0, width);
+			for (int x= 0; x < width; x++) {
+				alpha[x]= (byte) (argb[x] >>> 24);
+				argb[x]&= 0xFFFFFF;
+			}
+			data.setPixels(0, y, width, argb, 0);
+			data.setAlphas(0, y, width, alpha, 0);
+		}
+		return data;
+	}
+	
+	/**
+	 * Releases the graphics context of the surface.
+	 * <p>
+	 * The image stays valid.</p>
+	 */
+	public void dispose() {
+		this.graphics.dispose();
+		this.awtFonts.clear();
+		this.awtImages.clear();
+	}
+	
+	
+	private java.awt.Font getAWTFont(final Font font) {
+		java.awt.Font awtFont= this.awtFonts.get(font);
+		if (awtFont == null) {
+			String name= java.awt.Font.DIALOG;
+			int style= java.awt.Font.PLAIN;
+			float points= 9;
+			if (font != null) {
+				final FontData[] fontData= getFontData(font);
+				if (fontData.length > 0) {
+					name= fontData[0].getName();
+					if ((fontData[0].getStyle() & SWT.BOLD) != 0) {
+						style|= java.awt.Font.BOLD;
+					}
+					if ((fontData[0].getStyle() & SWT.ITALIC) != 0) {
+						style|= java.awt.Font.ITALIC;
+					}
+					points= fontData[0].getHeight();
+				}
+			}
+			awtFont= new java.awt.Font(name, style, 1).deriveFont(points * this.dpi / 72f);
+			this.awtFonts.put(font, awtFont);
+		}
+		return awtFont;
+	}
+	
+	private BufferedImage getAWTImage(final Image image) {
+		BufferedImage awtImage= this.awtImages.get(image);
+		if (awtImage == null) {
+			awtImage= toAWT(getImageData(image));
+			this.awtImages.put(image, awtImage);
+		}
+		return awtImage;
+	}
+	
+	private void checkStroke() {
+		if (!this.strokeValid) {
+			final float[] dash= toAWTDash(this.lineStyle, this.lineWidth);
+			this.graphics.setStroke(new BasicStroke(Math.max(this.lineWidth, 1),
+					BasicStroke.CAP_SQUARE, BasicStroke.JOIN_MITER, 10f, dash, 0f ));
+			this.strokeValid= true;
+		}
+	}
+	
+	
+	@Override
+	public Color getForeground() {
+		return this.foreground;
+	}
+	
+	@Override
+	public void setForeground(final Color color) {
+		if (color == null) {
+			throw new IllegalArgumentException("color"); //$NON-NLS-1$
+		}
+		if (color != this.foreground) {
+			this.foreground= color;
+			this.awtForeground= toAWT(color);
+		}
+	}
+	
+	@Override
+	public Color getBackground() {
+		return this.background;
+	}
+	
+	@Override
+	public void setBackground(final Color color) {
+		if (color == null) {
+			throw new IllegalArgumentException("color"); //$NON-NLS-1$
+		}
+		if (color != this.background) {
+			this.background= color;
+			this.awtBackground= toAWT(color);
+		}
+	}
+	
+	@Override
+	public Font getFont() {
+		return this.font;
+	}
+	
+	@Override
+	public void setFont(final Font font) {
+		if (font != this.font) {
+			this.font= font;
+			this.awtFont= getAWTFont(font);
+			this.graphics.setFont(this.awtFont);
+		}
+	}
+	
+	@Override
+	public int getLineWidth() {
+		return this.lineWidth;
+	}
+	
+	@Override
+	public void setLineWidth(final int width) {
+		if (width != this.lineWidth) {
+			this.lineWidth= width;
+			this.strokeValid= false;
+		}
+	}
+	
+	@Override
+	public int getLineStyle() {
+		return this.lineStyle;
+	}
+	
+	@Override
+	public void setLineStyle(final int style) {
+		if (style != this.lineStyle) {
+			this.lineStyle= style;
+			this.strokeValid= false;
+		}
+	}
+	
+	@Override
+	public void setAntialias(final int antialias) {
+		this.graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+				toAWTAntialias(antialias, false) );
+	}
+	
+	@Override
+	public void setTextAntialias(final int antialias) {
+		this.graphics.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING,
+				toAWTAntialias(antialias, true) );
+	}
+	
+	@Override
+	public Rectangle getClipping() {
+		final Rectangle clipping= this.clipping;
+		return (clipping != null) ?
+				new Rectangle(clipping.x, clipping.y, clipping.width, clipping.height) :
+				new Rectangle(0, 0, this.image.getWidth(), this.image.getHeight());
+	}
+	
+	@Override
+	public void setClipping(final Rectangle rect) {
+		if (rect != null) {
+			this.clipping= new Rectangle(rect.x, rect.y, rect.width, rect.height);
+			this.graphics.setClip(rect.x, rect.y, rect.width, rect.height);
+		}
+		else {
+			this.clipping= null;
+			this.graphics.setClip(null);
+		}
+	}
+	
+	
+	@Override
+	public Point textExtent(final String text) {
+		return textExtent(text, SWT.DRAW_DELIMITER | SWT.DRAW_TAB);
+	}
+	
+	@Override
+	public Point textExtent(final String text, final int flags) {
+		final java.awt.FontMetrics metrics= this.graphics.getFontMetrics();
+		if ((flags & SWT.DRAW_DELIMITER) != 0) {
+			final String[] lines= text.split("\\r\\n|\\n\\r|\\n|\\r", -1); //$NON-NLS-1$
+			int width= 0;
+			for (final String line : lines) {
+				width= Math.max(width, metrics.stringWidth(line));
+			}
+			return new Point(width, lines.length * metrics.getHeight());
+		}
+		return new Point(metrics.stringWidth(text), metrics.getHeight());
+	}
+	
+	@Override
+	public int getAdvanceWidth(final char c) {
+		return this.graphics.getFontMetrics().charWidth(c);
+	}
+	
+	@Override
+	public int getFontHeight() {
+		return this.graphics.getFontMetrics().getHeight();
+	}
+	
+	@Override
+	public int getFontDescent() {
+		return this.graphics.getFontMetrics().getDescent();
+	}
+	
+	@Override
+	public int getFontLeading() {
+		return this.graphics.getFontMetrics().getLeading();
+	}
+	
+	
+	@Override
+	public void drawText(final String text, final int x, final int y, final int flags) {
+		final java.awt.FontMetrics metrics= this.graphics.getFontMetrics();
+		final String[] lines= ((flags & SWT.DRAW_DELIMITER) != 0) ?
+				text.split("\\r\\n|\\n\\r|\\n|\\r", -1) : //$NON-NLS-1$
+				new String[] { text };
+		final int lineHeight= metrics.getHeight();
+		if ((flags & SWT.DRAW_TRANSPARENT) == 0) {
+			final Point extent= textExtent(text, flags);
+			this.graphics.setColor(this.awtBackground);
+			this.graphics.fillRect(x, y, extent.x, extent.y);
+		}
+		this.graphics.setColor(this.awtForeground);
+		int baseline= y + metrics.getAscent();
+		for (final String line : lines) {
+			if (!line.isEmpty()) {
+				this.graphics.drawString(line, x, baseline);
+			}
+			baseline+= lineHeight;
+		}
+	}
+	
+	@Override
+	public void drawLine(final int x1, final int y1, final int x2, final int y2) {
+		checkStroke();
+		this.graphics.setColor(this.awtForeground);
+		this.graphics.drawLine(x1, y1, x2, y2);
+	}
+	
+	@Override
+	public void drawRectangle(final Rectangle rect) {
+		checkStroke();
+		this.graphics.setColor(this.awtForeground);
+		this.graphics.drawRect(rect.x, rect.y, rect.width, rect.height);
+	}
+	
+	@Override
+	public void fillRectangle(final Rectangle rect) {
+		this.graphics.setColor(this.awtBackground);
+		this.graphics.fillRect(rect.x, rect.y, rect.width, rect.height);
+	}
+	
+	@Override
+	public void drawImage(final Image image, final int x, final int y) {
+		this.graphics.drawImage(getAWTImage(image), x, y, null);
+	}
+	
+	@Override
+	public void drawImage(final ImageData data, final int x, final int y) {
+		this.graphics.drawImage(toAWT(data), x, y, null);
+	}
+	
+}
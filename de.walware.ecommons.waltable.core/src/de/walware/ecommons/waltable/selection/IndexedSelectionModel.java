@@ -0,0 +1,554 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Original authors and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *     Original authors and others - initial API and implementation
+ ******************************************************************************/
+
+package de.walware.ecommons.waltable.selection;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import de.walware.ecommons.waltable.coordinate.LRange;
+import de.walware.ecommons.waltable.coordinate.LRangeList;
+import de.walware.ecommons.waltable.coordinate.LRectangle;
+import de.walware.ecommons.waltable.layer.ILayer;
+import de.walware.ecommons.waltable.layer.cell.ILayerCell;
+
+
+/**
+ * Selection model for large selections with many selected ranges.
+ * <p>
+ * The selection is normalized and indexed for both orientations: the positions of one
+ * orientation are divided into bands of consecutive positions with the same selected
+ * positions of the other orientation, stored as {@link LRangeList}. The bands are
+ * sorted, so the tests whether a cell, a column or a row is selected, are done by binary
+ * search in O(log n).</p>
+ * <p>
+ * In contrast to {@link SelectionModel}, overlapping selections are merged, so
+ * {@link #getSelections()} returns disjoint rectangles.</p>
+ * 
+ * Coordinates are in <i>Selection Layer positions</i>
+ * 
+ * @see SelectionLayer
+ */
+public class IndexedSelectionModel implements ISelectionModel {
+	
+	
+	private static LRangeList copy(final LRangeList ranges) {
+		final LRangeList copy= new LRangeList();
+		for (final LRange lRange : ranges) {
+			copy.add(new LRange(lRange.start, lRange.end));
+		}
+		return copy;
+	}
+	
+	private static boolean intersects(final LRangeList ranges, final long start, final long end) {
+		// search last range with range.start < end
+		int low= 0;
+		int high= ranges.size() - 1;
+		while (low <= high) {
+			final int mid= (low + high) >>> 1;
+			if (ranges.get(mid).start < end) {
+				low= mid + 1;
+			}
+			else {
+				high= mid - 1;
+			}
+		}
+		return (high >= 0 && ranges.get(high).end > start);
+	}
+	
+	
+	/**
+	 * Positions with the same selected ranges in the other orientation.
+	 */
+	private static final class Band {
+		
+		
+		private long end;
+		
+		private final LRangeList ranges;
+		
+		
+		public Band(final long end, final LRangeList ranges) {
+			this.end= end;
+			this.ranges= ranges;
+		}
+		
+	}
+	
+	/**
+	 * Index of the selection for one orientation.
+	 */
+	private static final class BandIndex {
+		
+		
+		/** Bands by start position, the bands are disjoint and not empty */
+		private final NavigableMap<Long, Band> bands= new TreeMap<>();
+		
+		
+		public void clear() {
+			this.bands.clear();
+		}
+		
+		public boolean isEmpty() {
+			return this.bands.isEmpty();
+		}
+		
+		/**
+		 * Splits the band containing the specified position, so that a band starts at the
+		 * position.
+		 */
+		private void split(final long position) {
+			final Map.Entry<Long, Band> entry= this.bands.lowerEntry(position);
+			if (entry != null) {
+				final Band band= entry.getValue();
+				if (band.end > position) {
+					this.bands.put(position, new Band(band.end, copy(band.ranges)));
+					band.end= position;
+				}
+			}
+		}
+		
+		/**
+		 * Removes empty bands and merges adjacent bands with same ranges in the
+		 * specified range.
+		 */
+		private void normalize(final long start, final long end) {
+			final Long fromKey= this.bands.floorKey(start - 1);
+			final Iterator<Map.Entry<Long, Band>> iter= this.bands.tailMap(
+					(fromKey != null) ? fromKey : Long.valueOf(start), true ).entrySet().iterator();
+			Band prev= null;
+			while (iter.hasNext()) {
+				final Map.Entry<Long, Band> entry= iter.next();
+				if (entry.getKey().longValue() > end) {
+					break;
+				}
+				final Band band= entry.getValue();
+				if (band.ranges.isEmpty()) {
+					iter.remove();
+					prev= null;
+					continue;
+				}
+				if (prev != null && prev.end == entry.getKey().longValue()
+						&& prev.ranges.equals(band.ranges) ) {
+					prev.end= band.end;
+					iter.remove();
+					continue;
+				}
+				prev= band;
+			}
+		}
+		
+		public void add(final long start, final long end, final long rangeStart, final long rangeEnd) {
+			split(start);
+			split(end);
+			
+			long position= start;
+			final Iterator<Map.Entry<Long, Band>> iter= this.bands.subMap(start, true, end, false)
+					.entrySet().iterator();
+			final List<Band> gaps= new ArrayList<>();
+			final List<Long> gapStarts= new ArrayList<>();
+			while (iter.hasNext()) {
+				final Map.Entry<Long, Band> entry= iter.next();
+				final long bandStart= entry.getKey().longValue();
+				final Band band= entry.getValue();
+				if (bandStart > position) {
+					gapStarts.add(Long.valueOf(position));
+					gaps.add(new Band(bandStart, new LRangeList(new LRange(rangeStart, rangeEnd))));
+				}
+				band.ranges.add(new LRange(rangeStart, rangeEnd));
+				position= band.end;
+			}
+			if (position < end) {
+				gapStarts.add(Long.valueOf(position));
+				gaps.add(new Band(end, new LRangeList(new LRange(rangeStart, rangeEnd))));
+			}
+			for (int i= 0; i < gaps.size(); i++) {
+				this.bands.put(gapStarts.get(i), gaps.get(i));
+			}
+			
+			normalize(start, end);
+		}
+		
+		public void remove(final long start, final long end, final long rangeStart, final long rangeEnd) {
+			split(start);
+			split(end);
+			
+			for (final Band band : this.bands.subMap(start, true, end, false).values()) {
+				band.ranges.remove(new LRange(rangeStart, rangeEnd));
+			}
+			
+			normalize(start, end);
+		}
+		
+		private Band getBand(final long position) {
+			final Map.Entry<Long, Band> entry= this.bands.floorEntry(position);
+			if (entry != null) {
+				final Band band= entry.getValue();
+				if (band.end > position) {
+					return band;
+				}
+			}
+			return null;
+		}
+		
+		public boolean intersects(final long start, final long end, final long rangeStart, final long rangeEnd) {
+			final Long fromKey= this.bands.floorKey(start);
+			for (final Map.Entry<Long, Band> entry : this.bands.subMap(
+					(fromKey != null) ? fromKey : Long.valueOf(start), true, end, false ).entrySet()) {
+				final Band band= entry.getValue();
+				if (band.end > start && IndexedSelectionModel.intersects(band.ranges, rangeStart, rangeEnd)) {
+					return true;
+				}
+			}
+			return false;
+		}
+		
+		public boolean isSelected(final long position) {
+			return (getBand(position) != null);
+		}
+		
+		public boolean isFullySelected(final long position, final long count) {
+			final Band band= getBand(position);
+			if (band != null && band.ranges.size() > 0) {
+				final LRange lRange= band.ranges.get(0);
+				return (lRange.start <= 0 && lRange.end >= count);
+			}
+			return false;
+		}
+		
+		public LRangeList getSelected(final long count) {
+			final LRangeList selected= new LRangeList();
+			for (final Map.Entry<Long, Band> entry : this.bands.entrySet()) {
+				final long start= entry.getKey().longValue();
+				if (start >= count) {
+					break;
+				}
+				selected.add(new LRange(start, Math.min(entry.getValue().end, count)));
+			}
+			return selected;
+		}
+		
+		public LRangeList getFullySelected(final long count, final long otherCount) {
+			final LRangeList selected= new LRangeList();
+			if (otherCount > 0) {
+				for (final Map.Entry<Long, Band> entry : this.bands.entrySet()) {
+					final long start= entry.getKey().longValue();
+					if (start >= count) {
+						break;
+					}
+					final Band band= entry.getValue();
+					final LRange lRange= band.ranges.get(0);
+					if (lRange.start <= 0 && lRange.end >= otherCount) {
+						selected.add(new LRange(start, Math.min(band.end, count)));
+					}
+				}
+			}
+			return selected;
+		}
+		
+		public long getSelectedCount(final long count) {
+			long selected= 0;
+			for (final Map.Entry<Long, Band> entry : this.bands.entrySet()) {
+				final long start= entry.getKey().longValue();
+				if (start >= count) {
+					break;
+				}
+				selected+= Math.min(entry.getValue().end, count) - start;
+			}
+			return selected;
+		}
+		
+		/**
+		 * Returns the selection as disjoint rectangles, the bands are the rows.
+		 */
+		public List<LRectangle> toRectangles() {
+			final List<LRectangle> rectangles= new ArrayList<>();
+			for (final Map.Entry<Long, Band> entry : this.bands.entrySet()) {
+				final long start= entry.getKey().longValue();
+				final Band band= entry.getValue();
+				for (final LRange lRange : band.ranges) {
+					rectangles.add(new LRectangle(lRange.start, start,
+							lRange.end - lRange.start, band.end - start ));
+				}
+			}
+			return rectangles;
+		}
+		
+	}
+	
+	
+	private final ILayer selectionLayer;
+	
+	private boolean multipleSelectionAllowed;
+	
+	/** Bands of rows with selected columns */
+	private final BandIndex rowIndex= new BandIndex();
+	/** Bands of columns with selected rows */
+	private final BandIndex columnIndex= new BandIndex();
+	private final ReadWriteLock selectionsLock;
+	
+	private volatile List<LRectangle> selections;
+	
+	
+	public IndexedSelectionModel(/*@NotNull*/ final ILayer selectionLayer) {
+		this(selectionLayer, true);
+	}
+	
+	public IndexedSelectionModel(/*@NotNull*/ final ILayer selectionLayer, final boolean multipleSelectionAllowed) {
+		if (selectionLayer == null) {
+			throw new NullPointerException("selectionLayer"); //$NON-NLS-1$
+		}
+		this.selectionLayer= selectionLayer;
+		this.multipleSelectionAllowed= multipleSelectionAllowed;
+		
+		this.selectionsLock= new ReentrantReadWriteLock();
+	}
+	
+	
+	@Override
+	public boolean isMultipleSelectionAllowed() {
+		return this.multipleSelectionAllowed;
+	}
+	
+	public void setMultipleSelectionAllowed(final boolean multipleSelectionAllowed) {
+		this.multipleSelectionAllowed= multipleSelectionAllowed;
+	}
+	
+	
+	@Override
+	public void addSelection(final long columnPosition, final long rowPosition) {
+		addSelectionIntoIndex(new LRectangle(columnPosition, rowPosition, 1, 1));
+	}
+	
+	@Override
+	public void addSelection(final LRectangle positions) {
+		if (positions != null) {
+			addSelectionIntoIndex(positions);
+		}
+	}
+	
+	private void addSelectionIntoIndex(final LRectangle selection) {
+		this.selectionsLock.writeLock().lock();
+		try {
+			if (!this.multipleSelectionAllowed) {
+				this.rowIndex.clear();
+				this.columnIndex.clear();
+				//as no multiple selection is allowed, ensure that only one column
+				//and one row will be selected
+				selection.height= 1;
+				selection.width= 1;
+			}
+			if (!selection.isEmpty()) {
+				this.rowIndex.add(selection.y, selection.y + selection.height,
+						selection.x, selection.x + selection.width );
+				this.columnIndex.add(selection.x, selection.x + selection.width,
+						selection.y, selection.y + selection.height );
+			}
+			this.selections= null;
+		} finally {
+			this.selectionsLock.writeLock().unlock();
+		}
+	}
+	
+	@Override
+	public void clearSelection() {
+		this.selectionsLock.writeLock().lock();
+		try {
+			this.rowIndex.clear();
+			this.columnIndex.clear();
+			this.selections= null;
+		} finally {
+			this.selectionsLock.writeLock().unlock();
+		}
+	}
+	
+	@Override
+	public void clearSelection(final long columnPosition, final long rowPosition) {
+		clearSelection(new LRectangle(columnPosition, rowPosition, 1, 1));
+	}
+	
+	@Override
+	public void clearSelection(final LRectangle positions) {
+		if (positions.isEmpty()) {
+			return;
+		}
+		this.selectionsLock.writeLock().lock();
+		try {
+			this.rowIndex.remove(positions.y, positions.y + positions.height,
+					positions.x, positions.x + positions.width );
+			this.columnIndex.remove(positions.x, positions.x + positions.width,
+					positions.y, positions.y + positions.height );
+			this.selections= null;
+		} finally {
+			this.selectionsLock.writeLock().unlock();
+		}
+	}
+	
+	
+	@Override
+	public boolean isEmpty() {
+		this.selectionsLock.readLock().lock();
+		try {
+			return this.rowIndex.isEmpty();
+		} finally {
+			this.selectionsLock.readLock().unlock();
+		}
+	}
+	
+	@Override
+	public List<LRectangle> getSelections() {
+		this.selectionsLock.readLock().lock();
+		try {
+			List<LRectangle> selections= this.selections;
+			if (selections == null) {
+				selections= Collections.unmodifiableList(this.rowIndex.toRectangles());
+				this.selections= selections;
+			}
+			return selections;
+		} finally {
+			this.selectionsLock.readLock().unlock();
+		}
+	}
+	
+	// Cell features
+	
+	@Override
+	public boolean isCellPositionSelected(final ILayerCell cell) {
+		this.selectionsLock.readLock().lock();
+		try {
+			final long rowPosition= cell.getOriginRowPosition();
+			final long columnPosition= cell.getOriginColumnPosition();
+			return this.rowIndex.intersects(rowPosition, rowPosition + cell.getRowSpan(),
+					columnPosition, columnPosition + cell.getColumnSpan() );
+		} finally {
+			this.selectionsLock.readLock().unlock();
+		}
+	}
+	
+	// Column features
+	
+	@Override
+	public LRangeList getSelectedColumnPositions() {
+		this.selectionsLock.readLock().lock();
+		try {
+			return this.columnIndex.getSelected(this.selectionLayer.getColumnCount());
+		} finally {
+			this.selectionsLock.readLock().unlock();
+		}
+	}
+	
+	@Override
+	public boolean isColumnPositionSelected(final long columnPosition) {
+		this.selectionsLock.readLock().lock();
+		try {
+			return (columnPosition >= 0 && columnPosition < this.selectionLayer.getColumnCount()
+					&& this.columnIndex.isSelected(columnPosition) );
+		} finally {
+			this.selectionsLock.readLock().unlock();
+		}
+	}
+	
+	@Override
+	public LRangeList getFullySelectedColumnPositions() {
+		this.selectionsLock.readLock().lock();
+		try {
+			return this.columnIndex.getFullySelected(this.selectionLayer.getColumnCount(),
+					this.selectionLayer.getRowCount() );
+		} finally {
+			this.selectionsLock.readLock().unlock();
+		}
+	}
+	
+	@Override
+	public boolean isColumnPositionFullySelected(final long columnPosition) {
+		this.selectionsLock.readLock().lock();
+		try {
+			final long rowCount= this.selectionLayer.getRowCount();
+			
+			return ((rowCount > 0)
+					&& this.columnIndex.isFullySelected(columnPosition, rowCount) );
+		} finally {
+			this.selectionsLock.readLock().unlock();
+		}
+	}
+	
+	// Row features
+	
+	@Override
+	public long getSelectedRowCount() {
+		this.selectionsLock.readLock().lock();
+		try {
+			return this.rowIndex.getSelectedCount(this.selectionLayer.getRowCount());
+		} finally {
+			this.selectionsLock.readLock().unlock();
+		}
+	}
+	
+	@Override
+	public LRangeList getSelectedRowPositions() {
+		this.selectionsLock.readLock().lock();
+		try {
+			return this.rowIndex.getSelected(this.selectionLayer.getRowCount());
+		} finally {
+			this.selectionsLock.readLock().unlock();
+		}
+	}
+	
+	@Override
+	public boolean isRowPositionSelected(final long rowPosition) {
+		this.selectionsLock.readLock().lock();
+		try {
+			return (rowPosition >= 0 && rowPosition < this.selectionLayer.getRowCount()
+					&& this.rowIndex.isSelected(rowPosition) );
+		} finally {
+			this.selectionsLock.readLock().unlock();
+		}
+	}
+	
+	@Override
+	public LRangeList getFullySelectedRowPositions() {
+		this.selectionsLock.readLock().lock();
+		try {
+			return this.rowIndex.getFullySelected(this.selectionLayer.getRowCount(),
+					this.selectionLayer.getColumnCount() );
+		} finally {
+			this.selectionsLock.readLock().unlock();
+		}
+	}
+	
+	@Override
+	public boolean isRowPositionFullySelected(final long rowPosition) {
+		this.selectionsLock.readLock().lock();
+		try {
+			final long columnCount= this.selectionLayer.getColumnCount();
+			
+			return ((columnCount > 0)
+					&& this.rowIndex.isFullySelected(rowPosition, columnCount) );
+		} finally {
+			this.selectionsLock.readLock().unlock();
+		}
+	}
+	
+	//-- Object methods --//
+	
+	@Override
+	public String toString() {
+		return getSelections().toString();
+	}
+	
+}
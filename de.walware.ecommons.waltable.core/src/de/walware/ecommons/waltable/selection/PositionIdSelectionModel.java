@@ -0,0 +1,514 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Original authors and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *     Original authors and others - initial API and implementation
+ ******************************************************************************/
+
+package de.walware.ecommons.waltable.selection;
+
+import static de.walware.ecommons.waltable.coordinate.Orientation.HORIZONTAL;
+import static de.walware.ecommons.waltable.coordinate.Orientation.VERTICAL;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import de.walware.ecommons.waltable.coordinate.LRange;
+import de.walware.ecommons.waltable.coordinate.LRangeList;
+import de.walware.ecommons.waltable.coordinate.LRectangle;
+import de.walware.ecommons.waltable.coordinate.Orientation;
+import de.walware.ecommons.waltable.layer.ILayer;
+import de.walware.ecommons.waltable.layer.ILayerDim;
+import de.walware.ecommons.waltable.layer.cell.ILayerCell;
+
+
+/**
+ * Selection model which keeps the selection at the same columns and rows if the structure
+ * of the selection layer changes.
+ * <p>
+ * The selection itself is tracked by another selection model (by default
+ * {@link SelectionModel}); this model additionally stores the
+ * {@link ILayerDim#getPositionId(long, long) position ids} of the selected column and row
+ * ranges, run-length encoded. If a structural change provides diffs, the selected ranges are
+ * remapped through the diffs without touching the single positions. If the change is a
+ * complete refresh (e.g. after sorting), the selection is restored by the ids of the
+ * positions; ids which no longer exist are dropped.</p>
+ * <p>
+ * The ids of a range are computed when the range is selected. Ids of an overlapping range
+ * selected before are reused, so extending a selection only looks up the ids of the new
+ * positions. The number of positions with ids is limited (see
+ * {@link #PositionIdSelectionModel(ILayer, ISelectionModel, int)}); positions of ranges
+ * exceeding the limit are not restored after a complete refresh.</p>
+ * <p>
+ * The model is not used by default; it can be set as selection model of the selection
+ * layer if the selection should survive sorting and similar changes.</p>
+ * 
+ * @see SelectionLayerStructuralChangeEventHandler
+ */
+public class PositionIdSelectionModel implements ISelectionModel {
+	
+	
+	/**
+	 * Run-length encoded ids of a range of positions.
+	 * <p>
+	 * The positions [offsets[i], offsets[i+1]) relative to the range start have the ids
+	 * ids[i] + (offset - offsets[i]); the id {@link ILayerDim#POSITION_NA} marks positions
+	 * without id.</p>
+	 */
+	private static final class IdRuns {
+		
+		
+		private final long[] offsets;
+		private final long[] ids;
+		
+		
+		public IdRuns(final long[] offsets, final long[] ids) {
+			this.offsets= offsets;
+			this.ids= ids;
+		}
+		
+		
+		public long getSize() {
+			return this.offsets[this.ids.length];
+		}
+		
+		/**
+		 * @return the number of positions with id
+		 */
+		public long getIdCount() {
+			long count= 0;
+			for (int i= 0; i < this.ids.length; i++) {
+				if (this.ids[i] != ILayerDim.POSITION_NA) {
+					count+= this.offsets[i + 1] - this.offsets[i];
+				}
+			}
+			return count;
+		}
+		
+	}
+	
+	private static final class IdRunsBuilder {
+		
+		
+		private long[] offsets= new long[8];
+		private long[] ids= new long[7];
+		private int count;
+		
+		
+		public IdRunsBuilder() {
+		}
+		
+		
+		public void append(final long id, final long length) {
+			if (length <= 0) {
+				return;
+			}
+			final int count= this.count;
+			if (count > 0) {
+				final long lastId= this.ids[count - 1];
+				if ((lastId == ILayerDim.POSITION_NA) ?
+						(id == ILayerDim.POSITION_NA) :
+						(lastId + (this.offsets[count] - this.offsets[count - 1]) == id) ) {
+					this.offsets[count]+= length;
+					return;
+				}
+			}
+			if (count == this.ids.length) {
+				this.ids= Arrays.copyOf(this.ids, count * 2 + 1);
+				this.offsets= Arrays.copyOf(this.offsets, count * 2 + 2);
+			}
+			this.ids[count]= id;
+			this.offsets[count + 1]= this.offsets[count] + length;
+			this.count= count + 1;
+		}
+		
+		public void appendSlice(final IdRuns runs, final long from, final long to) {
+			final long[] offsets= runs.offsets;
+			int i= Arrays.binarySearch(offsets, 0, runs.ids.length, from);
+			if (i < 0) {
+				i= -(i + 1) - 1;
+			}
+			for (; i < runs.ids.length && offsets[i] < to; i++) {
+				final long start= Math.max(from, offsets[i]);
+				final long end= Math.min(to, offsets[i + 1]);
+				final long id= runs.ids[i];
+				append((id != ILayerDim.POSITION_NA) ? id + (start - offsets[i]) : id, end - start);
+			}
+		}
+		
+		public IdRuns build() {
+			return new IdRuns(Arrays.copyOf(this.offsets, this.count + 1),
+					Arrays.copyOf(this.ids, this.count) );
+		}
+		
+	}
+	
+	
+	/**
+	 * The default maximum number of positions with ids.
+	 */
+	public static final int DEFAULT_MAX_ID_COUNT= 100000;
+	
+	
+	private static IdRuns noIds(final long size) {
+		return new IdRuns(new long[] { 0, size }, new long[] { ILayerDim.POSITION_NA });
+	}
+	
+	private static IdRuns slice(final IdRuns runs, final long from, final long to) {
+		if (from == 0 && to == runs.getSize()) {
+			return runs;
+		}
+		final IdRunsBuilder builder= new IdRunsBuilder();
+		builder.appendSlice(runs, from, to);
+		return builder.build();
+	}
+	
+	private static void appendIds(final IdRunsBuilder builder, final ILayerDim dim,
+			final long start, final long end) {
+		final long count= dim.getPositionCount();
+		for (long position= start; position < end; position++) {
+			builder.append((position >= 0 && position < count) ?
+							dim.getPositionId(position, position) : ILayerDim.POSITION_NA,
+					1 );
+		}
+	}
+	
+	
+	private final ILayer selectionLayer;
+	
+	private final ISelectionModel selectionModel;
+	
+	private final int maxIdCount;
+	
+	private Map<LRange, IdRuns> columnIds= Collections.emptyMap();
+	private Map<LRange, IdRuns> rowIds= Collections.emptyMap();
+	
+	
+	public PositionIdSelectionModel(/*@NotNull*/ final ILayer selectionLayer) {
+		this(selectionLayer, new SelectionModel(selectionLayer));
+	}
+	
+	public PositionIdSelectionModel(/*@NotNull*/ final ILayer selectionLayer,
+			/*@NotNull*/ final ISelectionModel selectionModel) {
+		this(selectionLayer, selectionModel, DEFAULT_MAX_ID_COUNT);
+	}
+	
+	/**
+	 * @param selectionLayer the selection layer
+	 * @param selectionModel the selection model tracking the selection
+	 * @param maxIdCount the maximum number of positions per orientation whose ids are stored
+	 */
+	public PositionIdSelectionModel(/*@NotNull*/ final ILayer selectionLayer,
+			/*@NotNull*/ final ISelectionModel selectionModel, final int maxIdCount) {
+		if (selectionLayer == null) {
+			throw new NullPointerException("selectionLayer"); //$NON-NLS-1$
+		}
+		if (selectionModel == null) {
+			throw new NullPointerException("selectionModel"); //$NON-NLS-1$
+		}
+		this.selectionLayer= selectionLayer;
+		this.selectionModel= selectionModel;
+		this.maxIdCount= Math.max(maxIdCount, 0);
+		
+		updateIds();
+	}
+	
+	
+	/**
+	 * Returns the selection model tracking the selection.
+	 * 
+	 * @return the selection model
+	 */
+	public ISelectionModel getSelectionModel() {
+		return this.selectionModel;
+	}
+	
+	
+	@Override
+	public boolean isMultipleSelectionAllowed() {
+		return this.selectionModel.isMultipleSelectionAllowed();
+	}
+	
+	
+	@Override
+	public synchronized void addSelection(final long columnPosition, final long rowPosition) {
+		this.selectionModel.addSelection(columnPosition, rowPosition);
+		updateIds();
+	}
+	
+	@Override
+	public synchronized void addSelection(final LRectangle positions) {
+		this.selectionModel.addSelection(positions);
+		updateIds();
+	}
+	
+	@Override
+	public synchronized void clearSelection() {
+		this.selectionModel.clearSelection();
+		updateIds();
+	}
+	
+	@Override
+	public synchronized void clearSelection(final long columnPosition, final long rowPosition) {
+		this.selectionModel.clearSelection(columnPosition, rowPosition);
+		updateIds();
+	}
+	
+	@Override
+	public synchronized void clearSelection(final LRectangle positions) {
+		this.selectionModel.clearSelection(positions);
+		updateIds();
+	}
+	
+	
+	/**
+	 * Remaps the selection after a structural change of the selection layer.
+	 * 
+	 * @param columnMapper the mapper for the column positions, <code>null</code> to restore
+	 *     the columns by their ids
+	 * @param rowMapper the mapper for the row positions, <code>null</code> to restore the
+	 *     rows by their ids
+	 */
+	synchronized void handleStructuralChange(final StructuralDiffMapper columnMapper,
+			final StructuralDiffMapper rowMapper) {
+		if (columnMapper != null && columnMapper.isIdentity()
+				&& rowMapper != null && rowMapper.isIdentity()) {
+			return;
+		}
+		
+		final Map<LRange, IdRuns> newColumnIds= new HashMap<>();
+		final Map<LRange, List<LRange>> columnTargets= remap(HORIZONTAL, this.columnIds,
+				columnMapper, newColumnIds );
+		final Map<LRange, IdRuns> newRowIds= new HashMap<>();
+		final Map<LRange, List<LRange>> rowTargets= remap(VERTICAL, this.rowIds,
+				rowMapper, newRowIds );
+		
+		final List<LRectangle> selections= new ArrayList<>(this.selectionModel.getSelections());
+		this.selectionModel.clearSelection();
+		for (final LRectangle selection : selections) {
+			final List<LRange> columnRanges= (columnTargets != null) ?
+					columnTargets.get(selection.getRange(HORIZONTAL)) :
+					Collections.singletonList(selection.getRange(HORIZONTAL));
+			final List<LRange> rowRanges= (rowTargets != null) ?
+					rowTargets.get(selection.getRange(VERTICAL)) :
+					Collections.singletonList(selection.getRange(VERTICAL));
+			if (columnRanges == null || rowRanges == null) {
+				continue;
+			}
+			for (final LRange columnRange : columnRanges) {
+				for (final LRange rowRange : rowRanges) {
+					this.selectionModel.addSelection(new LRectangle(columnRange, rowRange));
+				}
+			}
+		}
+		
+		final List<LRectangle> newSelections= this.selectionModel.getSelections();
+		this.columnIds= collectIds(HORIZONTAL, newSelections,
+				(columnTargets != null) ? newColumnIds : this.columnIds );
+		this.rowIds= collectIds(VERTICAL, newSelections,
+				(rowTargets != null) ? newRowIds : this.rowIds );
+	}
+	
+	/**
+	 * Maps the selected ranges of one orientation.
+	 * 
+	 * @return the new ranges for each selected range or <code>null</code> if the positions
+	 *     don't change
+	 */
+	private Map<LRange, List<LRange>> remap(final Orientation orientation,
+			final Map<LRange, IdRuns> ids, final StructuralDiffMapper mapper,
+			final Map<LRange, IdRuns> newIds) {
+		if (mapper != null) {
+			if (mapper.isIdentity()) {
+				return null;
+			}
+			final Map<LRange, List<LRange>> targets= new HashMap<>();
+			final List<LRange> sourceRanges= new ArrayList<>();
+			for (final Map.Entry<LRange, IdRuns> entry : ids.entrySet()) {
+				final LRange range= entry.getKey();
+				final List<LRange> targetRanges= new ArrayList<>(1);
+				sourceRanges.clear();
+				mapper.mapRange(range, targetRanges, sourceRanges);
+				for (int i= 0; i < targetRanges.size(); i++) {
+					final LRange sourceRange= sourceRanges.get(i);
+					newIds.put(targetRanges.get(i), slice(entry.getValue(),
+							sourceRange.start - range.start, sourceRange.end - range.start ));
+				}
+				targets.put(range, targetRanges);
+			}
+			return targets;
+		}
+		else {
+			final ILayerDim dim= this.selectionLayer.getDim(orientation);
+			final long count= dim.getPositionCount();
+			final Map<LRange, List<LRange>> targets= new HashMap<>();
+			for (final Map.Entry<LRange, IdRuns> entry : ids.entrySet()) {
+				final IdRuns runs= entry.getValue();
+				final long[] positions= new long[(int) Math.min(runs.getIdCount(), count)];
+				int n= 0;
+				for (int i= 0; i < runs.ids.length && n < positions.length; i++) {
+					final long id= runs.ids[i];
+					if (id == ILayerDim.POSITION_NA) {
+						continue;
+					}
+					final long length= runs.offsets[i + 1] - runs.offsets[i];
+					for (long j= 0; j < length && n < positions.length; j++) {
+						final long position= dim.getPositionById(id + j);
+						if (position >= 0 && position < count) {
+							positions[n++]= position;
+						}
+					}
+				}
+				Arrays.sort(positions, 0, n);
+				final List<LRange> targetRanges= new ArrayList<>(1);
+				for (int i= 0; i < n; ) {
+					final long start= positions[i++];
+					long end= start + 1;
+					while (i < n && positions[i] <= end) {
+						end= positions[i++] + 1;
+					}
+					targetRanges.add(new LRange(start, end));
+				}
+				targets.put(entry.getKey(), targetRanges);
+			}
+			return targets;
+		}
+	}
+	
+	private void updateIds() {
+		final List<LRectangle> selections= this.selectionModel.getSelections();
+		this.columnIds= collectIds(HORIZONTAL, selections, this.columnIds);
+		this.rowIds= collectIds(VERTICAL, selections, this.rowIds);
+	}
+	
+	private Map<LRange, IdRuns> collectIds(final Orientation orientation,
+			final List<LRectangle> selections, final Map<LRange, IdRuns> knownIds) {
+		if (selections.isEmpty()) {
+			return Collections.emptyMap();
+		}
+		final ILayerDim dim= this.selectionLayer.getDim(orientation);
+		final Map<LRange, IdRuns> ids= new HashMap<>();
+		long remaining= this.maxIdCount;
+		for (final LRectangle selection : selections) {
+			final LRange range= selection.getRange(orientation);
+			if (range.size() <= 0 || ids.containsKey(range)) {
+				continue;
+			}
+			IdRuns runs= knownIds.get(range);
+			if (runs == null) {
+				runs= (range.size() <= remaining) ?
+						computeIds(dim, range, knownIds) : noIds(range.size());
+			}
+			else if (runs.getIdCount() > remaining) {
+				runs= noIds(range.size());
+			}
+			remaining-= runs.getIdCount();
+			ids.put(range, runs);
+		}
+		return ids;
+	}
+	
+	private IdRuns computeIds(final ILayerDim dim, final LRange range,
+			final Map<LRange, IdRuns> knownIds) {
+		// reuse the ids of the known range with the largest overlap
+		LRange knownRange= null;
+		long knownOverlap= 0;
+		for (final LRange candidate : knownIds.keySet()) {
+			final long overlap= Math.min(range.end, candidate.end) - Math.max(range.start, candidate.start);
+			if (overlap > knownOverlap) {
+				knownRange= candidate;
+				knownOverlap= overlap;
+			}
+		}
+		
+		final IdRunsBuilder builder= new IdRunsBuilder();
+		if (knownRange != null) {
+			final long overlapStart= Math.max(range.start, knownRange.start);
+			final long overlapEnd= Math.min(range.end, knownRange.end);
+			appendIds(builder, dim, range.start, overlapStart);
+			builder.appendSlice(knownIds.get(knownRange),
+					overlapStart - knownRange.start, overlapEnd - knownRange.start );
+			appendIds(builder, dim, overlapEnd, range.end);
+		}
+		else {
+			appendIds(builder, dim, range.start, range.end);
+		}
+		return builder.build();
+	}
+	
+	
+	@Override
+	public boolean isEmpty() {
+		return this.selectionModel.isEmpty();
+	}
+	
+	@Override
+	public List<LRectangle> getSelections() {
+		return this.selectionModel.getSelections();
+	}
+	
+	// Cell features
+	
+	@Override
+	public boolean isCellPositionSelected(final ILayerCell cell) {
+		return this.selectionModel.isCellPositionSelected(cell);
+	}
+	
+	// Column features
+	
+	@Override
+	public LRangeList getSelectedColumnPositions() {
+		return this.selectionModel.getSelectedColumnPositions();
+	}
+	
+	@Override
+	public boolean isColumnPositionSelected(final long columnPosition) {
+		return this.selectionModel.isColumnPositionSelected(columnPosition);
+	}
+	
+	@Override
+	public LRangeList getFullySelectedColumnPositions() {
+		return this.selectionModel.getFullySelectedColumnPositions();
+	}
+	
+	@Override
+	public boolean isColumnPositionFullySelected(final long columnPosition) {
+		return this.selectionModel.isColumnPositionFullySelected(columnPosition);
+	}
+	
+	// Row features
+	
+	@Override
+	public long getSelectedRowCount() {
+		return this.selectionModel.getSelectedRowCount();
+	}
+	
+	@Override
+	public LRangeList getSelectedRowPositions() {
+		return this.selectionModel.getSelectedRowPositions();
+	}
+	
+	@Override
+	public boolean isRowPositionSelected(final long rowPosition) {
+		return this.selectionModel.isRowPositionSelected(rowPosition);
+	}
+	
+	@Override
+	public LRangeList getFullySelectedRowPositions() {
+		return this.selectionModel.getFullySelectedRowPositions();
+	}
+	
+	@Override
+	public boolean isRowPositionFullySelected(final long rowPosition) {
+		return this.selectionModel.isRowPositionFullySelected(rowPosition);
+	}
+	
+}
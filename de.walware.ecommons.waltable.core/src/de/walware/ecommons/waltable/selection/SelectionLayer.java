@@ -96,7 +96,7 @@ public class SelectionLayer extends ForwardLayer {
 		registerCommandHandlers();
 		
 		if(registerDefaultEventHandler){
-			registerEventHandler(new SelectionLayerStructuralChangeEventHandler(this, this.selectionModel));
+			registerEventHandler(new SelectionLayerStructuralChangeEventHandler(this));
 		}
 		if (useDefaultConfiguration) {
 			addConfiguration(new DefaultSelectionLayerConfiguration());
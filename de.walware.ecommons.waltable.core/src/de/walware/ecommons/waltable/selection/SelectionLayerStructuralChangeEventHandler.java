@@ -11,72 +11,164 @@
 // ~
 package de.walware.ecommons.waltable.selection;
 
+import static de.walware.ecommons.waltable.coordinate.Orientation.HORIZONTAL;
+import static de.walware.ecommons.waltable.coordinate.Orientation.VERTICAL;
+
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 
 import de.walware.ecommons.waltable.coordinate.LRange;
 import de.walware.ecommons.waltable.coordinate.LRectangle;
+import de.walware.ecommons.waltable.coordinate.PositionCoordinate;
+import de.walware.ecommons.waltable.layer.ILayerDim;
 import de.walware.ecommons.waltable.layer.event.ILayerEventHandler;
 import de.walware.ecommons.waltable.layer.event.IStructuralChangeEvent;
-import de.walware.ecommons.waltable.layer.event.StructuralDiff;
-import de.walware.ecommons.waltable.layer.event.StructuralDiff.DiffTypeEnum;
 
-public class SelectionLayerStructuralChangeEventHandler implements ILayerEventHandler<IStructuralChangeEvent> {
 
-	private final ISelectionModel selectionModel;
+/**
+ * Updates the selection of a {@link SelectionLayer} if the structure of the layer changes.
+ * <p>
+ * If the event provides structural diffs, the selection is shifted according to the diffs:
+ * inserted positions move the selection, deleted positions are removed from it. If the event
+ * is a complete refresh, a {@link PositionIdSelectionModel} restores the selection by the
+ * position ids; for other selection models the selection is cleared if changed rows are
+ * selected.</p>
+ */
+public class SelectionLayerStructuralChangeEventHandler implements ILayerEventHandler<IStructuralChangeEvent> {
+	
+	
 	private final SelectionLayer selectionLayer;
 	
-	public SelectionLayerStructuralChangeEventHandler(final SelectionLayer selectionLayer, final ISelectionModel selectionModel) {
+	
+	public SelectionLayerStructuralChangeEventHandler(final SelectionLayer selectionLayer) {
 		this.selectionLayer= selectionLayer;
-		this.selectionModel= selectionModel;
 	}
-
+	
+	/**
+	 * @deprecated use {@link #SelectionLayerStructuralChangeEventHandler(SelectionLayer)};
+	 *     the handler always updates the current selection model of the selection layer
+	 */
+	@Deprecated
+	public SelectionLayerStructuralChangeEventHandler(final SelectionLayer selectionLayer,
+			final ISelectionModel selectionModel) {
+		this(selectionLayer);
+	}
+	
+	
 	@Override
 	public Class<IStructuralChangeEvent> getLayerEventClass() {
 		return IStructuralChangeEvent.class;
 	}
-
+	
 	@Override
 	public void handleLayerEvent(final IStructuralChangeEvent event) {
-		if (event.isHorizontalStructureChanged()) {
-			// TODO handle column deletion
+		final ISelectionModel selectionModel= this.selectionLayer.getSelectionModel();
+		if (selectionModel.isEmpty()
+				|| !(event.isHorizontalStructureChanged() || event.isVerticalStructureChanged()) ) {
+			return;
+		}
+		
+		// null= complete refresh
+		final StructuralDiffMapper columnMapper= (event.isHorizontalStructureChanged()) ?
+				StructuralDiffMapper.create(event.getColumnDiffs()) : StructuralDiffMapper.IDENTITY;
+		final StructuralDiffMapper rowMapper= (event.isVerticalStructureChanged()) ?
+				StructuralDiffMapper.create(event.getRowDiffs()) : StructuralDiffMapper.IDENTITY;
+		
+		if (selectionModel instanceof PositionIdSelectionModel) {
+			((PositionIdSelectionModel) selectionModel).handleStructuralChange(columnMapper, rowMapper);
+		}
+		else {
+			if (rowMapper == null && selectedRowModified(selectionModel, event.getChangedPositionRectangles())) {
+				this.selectionLayer.clear();
+				return;
+			}
+			// without ids, columns are kept at their positions on refresh
+			remapSelections(selectionModel,
+					(columnMapper != null) ? columnMapper : StructuralDiffMapper.IDENTITY,
+					(rowMapper != null) ? rowMapper : StructuralDiffMapper.IDENTITY );
 		}
 		
-		if (event.isVerticalStructureChanged()) {
-			//if there are no row diffs, it seems to be a complete refresh
-			if (event.getRowDiffs() == null) {
-				final Collection<LRectangle> lRectangles= event.getChangedPositionRectangles();
-				for (final LRectangle lRectangle : lRectangles) {
-					final LRange changedRange= new LRange(lRectangle.y, lRectangle.y + lRectangle.height);
-					if (selectedRowModified(changedRange)) {
-						this.selectionLayer.clear();
-						break;
-					}
+		if (selectionModel.isEmpty()) {
+			this.selectionLayer.clear();
+			return;
+		}
+		updateCoordinate(this.selectionLayer.selectionAnchor, selectionModel, columnMapper, rowMapper);
+		updateCoordinate(this.selectionLayer.lastSelectedCell, selectionModel, columnMapper, rowMapper);
+		if (this.selectionLayer.selectionAnchor.columnPosition == SelectionLayer.NO_SELECTION) {
+			this.selectionLayer.resetLastSelection();
+		}
+		// the region is no longer part of the selection model
+		this.selectionLayer.lastSelectedRegion= null;
+	}
+	
+	private boolean selectedRowModified(final ISelectionModel selectionModel,
+			final Collection<LRectangle> changedRectangles) {
+		final List<LRange> selectedRows= selectionModel.getSelectedRowPositions();
+		for (final LRectangle changedRectangle : changedRectangles) {
+			final LRange changedRange= changedRectangle.getRange(VERTICAL);
+			for (final LRange rowRange : selectedRows) {
+				if (rowRange.overlap(changedRange)) {
+					return true;
 				}
 			}
-			else {
-				//there are row diffs so we try to determine the diffs to process
-				for (final StructuralDiff diff : event.getRowDiffs()) {
-					//DiffTypeEnum.CHANGE is used for resizing and shouldn't result in clearing the selection
-					if (diff.getDiffType() != DiffTypeEnum.CHANGE) {
-						if (selectedRowModified(diff.getBeforePositionRange())) {
-							this.selectionLayer.clear();
-							break;
-						}
-					}
+		}
+		return false;
+	}
+	
+	private void remapSelections(final ISelectionModel selectionModel,
+			final StructuralDiffMapper columnMapper, final StructuralDiffMapper rowMapper) {
+		if (columnMapper.isIdentity() && rowMapper.isIdentity()) {
+			return;
+		}
+		
+		final List<LRectangle> selections= new ArrayList<>(selectionModel.getSelections());
+		selectionModel.clearSelection();
+		final List<LRange> columnRanges= new ArrayList<>();
+		final List<LRange> rowRanges= new ArrayList<>();
+		for (final LRectangle selection : selections) {
+			columnRanges.clear();
+			columnMapper.mapRange(selection.getRange(HORIZONTAL), columnRanges, null);
+			rowRanges.clear();
+			rowMapper.mapRange(selection.getRange(VERTICAL), rowRanges, null);
+			for (final LRange columnRange : columnRanges) {
+				for (final LRange rowRange : rowRanges) {
+					selectionModel.addSelection(new LRectangle(columnRange, rowRange));
 				}
 			}
 		}
 	}
 	
-	private boolean selectedRowModified(final LRange changedRange){
-		final List<LRange> selectedRows= this.selectionModel.getSelectedRowPositions();
-		for (final LRange rowRange : selectedRows) {
-			if (rowRange.overlap(changedRange)){
+	private void updateCoordinate(final PositionCoordinate coordinate,
+			final ISelectionModel selectionModel,
+			final StructuralDiffMapper columnMapper, final StructuralDiffMapper rowMapper) {
+		if (coordinate.columnPosition == SelectionLayer.NO_SELECTION
+				|| coordinate.rowPosition == SelectionLayer.NO_SELECTION) {
+			return;
+		}
+		final long columnPosition= (columnMapper != null) ?
+				columnMapper.mapPosition(coordinate.columnPosition) : coordinate.columnPosition;
+		final long rowPosition= (rowMapper != null) ?
+				rowMapper.mapPosition(coordinate.rowPosition) : coordinate.rowPosition;
+		if (columnPosition != ILayerDim.POSITION_NA && rowPosition != ILayerDim.POSITION_NA
+				&& isSelected(selectionModel, columnPosition, rowPosition) ) {
+			coordinate.columnPosition= columnPosition;
+			coordinate.rowPosition= rowPosition;
+		}
+		else {
+			coordinate.columnPosition= SelectionLayer.NO_SELECTION;
+			coordinate.rowPosition= SelectionLayer.NO_SELECTION;
+		}
+	}
+	
+	private boolean isSelected(final ISelectionModel selectionModel,
+			final long columnPosition, final long rowPosition) {
+		for (final LRectangle selection : selectionModel.getSelections()) {
+			if (selection.contains(columnPosition, rowPosition)) {
 				return true;
 			}
 		}
 		return false;
 	}
-
+	
 }
@@ -0,0 +1,197 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Original authors and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *     Original authors and others - initial API and implementation
+ ******************************************************************************/
+
+package de.walware.ecommons.waltable.selection;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import de.walware.ecommons.waltable.coordinate.LRange;
+import de.walware.ecommons.waltable.layer.ILayerDim;
+import de.walware.ecommons.waltable.layer.event.StructuralDiff;
+import de.walware.ecommons.waltable.layer.event.StructuralDiff.DiffTypeEnum;
+
+
+/**
+ * Maps positions before a structural change to the positions after the change according
+ * to the {@link StructuralDiff structural diffs} of the change event.
+ * <p>
+ * The positions of {@link DiffTypeEnum#ADD ADD} and {@link DiffTypeEnum#DELETE DELETE}
+ * diffs are read in before coordinates: a DELETE diff removes the positions of its before
+ * range, an ADD diff inserts the number of positions of its after range in front of the
+ * start of its before range. {@link DiffTypeEnum#CHANGE CHANGE} diffs don't move positions
+ * and are ignored.</p>
+ * <p>
+ * The diffs are sorted once, mapping a range costs O(log d + k) where d is the number of
+ * diffs and k the number of diffs inside the range.</p>
+ */
+final class StructuralDiffMapper {
+	
+	
+	private static final Comparator<long[]> EDIT_COMPARATOR= new Comparator<long[]>() {
+		@Override
+		public int compare(final long[] o1, final long[] o2) {
+			// by start, for same start ADD (end == start) before DELETE
+			if (o1[0] != o2[0]) {
+				return (o1[0] < o2[0]) ? -1 : 1;
+			}
+			return (o1[1] < o2[1]) ? -1 : ((o1[1] == o2[1]) ? 0 : 1);
+		}
+	};
+	
+	/**
+	 * Mapper which doesn't change any position.
+	 */
+	public static final StructuralDiffMapper IDENTITY= new StructuralDiffMapper(
+			Collections.<long[]>emptyList() );
+	
+	
+	/**
+	 * Creates a mapper for the specified diffs.
+	 * 
+	 * @param diffs the diffs of the event
+	 * @return the mapper or <code>null</code>, if the diffs are <code>null</code> (complete
+	 *     refresh)
+	 */
+	public static StructuralDiffMapper create(final Collection<StructuralDiff> diffs) {
+		if (diffs == null) {
+			return null;
+		}
+		final List<long[]> edits= new ArrayList<>(diffs.size());
+		for (final StructuralDiff diff : diffs) {
+			switch (diff.getDiffType()) {
+			case ADD:
+				if (diff.getAfterPositionRange().size() > 0) {
+					final long start= diff.getBeforePositionRange().start;
+					edits.add(new long[] { start, start, diff.getAfterPositionRange().size() });
+				}
+				continue;
+			case DELETE:
+				if (diff.getBeforePositionRange().size() > 0) {
+					final LRange range= diff.getBeforePositionRange();
+					edits.add(new long[] { range.start, range.end, -range.size() });
+				}
+				continue;
+			default:
+				continue;
+			}
+		}
+		return new StructuralDiffMapper(edits);
+	}
+	
+	
+	/** Start position of edit i (before coordinates) */
+	private final long[] starts;
+	/** End position of edit i, for ADD edits equal to start */
+	private final long[] ends;
+	/** Sum of the position shifts of all edits with index &lt; i */
+	private final long[] shiftSums;
+	
+	
+	private StructuralDiffMapper(final List<long[]> edits) {
+		final long[][] sorted= edits.toArray(new long[edits.size()][]);
+		Arrays.sort(sorted, EDIT_COMPARATOR);
+		
+		final int n= sorted.length;
+		this.starts= new long[n];
+		this.ends= new long[n];
+		this.shiftSums= new long[n + 1];
+		for (int i= 0; i < n; i++) {
+			this.starts[i]= sorted[i][0];
+			this.ends[i]= sorted[i][1];
+			this.shiftSums[i + 1]= this.shiftSums[i] + sorted[i][2];
+		}
+	}
+	
+	
+	/**
+	 * @return <code>true</code> if no diff moves any position
+	 */
+	public boolean isIdentity() {
+		return (this.starts.length == 0);
+	}
+	
+	/**
+	 * @return the index of the first edit with start &gt; position
+	 */
+	private int indexAfter(final long position) {
+		int low= 0;
+		int high= this.starts.length - 1;
+		while (low <= high) {
+			final int mid= (low + high) >>> 1;
+			if (this.starts[mid] <= position) {
+				low= mid + 1;
+			}
+			else {
+				high= mid - 1;
+			}
+		}
+		return low;
+	}
+	
+	/**
+	 * Maps a single position.
+	 * 
+	 * @param position the position before the change
+	 * @return the position after the change or {@link ILayerDim#POSITION_NA}, if the position
+	 *     was deleted
+	 */
+	public long mapPosition(final long position) {
+		final int idx= indexAfter(position);
+		if (idx > 0 && this.ends[idx - 1] > position) {
+			return ILayerDim.POSITION_NA;
+		}
+		return position + this.shiftSums[idx];
+	}
+	
+	/**
+	 * Maps a range of positions.
+	 * <p>
+	 * The range is split at inserted positions and shrinks by deleted positions; positions
+	 * inserted in front of the range start shift the complete range.</p>
+	 * 
+	 * @param range the range before the change
+	 * @param targets list the ranges after the change are added to
+	 * @param sources optional list the corresponding parts of the range before the change
+	 *     are added to
+	 */
+	public void mapRange(final LRange range, final List<LRange> targets, final List<LRange> sources) {
+		long position= range.start;
+		int idx= indexAfter(position);
+		if (idx > 0 && this.ends[idx - 1] > position) {
+			position= this.ends[idx - 1];
+		}
+		while (position < range.end) {
+			// apply edits with start <= position
+			while (idx < this.starts.length && this.starts[idx] <= position) {
+				if (this.ends[idx] > position) {
+					position= this.ends[idx];
+				}
+				idx++;
+			}
+			if (position >= range.end) {
+				break;
+			}
+			final long end= (idx < this.starts.length) ? Math.min(range.end, this.starts[idx]) : range.end;
+			final long shift= this.shiftSums[idx];
+			targets.add(new LRange(position + shift, end + shift));
+			if (sources != null) {
+				sources.add(new LRange(position, end));
+			}
+			position= end;
+		}
+	}
+	
+}
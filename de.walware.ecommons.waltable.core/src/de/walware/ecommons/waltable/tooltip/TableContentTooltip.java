@@ -11,16 +11,35 @@
 
 package de.walware.ecommons.waltable.tooltip;
 
+import java.util.Collection;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.jface.window.DefaultToolTip;
 import org.eclipse.jface.window.ToolTip;
+import org.eclipse.swt.events.DisposeEvent;
+import org.eclipse.swt.events.DisposeListener;
+import org.eclipse.swt.graphics.Point;
+import org.eclipse.swt.widgets.Composite;
 import org.eclipse.swt.widgets.Event;
 
 import de.walware.ecommons.waltable.NatTable;
 import de.walware.ecommons.waltable.config.CellConfigAttributes;
+import de.walware.ecommons.waltable.config.IConfigRegistry;
 import de.walware.ecommons.waltable.coordinate.LPoint;
+import de.walware.ecommons.waltable.coordinate.LRectangle;
+import de.walware.ecommons.waltable.data.ControlData;
+import de.walware.ecommons.waltable.data.IDataProvider;
+import de.walware.ecommons.waltable.layer.ILayerListener;
 import de.walware.ecommons.waltable.layer.LabelStack;
 import de.walware.ecommons.waltable.layer.cell.CellDisplayConversionUtils;
 import de.walware.ecommons.waltable.layer.cell.ILayerCell;
+import de.walware.ecommons.waltable.layer.cell.SnapshotLayerCell;
+import de.walware.ecommons.waltable.layer.event.ILayerEvent;
+import de.walware.ecommons.waltable.layer.event.IStructuralChangeEvent;
+import de.walware.ecommons.waltable.layer.event.IVisualChangeEvent;
 import de.walware.ecommons.waltable.painter.cell.CellPainterWrapper;
 import de.walware.ecommons.waltable.painter.cell.ICellPainter;
 import de.walware.ecommons.waltable.painter.cell.PasswordTextPainter;
@@ -32,11 +51,82 @@ import de.walware.ecommons.waltable.style.DisplayMode;
  * value of the cell of which the tooltip is requested.
  * <p>It is possible to configure for which regions the tooltips should be activated.
  * If none are configured, the tooltips are active for every region of the {@link NatTable}.
+ * <p>The text of the last cell is cached until the tooltip is hidden, the table changes
+ * structurally or the cell changes visually, so it is computed only once per cell. If the
+ * tooltip is visible in this case, it is shown again with the new text. If the data value of
+ * the cell is loaded
+ * asynchronously, the tooltip shows a placeholder and the value is loaded and converted by a
+ * background job; the labels and display mode of the cell are collected before. Long texts
+ * are truncated to {@link #MAX_LINES} lines and {@link #MAX_LENGTH} characters.
  * 
  * @version 1.0.0
  */
 public class TableContentTooltip extends DefaultToolTip {
 	
+	
+	/**
+	 * The maximum number of lines shown in a tooltip.
+	 */
+	protected static final int MAX_LINES= 40;
+	
+	/**
+	 * The maximum number of characters shown in a tooltip.
+	 */
+	protected static final int MAX_LENGTH= 4000;
+	
+	/**
+	 * The delay in milliseconds before data is loaded asynchronously.
+	 */
+	private static final int LOAD_DELAY= 100;
+	
+	private static final String ELLIPSIS= "\u2026"; //$NON-NLS-1$
+	
+	
+	private class LoadJob extends Job {
+		
+		
+		private final LPoint position;
+		private final ILayerCell cell;
+		private final Point location;
+		
+		
+		public LoadJob(final LPoint position, final ILayerCell cell, final Point location) {
+			super("Load Tooltip"); //$NON-NLS-1$
+			this.position= position;
+			this.cell= cell;
+			this.location= location;
+			setSystem(true);
+		}
+		
+		
+		@Override
+		protected IStatus run(final IProgressMonitor monitor) {
+			final IConfigRegistry configRegistry= TableContentTooltip.this.natTable.getConfigRegistry();
+			final Object dataValue= this.cell.getDataValue(IDataProvider.FORCE_SYNC, monitor);
+			if (monitor.isCanceled()) {
+				return Status.CANCEL_STATUS;
+			}
+			final String text= toTooltipText(CellDisplayConversionUtils.convertDataType(
+					this.cell, dataValue, configRegistry ));
+			if (monitor.isCanceled()) {
+				return Status.CANCEL_STATUS;
+			}
+			
+			final NatTable natTable= TableContentTooltip.this.natTable;
+			if (!natTable.isDisposed()) {
+				natTable.getDisplay().asyncExec(new Runnable() {
+					@Override
+					public void run() {
+						update(LoadJob.this, text);
+					}
+				});
+			}
+			return Status.OK_STATUS;
+		}
+		
+	}
+	
+	
 	/**
 	 * The {@link NatTable} instance for which this {@link ToolTip} is used. 
 	 */
@@ -47,6 +137,18 @@ public class TableContentTooltip extends DefaultToolTip {
 	 */
 	protected String[] tooltipRegions;
 	
+	/** Position of the cell of the cached text */
+	private LPoint textPosition;
+	/** Mouse location of the request of the cached text */
+	private Point textLocation;
+	/** Cached text for {@link #textPosition} */
+	private String text;
+	private String truncatedText;
+	
+	private LoadJob loadJob;
+	
+	private boolean shown;
+	
 	
 	/**
 	 * Creates a new {@link ToolTip} object, attaches it to the given {@link NatTable}
@@ -62,6 +164,21 @@ public class TableContentTooltip extends DefaultToolTip {
 		activate();
 		this.natTable= natTable;
 		this.tooltipRegions= tooltipRegions;
+		
+		final ILayerListener layerListener= new ILayerListener() {
+			@Override
+			public void handleLayerEvent(final ILayerEvent event) {
+				onLayerEvent(event);
+			}
+		};
+		natTable.addLayerListener(layerListener);
+		natTable.addDisposeListener(new DisposeListener() {
+			@Override
+			public void widgetDisposed(final DisposeEvent e) {
+				natTable.removeLayerListener(layerListener);
+				cancelLoad();
+			}
+		});
 	}
 	
 	/**
@@ -87,27 +204,165 @@ public class TableContentTooltip extends DefaultToolTip {
 	 */
 	@Override
 	protected String getText(final Event event) {
-		final long col= this.natTable.getColumnPositionByX(event.x);
-		final long row= this.natTable.getRowPositionByY(event.y);
-		
-		final ILayerCell cell= this.natTable.getCellByPosition(col, row);
-		if (cell != null) {
+		final LPoint position= new LPoint(
+				this.natTable.getColumnPositionByX(event.x),
+				this.natTable.getRowPositionByY(event.y) );
+		if (!position.equals(this.textPosition)) {
+			cancelLoad();
+			this.textPosition= position;
+			this.textLocation= new Point(event.x, event.y);
+			this.text= computeText(position, this.textLocation);
+			this.truncatedText= null;
+		}
+		if (this.text != null && this.truncatedText == null) {
+			this.truncatedText= truncate(this.text);
+		}
+		return this.truncatedText;
+	}
+	
+	private String computeText(final LPoint position, final Point location) {
+		final ILayerCell layerCell= this.natTable.getCellByPosition(position.x, position.y);
+		if (layerCell != null) {
+			// labels and display mode are required for the conversion in background
+			final ILayerCell cell= new SnapshotLayerCell(layerCell);
 			//if the registered cell painter is the PasswordCellPainter, there will be no tooltip
-			final ICellPainter painter= this.natTable.getConfigRegistry().getConfigAttribute(
+			final IConfigRegistry configRegistry= this.natTable.getConfigRegistry();
+			final ICellPainter painter= configRegistry.getConfigAttribute(
 					CellConfigAttributes.CELL_PAINTER, DisplayMode.NORMAL, cell.getConfigLabels().getLabels());
 			if (isVisibleContentPainter(painter)) {
-				final String tooltipValue= CellDisplayConversionUtils.convertDataType(
-						cell, 
-						this.natTable.getConfigRegistry());
-				
-				if (tooltipValue.length() > 0) {
-					return tooltipValue;
+				final Object dataValue= cell.getDataValue(0, null);
+				if (dataValue instanceof ControlData
+						&& (((ControlData) dataValue).getCode() & ControlData.ASYNC) != 0) {
+					// show the placeholder and load the value in background
+					this.loadJob= new LoadJob(position, cell, location);
+					this.loadJob.schedule(LOAD_DELAY);
+					return dataValue.toString();
 				}
+				
+				return toTooltipText(CellDisplayConversionUtils.convertDataType(
+						cell, dataValue, configRegistry ));
 			}
 		}
 		return null;
 	}
 	
+	private static String toTooltipText(final String tooltipValue) {
+		return (tooltipValue != null && tooltipValue.length() > 0) ? tooltipValue : null;
+	}
+	
+	/**
+	 * Truncates the text to show in the tooltip to {@link #MAX_LINES} lines and
+	 * {@link #MAX_LENGTH} characters.
+	 * <p>The text is scanned only up to the limits.
+	 * 
+	 * @param text the text
+	 * @return the truncated text
+	 */
+	protected String truncate(final String text) {
+		final int max= Math.min(text.length(), MAX_LENGTH);
+		int lines= 1;
+		for (int i= 0; i < max; i++) {
+			if (text.charAt(i) == '\n' && ++lines > MAX_LINES) {
+				return text.substring(0, i + 1) + ELLIPSIS;
+			}
+		}
+		return (text.length() > MAX_LENGTH) ? text.substring(0, MAX_LENGTH) + ELLIPSIS : text;
+	}
+	
+	private void update(final LoadJob job, final String text) {
+		if (job != this.loadJob || this.natTable.isDisposed()) {
+			return;
+		}
+		this.loadJob= null;
+		
+		if (text == null) {
+			hide();
+			return;
+		}
+		// if the tooltip is not yet open, its content is created later with the new text
+		final boolean reshow= this.shown;
+		if (reshow) {
+			hide();
+		}
+		this.textPosition= job.position;
+		this.textLocation= job.location;
+		this.text= text;
+		this.truncatedText= null;
+		if (reshow) {
+			show(job.location);
+		}
+	}
+	
+	private void cancelLoad() {
+		if (this.loadJob != null) {
+			this.loadJob.cancel();
+			this.loadJob= null;
+		}
+	}
+	
+	@Override
+	protected Composite createToolTipContentArea(final Event event, final Composite parent) {
+		this.shown= true;
+		return super.createToolTipContentArea(event, parent);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * <p>Clears the cached text.
+	 */
+	@Override
+	protected void afterHideToolTip(final Event event) {
+		this.shown= false;
+		cancelLoad();
+		clearText();
+		
+		super.afterHideToolTip(event);
+	}
+	
+	private void onLayerEvent(final ILayerEvent event) {
+		final LPoint position= this.textPosition;
+		if (position == null) {
+			return;
+		}
+		if (event instanceof IStructuralChangeEvent) {
+			refreshText();
+		}
+		else if (event instanceof IVisualChangeEvent) {
+			final Collection<LRectangle> rectangles= ((IVisualChangeEvent) event).getChangedPositionRectangles();
+			if (rectangles == null || rectangles.isEmpty()) {
+				refreshText();
+				return;
+			}
+			for (final LRectangle rectangle : rectangles) {
+				if (rectangle.contains(position)) {
+					refreshText();
+					return;
+				}
+			}
+		}
+	}
+	
+	private void refreshText() {
+		cancelLoad();
+		final Point location= this.textLocation;
+		if (this.shown && location != null) {
+			// the text is computed again when the tooltip is shown
+			hide();
+			show(location);
+		}
+		else {
+			clearText();
+		}
+	}
+	
+	private void clearText() {
+		this.textPosition= null;
+		this.textLocation= null;
+		this.text= null;
+		this.truncatedText= null;
+	}
+	
 	/**
 	 * Checks if the given {@link ICellPainter} is showing the content directly or if it is
 	 * anonymized by using the {@link PasswordTextPainter}
@@ -0,0 +1,41 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Original authors and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *     Original authors and others - initial API and implementation
+ ******************************************************************************/
+package de.walware.ecommons.waltable.ui;
+
+import de.walware.ecommons.waltable.coordinate.LRange;
+import de.walware.ecommons.waltable.coordinate.Orientation;
+
+
+/**
+ * Optional interface of the control showing a table, allowing a viewport to move the
+ * already painted content when it scrolls instead of repainting the table completely.
+ * <p>
+ * The viewport calls {@link #moveContent(Orientation, LRange, long)} before it changes its
+ * origin.</p>
+ * 
+ * @see de.walware.ecommons.waltable.viewport.ScrollEvent#isContentMoved()
+ */
+public interface IContentMover {
+	
+	
+	/**
+	 * Moves the painted content of the specified column / row range by the scroll delta of a
+	 * viewport.
+	 * 
+	 * @param orientation the scrolled orientation
+	 * @param range the column / row range of the viewport in pixels of the control
+	 * @param pixelDelta the change of the viewport origin in pixel
+	 * @return <code>true</code> if the content was moved, <code>false</code> if the table must
+	 *     be repainted completely
+	 */
+	boolean moveContent(Orientation orientation, LRange range, long pixelDelta);
+	
+}
@@ -0,0 +1,205 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Original authors and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *     Original authors and others - initial API and implementation
+ ******************************************************************************/
+
+package de.walware.ecommons.waltable.ui.binding;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.swt.events.MouseEvent;
+
+import de.walware.ecommons.waltable.NatTable;
+import de.walware.ecommons.waltable.layer.LabelStack;
+import de.walware.ecommons.waltable.ui.matcher.IMouseEventMatcher;
+import de.walware.ecommons.waltable.ui.matcher.MouseEventMatcher;
+
+
+/**
+ * Index of mouse bindings of one event type.
+ * <p>
+ * Bindings with a {@link MouseEventMatcher} are indexed by the region labels of the matcher,
+ * so only the bindings for the regions of an event are checked. The button and state mask
+ * of the matcher are checked before the matcher itself is called. Other matchers are always
+ * called. The order of the bindings is kept.</p>
+ * 
+ * @param <T> type of the action of the bindings
+ */
+final class MouseBindingIndex<T> {
+	
+	
+	private static final int[] NO_BINDINGS= new int[0];
+	
+	private static final byte STATE_MASK_ANY= 0;
+	private static final byte STATE_MASK_EXACT= 1;
+	private static final byte STATE_MASK_WILDCARD= 2;
+	
+	
+	private final IMouseEventMatcher[] matchers;
+	private final Object[] actions;
+	
+	/** Required button, or -1 if unknown */
+	private final int[] buttons;
+	private final int[] stateMasks;
+	private final byte[] stateMaskModes;
+	
+	/** Bindings by region label, sorted by their order */
+	private final Map<String, int[]> regionBindings;
+	/** Bindings without region restriction, sorted by their order */
+	private final int[] anyRegionBindings;
+	
+	
+	public MouseBindingIndex(final List<IMouseEventMatcher> matchers, final List<? extends T> actions) {
+		final int n= matchers.size();
+		this.matchers= matchers.toArray(new IMouseEventMatcher[n]);
+		this.actions= actions.toArray();
+		this.buttons= new int[n];
+		this.stateMasks= new int[n];
+		this.stateMaskModes= new byte[n];
+		
+		final Map<String, List<Integer>> regionLists= new HashMap<>();
+		final List<Integer> anyRegionList= new ArrayList<>();
+		for (int i= 0; i < n; i++) {
+			final IMouseEventMatcher matcher= this.matchers[i];
+			if (matcher instanceof MouseEventMatcher) {
+				final MouseEventMatcher mouseEventMatcher= (MouseEventMatcher) matcher;
+				this.buttons[i]= mouseEventMatcher.getButton();
+				this.stateMasks[i]= mouseEventMatcher.getStateMask();
+				this.stateMaskModes[i]= ((this.stateMasks[i] & MouseEventMatcher.WILDCARD_MASK) != 0) ?
+						STATE_MASK_WILDCARD : STATE_MASK_EXACT;
+				
+				final String region= mouseEventMatcher.getEventRegion();
+				if (region != null) {
+					addIndex(regionLists, region, i);
+					final String region2= mouseEventMatcher.getEventRegion2();
+					if (region2 != null && !region2.equals(region)) {
+						addIndex(regionLists, region2, i);
+					}
+					continue;
+				}
+			}
+			else {
+				this.buttons[i]= -1;
+				this.stateMaskModes[i]= STATE_MASK_ANY;
+			}
+			anyRegionList.add(i);
+		}
+		
+		this.regionBindings= new HashMap<>(regionLists.size());
+		for (final Map.Entry<String, List<Integer>> entry : regionLists.entrySet()) {
+			this.regionBindings.put(entry.getKey(), toArray(entry.getValue()));
+		}
+		this.anyRegionBindings= toArray(anyRegionList);
+	}
+	
+	private static void addIndex(final Map<String, List<Integer>> regionLists, final String region,
+			final int index) {
+		List<Integer> list= regionLists.get(region);
+		if (list == null) {
+			list= new ArrayList<>(4);
+			regionLists.put(region, list);
+		}
+		list.add(index);
+	}
+	
+	private static int[] toArray(final List<Integer> list) {
+		if (list.isEmpty()) {
+			return NO_BINDINGS;
+		}
+		final int[] array= new int[list.size()];
+		for (int i= 0; i < array.length; i++) {
+			array[i]= list.get(i).intValue();
+		}
+		return array;
+	}
+	
+	
+	/**
+	 * Returns the action of the first binding matching the event.
+	 * 
+	 * @param natTable the table
+	 * @param event the mouse event
+	 * @param regionLabels the region labels at the location of the event
+	 * @return the action or <code>null</code>
+	 */
+	@SuppressWarnings("unchecked")
+	public T get(final NatTable natTable, final MouseEvent event, final LabelStack regionLabels) {
+		final int[][] candidates;
+		int count= 0;
+		if (regionLabels != null && this.regionBindings.size() > 0) {
+			final List<String> labels= regionLabels.getLabels();
+			candidates= new int[labels.size() + 1][];
+			for (final String label : labels) {
+				final int[] bindings= this.regionBindings.get(label);
+				if (bindings != null) {
+					candidates[count++]= bindings;
+				}
+			}
+		}
+		else {
+			candidates= new int[1][];
+		}
+		if (this.anyRegionBindings.length > 0) {
+			candidates[count++]= this.anyRegionBindings;
+		}
+		
+		// merge the candidate lists in the order of the bindings
+		final int[] cursors= new int[count];
+		int last= -1;
+		while (true) {
+			int next= Integer.MAX_VALUE;
+			int nextList= -1;
+			for (int j= 0; j < count; j++) {
+				final int[] bindings= candidates[j];
+				while (cursors[j] < bindings.length && bindings[cursors[j]] <= last) {
+					cursors[j]++;
+				}
+				if (cursors[j] < bindings.length && bindings[cursors[j]] < next) {
+					next= bindings[cursors[j]];
+					nextList= j;
+				}
+			}
+			if (nextList < 0) {
+				return null;
+			}
+			cursors[nextList]++;
+			last= next;
+			
+			if (matches(next, natTable, event, regionLabels)) {
+				return (T) this.actions[next];
+			}
+		}
+	}
+	
+	private boolean matches(final int i, final NatTable natTable, final MouseEvent event,
+			final LabelStack regionLabels) {
+		if (this.buttons[i] != -1 && this.buttons[i] != event.button) {
+			return false;
+		}
+		switch (this.stateMaskModes[i]) {
+		case STATE_MASK_EXACT:
+			if (event.stateMask != this.stateMasks[i]) {
+				return false;
+			}
+			break;
+		case STATE_MASK_WILDCARD:
+			if ((event.stateMask | this.stateMasks[i]) != this.stateMasks[i]) {
+				return false;
+			}
+			break;
+		default:
+			break;
+		}
+		return this.matchers[i].matches(natTable, event, regionLabels);
+	}
+	
+}
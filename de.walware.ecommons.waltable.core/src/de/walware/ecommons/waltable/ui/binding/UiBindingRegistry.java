@@ -10,8 +10,11 @@
  ******************************************************************************/
 package de.walware.ecommons.waltable.ui.binding;
 
+import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 
 import org.eclipse.swt.events.KeyEvent;
@@ -36,6 +39,10 @@ public class UiBindingRegistry implements IUiBindingRegistry {
 	
 	private final LinkedList<DragBinding> dragBindings= new LinkedList<>();
 	
+	private final Map<MouseEventTypeEnum, MouseBindingIndex<IMouseAction>> mouseBindingIndexes= new EnumMap<>(MouseEventTypeEnum.class);
+	
+	private MouseBindingIndex<IDragMode> dragBindingIndex;
+	
 	public UiBindingRegistry(final NatTable natTable) {
 		this.natTable= natTable;
 	}
@@ -54,71 +61,99 @@ public class UiBindingRegistry implements IUiBindingRegistry {
 	
 	@Override
 	public IDragMode getDragMode(final MouseEvent event) {
-		final LabelStack regionLabels= this.natTable.getRegionLabelsByXY(event.x, event.y);
+		return getDragMode(event, this.natTable.getRegionLabelsByXY(event.x, event.y));
+	}
+	
+	public IDragMode getDragMode(final MouseEvent event, final LabelStack regionLabels) {
+		MouseBindingIndex<IDragMode> index= this.dragBindingIndex;
+		if (index == null) {
+			final List<IMouseEventMatcher> matchers= new ArrayList<>(this.dragBindings.size());
+			final List<IDragMode> dragModes= new ArrayList<>(this.dragBindings.size());
+			for (final DragBinding dragBinding : this.dragBindings) {
+				matchers.add(dragBinding.getMouseEventMatcher());
+				dragModes.add(dragBinding.getDragMode());
+			}
+			index= new MouseBindingIndex<>(matchers, dragModes);
+			this.dragBindingIndex= index;
+		}
 		
-	    for (final DragBinding dragBinding : this.dragBindings) {
-	        if (dragBinding.getMouseEventMatcher().matches(this.natTable, event, regionLabels)) {
-	            return dragBinding.getDragMode();
-	        }
-	    }
-	    
-		return null;
+		return index.get(this.natTable, event, regionLabels);
 	}
 	
 	@Override
 	public IMouseAction getMouseMoveAction(final MouseEvent event) {
-		return getMouseEventAction(MouseEventTypeEnum.MOUSE_MOVE, event);
+		return getMouseEventAction(MouseEventTypeEnum.MOUSE_MOVE, event, null);
+	}
+	
+	public IMouseAction getMouseMoveAction(final MouseEvent event, final LabelStack regionLabels) {
+		return getMouseEventAction(MouseEventTypeEnum.MOUSE_MOVE, event, regionLabels);
 	}
 	
 	@Override
 	public IMouseAction getMouseDownAction(final MouseEvent event) {
-		return getMouseEventAction(MouseEventTypeEnum.MOUSE_DOWN, event);
+		return getMouseEventAction(MouseEventTypeEnum.MOUSE_DOWN, event, null);
+	}
+	
+	public IMouseAction getMouseDownAction(final MouseEvent event, final LabelStack regionLabels) {
+		return getMouseEventAction(MouseEventTypeEnum.MOUSE_DOWN, event, regionLabels);
 	}
 	
 	@Override
 	public IMouseAction getSingleClickAction(final MouseEvent event) {
-		return getMouseEventAction(MouseEventTypeEnum.MOUSE_SINGLE_CLICK, event);
+		return getMouseEventAction(MouseEventTypeEnum.MOUSE_SINGLE_CLICK, event, null);
+	}
+	
+	public IMouseAction getSingleClickAction(final MouseEvent event, final LabelStack regionLabels) {
+		return getMouseEventAction(MouseEventTypeEnum.MOUSE_SINGLE_CLICK, event, regionLabels);
 	}
 	
 	@Override
 	public IMouseAction getDoubleClickAction(final MouseEvent event) {
-		return getMouseEventAction(MouseEventTypeEnum.MOUSE_DOUBLE_CLICK, event);
+		return getMouseEventAction(MouseEventTypeEnum.MOUSE_DOUBLE_CLICK, event, null);
+	}
+	
+	public IMouseAction getDoubleClickAction(final MouseEvent event, final LabelStack regionLabels) {
+		return getMouseEventAction(MouseEventTypeEnum.MOUSE_DOUBLE_CLICK, event, regionLabels);
 	}
 	
 	@Override
 	public IMouseAction getMouseHoverAction(final MouseEvent event) {
-		return getMouseEventAction(MouseEventTypeEnum.MOUSE_HOVER, event);
+		return getMouseEventAction(MouseEventTypeEnum.MOUSE_HOVER, event, null);
+	}
+	
+	public IMouseAction getMouseHoverAction(final MouseEvent event, final LabelStack regionLabels) {
+		return getMouseEventAction(MouseEventTypeEnum.MOUSE_HOVER, event, regionLabels);
 	}
 	
 	@Override
 	public IMouseAction getMouseEnterAction(final MouseEvent event) {
-		return getMouseEventAction(MouseEventTypeEnum.MOUSE_ENTER, event);		
+		return getMouseEventAction(MouseEventTypeEnum.MOUSE_ENTER, event, null);
+	}
+	
+	public IMouseAction getMouseEnterAction(final MouseEvent event, final LabelStack regionLabels) {
+		return getMouseEventAction(MouseEventTypeEnum.MOUSE_ENTER, event, regionLabels);
 	}
 	
 	@Override
 	public IMouseAction getMouseExitAction(final MouseEvent event) {
-		return getMouseEventAction(MouseEventTypeEnum.MOUSE_EXIT, event);
+		return getMouseEventAction(MouseEventTypeEnum.MOUSE_EXIT, event, null);
+	}
+	
+	public IMouseAction getMouseExitAction(final MouseEvent event, final LabelStack regionLabels) {
+		return getMouseEventAction(MouseEventTypeEnum.MOUSE_EXIT, event, regionLabels);
 	}
 	
 	///////////////////////////////////////////////////////////////////////////
 	
-	private IMouseAction getMouseEventAction(final MouseEventTypeEnum mouseEventType, final MouseEvent event) {
-
-        // TODO: This code can be made more performant by mapping mouse bindings not only to the mouseEventType but 
-	    // also to the region that they are interested in. That way, given an area and an event we can narrow down the
-	    // list of mouse bindings that need to be searched. -- Azubuko.Obele
-	    
+	private IMouseAction getMouseEventAction(final MouseEventTypeEnum mouseEventType, final MouseEvent event,
+			LabelStack regionLabels) {
 		try {
-			final LinkedList<MouseBinding> mouseEventBindings= this.mouseBindingsMap.get(mouseEventType);
-			if (mouseEventBindings != null) {
-				final LabelStack regionLabels= this.natTable.getRegionLabelsByXY(event.x, event.y);
-				
-			    for (final MouseBinding mouseBinding : mouseEventBindings) {
-			        
-			        if (mouseBinding.getMouseEventMatcher().matches(this.natTable, event, regionLabels)) {
-			            return mouseBinding.getAction();
-			        }
-			    }
+			final MouseBindingIndex<IMouseAction> index= getMouseBindingIndex(mouseEventType);
+			if (index != null) {
+				if (regionLabels == null) {
+					regionLabels= this.natTable.getRegionLabelsByXY(event.x, event.y);
+				}
+				return index.get(this.natTable, event, regionLabels);
 			}
 		} catch (final Exception e) {
 			e.printStackTrace();
@@ -126,6 +161,25 @@ public class UiBindingRegistry implements IUiBindingRegistry {
 		return null;
 	}
 	
+	private MouseBindingIndex<IMouseAction> getMouseBindingIndex(final MouseEventTypeEnum mouseEventType) {
+		MouseBindingIndex<IMouseAction> index= this.mouseBindingIndexes.get(mouseEventType);
+		if (index == null) {
+			final LinkedList<MouseBinding> mouseEventBindings= this.mouseBindingsMap.get(mouseEventType);
+			if (mouseEventBindings == null || mouseEventBindings.isEmpty()) {
+				return null;
+			}
+			final List<IMouseEventMatcher> matchers= new ArrayList<>(mouseEventBindings.size());
+			final List<IMouseAction> actions= new ArrayList<>(mouseEventBindings.size());
+			for (final MouseBinding mouseBinding : mouseEventBindings) {
+				matchers.add(mouseBinding.getMouseEventMatcher());
+				actions.add(mouseBinding.getAction());
+			}
+			index= new MouseBindingIndex<>(matchers, actions);
+			this.mouseBindingIndexes.put(mouseEventType, index);
+		}
+		return index;
+	}
+	
 	// Registration ///////////////////////////////////////////////////////////
 
 	// Key
@@ -151,16 +205,19 @@ public class UiBindingRegistry implements IUiBindingRegistry {
 
 	public void registerFirstMouseDragMode(final IMouseEventMatcher mouseEventMatcher, final IDragMode dragMode) {
 		this.dragBindings.addFirst(new DragBinding(mouseEventMatcher, dragMode));
+		this.dragBindingIndex= null;
 	}
 
 	public void registerMouseDragMode(final IMouseEventMatcher mouseEventMatcher, final IDragMode dragMode) {
 		this.dragBindings.addLast(new DragBinding(mouseEventMatcher, dragMode));
+		this.dragBindingIndex= null;
 	}
 	
 	public void unregisterMouseDragMode(final IMouseEventMatcher mouseEventMatcher) {
 		for (final DragBinding dragBinding : this.dragBindings) {
 			if (dragBinding.getMouseEventMatcher().equals(mouseEventMatcher)) {
 				this.dragBindings.remove(dragBinding);
+				this.dragBindingIndex= null;
 				return;
 			}
 		}
@@ -277,6 +334,7 @@ public class UiBindingRegistry implements IUiBindingRegistry {
 		} else {
 			mouseEventBindings.addLast(new MouseBinding(mouseEventMatcher, action));
 		}
+		this.mouseBindingIndexes.remove(mouseEventType);
 	}
 	
 	private void unregisterMouseBinding(final MouseEventTypeEnum mouseEventType, final IMouseEventMatcher mouseEventMatcher) {
@@ -284,6 +342,7 @@ public class UiBindingRegistry implements IUiBindingRegistry {
 		for (final MouseBinding mouseBinding : mouseBindings) {
 			if (mouseBinding.getMouseEventMatcher().equals(mouseEventMatcher)) {
 				mouseBindings.remove(mouseBinding);
+				this.mouseBindingIndexes.remove(mouseEventType);
 				return;
 			}
 		}
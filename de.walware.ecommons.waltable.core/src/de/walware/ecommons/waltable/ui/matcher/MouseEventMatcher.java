@@ -18,6 +18,14 @@ import de.walware.ecommons.waltable.grid.GridRegion;
 import de.walware.ecommons.waltable.layer.LabelStack;
 
 
+/**
+ * Mouse event matcher checking the state mask, the button and the region of the event.
+ * <p>
+ * Subclasses can add further criteria but must not weaken the criteria of this class:
+ * the {@link de.walware.ecommons.waltable.ui.binding.UiBindingRegistry} indexes the
+ * bindings by the properties of this matcher and skips the matcher if the event does
+ * not fulfill them.</p>
+ */
 public class MouseEventMatcher implements IMouseEventMatcher {
 
 	
@@ -78,6 +86,10 @@ public class MouseEventMatcher implements IMouseEventMatcher {
 		return this.regionName;
 	}
 	
+	public String getEventRegion2() {
+		return this.regionName2;
+	}
+	
 	public int getButton() {
 		return this.button;
 	}
@@ -16,6 +16,7 @@ import org.eclipse.swt.events.MouseEvent;
 
 import de.walware.ecommons.waltable.NatTable;
 import de.walware.ecommons.waltable.edit.EditUtils;
+import de.walware.ecommons.waltable.layer.LabelStack;
 import de.walware.ecommons.waltable.ui.NatEventData;
 import de.walware.ecommons.waltable.ui.action.IDragMode;
 import de.walware.ecommons.waltable.ui.action.IKeyAction;
@@ -46,15 +47,16 @@ public class ConfigurableModeEventHandler extends AbstractModeEventHandler {
 	@Override
 	public void mouseDown(final MouseEvent event) {
 		if (EditUtils.commitAndCloseActiveEditor()) {
-			final IMouseAction mouseDownAction= this.natTable.getUiBindingRegistry().getMouseDownAction(event);
+			final LabelStack regionLabels= getModeSupport().getRegionLabels(event);
+			final IMouseAction mouseDownAction= getUiBindingRegistry().getMouseDownAction(event, regionLabels);
 			if (mouseDownAction != null) {
 				event.data= NatEventData.createInstanceFromEvent(event);
 				mouseDownAction.run(this.natTable, event);
 			}
 			
-			final IMouseAction singleClickAction= getUiBindingRegistry().getSingleClickAction(event);
-			final IMouseAction doubleClickAction= getUiBindingRegistry().getDoubleClickAction(event);
-			final IDragMode dragMode= this.natTable.getUiBindingRegistry().getDragMode(event);
+			final IMouseAction singleClickAction= getUiBindingRegistry().getSingleClickAction(event, regionLabels);
+			final IMouseAction doubleClickAction= getUiBindingRegistry().getDoubleClickAction(event, regionLabels);
+			final IDragMode dragMode= getUiBindingRegistry().getDragMode(event, regionLabels);
 			
 			if (singleClickAction != null || doubleClickAction != null || dragMode != null) {
 				switchMode(new MouseModeEventHandler(getModeSupport(), this.natTable, event, singleClickAction, doubleClickAction, dragMode));
@@ -65,7 +67,8 @@ public class ConfigurableModeEventHandler extends AbstractModeEventHandler {
 	@Override
 	public synchronized void mouseMove(final MouseEvent event) {
 		if (event.x >= 0 && event.y >= 0) {
-			final IMouseAction mouseMoveAction= getUiBindingRegistry().getMouseMoveAction(event);
+			final IMouseAction mouseMoveAction= getUiBindingRegistry().getMouseMoveAction(event,
+					getModeSupport().getRegionLabels(event) );
 			if (mouseMoveAction != null) {
 				event.data= NatEventData.createInstanceFromEvent(event);
 				mouseMoveAction.run(this.natTable, event);
@@ -78,7 +81,8 @@ public class ConfigurableModeEventHandler extends AbstractModeEventHandler {
 	@Override
 	public synchronized void mouseHover(final MouseEvent event) {
 		if (event.x >= 0 && event.y >= 0) {
-			final IMouseAction mouseHoverAction= getUiBindingRegistry().getMouseHoverAction(event);
+			final IMouseAction mouseHoverAction= getUiBindingRegistry().getMouseHoverAction(event,
+					getModeSupport().getRegionLabels(event) );
 			if (mouseHoverAction != null) {
 				event.data= NatEventData.createInstanceFromEvent(event);
 				mouseHoverAction.run(this.natTable, event);
@@ -89,7 +93,8 @@ public class ConfigurableModeEventHandler extends AbstractModeEventHandler {
 	@Override
 	public synchronized void mouseEnter(final MouseEvent event) {
 		if (event.x >= 0 && event.y >= 0) {
-			final IMouseAction mouseEnterAction= getUiBindingRegistry().getMouseEnterAction(event);
+			final IMouseAction mouseEnterAction= getUiBindingRegistry().getMouseEnterAction(event,
+					getModeSupport().getRegionLabels(event) );
 			if (mouseEnterAction != null) {
 				event.data= NatEventData.createInstanceFromEvent(event);
 				mouseEnterAction.run(this.natTable, event);
@@ -102,7 +107,8 @@ public class ConfigurableModeEventHandler extends AbstractModeEventHandler {
 	@Override
 	public synchronized void mouseExit(final MouseEvent event) {
 		if (event.x >= 0 && event.y >= 0) {
-			final IMouseAction mouseExitAction= getUiBindingRegistry().getMouseExitAction(event);
+			final IMouseAction mouseExitAction= getUiBindingRegistry().getMouseExitAction(event,
+					getModeSupport().getRegionLabels(event) );
 			if (mouseExitAction != null) {
 				event.data= NatEventData.createInstanceFromEvent(event);
 				mouseExitAction.run(this.natTable, event);
@@ -23,6 +23,7 @@ import org.eclipse.swt.events.MouseMoveListener;
 import org.eclipse.swt.events.MouseTrackListener;
 
 import de.walware.ecommons.waltable.NatTable;
+import de.walware.ecommons.waltable.layer.LabelStack;
 
 
 /**
@@ -37,8 +38,15 @@ public class ModeSupport implements KeyListener, MouseListener,
 	private final Map<String, IModeEventHandler> modeEventHandlerMap= new HashMap<>();
 
 	private IModeEventHandler currentModeEventHandler;
+	
+	private final NatTable natTable;
+	
+	private MouseEvent regionLabelsEvent;
+	private LabelStack regionLabels;
 
 	public ModeSupport(final NatTable natTable) {
+		this.natTable= natTable;
+		
 		natTable.addKeyListener(this);
 		natTable.addMouseListener(this);
 		natTable.addMouseMoveListener(this);
@@ -81,6 +89,23 @@ public class ModeSupport implements KeyListener, MouseListener,
 		}
 		this.currentModeEventHandler= modeEventHandler;
 	}
+	
+	/**
+	 * Returns the region labels at the location of the given mouse event.
+	 * 
+	 * The labels are resolved only once per event, so the different lookups for an event
+	 * (mouse down, click, drag, ...) can share them.
+	 * 
+	 * @param event the mouse event
+	 * @return the region labels
+	 */
+	public LabelStack getRegionLabels(final MouseEvent event) {
+		if (event != this.regionLabelsEvent) {
+			this.regionLabels= this.natTable.getRegionLabelsByXY(event.x, event.y);
+			this.regionLabelsEvent= event;
+		}
+		return this.regionLabels;
+	}
 
 	@Override
 	public void keyPressed(final KeyEvent event) {
@@ -10,10 +10,9 @@
  ******************************************************************************/
 package de.walware.ecommons.waltable.util;
 
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
-import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
@@ -24,6 +23,9 @@ public class Scheduler implements ThreadFactory  {
 	
 	private static final ThreadGroup THREAD_GROUP= new ThreadGroup("NatTable"); //$NON-NLS-1$
 	
+	/** Time in milliseconds an idle thread is kept alive */
+	private static final long KEEP_ALIVE_TIME= 10000;
+	
 	public static ThreadGroup getNatTableThreadGroup() {
 		return THREAD_GROUP;
 	}
@@ -35,7 +37,7 @@ public class Scheduler implements ThreadFactory  {
 	
 	private long scheduledTasks;
 	
-	private ScheduledExecutorService threadPool;
+	private ScheduledThreadPoolExecutor threadPool;
 	
 	
 	public Scheduler(final String threadNamePrefix) {
@@ -57,9 +59,12 @@ public class Scheduler implements ThreadFactory  {
 		return getThreadPool().scheduleWithFixedDelay(runnable, initialDelayMillis, refreshIntervalMillis, TimeUnit.MILLISECONDS);
 	}
 	
-	private synchronized ScheduledExecutorService getThreadPool() {
+	private synchronized ScheduledThreadPoolExecutor getThreadPool() {
 		if (this.threadPool == null)	{
-			this.threadPool= Executors.newScheduledThreadPool(1,this);
+			this.threadPool= new ScheduledThreadPoolExecutor(1, this);
+			this.threadPool.setRemoveOnCancelPolicy(true);
+			this.threadPool.setKeepAliveTime(KEEP_ALIVE_TIME, TimeUnit.MILLISECONDS);
+			this.threadPool.allowCoreThreadTimeOut(true);
 		}
 		return this.threadPool;
 	}
@@ -67,15 +72,22 @@ public class Scheduler implements ThreadFactory  {
 	public synchronized void unschedule(final ScheduledFuture<?> future) {
 		future.cancel(false);
 		if (this.threadPool != null && --this.scheduledTasks <= 0) {
-			this.threadPool.shutdownNow();
-			this.threadPool= null;
+			// keep the pool if single tasks are pending
+			this.threadPool.purge();
+			if (this.threadPool.getQueue().isEmpty()) {
+				this.threadPool.shutdown();
+				this.threadPool= null;
+			}
 		}
 	}
 
 	@Override
 	public Thread newThread(final Runnable r) {
-		return new Thread(getNatTableThreadGroup(), r,
+		final Thread thread= new Thread(getNatTableThreadGroup(), r,
 				this.threadNamePrefix + "-" + this.counter.incrementAndGet() ); //$NON-NLS-1$
+		// don't prevent the application from exiting
+		thread.setDaemon(true);
+		return thread;
 	}
 	
 	public synchronized Future<?> submit(final Runnable runnable) {
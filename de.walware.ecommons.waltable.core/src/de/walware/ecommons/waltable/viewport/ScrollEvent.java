@@ -17,15 +17,43 @@ import de.walware.ecommons.waltable.layer.event.StructuralRefreshEvent;
 
 
 public class ScrollEvent extends StructuralRefreshEvent {
-
+	
+	
+	private final boolean contentMoved;
+	
+	
 	public ScrollEvent(final ViewportLayer viewportLayer) {
+		this(viewportLayer, false);
+	}
+	
+	/**
+	 * @param viewportLayer the scrolled viewport
+	 * @param contentMoved if the painted content of the table was already moved by the
+	 *     scroll delta, see {@link #isContentMoved()}
+	 */
+	public ScrollEvent(final ViewportLayer viewportLayer, final boolean contentMoved) {
 		super(viewportLayer);
+		this.contentMoved= contentMoved;
 	}
 	
 	protected ScrollEvent(final ScrollEvent event) {
 		super(event);
+		this.contentMoved= event.contentMoved;
 	}
 	
+	
+	/**
+	 * Returns if the painted content of the table was already moved by the scroll delta
+	 * (see {@link de.walware.ecommons.waltable.ui.IContentMover}),
+	 * so the table doesn't need to be repainted completely.
+	 * 
+	 * @return <code>true</code> if the content was moved
+	 */
+	public boolean isContentMoved() {
+		return this.contentMoved;
+	}
+	
+	
 	@Override
 	public ScrollEvent cloneEvent() {
 		return new ScrollEvent(this);
@@ -147,6 +147,10 @@ public class ViewportLayer extends TransformLayer {
 		fireLayerEvent(new ScrollEvent(this));
 	}
 	
+	protected void fireScrollEvent(final boolean contentMoved) {
+		fireLayerEvent(new ScrollEvent(this, contentMoved));
+	}
+	
 	@Override
 	public boolean doCommand(final ILayerCommand command) {
 		if (command instanceof ClientAreaResizeCommand) {
@@ -24,6 +24,7 @@ import de.walware.ecommons.waltable.layer.ILayerDim;
 import de.walware.ecommons.waltable.layer.TransformLayerDim;
 import de.walware.ecommons.waltable.layer.event.StructuralDiff;
 import de.walware.ecommons.waltable.swt.SWTUtil;
+import de.walware.ecommons.waltable.ui.IContentMover;
 
 
 /**
@@ -43,6 +44,7 @@ public class ViewportLayerDim extends TransformLayerDim<ViewportLayer> implement
 	private long cachedPositionCount;
 	private long cachedSize;
 	
+	private Scrollable control;
 	private ScrollBarHandler scrollBarHandler;
 	
 	
@@ -211,7 +213,7 @@ public class ViewportLayerDim extends TransformLayerDim<ViewportLayer> implement
 		this.minimumOriginPosition= scrollablePosition;
 		this.minimumOriginPixel= pixel;
 		
-		setOriginPixel(getOriginPixel() - delta);
+		updateOriginPixel(getOriginPixel() - delta);
 		
 		recalculateScrollBar();
 	}
@@ -266,16 +268,41 @@ public class ViewportLayerDim extends TransformLayerDim<ViewportLayer> implement
 		return pixel;
 	}
 	
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * If the viewport is shown in a control implementing {@link IContentMover}, the already
+	 * painted content is moved
+	 * by the scroll delta before the origin changes, so only the exposed part of the table
+	 * must be repainted.</p>
+	 */
 	@Override
 	public void setOriginPixel(final long scrollablePixel) {
+		final long originPixel= checkOriginPixel(scrollablePixel);
+		if (this.originPixel != originPixel) {
+			final boolean contentMoved= moveContent(originPixel - getOriginPixel());
+			doSetOriginPixel(originPixel);
+			this.layer.fireScrollEvent(contentMoved);
+		}
+	}
+	
+	/**
+	 * Sets the origin without moving the painted content, used if the origin changes because
+	 * of a change of the structure or the client area.
+	 */
+	protected void updateOriginPixel(final long scrollablePixel) {
 		if (doSetOriginPixel(scrollablePixel)) {
 			this.layer.fireScrollEvent();
 		}
 	}
 	
-	protected boolean doSetOriginPixel(long scrollablePixel) {
+	private long checkOriginPixel(long scrollablePixel) {
 		scrollablePixel= boundsCheckOrigin(scrollablePixel);
-		scrollablePixel= boundsCheckOrigin(adjustOrigin(scrollablePixel));
+		return boundsCheckOrigin(adjustOrigin(scrollablePixel));
+	}
+	
+	protected boolean doSetOriginPixel(long scrollablePixel) {
+		scrollablePixel= checkOriginPixel(scrollablePixel);
 		
 		if (this.originPixel != scrollablePixel) {
 			invalidateStructure();
@@ -305,7 +332,7 @@ public class ViewportLayerDim extends TransformLayerDim<ViewportLayer> implement
 		this.minimumOriginPixel= 0;
 		
 		this.originPixel= -1; // force to reset origin
-		setOriginPosition(scrollablePosition);
+		updateOriginPixel(this.underlyingDim.getPositionStart(scrollablePosition));
 	}
 	
 	@Override
@@ -516,7 +543,23 @@ public class ViewportLayerDim extends TransformLayerDim<ViewportLayer> implement
 	}
 	
 	
+	/**
+	 * Moves the painted content of the viewport in the control by the specified delta.
+	 * 
+	 * @return <code>true</code> if the content was moved
+	 */
+	private boolean moveContent(final long pixelDelta) {
+		final Scrollable control= this.control;
+		if (control instanceof IContentMover && !this.layer.isViewportOff()) {
+			return ((IContentMover) control).moveContent(this.orientation,
+					SWTUtil.getRange(this.layer.getClientAreaProvider().getClientArea(), this.orientation),
+					pixelDelta );
+		}
+		return false;
+	}
+	
 	protected void checkScrollBar(final Scrollable control) {
+		this.control= control;
 		if (this.scrollBarHandler != null) {
 			return;
 		}
@@ -543,14 +586,14 @@ public class ViewportLayerDim extends TransformLayerDim<ViewportLayer> implement
 			this.scrollBarHandler.recalculateScrollBarSize();
 			
 			if (!this.scrollBarHandler.getScrollBar().getEnabled()) {
-				setOriginPosition(getMinimumOriginPosition());
+				updateOriginPixel(getMinimumOriginPixel());
 			}
 		}
 	}
 	
 	protected void handleResize() {
 		recalculateAvailableSizeAndPositionCount();
-		setOriginPixel(getOriginPixel());
+		updateOriginPixel(getOriginPixel());
 		recalculateScrollBar();
 	}
 	
@@ -604,11 +647,11 @@ public class ViewportLayerDim extends TransformLayerDim<ViewportLayer> implement
 			if (selectedOriginPosition >= 0) {
 				final long pixel= this.underlyingDim.getPositionStart(selectedOriginPosition + selectedPositionChange);
 				if (pixel >= 0) {
-					setOriginPixel(pixel + selectedOriginPositionShift);
+					updateOriginPixel(pixel + selectedOriginPositionShift);
 				}
 			}
 			else {
-				setOriginPixel(selectedOriginPixel + (getMinimumOriginPixel() - minimumOriginPixel));
+				updateOriginPixel(selectedOriginPixel + (getMinimumOriginPixel() - minimumOriginPixel));
 			}
 		}
 		else {